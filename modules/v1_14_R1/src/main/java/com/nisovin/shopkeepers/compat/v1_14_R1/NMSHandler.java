@@ -35,6 +35,17 @@ import net.minecraft.server.v1_14_R1.PathfinderGoalSelector;
 
 public final class NMSHandler implements NMSCallProvider {
 
+	// resolved once, since entity AI gets overwritten for every spawned shop entity:
+	private final Field goalSelectorActiveGoalsField; // c
+	private final Field goalSelectorRegisteredGoalsField; // d
+
+	public NMSHandler() throws Exception {
+		goalSelectorActiveGoalsField = PathfinderGoalSelector.class.getDeclaredField("c");
+		goalSelectorActiveGoalsField.setAccessible(true);
+		goalSelectorRegisteredGoalsField = PathfinderGoalSelector.class.getDeclaredField("d");
+		goalSelectorRegisteredGoalsField.setAccessible(true);
+	}
+
 	@Override
 	public String getVersionId() {
 		return "1_14_R1";
@@ -46,43 +57,35 @@ public final class NMSHandler implements NMSCallProvider {
 			EntityLiving mcLivingEntity = ((CraftLivingEntity) entity).getHandle();
 			// example: armor stands are living, but not insentient
 			if (!(mcLivingEntity instanceof EntityInsentient)) return;
-
-			// make goal selector items accessible:
-			Field cField = PathfinderGoalSelector.class.getDeclaredField("c"); // active goals
-			cField.setAccessible(true);
-			Field dField = PathfinderGoalSelector.class.getDeclaredField("d"); // registered goals
-			dField.setAccessible(true);
+			EntityInsentient mcInsentientEntity = ((EntityInsentient) mcLivingEntity);
 
 			// overwrite goal selector:
-			Field goalsField = EntityInsentient.class.getDeclaredField("goalSelector");
-			goalsField.setAccessible(true);
-			PathfinderGoalSelector goals = (PathfinderGoalSelector) goalsField.get(mcLivingEntity);
+			PathfinderGoalSelector goals = mcInsentientEntity.goalSelector;
 
 			// clear old goals:
-			Map<?, ?> goals_c = (Map<?, ?>) cField.get(goals);
-			goals_c.clear();
-			Set<?> goals_d = (Set<?>) dField.get(goals);
-			goals_d.clear();
+			this.clearGoals(goals);
 
 			// add new goals:
-			goals.a(0, new PathfinderGoalFloat((EntityInsentient) mcLivingEntity));
-			goals.a(1, new PathfinderGoalLookAtPlayer((EntityInsentient) mcLivingEntity, EntityHuman.class, 12.0F, 1.0F));
+			goals.a(0, new PathfinderGoalFloat(mcInsentientEntity));
+			goals.a(1, new PathfinderGoalLookAtPlayer(mcInsentientEntity, EntityHuman.class, 12.0F, 1.0F));
 
 			// overwrite target selector:
-			Field targetsField = EntityInsentient.class.getDeclaredField("targetSelector");
-			targetsField.setAccessible(true);
-			PathfinderGoalSelector targets = (PathfinderGoalSelector) targetsField.get(mcLivingEntity);
+			PathfinderGoalSelector targets = mcInsentientEntity.targetSelector;
 
 			// clear old target goals:
-			Map<?, ?> targets_c = (Map<?, ?>) cField.get(targets);
-			targets_c.clear();
-			Set<?> targets_d = (Set<?>) dField.get(targets);
-			targets_d.clear();
+			this.clearGoals(targets);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
 	}
 
+	private void clearGoals(PathfinderGoalSelector goalSelector) throws Exception {
+		Map<?, ?> activeGoals = (Map<?, ?>) goalSelectorActiveGoalsField.get(goalSelector);
+		activeGoals.clear();
+		Set<?> registeredGoals = (Set<?>) goalSelectorRegisteredGoalsField.get(goalSelector);
+		registeredGoals.clear();
+	}
+
 	@Override
 	public void tickAI(LivingEntity entity) {
 		EntityLiving mcLivingEntity = ((CraftLivingEntity) entity).getHandle();
@@ -93,6 +96,14 @@ public final class NMSHandler implements NMSCallProvider {
 		mcInsentientEntity.getControllerLook().a(); // tick look controller
 	}
 
+	@Override
+	public void setHeadRotation(LivingEntity entity, float yaw, float pitch) {
+		EntityLiving mcLivingEntity = ((CraftLivingEntity) entity).getHandle();
+		// only rotates the head, similar to the look controller:
+		mcLivingEntity.setHeadRotation(yaw);
+		mcLivingEntity.pitch = pitch;
+	}
+
 	@Override
 	public void setOnGround(org.bukkit.entity.Entity entity, boolean onGround) {
 		Entity mcEntity = ((CraftEntity) entity).getHandle();
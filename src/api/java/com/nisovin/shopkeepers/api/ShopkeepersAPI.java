@@ -13,6 +13,7 @@ import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
 import com.nisovin.shopkeepers.api.shopobjects.DefaultShopObjectTypes;
 import com.nisovin.shopkeepers.api.shopobjects.ShopObjectTypesRegistry;
 import com.nisovin.shopkeepers.api.storage.ShopkeeperStorage;
+import com.nisovin.shopkeepers.api.tradelogging.TradeHistory;
 import com.nisovin.shopkeepers.api.ui.UIRegistry;
 
 public final class ShopkeepersAPI {
@@ -95,6 +96,17 @@ public final class ShopkeepersAPI {
 		return getPlugin().getShopkeeperStorage();
 	}
 
+	// TRADE HISTORY
+
+	/**
+	 * Gets the {@link TradeHistory}.
+	 * 
+	 * @return the trade history
+	 */
+	public static TradeHistory getTradeHistory() {
+		return getPlugin().getTradeHistory();
+	}
+
 	//
 
 	/**
@@ -13,6 +13,7 @@ import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
 import com.nisovin.shopkeepers.api.shopobjects.DefaultShopObjectTypes;
 import com.nisovin.shopkeepers.api.shopobjects.ShopObjectTypesRegistry;
 import com.nisovin.shopkeepers.api.storage.ShopkeeperStorage;
+import com.nisovin.shopkeepers.api.tradelogging.TradeHistory;
 import com.nisovin.shopkeepers.api.ui.DefaultUITypes;
 import com.nisovin.shopkeepers.api.ui.UIRegistry;
 
@@ -31,6 +32,7 @@ public interface ShopkeepersPlugin extends Plugin {
 	public static final String LIST_OWN_PERMISSION = "shopkeeper.list.own";
 	public static final String LIST_OTHERS_PERMISSION = "shopkeeper.list.others";
 	public static final String LIST_ADMIN_PERMISSION = "shopkeeper.list.admin";
+	public static final String HISTORY_PERMISSION = "shopkeeper.history";
 	public static final String REMOVE_OWN_PERMISSION = "shopkeeper.remove.own";
 	public static final String REMOVE_OTHERS_PERMISSION = "shopkeeper.remove.others";
 	public static final String REMOVE_ALL_PERMISSION = "shopkeeper.remove.all";
@@ -89,6 +91,15 @@ public interface ShopkeepersPlugin extends Plugin {
 	 */
 	public ShopkeeperStorage getShopkeeperStorage();
 
+	// TRADE HISTORY
+
+	/**
+	 * Gets the {@link TradeHistory}.
+	 * 
+	 * @return the trade history
+	 */
+	public TradeHistory getTradeHistory();
+
 	//
 
 	/**
@@ -12,6 +12,7 @@ import org.bukkit.block.Block;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Entity;
 
+import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
 import com.nisovin.shopkeepers.api.util.ChunkCoords;
 
 /**
@@ -152,6 +153,9 @@ public interface ShopkeeperRegistry {
 
 	/**
 	 * Gets all shopkeepers.
+	 * <p>
+	 * If shopkeepers get loaded lazily (depending on the plugin's configuration), this only includes the shopkeepers
+	 * that are currently loaded.
 	 * 
 	 * @return an unmodifiable view on all shopkeepers
 	 */
@@ -159,6 +163,9 @@ public interface ShopkeeperRegistry {
 
 	/**
 	 * Gets all shopkeepers grouped by the chunks they are in.
+	 * <p>
+	 * If shopkeepers get loaded lazily (depending on the plugin's configuration), this only includes the shopkeepers
+	 * that are currently loaded.
 	 * 
 	 * @return an unmodifiable view on all shopkeepers grouped by the chunks they are in
 	 */
@@ -180,4 +187,60 @@ public interface ShopkeeperRegistry {
 	 * @return all shopkeepers at the specified location
 	 */
 	public List<? extends Shopkeeper> getShopkeepersAtLocation(Location location);
+
+	/**
+	 * Gets all shopkeepers within the specified radius around the given location.
+	 * <p>
+	 * The distance gets measured to the center of the block the shopkeeper is located at.
+	 * 
+	 * @param location
+	 *            the center location
+	 * @param radius
+	 *            the radius, cannot be negative
+	 * @return a new list with the shopkeepers within the radius, in no particular order
+	 */
+	public List<? extends Shopkeeper> getShopkeepersInRadius(Location location, double radius);
+
+	/**
+	 * Gets all shopkeepers located inside the specified box.
+	 * 
+	 * @param world
+	 *            the world
+	 * @param minX
+	 *            the minimum block x coordinate (inclusive)
+	 * @param minY
+	 *            the minimum block y coordinate (inclusive)
+	 * @param minZ
+	 *            the minimum block z coordinate (inclusive)
+	 * @param maxX
+	 *            the maximum block x coordinate (inclusive)
+	 * @param maxY
+	 *            the maximum block y coordinate (inclusive)
+	 * @param maxZ
+	 *            the maximum block z coordinate (inclusive)
+	 * @return a new list with the shopkeepers inside the box, in no particular order
+	 */
+	public List<? extends Shopkeeper> getShopkeepersInBox(World world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ);
+
+	/**
+	 * Gets the shopkeeper that is nearest to the given location.
+	 * <p>
+	 * The distance gets measured to the center of the block the shopkeeper is located at.
+	 * 
+	 * @param location
+	 *            the location
+	 * @param maxDistance
+	 *            the maximum distance, cannot be negative
+	 * @return the nearest shopkeeper, or <code>null</code> if there is no shopkeeper within the maximum distance
+	 */
+	public Shopkeeper getNearestShopkeeper(Location location, double maxDistance);
+
+	/**
+	 * Gets all player shopkeepers owned by the specified player.
+	 * 
+	 * @param ownerUUID
+	 *            the owner's unique id
+	 * @return a new list with the player's shopkeepers, empty if there are none
+	 */
+	public List<? extends PlayerShopkeeper> getPlayerShopkeepersByOwner(UUID ownerUUID);
 }
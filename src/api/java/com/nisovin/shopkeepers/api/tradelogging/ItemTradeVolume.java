@@ -0,0 +1,44 @@
+package com.nisovin.shopkeepers.api.tradelogging;
+
+import java.time.LocalDate;
+
+import org.bukkit.Material;
+
+/**
+ * The traded amount of a specific type of item on a specific day.
+ * 
+ * @see TradeHistory#getDailyItemVolumes(java.util.UUID, long, long)
+ */
+public interface ItemTradeVolume {
+
+	/**
+	 * Gets the day, in the server's time zone.
+	 * 
+	 * @return the day
+	 */
+	public LocalDate getDay();
+
+	/**
+	 * Gets the type of the traded item.
+	 * <p>
+	 * This is the item that got bought by the shop for buying shops, and the result item for all other shops. The
+	 * currency items paid or received by the shop are not included.
+	 * 
+	 * @return the item type
+	 */
+	public Material getItemType();
+
+	/**
+	 * Gets the number of trades.
+	 * 
+	 * @return the number of trades
+	 */
+	public int getTradesCount();
+
+	/**
+	 * Gets the total amount of items that got traded.
+	 * 
+	 * @return the total amount of traded items
+	 */
+	public int getItemAmount();
+}
@@ -0,0 +1,107 @@
+package com.nisovin.shopkeepers.api.tradelogging;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Records the trades with shopkeepers and allows them to be queried.
+ * <p>
+ * The trade history is only available if it is enabled in the config. The queries are executed asynchronously: The
+ * returned futures get completed on a different thread than the main server thread. Trades that got recorded before a
+ * query was issued are included in the query's results.
+ * <p>
+ * Times are specified in milliseconds since the epoch. Trades get returned with the most recent trades first.
+ */
+public interface TradeHistory {
+
+	/**
+	 * Checks if the trade history is enabled.
+	 * <p>
+	 * If it is disabled, no trades get recorded and all queries return empty results.
+	 * 
+	 * @return <code>true</code> if enabled
+	 */
+	public boolean isEnabled();
+
+	/**
+	 * Gets the trades of the specified shopkeeper within the given time range.
+	 * 
+	 * @param shopkeeperUUID
+	 *            the shopkeeper's unique id
+	 * @param fromTime
+	 *            the start of the time range (inclusive)
+	 * @param toTime
+	 *            the end of the time range (exclusive)
+	 * @param offset
+	 *            the number of matching trades to skip
+	 * @param limit
+	 *            the maximum number of trades to return
+	 * @return the future providing the trades
+	 */
+	public CompletableFuture<List<TradeRecord>> getTradesByShopkeeper(UUID shopkeeperUUID, long fromTime, long toTime, int offset, int limit);
+
+	/**
+	 * Gets the trades of the specified player within the given time range.
+	 * 
+	 * @param playerUUID
+	 *            the player's unique id
+	 * @param fromTime
+	 *            the start of the time range (inclusive)
+	 * @param toTime
+	 *            the end of the time range (exclusive)
+	 * @param offset
+	 *            the number of matching trades to skip
+	 * @param limit
+	 *            the maximum number of trades to return
+	 * @return the future providing the trades
+	 */
+	public CompletableFuture<List<TradeRecord>> getTradesByPlayer(UUID playerUUID, long fromTime, long toTime, int offset, int limit);
+
+	/**
+	 * Gets the unique id of the player that most recently traded under the given name.
+	 * <p>
+	 * This can be used to look up players that are not online, without having to search through all players that have
+	 * ever played on the server. The name is compared case-insensitively.
+	 * 
+	 * @param playerName
+	 *            the player name
+	 * @return the future providing the player's unique id, or <code>null</code> if no trades have been recorded for
+	 *         the given player name
+	 */
+	public CompletableFuture<UUID> getPlayerUUID(String playerName);
+
+	/**
+	 * Gets all trades within the given time range.
+	 * 
+	 * @param fromTime
+	 *            the start of the time range (inclusive)
+	 * @param toTime
+	 *            the end of the time range (exclusive)
+	 * @param offset
+	 *            the number of matching trades to skip
+	 * @param limit
+	 *            the maximum number of trades to return
+	 * @return the future providing the trades
+	 */
+	public CompletableFuture<List<TradeRecord>> getTrades(long fromTime, long toTime, int offset, int limit);
+
+	/**
+	 * Gets the traded amounts per day and type of traded item within the given time range.
+	 * <p>
+	 * The traded item is the item that got bought by the shop for buying shops, and the result item for all other
+	 * shops. See {@link ItemTradeVolume#getItemType()}.
+	 * <p>
+	 * The returned volumes are sorted by day (most recent day first), and then by item type.
+	 * 
+	 * @param shopkeeperUUID
+	 *            the unique id of the shopkeeper to limit the query to, or <code>null</code> to consider the trades of
+	 *            all shopkeepers
+	 * @param fromTime
+	 *            the start of the time range (inclusive)
+	 * @param toTime
+	 *            the end of the time range (exclusive)
+	 * @return the future providing the item volumes
+	 */
+	public CompletableFuture<List<ItemTradeVolume>> getDailyItemVolumes(UUID shopkeeperUUID, long fromTime, long toTime);
+}
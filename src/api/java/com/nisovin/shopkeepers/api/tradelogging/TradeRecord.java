@@ -0,0 +1,104 @@
+package com.nisovin.shopkeepers.api.tradelogging;
+
+import java.util.UUID;
+
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * A trade that got recorded by the {@link TradeHistory}.
+ */
+public interface TradeRecord {
+
+	/**
+	 * Gets the time of the trade, in milliseconds since the epoch.
+	 * 
+	 * @return the time of the trade
+	 */
+	public long getTimestamp();
+
+	/**
+	 * Gets the unique id of the trading player.
+	 * 
+	 * @return the player's unique id
+	 */
+	public UUID getPlayerUUID();
+
+	/**
+	 * Gets the name of the trading player at the time of the trade.
+	 * 
+	 * @return the player's name
+	 */
+	public String getPlayerName();
+
+	/**
+	 * Gets the unique id of the shopkeeper.
+	 * 
+	 * @return the shopkeeper's unique id
+	 */
+	public UUID getShopkeeperUUID();
+
+	/**
+	 * Gets the identifier of the shopkeeper's shop type.
+	 * 
+	 * @return the shop type identifier
+	 */
+	public String getShopTypeId();
+
+	/**
+	 * Gets the unique id of the shop owner, if the shopkeeper was a player shopkeeper at the time of the trade.
+	 * 
+	 * @return the owner's unique id, or <code>null</code> for admin shopkeepers
+	 */
+	public UUID getOwnerUUID();
+
+	/**
+	 * Gets the name of the world the shopkeeper was located in.
+	 * 
+	 * @return the world name
+	 */
+	public String getWorldName();
+
+	/**
+	 * Gets the shopkeeper's x coordinate at the time of the trade.
+	 * 
+	 * @return the x coordinate
+	 */
+	public int getX();
+
+	/**
+	 * Gets the shopkeeper's y coordinate at the time of the trade.
+	 * 
+	 * @return the y coordinate
+	 */
+	public int getY();
+
+	/**
+	 * Gets the shopkeeper's z coordinate at the time of the trade.
+	 * 
+	 * @return the z coordinate
+	 */
+	public int getZ();
+
+	/**
+	 * Gets a copy of the item the player received.
+	 * 
+	 * @return the result item
+	 */
+	public ItemStack getResultItem();
+
+	/**
+	 * Gets a copy of the first item the player paid with.
+	 * <p>
+	 * The item's amount matches the amount required by the trade.
+	 * 
+	 * @return the first item
+	 */
+	public ItemStack getItem1();
+
+	/**
+	 * Gets a copy of the second item the player paid with.
+	 * 
+	 * @return the second item, or <code>null</code> if the trade only required one item
+	 */
+	public ItemStack getItem2();
+}
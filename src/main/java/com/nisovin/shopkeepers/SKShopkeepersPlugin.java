@@ -2,7 +2,6 @@ package com.nisovin.shopkeepers;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -27,7 +26,6 @@ import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.events.ShopkeeperRemoveEvent;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopCreationData;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopType;
-import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
 import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
 import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
 import com.nisovin.shopkeepers.chestprotection.ProtectedChests;
@@ -59,6 +57,7 @@ import com.nisovin.shopkeepers.shopobjects.citizens.CitizensShops;
 import com.nisovin.shopkeepers.shopobjects.living.LivingShops;
 import com.nisovin.shopkeepers.shopobjects.sign.SignShops;
 import com.nisovin.shopkeepers.storage.SKShopkeeperStorage;
+import com.nisovin.shopkeepers.tradelogging.SKTradeHistory;
 import com.nisovin.shopkeepers.tradelogging.TradeFileLogger;
 import com.nisovin.shopkeepers.ui.SKUIRegistry;
 import com.nisovin.shopkeepers.ui.defaults.SKDefaultUITypes;
@@ -100,6 +99,8 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 	private final Commands commands = new Commands(this);
 	private final ShopkeeperNaming shopkeeperNaming = new ShopkeeperNaming(this);
 	private final ShopkeeperCreation shopkeeperCreation = new ShopkeeperCreation(this);
+	private final TradeFileLogger tradeFileLogger = new TradeFileLogger(this);
+	private final SKTradeHistory tradeHistory = new SKTradeHistory(this);
 
 	private final ProtectedChests protectedChests = new ProtectedChests(this);
 	private final LivingShops livingShops = new LivingShops(this);
@@ -201,7 +202,10 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 		PluginManager pm = Bukkit.getPluginManager();
 		pm.registerEvents(new PlayerJoinQuitListener(this), this);
 		pm.registerEvents(new TradingCountListener(this), this);
-		pm.registerEvents(new TradeFileLogger(this.getDataFolder()), this);
+
+		// enable trade logging:
+		tradeFileLogger.onEnable();
+		tradeHistory.onEnable();
 
 		// DEFAULT SHOP TYPES
 
@@ -326,6 +330,10 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 		shopkeeperNaming.onDisable();
 		shopkeeperCreation.onDisable();
 
+		// disable trade logging (writes the remaining log entries):
+		tradeFileLogger.onDisable();
+		tradeHistory.onDisable();
+
 		// clear all types of registers:
 		shopTypesRegistry.clearAll();
 		shopObjectTypesRegistry.clearAll();
@@ -392,6 +400,13 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 		return shopkeeperStorage;
 	}
 
+	// TRADE HISTORY
+
+	@Override
+	public SKTradeHistory getTradeHistory() {
+		return tradeHistory;
+	}
+
 	// COMMANDS
 
 	public Commands getCommands() {
@@ -506,13 +521,7 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 	private void removeInactivePlayerShops() {
 		if (Settings.playerShopkeeperInactiveDays <= 0) return;
 
-		Set<UUID> playerUUIDs = new HashSet<>();
-		for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
-			if (shopkeeper instanceof PlayerShopkeeper) {
-				PlayerShopkeeper playerShop = (PlayerShopkeeper) shopkeeper;
-				playerUUIDs.add(playerShop.getOwnerUUID());
-			}
-		}
+		Set<UUID> playerUUIDs = shopkeeperRegistry.getPlayerShopkeeperOwners();
 		if (playerUUIDs.isEmpty()) {
 			// no player shops found:
 			return;
@@ -544,16 +553,7 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 				for (OfflinePlayer inactivePlayer : inactivePlayers) {
 					// remove all shops of this inactive player:
 					UUID playerUUID = inactivePlayer.getUniqueId();
-
-					for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
-						if (shopkeeper instanceof PlayerShopkeeper) {
-							PlayerShopkeeper playerShop = (PlayerShopkeeper) shopkeeper;
-							UUID ownerUUID = playerShop.getOwnerUUID();
-							if (ownerUUID.equals(playerUUID)) {
-								forRemoval.add(playerShop);
-							}
-						}
-					}
+					forRemoval.addAll(shopkeeperRegistry.getPlayerShopkeepersByOwner(playerUUID));
 				}
 
 				// remove those shopkeepers:
@@ -575,26 +575,21 @@ public class SKShopkeepersPlugin extends JavaPlugin implements ShopkeepersPlugin
 
 	// updates owner names for the shopkeepers of the specified player:
 	private void updateShopkeepersForPlayer(UUID playerUUID, String playerName) {
+		// load the not yet loaded shopkeepers whose stored owner name is outdated:
+		shopkeeperRegistry.loadLazyShopkeepersOfOwner(playerUUID, playerName);
 		boolean dirty = false;
-		for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
-			if (shopkeeper instanceof PlayerShopkeeper) {
-				PlayerShopkeeper playerShop = (PlayerShopkeeper) shopkeeper;
-				UUID ownerUUID = playerShop.getOwnerUUID();
-				String ownerName = playerShop.getOwnerName();
-
-				if (ownerUUID.equals(playerUUID)) {
-					if (!ownerName.equals(playerName)) {
-						// update the stored name, because the player must have changed it:
-						playerShop.setOwner(playerUUID, playerName);
-						dirty = true;
-					} else {
-						// The shop was already updated to uuid based identification and the player's name hasn't
-						// changed.
-						// If we assume that this is consistent among all shops of this player
-						// we can stop checking the other shops here:
-						return;
-					}
-				}
+		for (PlayerShopkeeper playerShop : shopkeeperRegistry.getLoadedPlayerShopkeepersByOwner(playerUUID)) {
+			String ownerName = playerShop.getOwnerName();
+			if (!ownerName.equals(playerName)) {
+				// update the stored name, because the player must have changed it:
+				playerShop.setOwner(playerUUID, playerName);
+				dirty = true;
+			} else {
+				// The shop was already updated to uuid based identification and the player's name hasn't
+				// changed.
+				// If we assume that this is consistent among all shops of this player
+				// we can stop checking the other shops here:
+				return;
 			}
 		}
 
@@ -16,6 +16,7 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
 import com.nisovin.shopkeepers.util.ConversionUtils;
+import com.nisovin.shopkeepers.util.ItemMatcher;
 import com.nisovin.shopkeepers.util.ItemUtils;
 import com.nisovin.shopkeepers.util.Log;
 import com.nisovin.shopkeepers.util.StringUtils;
@@ -33,8 +34,12 @@ public class Settings {
 	/*
 	 * Shopkeeper Data
 	 */
+	public static String storageType = "yaml";
 	public static String fileEncoding = "UTF-8";
 	public static boolean saveInstantly = true;
+	public static boolean saveJournal = false;
+	public static boolean lazyShopkeeperLoading = false;
+	public static int lazyShopkeeperUnloadDelay = 10;
 
 	/*
 	 * Plugin Compatibility
@@ -66,6 +71,8 @@ public class Settings {
 	public static boolean protectChests = true;
 	public static boolean preventItemMovement = true;
 	public static boolean deleteShopkeeperOnBreakChest = false;
+	// in seconds: chest changes by other plugins might not be reflected by the chest stock snapshots for this long
+	public static int chestStockMaxAge = 5;
 
 	public static int playerShopkeeperInactiveDays = 0;
 
@@ -135,6 +142,9 @@ public class Settings {
 	public static boolean useLegacyMobBehavior = false;
 	public static boolean disableGravity = false;
 	public static int gravityChunkRange = 4;
+	public static int mobBehaviorTickPeriod = 1;
+	public static int mobBehaviorTickBudget = 5000;
+	public static boolean useLookOnlyMobAI = false;
 	public static boolean silenceLivingShopEntities = true;
 
 	public static boolean showNameplates = true;
@@ -201,6 +211,8 @@ public class Settings {
 	public static boolean preventTradingWhileOwnerIsOnline = false;
 	public static boolean useStrictItemComparison = false;
 	public static boolean enablePurchaseLogging = false;
+	public static int purchaseLogMaxFileSize = 10;
+	public static boolean enableTradeHistory = false;
 
 	public static int taxRate = 0;
 	public static boolean taxRoundUp = false;
@@ -354,6 +366,15 @@ public class Settings {
 	public static String msgListPlayerShopsHeader = "&9Player '&e{player}&9' has &e{shopsCount} &9shops: &e(Page {page} of {maxPage})";
 	public static String msgListShopsEntry = "  &e{shopIndex}) &8{shopName}&r&7at &8({location})&7, type: &8{shopType}&7, object type: &8{objectType}";
 
+	public static String msgTradeHistoryDisabled = "&cThe trade history is disabled.";
+	public static String msgTradeHistoryQueryFailed = "&cCould not query the trade history! Check the server log for details.";
+	public static String msgTradeHistoryNoTrades = "  &7No trades found.";
+	public static String msgTradeHistoryShopHeader = "&9Shop '&e{shop}&9' had &e{tradesCount} &9trades in the last &e{days} &9days:";
+	public static String msgTradeHistorySoldItemVolumeEntry = "  &e{day}&7: sold &8{amount}x {item} &7in &8{tradesCount} &7trades";
+	public static String msgTradeHistoryBoughtItemVolumeEntry = "  &e{day}&7: bought &8{amount}x {item} &7in &8{tradesCount} &7trades";
+	public static String msgTradeHistoryPlayerHeader = "&9Trades of player '&e{player}&9' in the last &e{days} &9days: &e(Page {page})";
+	public static String msgTradeHistoryTradeEntry = "  &e{time} &7at &8({location})&7: &8{result} &7for &8{costs}";
+
 	public static String msgRemovedAdminShops = "&e{shopsCount} &aadmin shops were removed.";
 	public static String msgRemovedPlayerShops = "&e{shopsCount} &ashops of player '&e{player}&a' were removed.";
 	public static String msgRemovedAllPlayerShops = "&aAll &e{shopsCount} &aplayer shops were removed.";
@@ -397,9 +418,34 @@ public class Settings {
 	public static String msgCommandDescriptionTransfer = "Transfers the ownership of a shop.";
 	public static String msgCommandDescriptionSettradeperm = "Sets, removes (-) or displays (?) the trading permission.";
 	public static String msgCommandDescriptionSetforhire = "Sets one of your shops for sale.";
+	public static String msgCommandDescriptionHistory = "Shows the items traded by the specified (or targeted) shop per day.";
+	public static String msgCommandDescriptionHistoryPlayer = "Shows the recent trades of the specified player.";
 
 	// /////
 
+	// kept separate from the settings fields, which get loaded from the config:
+	private static class ItemMatchers {
+
+		private static ItemMatcher hireItem;
+		private static ItemMatcher currency;
+		private static ItemMatcher highCurrency; // null if the high currency is disabled
+
+		static {
+			// matchers for the default settings, until the config gets loaded:
+			setup();
+		}
+
+		private static void setup() {
+			hireItem = new ItemMatcher(Settings.hireItem, hireItemName, hireItemLore);
+			currency = new ItemMatcher(currencyItem, currencyItemName, currencyItemLore);
+			if (isHighCurrencyEnabled()) {
+				highCurrency = new ItemMatcher(highCurrencyItem, highCurrencyItemName, highCurrencyItemLore);
+			} else {
+				highCurrency = null;
+			}
+		}
+	}
+
 	private static String toConfigKey(String fieldName) {
 		return fieldName.replaceAll("([A-Z][a-z]+)", "-$1").toLowerCase();
 	}
@@ -419,7 +465,7 @@ public class Settings {
 
 		// exempt a few string / string list settings from color conversion:
 		List<String> noColorConversionKeys = Arrays.asList(
-				toConfigKey("fileEncoding"), toConfigKey("shopCreationItemSpawnEggEntityType"),
+				toConfigKey("storageType"), toConfigKey("fileEncoding"), toConfigKey("shopCreationItemSpawnEggEntityType"),
 				toConfigKey("maxShopsPermOptions"), toConfigKey("enabledLivingShops"),
 				toConfigKey("nameRegex"), toConfigKey("language"));
 		try {
@@ -482,10 +528,30 @@ public class Settings {
 			Log.warning("Config: 'max-chest-distance' can be at most 50.");
 			maxChestDistance = 50;
 		}
+		if (chestStockMaxAge < 0) {
+			Log.warning("Config: 'chest-stock-max-age' cannot be negative.");
+			chestStockMaxAge = 0;
+		}
+		if (lazyShopkeeperUnloadDelay < 1) {
+			Log.warning("Config: 'lazy-shopkeeper-unload-delay' has to be at least 1.");
+			lazyShopkeeperUnloadDelay = 1;
+		}
+		if (purchaseLogMaxFileSize < 0) {
+			Log.warning("Config: 'purchase-log-max-file-size' cannot be negative.");
+			purchaseLogMaxFileSize = 0;
+		}
 		if (gravityChunkRange < 0) {
 			Log.warning("Config: 'gravity-chunk-range' cannot be negative.");
 			gravityChunkRange = 0;
 		}
+		if (mobBehaviorTickPeriod < 1) {
+			Log.warning("Config: 'mob-behavior-tick-period' has to be at least 1.");
+			mobBehaviorTickPeriod = 1;
+		}
+		if (mobBehaviorTickBudget < 0) {
+			Log.warning("Config: 'mob-behavior-tick-budget' cannot be negative.");
+			mobBehaviorTickBudget = 0;
+		}
 		if (highCurrencyValue <= 0 && highCurrencyItem != Material.AIR) {
 			Log.debug("Config: 'high-currency-item' disabled because of 'high-currency-value' being less than 1.");
 			highCurrencyItem = Material.AIR;
@@ -517,6 +583,9 @@ public class Settings {
 			taxRate = 100;
 		}
 
+		// set up the item matchers for the loaded settings:
+		ItemMatchers.setup();
+
 		return configChanged;
 	}
 
@@ -765,7 +834,18 @@ public class Settings {
 	}
 
 	public static boolean isHireItem(ItemStack item) {
-		return ItemUtils.isSimilar(item, hireItem, hireItemName, hireItemLore);
+		return ItemMatchers.hireItem.matches(item);
+	}
+
+	/**
+	 * Gets the item matcher for the hire item.
+	 * <p>
+	 * It gets set up once when the config gets loaded and can be reused for matching many items.
+	 * 
+	 * @return the hire item matcher
+	 */
+	public static ItemMatcher getHireItemMatcher() {
+		return ItemMatchers.hireItem;
 	}
 
 	// currency item:
@@ -774,7 +854,7 @@ public class Settings {
 	}
 
 	public static boolean isCurrencyItem(ItemStack item) {
-		return ItemUtils.isSimilar(item, Settings.currencyItem, Settings.currencyItemName, Settings.currencyItemLore);
+		return ItemMatchers.currency.matches(item);
 	}
 
 	// high currency item:
@@ -788,8 +868,42 @@ public class Settings {
 	}
 
 	public static boolean isHighCurrencyItem(ItemStack item) {
-		if (!isHighCurrencyEnabled()) return false;
-		return ItemUtils.isSimilar(item, Settings.highCurrencyItem, Settings.highCurrencyItemName, Settings.highCurrencyItemLore);
+		ItemMatcher highCurrency = ItemMatchers.highCurrency;
+		return (highCurrency != null && highCurrency.matches(item));
+	}
+
+	// currency in general:
+
+	/**
+	 * Gets the currency value of a single item of the given item stack.
+	 * 
+	 * @param item
+	 *            the item
+	 * @return <code>1</code> for the low currency, the {@link #highCurrencyValue} for the high currency, and
+	 *         <code>0</code> if the item is no currency item
+	 */
+	public static int getCurrencyValue(ItemStack item) {
+		if (ItemMatchers.currency.matches(item)) return 1;
+		if (isHighCurrencyItem(item)) return highCurrencyValue;
+		return 0;
+	}
+
+	/**
+	 * Gets the total value of the currency items among the given contents.
+	 * 
+	 * @param contents
+	 *            the contents
+	 * @return the total currency value
+	 */
+	public static int countCurrency(ItemStack[] contents) {
+		int totalCurrency = 0;
+		for (ItemStack itemStack : contents) {
+			int value = getCurrencyValue(itemStack);
+			if (value != 0) {
+				totalCurrency += (itemStack.getAmount() * value);
+			}
+		}
+		return totalCurrency;
 	}
 
 	// zero currency item:
@@ -0,0 +1,54 @@
+package com.nisovin.shopkeepers.chestprotection;
+
+import org.bukkit.Location;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+
+/**
+ * Discards the chest stock snapshots of player shopkeepers whenever the contents of their chest might change.
+ */
+class ChestStockListener implements Listener {
+
+	private final ProtectedChests protectedChests;
+
+	ChestStockListener(ProtectedChests protectedChests) {
+		this.protectedChests = protectedChests;
+	}
+
+	// any click or drag inside a chest view might affect the chest contents (ex. shift clicks from the player inventory):
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onInventoryClick(InventoryClickEvent event) {
+		this.onInventoryChanged(event.getView().getTopInventory());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onInventoryDrag(InventoryDragEvent event) {
+		this.onInventoryChanged(event.getView().getTopInventory());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onInventoryMoveItem(InventoryMoveItemEvent event) {
+		this.onInventoryChanged(event.getSource());
+		this.onInventoryChanged(event.getDestination());
+	}
+
+	private void onInventoryChanged(Inventory inventory) {
+		if (inventory == null) return;
+		// only chest inventories can be shop chests (this also covers double chests):
+		if (inventory.getType() != InventoryType.CHEST) return;
+		// for double chests the location is in between both chest halves: the chest of either half also covers the
+		// shopkeepers of the connected chest half
+		Location location = inventory.getLocation();
+		if (location == null || location.getWorld() == null) return;
+		if (!protectedChests.mightBeProtected(location.getWorld().getName(), location.getBlockX(), location.getBlockZ())) {
+			return;
+		}
+		protectedChests.invalidateChestStocks(location.getBlock());
+	}
+}
@@ -1,5 +1,6 @@
 package com.nisovin.shopkeepers.chestprotection;
 
+import org.bukkit.Location;
 import org.bukkit.block.Block;
 import org.bukkit.block.Chest;
 import org.bukkit.block.DoubleChest;
@@ -7,6 +8,7 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.event.inventory.InventoryType;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryHolder;
 
@@ -30,6 +32,16 @@ class InventoryMoveItemListener implements Listener {
 
 	private boolean isProtectedInventory(Inventory inventory) {
 		if (inventory == null) return false;
+		// only chest inventories can be protected (this also covers double chests):
+		if (inventory.getType() != InventoryType.CHEST) return false;
+		// quick check, which avoids the costly creation of the inventory holder (a block state snapshot) in the common
+		// case of unprotected areas:
+		// for double chests the location is in between both chest halves
+		Location location = inventory.getLocation();
+		if (location != null && location.getWorld() != null
+				&& !protectedChests.mightBeProtected(location.getWorld().getName(), location.getBlockX(), location.getBlockZ())) {
+			return false;
+		}
 		InventoryHolder holder = inventory.getHolder();
 		return this.isProtectedInventoryHolder(holder);
 	}
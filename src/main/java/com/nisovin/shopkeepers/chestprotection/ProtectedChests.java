@@ -20,7 +20,10 @@ import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
+import com.nisovin.shopkeepers.util.ChunkMarkers;
 import com.nisovin.shopkeepers.util.ItemUtils;
+import com.nisovin.shopkeepers.util.LongObjectHashMap;
 import com.nisovin.shopkeepers.util.Utils;
 
 /**
@@ -60,9 +63,10 @@ public class ProtectedChests {
 	private final SKShopkeepersPlugin plugin;
 	private final ChestProtectionListener chestProtectionListener = new ChestProtectionListener(this);
 	private final InventoryMoveItemListener inventoryMoveItemListener = new InventoryMoveItemListener(this);
+	private final ChestStockListener chestStockListener = new ChestStockListener(this);
 	private final RemoveShopOnChestBreakListener removeShopOnChestBreakListener;
-	// player shopkeepers by location key:
-	private final Map<String, List<PlayerShopkeeper>> protectedChests = new HashMap<>();
+	// player shopkeepers by world name and packed block position:
+	private final Map<String, LongObjectHashMap<List<PlayerShopkeeper>>> protectedChests = new HashMap<>();
 
 	public ProtectedChests(SKShopkeepersPlugin plugin) {
 		this.plugin = plugin;
@@ -70,6 +74,7 @@ public class ProtectedChests {
 	}
 
 	public void enable() {
+		Bukkit.getPluginManager().registerEvents(chestStockListener, plugin);
 		if (Settings.protectChests) {
 			Bukkit.getPluginManager().registerEvents(chestProtectionListener, plugin);
 			if (Settings.preventItemMovement) {
@@ -86,39 +91,74 @@ public class ProtectedChests {
 		// cleanup:
 		HandlerList.unregisterAll(chestProtectionListener);
 		HandlerList.unregisterAll(inventoryMoveItemListener);
+		HandlerList.unregisterAll(chestStockListener);
 		HandlerList.unregisterAll(removeShopOnChestBreakListener);
 		protectedChests.clear();
 	}
 
-	private String getKey(String worldName, int x, int y, int z) {
-		return worldName + ";" + x + ";" + y + ";" + z;
+	// the chunks containing protected chests get marked in the chunks shared with the shopkeeper registry:
+	private ChunkMarkers getShopBlockChunks() {
+		return plugin.getShopkeeperRegistry().getShopBlockChunks();
 	}
 
 	public void addChest(String worldName, int x, int y, int z, PlayerShopkeeper shopkeeper) {
 		Validate.notNull(shopkeeper);
-		String key = this.getKey(worldName, x, y, z);
-		List<PlayerShopkeeper> shopkeepers = protectedChests.get(key);
+		LongObjectHashMap<List<PlayerShopkeeper>> worldChests = protectedChests.get(worldName);
+		if (worldChests == null) {
+			worldChests = new LongObjectHashMap<>();
+			protectedChests.put(worldName, worldChests);
+		}
+		long blockKey = Utils.getBlockKey(x, y, z);
+		List<PlayerShopkeeper> shopkeepers = worldChests.get(blockKey);
 		if (shopkeepers == null) {
 			shopkeepers = new ArrayList<>(1);
-			protectedChests.put(key, shopkeepers);
+			worldChests.put(blockKey, shopkeepers);
+			this.getShopBlockChunks().add(worldName, x >> 4, z >> 4);
 		}
 		shopkeepers.add(shopkeeper);
 	}
 
 	public void removeChest(String worldName, int x, int y, int z, PlayerShopkeeper shopkeeper) {
 		Validate.notNull(shopkeeper);
-		String key = this.getKey(worldName, x, y, z);
-		List<PlayerShopkeeper> shopkeepers = protectedChests.get(key);
+		LongObjectHashMap<List<PlayerShopkeeper>> worldChests = protectedChests.get(worldName);
+		if (worldChests == null) return;
+		long blockKey = Utils.getBlockKey(x, y, z);
+		List<PlayerShopkeeper> shopkeepers = worldChests.get(blockKey);
 		if (shopkeepers == null) return;
 		shopkeepers.remove(shopkeeper);
 		if (shopkeepers.isEmpty()) {
-			protectedChests.remove(key);
+			worldChests.remove(blockKey);
+			this.getShopBlockChunks().remove(worldName, x >> 4, z >> 4);
+			if (worldChests.isEmpty()) {
+				protectedChests.remove(worldName);
+			}
 		}
 	}
 
+	/**
+	 * Quickly checks if the block at the specified position might be protected.
+	 * <p>
+	 * If this returns <code>false</code>, there are no protected chests inside the chunks of the block and its
+	 * adjacent blocks (N, E, S, W), so the block is neither directly protected, nor a chest that is connected to a
+	 * protected chest.
+	 * 
+	 * @param worldName
+	 *            the world name
+	 * @param x
+	 *            the block's x coordinate
+	 * @param z
+	 *            the block's z coordinate
+	 * @return <code>false</code> if the block is definitely not protected
+	 */
+	public boolean mightBeProtected(String worldName, int x, int z) {
+		if (!protectedChests.containsKey(worldName)) return false;
+		return this.getShopBlockChunks().isMarkedNearby(worldName, x, z);
+	}
+
 	private List<PlayerShopkeeper> _getShopkeepers(String worldName, int x, int y, int z) {
-		String key = this.getKey(worldName, x, y, z);
-		return protectedChests.get(key);
+		LongObjectHashMap<List<PlayerShopkeeper>> worldChests = protectedChests.get(worldName);
+		if (worldChests == null) return null;
+		return worldChests.get(Utils.getBlockKey(x, y, z));
 	}
 
 	private List<PlayerShopkeeper> _getShopkeepers(Block block) {
@@ -185,6 +225,8 @@ public class ProtectedChests {
 	 */
 	public boolean isChestProtected(Block chest, Player player) {
 		Validate.notNull(chest, "Chest block is null!");
+		// quick check, which avoids the block data lookups in the common case of unprotected areas:
+		if (!this.mightBeProtected(chest.getWorld().getName(), chest.getX(), chest.getZ())) return false;
 
 		// reuse logic from getShopkeeperOwnersOfChest:
 		this.getShopkeepersUsingChest(chest, tempResultsList);
@@ -226,7 +268,9 @@ public class ProtectedChests {
 	 * @return <code>true</code> if the block is a protected chest
 	 */
 	public boolean isProtectedChest(Block block, Player player) {
-		if (block == null || !ItemUtils.isChest(block.getType())) return false;
+		if (block == null) return false;
+		if (!this.mightBeProtected(block.getWorld().getName(), block.getX(), block.getZ())) return false;
+		if (!ItemUtils.isChest(block.getType())) return false;
 		if (!this.isChestProtected(block, player)) return false;
 		if (player != null && Utils.hasPermission(player, ShopkeepersPlugin.BYPASS_PERMISSION)) return false;
 		return true;
@@ -276,6 +320,24 @@ public class ProtectedChests {
 		return results;
 	}
 
+	/**
+	 * Discards the chest stock snapshots of the shopkeepers which use the given chest (directly or by a connected
+	 * chest).
+	 * <p>
+	 * This needs to be called whenever the contents of a shop chest change without triggering any inventory events.
+	 * 
+	 * @param chest
+	 *            the chest block
+	 */
+	public void invalidateChestStocks(Block chest) {
+		this.getShopkeepersUsingChest(chest, tempResultsList);
+		for (PlayerShopkeeper shopkeeper : tempResultsList) {
+			((AbstractPlayerShopkeeper) shopkeeper).invalidateChestStock();
+		}
+		// cleanup temporary results list:
+		tempResultsList.clear();
+	}
+
 	private static BlockFace getConnectedBlockFace(BlockFace chestFacing, Type chestType) {
 		switch (chestFacing) {
 		case NORTH:
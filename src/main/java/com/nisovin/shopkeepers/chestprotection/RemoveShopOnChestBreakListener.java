@@ -36,6 +36,8 @@ class RemoveShopOnChestBreakListener implements Listener {
 
 	// does not trigger saving on its own, returns true if there were shopkeepers using the chest, that got removed now
 	private boolean handleShopkeeperChestBreakage(Block block) {
+		// quick check for blocks in chunks without shop chests:
+		if (!protectedChests.mightBeProtected(block.getWorld().getName(), block.getX(), block.getZ())) return false;
 		if (!ItemUtils.isChest(block.getType())) return false;
 
 		List<PlayerShopkeeper> shopkeepers = protectedChests.getShopkeepers(block);
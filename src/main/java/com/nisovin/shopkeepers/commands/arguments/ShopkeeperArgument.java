@@ -3,9 +3,9 @@ package com.nisovin.shopkeepers.commands.arguments;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
 import java.util.UUID;
 
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.api.ShopkeepersAPI;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
@@ -16,6 +16,7 @@ import com.nisovin.shopkeepers.commands.lib.CommandContext;
 import com.nisovin.shopkeepers.commands.lib.CommandInput;
 import com.nisovin.shopkeepers.commands.lib.arguments.ArgumentFilter;
 import com.nisovin.shopkeepers.commands.lib.arguments.StringArgument;
+import com.nisovin.shopkeepers.shopkeeper.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.util.StringUtils;
 import com.nisovin.shopkeepers.util.Utils;
 
@@ -125,25 +126,20 @@ public class ShopkeeperArgument extends StringArgument {
 			partialArg = Utils.stripColor(partialArg);
 			partialArg = StringUtils.normalize(partialArg);
 
-			// check for matching shop names:
-			for (Shopkeeper shopkeeper : ShopkeepersAPI.getShopkeeperRegistry().getAllShopkeepers()) {
-				if (!this.testFilter(shopkeeper)) continue; // filtered
+			// check for matching shop names (using the registry's name index):
+			SKShopkeeperRegistry shopkeeperRegistry = SKShopkeepersPlugin.getInstance().getShopkeeperRegistry();
+			for (Shopkeeper shopkeeper : shopkeeperRegistry.getShopkeepersByNamePrefix(partialArg, this::testFilter, MAX_SUGGESTIONS)) {
 				String shopName = shopkeeper.getName();
-				if (StringUtils.isEmpty(shopName)) continue;
 				shopName = Utils.stripColor(shopName);
 				shopName = StringUtils.normalizeKeepCase(shopName);
-				String shopNameLower = shopName.toLowerCase(Locale.ROOT);
-				if (shopNameLower.startsWith(partialArg)) {
-					// TODO only add the part of the name past the matching parts as suggestion (in case of joined
-					// remaining args)
-					suggestions.add(shopName);
-					if (suggestions.size() >= MAX_SUGGESTIONS) break; // suggestions limit reached
-				}
+				// TODO only add the part of the name past the matching parts as suggestion (in case of joined
+				// remaining args)
+				suggestions.add(shopName);
 			}
 
 			if (!partialArg.isEmpty()) {
 				// check for matching ids:
-				if (suggestions.size() < MAX_SUGGESTIONS) {
+				if (suggestions.size() < MAX_SUGGESTIONS && isDigits(partialArg)) {
 					for (Shopkeeper shopkeeper : ShopkeepersAPI.getShopkeeperRegistry().getAllShopkeepers()) {
 						if (!this.testFilter(shopkeeper)) continue; // filtered
 						String shopId = String.valueOf(shopkeeper.getId());
@@ -155,7 +151,7 @@ public class ShopkeeperArgument extends StringArgument {
 				}
 
 				// check for matching unique ids:
-				if (suggestions.size() < MAX_SUGGESTIONS) {
+				if (suggestions.size() < MAX_SUGGESTIONS && isUniqueIdPrefix(partialArg)) {
 					for (Shopkeeper shopkeeper : ShopkeepersAPI.getShopkeeperRegistry().getAllShopkeepers()) {
 						if (!this.testFilter(shopkeeper)) continue; // filtered
 						String shopUniqueId = shopkeeper.getUniqueId().toString();
@@ -170,4 +166,22 @@ public class ShopkeeperArgument extends StringArgument {
 		}
 		return Collections.emptyList();
 	}
+
+	// shop ids only consist of digits:
+	private static boolean isDigits(String string) {
+		for (int i = 0; i < string.length(); ++i) {
+			char c = string.charAt(i);
+			if (c < '0' || c > '9') return false;
+		}
+		return true;
+	}
+
+	// the normalized argument is lower case, like the string representations of unique ids:
+	private static boolean isUniqueIdPrefix(String string) {
+		for (int i = 0; i < string.length(); ++i) {
+			char c = string.charAt(i);
+			if ((c < '0' || c > '9') && (c < 'a' || c > 'f') && c != '-') return false;
+		}
+		return true;
+	}
 }
@@ -14,6 +14,7 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.command.ConsoleCommandSender;
 
 import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperRegistry;
@@ -70,6 +71,7 @@ class CommandCheck extends Command {
 
 		sender.sendMessage(ChatColor.YELLOW + "All shopkeepers:");
 		sender.sendMessage("  Total: " + shopkeeperRegistry.getAllShopkeepers().size());
+		sender.sendMessage("  Not yet loaded: " + plugin.getShopkeeperRegistry().getLazyShopkeepersCount());
 		sender.sendMessage("  Unsaved dirty | deleted | dirty storage: "
 				+ plugin.getShopkeeperStorage().getDirtyCount()
 				+ " | " + plugin.getShopkeeperStorage().getUnsavedDeletedCount()
@@ -78,15 +80,18 @@ class CommandCheck extends Command {
 		sender.sendMessage("  Total chunks with shopkeepers: " + shopsByChunk.size());
 		sender.sendMessage("  Active: " + shopkeeperRegistry.getActiveShopkeepers().size());
 		sender.sendMessage("  Active with AI: " + livingEntityAI.getEntityCount());
+		sender.sendMessage("  AI mode: " + (Settings.useLookOnlyMobAI ? "look-only" : "ai goals"));
 		sender.sendMessage("  Active AI chunks: " + livingEntityAI.getActiveAIChunksCount());
 		sender.sendMessage("  Active with active AI: " + livingEntityAI.getActiveAIEntityCount());
 		sender.sendMessage("  Active gravity chunks: " + livingEntityAI.getActiveGravityChunksCount());
 		sender.sendMessage("  Active with active gravity: " + livingEntityAI.getActiveGravityEntityCount());
+		sender.sendMessage("  Pending AI visits: " + livingEntityAI.getPendingVisitsCount());
 
 		double avgTotalAITimings = livingEntityAI.getTotalTimings().getAverageTimeMillis();
 		double maxTotalAITiming = livingEntityAI.getTotalTimings().getMaxTimeMillis();
 		sender.sendMessage("  Avg. total AI timings: " + Utils.DECIMAL_FORMAT.format(avgTotalAITimings) + " ms");
 		sender.sendMessage("  Max. total AI timing: " + Utils.DECIMAL_FORMAT.format(maxTotalAITiming) + " ms");
+		sender.sendMessage("  AI time budget overruns: " + livingEntityAI.getTotalTimings().getBudgetOverruns());
 
 		double avgAIActivationTimings = livingEntityAI.getActivationTimings().getAverageTimeMillis();
 		double maxAIActivationTiming = livingEntityAI.getActivationTimings().getMaxTimeMillis();
@@ -102,6 +107,8 @@ class CommandCheck extends Command {
 		double maxAITiming = livingEntityAI.getAITimings().getMaxTimeMillis();
 		sender.sendMessage("    Avg. AI timings: " + Utils.DECIMAL_FORMAT.format(avgAITimings) + " ms");
 		sender.sendMessage("    Max. AI timing: " + Utils.DECIMAL_FORMAT.format(maxAITiming) + " ms");
+		double avgAIEntityTimings = livingEntityAI.getAITimings().getAverageTimePerEntityMicros();
+		sender.sendMessage("    Avg. AI timings per entity: " + Utils.DECIMAL_FORMAT.format(avgAIEntityTimings) + " \u00b5s");
 
 		for (World world : Bukkit.getWorlds()) {
 			String worldName = world.getName();
@@ -0,0 +1,117 @@
+package com.nisovin.shopkeepers.commands.shopkeepers;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.Settings;
+import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
+import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
+import com.nisovin.shopkeepers.api.tradelogging.ItemTradeVolume;
+import com.nisovin.shopkeepers.api.tradelogging.TradeHistory;
+import com.nisovin.shopkeepers.commands.arguments.ShopkeeperArgument;
+import com.nisovin.shopkeepers.commands.lib.CommandArgs;
+import com.nisovin.shopkeepers.commands.lib.CommandContext;
+import com.nisovin.shopkeepers.commands.lib.CommandException;
+import com.nisovin.shopkeepers.commands.lib.CommandInput;
+import com.nisovin.shopkeepers.commands.lib.PlayerCommand;
+import com.nisovin.shopkeepers.commands.lib.arguments.OptionalArgument;
+import com.nisovin.shopkeepers.commands.lib.arguments.PositiveIntegerArgument;
+import com.nisovin.shopkeepers.shopkeeper.SKDefaultShopTypes;
+import com.nisovin.shopkeepers.util.Log;
+import com.nisovin.shopkeepers.util.ShopkeeperUtils;
+import com.nisovin.shopkeepers.util.Utils;
+
+class CommandHistory extends PlayerCommand {
+
+	private static final String ARGUMENT_SHOPKEEPER = "shopkeeper";
+	private static final String ARGUMENT_DAYS = "days";
+
+	static final int DEFAULT_DAYS = 7;
+
+	private final SKShopkeepersPlugin plugin;
+
+	CommandHistory(SKShopkeepersPlugin plugin) {
+		super("history");
+		this.plugin = plugin;
+
+		// set permission:
+		this.setPermission(ShopkeepersPlugin.HISTORY_PERMISSION);
+
+		// set description:
+		this.setDescription(Settings.msgCommandDescriptionHistory);
+
+		// arguments:
+		this.addArgument(new OptionalArgument(new ShopkeeperArgument(ARGUMENT_SHOPKEEPER)));
+		this.addArgument(new OptionalArgument(new PositiveIntegerArgument(ARGUMENT_DAYS)));
+
+		// child commands:
+		this.getChildCommands().register(new CommandHistoryPlayer(plugin));
+	}
+
+	@Override
+	protected void execute(CommandInput input, CommandContext context, CommandArgs args) throws CommandException {
+		assert (input.getSender() instanceof Player);
+		Player player = (Player) input.getSender();
+
+		TradeHistory tradeHistory = plugin.getTradeHistory();
+		if (!tradeHistory.isEnabled()) {
+			Utils.sendMessage(player, Settings.msgTradeHistoryDisabled);
+			return;
+		}
+
+		Shopkeeper shopkeeper = context.get(ARGUMENT_SHOPKEEPER);
+		if (shopkeeper == null) {
+			// get shopkeeper via targeting:
+			List<? extends Shopkeeper> shopkeepers = ShopkeeperUtils.getTargetedShopkeepers(player, null, true);
+			if (shopkeepers.isEmpty()) return; // messages were already handled
+			shopkeeper = shopkeepers.get(0); // use the first returned shopkeeper
+		}
+		assert shopkeeper != null;
+		int days = context.getOrDefault(ARGUMENT_DAYS, DEFAULT_DAYS);
+
+		String shopName = shopkeeper.getName();
+		String shopDisplayName = (shopName != null && !shopName.isEmpty()) ? shopName : String.valueOf(shopkeeper.getId());
+		// buying shops trade their currency for the bought items:
+		String volumeEntryMessage;
+		if (shopkeeper.getType() == SKDefaultShopTypes.PLAYER_BUYING()) {
+			volumeEntryMessage = Settings.msgTradeHistoryBoughtItemVolumeEntry;
+		} else {
+			volumeEntryMessage = Settings.msgTradeHistorySoldItemVolumeEntry;
+		}
+		long now = System.currentTimeMillis();
+		tradeHistory.getDailyItemVolumes(shopkeeper.getUniqueId(), now - TimeUnit.DAYS.toMillis(days), now).whenComplete((volumes, error) -> {
+			Bukkit.getScheduler().runTask(plugin, () -> {
+				if (!player.isOnline()) return;
+				if (error != null) {
+					Log.severe("Could not query the trade history!", error);
+					Utils.sendMessage(player, Settings.msgTradeHistoryQueryFailed);
+					return;
+				}
+
+				int tradesCount = 0;
+				for (ItemTradeVolume volume : volumes) {
+					tradesCount += volume.getTradesCount();
+				}
+				Utils.sendMessage(player, Settings.msgTradeHistoryShopHeader,
+						"{shop}", shopDisplayName,
+						"{days}", String.valueOf(days),
+						"{tradesCount}", String.valueOf(tradesCount));
+				if (volumes.isEmpty()) {
+					Utils.sendMessage(player, Settings.msgTradeHistoryNoTrades);
+					return;
+				}
+				for (ItemTradeVolume volume : volumes) {
+					Utils.sendMessage(player, volumeEntryMessage,
+							"{day}", volume.getDay().toString(),
+							"{item}", volume.getItemType().name(),
+							"{amount}", String.valueOf(volume.getItemAmount()),
+							"{tradesCount}", String.valueOf(volume.getTradesCount()));
+				}
+			});
+		});
+	}
+}
@@ -0,0 +1,127 @@
+package com.nisovin.shopkeepers.commands.shopkeepers;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.Settings;
+import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
+import com.nisovin.shopkeepers.api.tradelogging.TradeHistory;
+import com.nisovin.shopkeepers.api.tradelogging.TradeRecord;
+import com.nisovin.shopkeepers.commands.lib.Command;
+import com.nisovin.shopkeepers.commands.lib.CommandArgs;
+import com.nisovin.shopkeepers.commands.lib.CommandContext;
+import com.nisovin.shopkeepers.commands.lib.CommandException;
+import com.nisovin.shopkeepers.commands.lib.CommandInput;
+import com.nisovin.shopkeepers.commands.lib.arguments.OptionalArgument;
+import com.nisovin.shopkeepers.commands.lib.arguments.PositiveIntegerArgument;
+import com.nisovin.shopkeepers.commands.lib.arguments.StringArgument;
+import com.nisovin.shopkeepers.util.Log;
+import com.nisovin.shopkeepers.util.Utils;
+
+class CommandHistoryPlayer extends Command {
+
+	private static final String ARGUMENT_PLAYER = "player";
+	private static final String ARGUMENT_DAYS = "days";
+	private static final String ARGUMENT_PAGE = "page";
+
+	private static final int ENTRIES_PER_PAGE = 8;
+
+	private final SKShopkeepersPlugin plugin;
+
+	CommandHistoryPlayer(SKShopkeepersPlugin plugin) {
+		super("player");
+		this.plugin = plugin;
+
+		// set permission:
+		this.setPermission(ShopkeepersPlugin.HISTORY_PERMISSION);
+
+		// set description:
+		this.setDescription(Settings.msgCommandDescriptionHistoryPlayer);
+
+		// arguments:
+		this.addArgument(new StringArgument(ARGUMENT_PLAYER));
+		this.addArgument(new OptionalArgument(new PositiveIntegerArgument(ARGUMENT_DAYS)));
+		this.addArgument(new OptionalArgument(new PositiveIntegerArgument(ARGUMENT_PAGE)));
+	}
+
+	private static String getItemString(ItemStack item) {
+		if (item == null) return "?";
+		return item.getAmount() + "x " + item.getType().name();
+	}
+
+	@Override
+	protected void execute(CommandInput input, CommandContext context, CommandArgs args) throws CommandException {
+		CommandSender sender = input.getSender();
+
+		TradeHistory tradeHistory = plugin.getTradeHistory();
+		if (!tradeHistory.isEnabled()) {
+			Utils.sendMessage(sender, Settings.msgTradeHistoryDisabled);
+			return;
+		}
+
+		String playerName = context.get(ARGUMENT_PLAYER);
+		int days = context.getOrDefault(ARGUMENT_DAYS, CommandHistory.DEFAULT_DAYS);
+		int page = context.getOrDefault(ARGUMENT_PAGE, 1);
+
+		// players that are not online get looked up by the name of their recorded trades (instead of searching through
+		// all offline players on the main thread):
+		Player player = Bukkit.getPlayerExact(playerName);
+		CompletableFuture<UUID> playerUUIDFuture;
+		if (player != null) {
+			playerUUIDFuture = CompletableFuture.completedFuture(player.getUniqueId());
+		} else {
+			playerUUIDFuture = tradeHistory.getPlayerUUID(playerName);
+		}
+
+		long now = System.currentTimeMillis();
+		int offset = (page - 1) * ENTRIES_PER_PAGE;
+		playerUUIDFuture.thenCompose((playerUUID) -> {
+			if (playerUUID == null) return CompletableFuture.<List<TradeRecord>> completedFuture(null);
+			return tradeHistory.getTradesByPlayer(playerUUID, now - TimeUnit.DAYS.toMillis(days), now, offset, ENTRIES_PER_PAGE);
+		}).whenComplete((trades, error) -> {
+			Bukkit.getScheduler().runTask(plugin, () -> {
+				if (sender instanceof Player && !((Player) sender).isOnline()) return;
+				if (error != null) {
+					Log.severe("Could not query the trade history!", error);
+					Utils.sendMessage(sender, Settings.msgTradeHistoryQueryFailed);
+					return;
+				}
+				if (trades == null) {
+					// unknown player:
+					Utils.sendMessage(sender, Settings.msgCommandPlayerArgumentInvalid, "{argument}", playerName);
+					return;
+				}
+
+				Utils.sendMessage(sender, Settings.msgTradeHistoryPlayerHeader,
+						"{player}", playerName,
+						"{days}", String.valueOf(days),
+						"{page}", String.valueOf(page));
+				if (trades.isEmpty()) {
+					Utils.sendMessage(sender, Settings.msgTradeHistoryNoTrades);
+					return;
+				}
+				DateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+				for (TradeRecord trade : trades) {
+					ItemStack item2 = trade.getItem2();
+					String costs = getItemString(trade.getItem1()) + (item2 != null ? " + " + getItemString(item2) : "");
+					Utils.sendMessage(sender, Settings.msgTradeHistoryTradeEntry,
+							"{time}", timeFormat.format(new Date(trade.getTimestamp())),
+							"{location}", Utils.getLocationString(trade.getWorldName(), trade.getX(), trade.getY(), trade.getZ()),
+							"{result}", getItemString(trade.getResultItem()),
+							"{costs}", costs);
+				}
+			});
+		});
+	}
+}
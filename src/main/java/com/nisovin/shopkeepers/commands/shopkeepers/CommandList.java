@@ -3,7 +3,6 @@ package com.nisovin.shopkeepers.commands.shopkeepers;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
 
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
@@ -12,7 +11,6 @@ import org.bukkit.entity.Player;
 import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
-import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperRegistry;
 import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
 import com.nisovin.shopkeepers.commands.lib.CommandArgs;
 import com.nisovin.shopkeepers.commands.lib.CommandContext;
@@ -24,6 +22,7 @@ import com.nisovin.shopkeepers.commands.lib.arguments.IntegerArgument;
 import com.nisovin.shopkeepers.commands.lib.arguments.LiteralArgument;
 import com.nisovin.shopkeepers.commands.lib.arguments.OptionalArgument;
 import com.nisovin.shopkeepers.commands.lib.arguments.StringArgument;
+import com.nisovin.shopkeepers.shopkeeper.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.util.Utils;
 
 class CommandList extends PlayerCommand {
@@ -34,9 +33,9 @@ class CommandList extends PlayerCommand {
 
 	private static final int ENTRIES_PER_PAGE = 8;
 
-	private final ShopkeeperRegistry shopkeeperRegistry;
+	private final SKShopkeeperRegistry shopkeeperRegistry;
 
-	CommandList(ShopkeeperRegistry shopkeeperRegistry) {
+	CommandList(SKShopkeeperRegistry shopkeeperRegistry) {
 		super("list");
 		this.shopkeeperRegistry = shopkeeperRegistry;
 
@@ -79,6 +78,7 @@ class CommandList extends PlayerCommand {
 			this.checkPermission(player, ShopkeepersPlugin.LIST_ADMIN_PERMISSION);
 
 			// searching admin shops:
+			shopkeeperRegistry.loadAllLazyShopkeepers();
 			for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
 				if (!(shopkeeper instanceof PlayerShopkeeper)) {
 					shops.add(shopkeeper);
@@ -96,14 +96,20 @@ class CommandList extends PlayerCommand {
 
 			// searching shops of specific player:
 			Player listPlayer = Bukkit.getPlayerExact(playerName);
-			UUID listPlayerUUID = (listPlayer != null ? listPlayer.getUniqueId() : null);
-
-			for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
-				if (shopkeeper instanceof PlayerShopkeeper) {
-					PlayerShopkeeper playerShop = (PlayerShopkeeper) shopkeeper;
+			if (listPlayer != null) {
+				// player is online: lookup the shops by the player's uuid
+				for (PlayerShopkeeper playerShop : shopkeeperRegistry.getPlayerShopkeepersByOwner(listPlayer.getUniqueId())) {
 					if (playerShop.getOwnerName().equals(playerName)) {
-						UUID shopOwnerUUID = playerShop.getOwnerUUID();
-						if (shopOwnerUUID == null || shopOwnerUUID.equals(listPlayerUUID) || listPlayerUUID == null) {
+						shops.add(playerShop);
+					}
+				}
+			} else {
+				// player is offline: search all shops by owner name
+				shopkeeperRegistry.loadAllLazyShopkeepers();
+				for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
+					if (shopkeeper instanceof PlayerShopkeeper) {
+						PlayerShopkeeper playerShop = (PlayerShopkeeper) shopkeeper;
+						if (playerShop.getOwnerName().equals(playerName)) {
 							shops.add(playerShop);
 						}
 					}
@@ -3,7 +3,6 @@ package com.nisovin.shopkeepers.commands.shopkeepers;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
 
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
@@ -12,7 +11,6 @@ import org.bukkit.entity.Player;
 import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
-import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperRegistry;
 import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
 import com.nisovin.shopkeepers.commands.Confirmations;
 import com.nisovin.shopkeepers.commands.lib.CommandArgs;
@@ -24,6 +22,7 @@ import com.nisovin.shopkeepers.commands.lib.arguments.FirstOfArgument;
 import com.nisovin.shopkeepers.commands.lib.arguments.LiteralArgument;
 import com.nisovin.shopkeepers.commands.lib.arguments.OptionalArgument;
 import com.nisovin.shopkeepers.commands.lib.arguments.StringArgument;
+import com.nisovin.shopkeepers.shopkeeper.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.util.Utils;
 
 class CommandRemove extends PlayerCommand {
@@ -33,10 +32,10 @@ class CommandRemove extends PlayerCommand {
 	private static final String ARGUMENT_ADMIN = "admin";
 
 	private final ShopkeepersPlugin plugin;
-	private final ShopkeeperRegistry shopkeeperRegistry;
+	private final SKShopkeeperRegistry shopkeeperRegistry;
 	private final Confirmations confirmations;
 
-	CommandRemove(ShopkeepersPlugin plugin, ShopkeeperRegistry shopkeeperRegistry, Confirmations confirmations) {
+	CommandRemove(ShopkeepersPlugin plugin, SKShopkeeperRegistry shopkeeperRegistry, Confirmations confirmations) {
 		super("remove", Arrays.asList("delete"));
 		this.plugin = plugin;
 		this.shopkeeperRegistry = shopkeeperRegistry;
@@ -92,6 +91,7 @@ class CommandRemove extends PlayerCommand {
 			List<Shopkeeper> shops = new ArrayList<>();
 			if (admin) {
 				// searching admin shops:
+				shopkeeperRegistry.loadAllLazyShopkeepers();
 				for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
 					if (!(shopkeeper instanceof PlayerShopkeeper)) {
 						shops.add(shopkeeper);
@@ -99,6 +99,7 @@ class CommandRemove extends PlayerCommand {
 				}
 			} else if (all) {
 				// searching all player shops:
+				shopkeeperRegistry.loadAllLazyShopkeepers();
 				for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
 					if (shopkeeper instanceof PlayerShopkeeper) {
 						shops.add(shopkeeper);
@@ -107,22 +108,28 @@ class CommandRemove extends PlayerCommand {
 			} else {
 				// searching shops of specific player:
 				Player listPlayer = Bukkit.getPlayerExact(playerName);
-				UUID listPlayerUUID = (listPlayer != null ? listPlayer.getUniqueId() : null);
-
-				for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
-					if (shopkeeper instanceof PlayerShopkeeper) {
-						PlayerShopkeeper playerShop = (PlayerShopkeeper) shopkeeper;
+				if (listPlayer != null) {
+					// player is online: lookup the shops by the player's uuid
+					for (PlayerShopkeeper playerShop : shopkeeperRegistry.getPlayerShopkeepersByOwner(listPlayer.getUniqueId())) {
 						if (playerShop.getOwnerName().equals(playerName)) {
-							UUID shopOwnerUUID = playerShop.getOwnerUUID();
-							// TODO really ignore owner uuid if the player is currently offline? - consider:
-							// TODO * player A 'peter' creating shops
-							// TODO * player A leaves, changes name, player B changes name to 'peter'
-							// TODO * player B joins before player A has joined again yet, and creates shops
-							// TODO * situation: shops with the same owner name, but different uuid.
-							// Problem?
-							// instead: allow specifying an uuid instead of player name and then detect if there are
-							// shops with the same owner name but different uuids
-							if (shopOwnerUUID == null || listPlayerUUID == null || shopOwnerUUID.equals(listPlayerUUID)) {
+							shops.add(playerShop);
+						}
+					}
+				} else {
+					// player is offline: search all shops by owner name
+					// TODO really ignore owner uuid if the player is currently offline? - consider:
+					// TODO * player A 'peter' creating shops
+					// TODO * player A leaves, changes name, player B changes name to 'peter'
+					// TODO * player B joins before player A has joined again yet, and creates shops
+					// TODO * situation: shops with the same owner name, but different uuid.
+					// Problem?
+					// instead: allow specifying an uuid instead of player name and then detect if there are
+					// shops with the same owner name but different uuids
+					shopkeeperRegistry.loadAllLazyShopkeepers();
+					for (Shopkeeper shopkeeper : shopkeeperRegistry.getAllShopkeepers()) {
+						if (shopkeeper instanceof PlayerShopkeeper) {
+							PlayerShopkeeper playerShop = (PlayerShopkeeper) shopkeeper;
+							if (playerShop.getOwnerName().equals(playerName)) {
 								shops.add(playerShop);
 							}
 						}
@@ -19,6 +19,25 @@ public interface NMSCallProvider {
 
 	public void tickAI(LivingEntity entity);
 
+	/**
+	 * Rotates the head of the given entity, without ticking its AI.
+	 * <p>
+	 * By default this rotates the whole entity via {@link LivingEntity#setRotation(float, float)}, so the body turns
+	 * along with the head. Currently only the handler for MC 1.14 overrides this to rotate only the head. The
+	 * {@link com.nisovin.shopkeepers.compat.FailedHandler fallback handler} keeps the default, but since it does not
+	 * {@link #supportsCustomMobAI() support the custom mob AI}, this does not get called in compatibility mode.
+	 * 
+	 * @param entity
+	 *            the entity
+	 * @param yaw
+	 *            the yaw in degrees
+	 * @param pitch
+	 *            the pitch in degrees
+	 */
+	public default void setHeadRotation(LivingEntity entity, float yaw, float pitch) {
+		entity.setRotation(yaw, pitch);
+	}
+
 	public void setOnGround(Entity entity, boolean onGround);
 
 	// on some MC versions (ex. MC 1.9, 1.10) NoAI only disables AI
@@ -28,6 +28,8 @@ public class FeaturesChart extends Metrics.DrilldownPie {
 			addFeatureEntry(allFeatures, "enable-citizen-shops", Settings.enableCitizenShops && CitizensHandler.isPluginEnabled());
 
 			addFeatureEntry(allFeatures, "save-instantly", Settings.saveInstantly);
+			addFeatureEntry(allFeatures, "save-journal", Settings.saveJournal);
+			addFeatureEntry(allFeatures, "lazy-shopkeeper-loading", Settings.lazyShopkeeperLoading);
 			addFeatureEntry(allFeatures, "colored names allowed", Settings.nameRegex.contains("&"));
 			addFeatureEntry(allFeatures, "protect-chests", Settings.protectChests);
 			addFeatureEntry(allFeatures, "prevent-item-movement", Settings.preventItemMovement);
@@ -41,6 +43,7 @@ public class FeaturesChart extends Metrics.DrilldownPie {
 			addFeatureEntry(allFeatures, "hire-other-villagers", Settings.hireOtherVillagers);
 			addFeatureEntry(allFeatures, "use-legacy-mob-behavior", Settings.useLegacyMobBehavior);
 			addFeatureEntry(allFeatures, "disable-gravity", Settings.disableGravity);
+			addFeatureEntry(allFeatures, "use-look-only-mob-ai", Settings.useLookOnlyMobAI);
 			addFeatureEntry(allFeatures, "increased gravity chunk range", Settings.gravityChunkRange > 4);
 			addFeatureEntry(allFeatures, "decreased gravity chunk range", Settings.gravityChunkRange < 4);
 			return allFeatures;
@@ -65,6 +65,8 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 
 	// has unsaved data changes:
 	private boolean dirty = false;
+	// changes whenever the trading recipes might have changed:
+	private int tradingRecipesVersion = 0;
 	// is currently registered:
 	private boolean valid = false;
 
@@ -312,11 +314,13 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 	 */
 	public void markDirty() {
 		dirty = true;
+		// the data change might affect the trading recipes (ex. changed offers):
+		this.onTradingRecipesChanged();
 		// inform the storage that there are dirty shopkeepers:
 		if (this.isValid()) {
 			// if the shopkeeper gets marked dirty during creation or loading (while it is not yet valid),
 			// the storage gets marked dirty by the shopkeeper registry after the creation/loading was successful
-			SKShopkeepersPlugin.getInstance().getShopkeeperStorage().markDirty();
+			SKShopkeepersPlugin.getInstance().getShopkeeperStorage().markDirty(this);
 		}
 	}
 
@@ -330,6 +334,32 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 		dirty = false;
 	}
 
+	/**
+	 * Gets the current version of this shopkeeper's trading recipes.
+	 * <p>
+	 * The version changes whenever the trading recipes might have changed. This allows open trading windows to skip
+	 * the update of their trades if the version did not change since their trades got set up.
+	 * <p>
+	 * Shopkeepers whose trading recipes depend on state that might change without them being informed can override
+	 * this to check that state first.
+	 * 
+	 * @return the trading recipes version
+	 */
+	public int getTradingRecipesVersion() {
+		return tradingRecipesVersion;
+	}
+
+	/**
+	 * Informs this shopkeeper that its trading recipes might have changed.
+	 * <p>
+	 * This gets automatically called when the shopkeeper gets {@link #markDirty() marked dirty}. Shopkeepers whose
+	 * trading recipes depend on other state (ex. the contents of a chest) need to call this whenever that state
+	 * changes.
+	 */
+	public void onTradingRecipesChanged() {
+		tradingRecipesVersion++;
+	}
+
 	// LIFE CYCLE
 
 	@Override
@@ -605,8 +635,14 @@ public abstract class AbstractShopkeeper implements Shopkeeper {
 		if (preparedName == null) preparedName = "";
 		preparedName = Utils.colorize(preparedName);
 		preparedName = this.trimName(preparedName);
+		String oldName = this.name;
 		this.name = preparedName;
 
+		// update shopkeeper in name index:
+		if (this.isValid()) {
+			SKShopkeepersPlugin.getInstance().getShopkeeperRegistry().onShopkeeperNameChanged(this, oldName);
+		}
+
 		// update shop object:
 		shopObject.setName(preparedName);
 		this.markDirty(); // mark dirty
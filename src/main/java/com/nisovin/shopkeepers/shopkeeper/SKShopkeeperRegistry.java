@@ -4,11 +4,15 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 
 import org.apache.commons.lang.Validate;
@@ -30,13 +34,19 @@ import com.nisovin.shopkeepers.api.shopkeeper.ShopType;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperCreateException;
 import com.nisovin.shopkeepers.api.shopkeeper.ShopkeeperRegistry;
-import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
 import com.nisovin.shopkeepers.api.shopobjects.ShopObjectType;
 import com.nisovin.shopkeepers.api.util.ChunkCoords;
+import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
+import com.nisovin.shopkeepers.shopobjects.AbstractShopObject;
+import com.nisovin.shopkeepers.shopobjects.block.AbstractBlockShopObject;
 import com.nisovin.shopkeepers.shopobjects.block.AbstractBlockShopObjectType;
+import com.nisovin.shopkeepers.shopobjects.entity.AbstractEntityShopObject;
 import com.nisovin.shopkeepers.shopobjects.entity.AbstractEntityShopObjectType;
 import com.nisovin.shopkeepers.storage.SKShopkeeperStorage;
+import com.nisovin.shopkeepers.util.ChunkMarkers;
+import com.nisovin.shopkeepers.util.Filter;
 import com.nisovin.shopkeepers.util.Log;
+import com.nisovin.shopkeepers.util.LongObjectHashMap;
 import com.nisovin.shopkeepers.util.StringUtils;
 import com.nisovin.shopkeepers.util.Utils;
 
@@ -53,8 +63,32 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 	private final Map<ChunkCoords, List<AbstractShopkeeper>> shopkeeperViewsByChunk = new HashMap<>();
 	// unmodifiable map with unmodifiable entries:
 	private final Map<ChunkCoords, List<AbstractShopkeeper>> shopkeepersByChunkView = Collections.unmodifiableMap(shopkeeperViewsByChunk);
+	private final ShopkeeperSpatialIndex spatialIndex = new ShopkeeperSpatialIndex();
+	// chunks containing shop blocks (block shop objects, and protected chests):
+	private final ChunkMarkers shopBlockChunks = new ChunkMarkers();
+	// named shopkeepers by normalized name, sorted for prefix lookups:
+	private final NavigableMap<String, List<AbstractShopkeeper>> shopkeepersByName = new TreeMap<>();
+	// player shopkeepers by owner uuid:
+	private final Map<UUID, List<AbstractPlayerShopkeeper>> playerShopkeepersByOwner = new HashMap<>();
 	private final Map<String, AbstractShopkeeper> activeShopkeepers = new HashMap<>(); // TODO remove this (?)
 	private final Collection<AbstractShopkeeper> activeShopkeepersView = Collections.unmodifiableCollection(activeShopkeepers.values());
+	// active shopkeepers by entity unique id (only for entity shop objects whose object ids are based on these):
+	private final Map<UUID, AbstractShopkeeper> activeShopkeepersByEntity = new HashMap<>();
+	// active shopkeepers with block shop objects by world name and block key:
+	private final Map<String, LongObjectHashMap<AbstractShopkeeper>> activeShopkeepersByBlock = new HashMap<>();
+	// the entity unique ids and blocks the active shopkeepers got indexed with, by object id:
+	private final Map<String, UUID> activeEntityIds = new HashMap<>();
+	private final Map<String, Block> activeBlocks = new HashMap<>();
+
+	// lazy shopkeeper loading: index entries of the shopkeepers that have not been loaded yet
+	private final Map<Integer, ShopkeeperIndexEntry> lazyShopkeepersById = new LinkedHashMap<>();
+	private final Map<UUID, ShopkeeperIndexEntry> lazyShopkeepersByUUID = new HashMap<>();
+	// contains the entries for both the chunk of the shopkeeper and the chunk of its chest:
+	private final Map<ChunkCoords, List<ShopkeeperIndexEntry>> lazyShopkeepersByChunk = new HashMap<>();
+	private final Map<UUID, List<ShopkeeperIndexEntry>> lazyShopkeepersByOwner = new HashMap<>();
+	private final Map<String, List<ShopkeeperIndexEntry>> lazyShopkeepersByName = new HashMap<>();
+	// the last time the loaded shopkeepers were found to be in use, by shopkeeper id:
+	private final Map<Integer, Long> lastUsageTimes = new HashMap<>();
 
 	public SKShopkeeperRegistry(SKShopkeepersPlugin plugin) {
 		this.plugin = plugin;
@@ -69,6 +103,11 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 			this.startSpawnVerifierTask();
 		}
 
+		// start task that unloads idle shopkeepers again:
+		if (Settings.lazyShopkeeperLoading) {
+			this.startIdleShopkeepersUnloadTask();
+		}
+
 		Bukkit.getPluginManager().registerEvents(new WorldListener(plugin, this), plugin);
 	}
 
@@ -79,10 +118,24 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 
 		// reset, clearing (just in case):
 		activeShopkeepers.clear();
+		activeShopkeepersByEntity.clear();
+		activeShopkeepersByBlock.clear();
+		activeEntityIds.clear();
+		activeBlocks.clear();
 		shopkeepersByChunk.clear();
 		shopkeeperViewsByChunk.clear();
+		spatialIndex.clear();
+		shopBlockChunks.clear();
+		shopkeepersByName.clear();
+		playerShopkeepersByOwner.clear();
 		shopkeepersByUUID.clear();
 		shopkeepersById.clear();
+		lazyShopkeepersById.clear();
+		lazyShopkeepersByUUID.clear();
+		lazyShopkeepersByChunk.clear();
+		lazyShopkeepersByOwner.clear();
+		lazyShopkeepersByName.clear();
+		lastUsageTimes.clear();
 	}
 
 	private void startTeleporterTask() {
@@ -90,7 +143,8 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 			List<AbstractShopkeeper> readd = new ArrayList<>();
 			Iterator<Map.Entry<String, AbstractShopkeeper>> iter = activeShopkeepers.entrySet().iterator();
 			while (iter.hasNext()) {
-				AbstractShopkeeper shopkeeper = iter.next().getValue();
+				Map.Entry<String, AbstractShopkeeper> entry = iter.next();
+				AbstractShopkeeper shopkeeper = entry.getValue();
 				boolean update = shopkeeper.check();
 				if (update) {
 					// if the shopkeeper had to be respawned its shop id changed:
@@ -98,6 +152,7 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 					// shopkeeper with its new id
 					readd.add(shopkeeper);
 					iter.remove();
+					this.removeActiveObjectKeys(shopkeeper, entry.getKey());
 				}
 			}
 			if (!readd.isEmpty()) {
@@ -172,7 +227,7 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		}
 		// success:
 		shopkeeperStorage.onShopkeeperIdUsed(id);
-		if (shopkeeper.isDirty()) shopkeeperStorage.markDirty();
+		if (shopkeeper.isDirty()) shopkeeperStorage.markDirty(shopkeeper);
 		this.addShopkeeper(shopkeeper, ShopkeeperAddedEvent.Cause.CREATED);
 		return shopkeeper;
 	}
@@ -194,7 +249,7 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		AbstractShopType<?> abstractShopType = this.validateShopType(shopType);
 		Validate.notNull(configSection, "Missing config section!");
 		Validate.isTrue(id >= 1, "Invalid id '" + id + "': Id has to be positive!");
-		Validate.isTrue(this.getShopkeeperById(id) == null, "There is already a shopkeeper existing with this id: " + id);
+		Validate.isTrue(!this.isShopkeeperIdUsed(id), "There is already a shopkeeper existing with this id: " + id);
 
 		AbstractShopkeeper shopkeeper = abstractShopType.loadShopkeeper(id, configSection);
 		if (shopkeeper == null) {
@@ -204,11 +259,16 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		// success:
 		SKShopkeeperStorage shopkeeperStorage = this.getShopkeeperStorage();
 		shopkeeperStorage.onShopkeeperIdUsed(id);
-		if (shopkeeper.isDirty()) shopkeeperStorage.markDirty();
+		if (shopkeeper.isDirty()) shopkeeperStorage.markDirty(shopkeeper);
 		this.addShopkeeper(shopkeeper, ShopkeeperAddedEvent.Cause.LOADED);
 		return shopkeeper;
 	}
 
+	// also takes the shopkeepers into account that have not been loaded yet
+	private boolean isShopkeeperIdUsed(int id) {
+		return shopkeepersById.containsKey(id) || lazyShopkeepersById.containsKey(id);
+	}
+
 	private AbstractShopType<?> validateShopType(ShopType<?> shopType) {
 		Validate.notNull(shopType, "Missing shop type!");
 		Validate.isTrue(shopType instanceof AbstractShopType,
@@ -228,6 +288,19 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		// add shopkeeper to chunk:
 		ChunkCoords chunkCoords = shopkeeper.getChunkCoords();
 		this.addShopkeeperToChunk(shopkeeper, chunkCoords);
+		spatialIndex.add(shopkeeper);
+		if (this.isBlockShopkeeper(shopkeeper)) {
+			shopBlockChunks.add(chunkCoords.getWorldName(), chunkCoords.getChunkX(), chunkCoords.getChunkZ());
+		}
+
+		// add shopkeeper to name:
+		addToIndex(shopkeepersByName, getNameKey(shopkeeper.getName()), shopkeeper);
+
+		// add player shopkeeper to owner:
+		if (shopkeeper instanceof AbstractPlayerShopkeeper) {
+			AbstractPlayerShopkeeper playerShopkeeper = (AbstractPlayerShopkeeper) shopkeeper;
+			addToIndex(playerShopkeepersByOwner, playerShopkeeper.getOwnerUUID(), playerShopkeeper);
+		}
 
 		// inform shopkeeper:
 		shopkeeper.informAdded(cause);
@@ -264,9 +337,26 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		// remove shopkeeper from chunk:
 		ChunkCoords chunkCoords = shopkeeper.getChunkCoords();
 		this.removeShopkeeperFromChunk(shopkeeper, chunkCoords);
+		spatialIndex.remove(shopkeeper, chunkCoords);
+		if (this.isBlockShopkeeper(shopkeeper)) {
+			shopBlockChunks.remove(chunkCoords.getWorldName(), chunkCoords.getChunkX(), chunkCoords.getChunkZ());
+		}
+		lastUsageTimes.remove(shopkeeper.getId());
+
+		// remove shopkeeper from name:
+		removeFromIndex(shopkeepersByName, getNameKey(shopkeeper.getName()), shopkeeper);
+
+		// remove player shopkeeper from owner:
+		if (shopkeeper instanceof AbstractPlayerShopkeeper) {
+			AbstractPlayerShopkeeper playerShopkeeper = (AbstractPlayerShopkeeper) shopkeeper;
+			removeFromIndex(playerShopkeepersByOwner, playerShopkeeper.getOwnerUUID(), playerShopkeeper);
+		}
 
 		// remove shopkeeper from storage:
-		this.getShopkeeperStorage().clearShopkeeperData(shopkeeper);
+		// unloaded shopkeepers keep their data, so that they can be loaded again
+		if (cause == ShopkeeperRemoveEvent.Cause.DELETE) {
+			this.getShopkeeperStorage().clearShopkeeperData(shopkeeper);
+		}
 	}
 
 	private void unloadShopkeeper(AbstractShopkeeper shopkeeper) {
@@ -278,6 +368,13 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		for (AbstractShopkeeper shopkeeper : new ArrayList<>(this.getAllShopkeepers())) {
 			this.unloadShopkeeper(shopkeeper);
 		}
+
+		// forget about the shopkeepers that have not been loaded yet:
+		lazyShopkeepersById.clear();
+		lazyShopkeepersByUUID.clear();
+		lazyShopkeepersByChunk.clear();
+		lazyShopkeepersByOwner.clear();
+		lazyShopkeepersByName.clear();
 	}
 
 	public void deleteShopkeeper(AbstractShopkeeper shopkeeper) {
@@ -311,6 +408,266 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		}
 	}
 
+	// ignores null keys
+	private static <K, V> void addToIndex(Map<K, List<V>> index, K key, V value) {
+		if (key == null) return;
+		List<V> values = index.get(key);
+		if (values == null) {
+			values = new ArrayList<>(1);
+			index.put(key, values);
+		}
+		values.add(value);
+	}
+
+	private static <K, V> void removeFromIndex(Map<K, List<V>> index, K key, V value) {
+		if (key == null) return;
+		List<V> values = index.get(key);
+		if (values == null) return;
+		if (values.remove(value) && values.isEmpty()) {
+			index.remove(key);
+		}
+	}
+
+	// returns null for unnamed shopkeepers, which do not get indexed by name
+	private static String getNameKey(String shopName) {
+		return nullIfEmpty(ShopkeeperIndexEntry.normalizeName(shopName));
+	}
+
+	private static String nullIfEmpty(String string) {
+		return (string.isEmpty() ? null : string);
+	}
+
+	// LAZY LOADING
+
+	/**
+	 * Registers a shopkeeper that only gets loaded once it is needed.
+	 * <p>
+	 * This only keeps some lightweight information about the shopkeeper in memory. The shopkeeper gets loaded from
+	 * a {@link SKShopkeeperStorage#copyShopkeeperData(int) copy of its stored data} once its chunk or the chunk of its chest gets
+	 * loaded, or once it gets looked up.
+	 * 
+	 * @param shopType
+	 *            the shop type
+	 * @param id
+	 *            the shopkeeper id
+	 * @param configSection
+	 *            the stored shopkeeper data
+	 * @return <code>true</code> if the shopkeeper got registered, <code>false</code> if the shopkeeper cannot be
+	 *         loaded lazily and needs to be loaded right away
+	 */
+	public boolean registerLazyShopkeeper(AbstractShopType<?> shopType, int id, ConfigurationSection configSection) {
+		Validate.notNull(shopType, "Missing shop type!");
+		Validate.notNull(configSection, "Missing config section!");
+		Validate.isTrue(!this.isShopkeeperIdUsed(id), "There is already a shopkeeper existing with this id: " + id);
+		ShopkeeperIndexEntry entry = ShopkeeperIndexEntry.create(shopType, id, configSection, plugin.getShopObjectTypeRegistry());
+		if (entry == null) return false;
+		// shopkeepers with duplicate unique ids and shopkeepers in already loaded chunks get loaded right away:
+		UUID uniqueId = entry.getUniqueId();
+		if (shopkeepersByUUID.containsKey(uniqueId) || lazyShopkeepersByUUID.containsKey(uniqueId)) return false;
+		if (entry.isAnyChunkLoaded()) return false;
+
+		this.addLazyShopkeeper(entry);
+		this.getShopkeeperStorage().onShopkeeperIdUsed(id);
+		return true;
+	}
+
+	private void addLazyShopkeeper(ShopkeeperIndexEntry entry) {
+		lazyShopkeepersById.put(entry.getId(), entry);
+		lazyShopkeepersByUUID.put(entry.getUniqueId(), entry);
+		this.addLazyShopkeeperToChunk(entry, entry.getChunkCoords());
+		if (entry.getChestChunkCoords() != null) {
+			this.addLazyShopkeeperToChunk(entry, entry.getChestChunkCoords());
+		}
+		addToIndex(lazyShopkeepersByOwner, entry.getOwnerUUID(), entry);
+		addToIndex(lazyShopkeepersByName, nullIfEmpty(entry.getNormalizedName()), entry);
+	}
+
+	private void addLazyShopkeeperToChunk(ShopkeeperIndexEntry entry, ChunkCoords chunkCoords) {
+		List<ShopkeeperIndexEntry> byChunk = lazyShopkeepersByChunk.get(chunkCoords);
+		if (byChunk == null) {
+			byChunk = new ArrayList<>(1);
+			lazyShopkeepersByChunk.put(chunkCoords, byChunk);
+		}
+		byChunk.add(entry);
+	}
+
+	private void removeLazyShopkeeper(ShopkeeperIndexEntry entry) {
+		lazyShopkeepersById.remove(entry.getId());
+		lazyShopkeepersByUUID.remove(entry.getUniqueId());
+		this.removeLazyShopkeeperFromChunk(entry, entry.getChunkCoords());
+		if (entry.getChestChunkCoords() != null) {
+			this.removeLazyShopkeeperFromChunk(entry, entry.getChestChunkCoords());
+		}
+		removeFromIndex(lazyShopkeepersByOwner, entry.getOwnerUUID(), entry);
+		removeFromIndex(lazyShopkeepersByName, nullIfEmpty(entry.getNormalizedName()), entry);
+	}
+
+	private void removeLazyShopkeeperFromChunk(ShopkeeperIndexEntry entry, ChunkCoords chunkCoords) {
+		List<ShopkeeperIndexEntry> byChunk = lazyShopkeepersByChunk.get(chunkCoords);
+		if (byChunk == null) return;
+		if (byChunk.remove(entry) && byChunk.isEmpty()) {
+			lazyShopkeepersByChunk.remove(chunkCoords);
+		}
+	}
+
+	// returns null if the shopkeeper could not be loaded
+	private AbstractShopkeeper loadLazyShopkeeper(ShopkeeperIndexEntry entry) {
+		assert entry != null;
+		this.removeLazyShopkeeper(entry);
+		int id = entry.getId();
+		ConfigurationSection configSection = this.getShopkeeperStorage().copyShopkeeperData(id);
+		if (configSection == null) {
+			Log.warning("Failed to load shopkeeper '" + id + "': Missing data!");
+			return null;
+		}
+		try {
+			return this.loadShopkeeper(entry.getShopType(), id, configSection);
+		} catch (ShopkeeperCreateException e) {
+			Log.warning("Failed to load shopkeeper '" + id + "': " + e.getMessage());
+		} catch (Exception e) {
+			Log.warning("Failed to load shopkeeper '" + id + "'", e);
+		}
+		return null;
+	}
+
+	private void loadLazyShopkeepers(Collection<ShopkeeperIndexEntry> entries) {
+		if (entries.isEmpty()) return;
+		// copy, since loading removes the entries:
+		for (ShopkeeperIndexEntry entry : new ArrayList<>(entries)) {
+			// skip entries that occur multiple times (ex. for both the shopkeeper's and the chest's chunk):
+			if (lazyShopkeepersById.get(entry.getId()) != entry) continue;
+			this.loadLazyShopkeeper(entry);
+		}
+	}
+
+	// also loads the shopkeepers whose chest is located in the given chunk
+	private void loadLazyShopkeepersInChunk(ChunkCoords chunkCoords) {
+		List<ShopkeeperIndexEntry> byChunk = lazyShopkeepersByChunk.get(chunkCoords);
+		if (byChunk == null) return;
+		this.loadLazyShopkeepers(byChunk);
+	}
+
+	// loads the shopkeepers in (or with their chest in) the chunks that overlap the specified area of block coordinates
+	private void loadLazyShopkeepersInArea(String worldName, double minX, double minZ, double maxX, double maxZ) {
+		if (lazyShopkeepersByChunk.isEmpty()) return;
+		// saturating at the int bounds:
+		int minChunkX = ChunkCoords.convertBlockCoord((int) Math.floor(minX));
+		int minChunkZ = ChunkCoords.convertBlockCoord((int) Math.floor(minZ));
+		int maxChunkX = ChunkCoords.convertBlockCoord((int) Math.floor(maxX));
+		int maxChunkZ = ChunkCoords.convertBlockCoord((int) Math.floor(maxZ));
+		long rangeSize = ((long) maxChunkX - minChunkX + 1) * ((long) maxChunkZ - minChunkZ + 1);
+		if (rangeSize > lazyShopkeepersByChunk.size()) {
+			List<ShopkeeperIndexEntry> entries = new ArrayList<>();
+			for (Entry<ChunkCoords, List<ShopkeeperIndexEntry>> chunkEntry : lazyShopkeepersByChunk.entrySet()) {
+				ChunkCoords chunkCoords = chunkEntry.getKey();
+				int chunkX = chunkCoords.getChunkX();
+				int chunkZ = chunkCoords.getChunkZ();
+				if (chunkX >= minChunkX && chunkX <= maxChunkX && chunkZ >= minChunkZ && chunkZ <= maxChunkZ
+						&& chunkCoords.getWorldName().equals(worldName)) {
+					entries.addAll(chunkEntry.getValue());
+				}
+			}
+			this.loadLazyShopkeepers(entries);
+		} else {
+			for (int chunkX = minChunkX; chunkX <= maxChunkX; ++chunkX) {
+				for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; ++chunkZ) {
+					this.loadLazyShopkeepersInChunk(new ChunkCoords(worldName, chunkX, chunkZ));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Loads all shopkeepers that have not been loaded yet.
+	 * <p>
+	 * This can be used before operations that need to take all shopkeepers into account. Shopkeepers that remain
+	 * unused get unloaded again after some time.
+	 */
+	public void loadAllLazyShopkeepers() {
+		this.loadLazyShopkeepers(lazyShopkeepersById.values());
+	}
+
+	/**
+	 * Loads the not yet loaded shopkeepers of the specified player.
+	 * 
+	 * @param ownerUUID
+	 *            the owner's unique id
+	 * @param ownerName
+	 *            if not <code>null</code>, only the shopkeepers whose stored owner name differs from the given name get
+	 *            loaded
+	 */
+	public void loadLazyShopkeepersOfOwner(UUID ownerUUID, String ownerName) {
+		Validate.notNull(ownerUUID, "Owner uuid is null!");
+		List<ShopkeeperIndexEntry> byOwner = lazyShopkeepersByOwner.get(ownerUUID);
+		if (byOwner == null) return;
+		List<ShopkeeperIndexEntry> entries = new ArrayList<>(byOwner.size());
+		for (ShopkeeperIndexEntry entry : byOwner) {
+			if (ownerName == null || !ownerName.equals(entry.getOwnerName())) {
+				entries.add(entry);
+			}
+		}
+		this.loadLazyShopkeepers(entries);
+	}
+
+	/**
+	 * Gets the number of shopkeepers that have not been loaded yet.
+	 * 
+	 * @return the number of shopkeepers that get loaded lazily
+	 */
+	public int getLazyShopkeepersCount() {
+		return lazyShopkeepersById.size();
+	}
+
+	private void startIdleShopkeepersUnloadTask() {
+		Bukkit.getScheduler().runTaskTimer(plugin, this::unloadIdleShopkeepers, 1200, 1200); // 1 minute
+	}
+
+	// unloads shopkeepers that have not been in use for some time (and have no unsaved changes):
+	private void unloadIdleShopkeepers() {
+		long now = System.currentTimeMillis();
+		long unloadDelay = Settings.lazyShopkeeperUnloadDelay * 60000L;
+		SKShopkeeperStorage shopkeeperStorage = this.getShopkeeperStorage();
+		List<ShopkeeperIndexEntry> idleShopkeepers = new ArrayList<>();
+		for (AbstractShopkeeper shopkeeper : this.getAllShopkeepers()) {
+			int id = shopkeeper.getId();
+			if (this.isInUse(shopkeeper)) {
+				lastUsageTimes.put(id, now);
+				continue;
+			}
+			Long lastUsage = lastUsageTimes.putIfAbsent(id, now);
+			if (lastUsage == null || (now - lastUsage) < unloadDelay) continue;
+
+			// the stored data is up-to-date:
+			ConfigurationSection configSection = shopkeeperStorage.getShopkeeperData(id);
+			ShopkeeperIndexEntry entry = null;
+			if (configSection != null) {
+				entry = ShopkeeperIndexEntry.create(shopkeeper.getType(), id, configSection, plugin.getShopObjectTypeRegistry());
+			}
+			if (entry == null || entry.isAnyChunkLoaded()) {
+				// cannot be unloaded currently, check again later:
+				lastUsageTimes.put(id, now);
+				continue;
+			}
+			idleShopkeepers.add(entry);
+		}
+
+		for (ShopkeeperIndexEntry entry : idleShopkeepers) {
+			AbstractShopkeeper shopkeeper = shopkeepersById.get(entry.getId());
+			this.unloadShopkeeper(shopkeeper);
+			this.addLazyShopkeeper(entry);
+		}
+		if (!idleShopkeepers.isEmpty()) {
+			Log.debug("Unloaded " + idleShopkeepers.size() + " idle shopkeepers.");
+		}
+	}
+
+	private boolean isInUse(AbstractShopkeeper shopkeeper) {
+		return !shopkeeper.needsSpawning()
+				|| shopkeeper.getChunkCoords().isChunkLoaded()
+				|| this.getShopkeeperStorage().hasUnsavedChanges(shopkeeper)
+				|| plugin.getUIRegistry().hasSessions(shopkeeper);
+	}
+
 	// ACTIVATION
 
 	// performs some validation before actually activating a shopkeeper:
@@ -329,6 +686,7 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		} else {
 			// activate shopkeeper:
 			activeShopkeepers.put(objectId, shopkeeper);
+			this.addActiveObjectKeys(shopkeeper, objectId);
 			return true;
 		}
 	}
@@ -343,11 +701,57 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		assert shopkeeper != null;
 		if (objectId != null && activeShopkeepers.get(objectId) == shopkeeper) {
 			activeShopkeepers.remove(objectId);
+			this.removeActiveObjectKeys(shopkeeper, objectId);
 			return true;
 		}
 		return false;
 	}
 
+	// indexes the active shopkeeper by the unique id of its entity, or by the position of its block:
+	private void addActiveObjectKeys(AbstractShopkeeper shopkeeper, String objectId) {
+		AbstractShopObject shopObject = shopkeeper.getShopObject();
+		if (shopObject instanceof AbstractEntityShopObject) {
+			if (!((AbstractEntityShopObjectType<?>) shopObject.getType()).usesEntityUniqueIds()) return;
+			Entity entity = ((AbstractEntityShopObject) shopObject).getEntity();
+			if (entity == null) return;
+			UUID entityId = entity.getUniqueId();
+			activeShopkeepersByEntity.put(entityId, shopkeeper);
+			activeEntityIds.put(objectId, entityId);
+		} else if (shopObject instanceof AbstractBlockShopObject) {
+			Block block = ((AbstractBlockShopObject) shopObject).getBlock();
+			if (block == null) return;
+			String worldName = block.getWorld().getName();
+			LongObjectHashMap<AbstractShopkeeper> worldBlocks = activeShopkeepersByBlock.get(worldName);
+			if (worldBlocks == null) {
+				worldBlocks = new LongObjectHashMap<>();
+				activeShopkeepersByBlock.put(worldName, worldBlocks);
+			}
+			worldBlocks.put(Utils.getBlockKey(block.getX(), block.getY(), block.getZ()), shopkeeper);
+			activeBlocks.put(objectId, block);
+		}
+	}
+
+	private void removeActiveObjectKeys(AbstractShopkeeper shopkeeper, String objectId) {
+		UUID entityId = activeEntityIds.remove(objectId);
+		if (entityId != null && activeShopkeepersByEntity.get(entityId) == shopkeeper) {
+			activeShopkeepersByEntity.remove(entityId);
+		}
+		Block block = activeBlocks.remove(objectId);
+		if (block != null) {
+			String worldName = block.getWorld().getName();
+			LongObjectHashMap<AbstractShopkeeper> worldBlocks = activeShopkeepersByBlock.get(worldName);
+			if (worldBlocks != null) {
+				long blockKey = Utils.getBlockKey(block.getX(), block.getY(), block.getZ());
+				if (worldBlocks.get(blockKey) == shopkeeper) {
+					worldBlocks.remove(blockKey);
+					if (worldBlocks.isEmpty()) {
+						activeShopkeepersByBlock.remove(worldName);
+					}
+				}
+			}
+		}
+	}
+
 	private void activateShopkeeper(AbstractShopkeeper shopkeeper) {
 		assert shopkeeper != null;
 		if (!shopkeeper.needsSpawning()) return;
@@ -411,7 +815,55 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 
 			// add to new chunk:
 			this.addShopkeeperToChunk(shopkeeper, newChunk);
+
+			// update shop block chunks:
+			if (this.isBlockShopkeeper(shopkeeper)) {
+				shopBlockChunks.remove(oldChunk.getWorldName(), oldChunk.getChunkX(), oldChunk.getChunkZ());
+				shopBlockChunks.add(newChunk.getWorldName(), newChunk.getChunkX(), newChunk.getChunkZ());
+			}
 		}
+
+		// update block position (might have changed within the same chunk):
+		spatialIndex.remove(shopkeeper, oldChunk);
+		spatialIndex.add(shopkeeper);
+	}
+
+	// SHOP BLOCK CHUNKS
+
+	private boolean isBlockShopkeeper(AbstractShopkeeper shopkeeper) {
+		return (shopkeeper.getShopObject().getType() instanceof AbstractBlockShopObjectType);
+	}
+
+	/**
+	 * Gets the chunks which contain shop blocks.
+	 * <p>
+	 * This includes the chunks of all shopkeepers with block shop objects (ex. sign shops), as well as the chunks
+	 * containing protected shop chests. Block related event handlers can use this to quickly ignore blocks in chunks
+	 * without any shop blocks.
+	 * 
+	 * @return the shop block chunks
+	 */
+	public ChunkMarkers getShopBlockChunks() {
+		return shopBlockChunks;
+	}
+
+	// SHOPKEEPERS BY NAME
+
+	public void onShopkeeperNameChanged(AbstractShopkeeper shopkeeper, String oldName) {
+		assert shopkeeper != null && oldName != null;
+		String oldNameKey = getNameKey(oldName);
+		String newNameKey = getNameKey(shopkeeper.getName());
+		if (oldNameKey != null && oldNameKey.equals(newNameKey)) return; // normalized name did not change
+		removeFromIndex(shopkeepersByName, oldNameKey, shopkeeper);
+		addToIndex(shopkeepersByName, newNameKey, shopkeeper);
+	}
+
+	// SHOPKEEPERS BY OWNER
+
+	public void onPlayerShopkeeperOwnerChanged(AbstractPlayerShopkeeper shopkeeper, UUID oldOwnerUUID) {
+		assert shopkeeper != null;
+		removeFromIndex(playerShopkeepersByOwner, oldOwnerUUID, shopkeeper);
+		addToIndex(playerShopkeepersByOwner, shopkeeper.getOwnerUUID(), shopkeeper);
 	}
 
 	/**
@@ -486,7 +938,7 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 	public int unloadShopkeepersInChunk(Chunk chunk, boolean worldSaving) {
 		assert chunk != null;
 		int affectedShops = 0;
-		List<AbstractShopkeeper> shopkeepers = this.getShopkeepersInChunk(chunk);
+		List<AbstractShopkeeper> shopkeepers = this.getLoadedShopkeepersInChunk(new ChunkCoords(chunk));
 		if (!shopkeepers.isEmpty()) {
 			affectedShops = shopkeepers.size();
 			Log.debug("Unloading " + affectedShops + " shopkeepers in chunk "
@@ -583,29 +1035,77 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 
 	@Override
 	public AbstractShopkeeper getShopkeeperByUniqueId(UUID shopkeeperUUID) {
-		return shopkeepersByUUID.get(shopkeeperUUID);
+		AbstractShopkeeper shopkeeper = shopkeepersByUUID.get(shopkeeperUUID);
+		if (shopkeeper == null && !lazyShopkeepersByUUID.isEmpty()) {
+			ShopkeeperIndexEntry entry = lazyShopkeepersByUUID.get(shopkeeperUUID);
+			if (entry != null) {
+				shopkeeper = this.loadLazyShopkeeper(entry);
+			}
+		}
+		return shopkeeper;
 	}
 
 	@Override
 	public AbstractShopkeeper getShopkeeperById(int shopkeeperId) {
-		return shopkeepersById.get(shopkeeperId);
+		AbstractShopkeeper shopkeeper = shopkeepersById.get(shopkeeperId);
+		if (shopkeeper == null && !lazyShopkeepersById.isEmpty()) {
+			ShopkeeperIndexEntry entry = lazyShopkeepersById.get(shopkeeperId);
+			if (entry != null) {
+				shopkeeper = this.loadLazyShopkeeper(entry);
+			}
+		}
+		return shopkeeper;
 	}
 
 	@Override
 	public AbstractShopkeeper getShopkeeperByName(String shopName) {
 		if (shopName == null) return null;
+		String nameKey = this.normalizeNameQuery(shopName);
+		if (nameKey.isEmpty()) return null;
+		List<AbstractShopkeeper> byName = shopkeepersByName.get(nameKey);
+		if (byName != null) {
+			return byName.get(0);
+		}
+		List<ShopkeeperIndexEntry> lazyByName = lazyShopkeepersByName.get(nameKey);
+		if (lazyByName != null) {
+			return this.loadLazyShopkeeper(lazyByName.get(0));
+		}
+		return null;
+	}
+
+	private String normalizeNameQuery(String shopName) {
 		shopName = Utils.stripColor(shopName);
-		shopName = StringUtils.normalize(shopName);
-		for (AbstractShopkeeper shopkeeper : this.getAllShopkeepers()) {
-			String shopkeeperName = shopkeeper.getName();
-			if (shopkeeperName == null) continue;
-			shopkeeperName = Utils.stripColor(shopkeeperName);
-			shopkeeperName = StringUtils.normalize(shopkeeperName);
-			if (shopkeeperName.equals(shopName)) {
-				return shopkeeper;
+		return StringUtils.normalize(shopName);
+	}
+
+	/**
+	 * Gets the loaded shopkeepers whose names start with the given prefix.
+	 * <p>
+	 * Like {@link #getShopkeeperByName(String)}, this ignores colors and whitespace in the shop names. The shopkeepers
+	 * are ordered by their normalized names. Unnamed shopkeepers are not included.
+	 * 
+	 * @param namePrefix
+	 *            the name prefix, can be empty to match all named shopkeepers
+	 * @param filter
+	 *            only shopkeepers accepted by this filter get included, or <code>null</code>
+	 * @param limit
+	 *            the maximum number of shopkeepers to return
+	 * @return a new list with the matching shopkeepers
+	 */
+	public List<AbstractShopkeeper> getShopkeepersByNamePrefix(String namePrefix, Filter<? super AbstractShopkeeper> filter, int limit) {
+		Validate.notNull(namePrefix, "Name prefix is null!");
+		List<AbstractShopkeeper> shopkeepers = new ArrayList<>();
+		if (limit <= 0) return shopkeepers;
+		String nameKeyPrefix = this.normalizeNameQuery(namePrefix);
+		for (Entry<String, List<AbstractShopkeeper>> nameEntry : shopkeepersByName.tailMap(nameKeyPrefix, true).entrySet()) {
+			if (!nameEntry.getKey().startsWith(nameKeyPrefix)) break; // past the matching names
+			for (AbstractShopkeeper shopkeeper : nameEntry.getValue()) {
+				if (filter != null && !filter.accept(shopkeeper)) continue;
+				shopkeepers.add(shopkeeper);
+				if (shopkeepers.size() >= limit) return shopkeepers;
 			}
 		}
-		return null;
+		return shopkeepers;
 	}
 
 	@Override
@@ -616,10 +1116,17 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 	@Override
 	public AbstractShopkeeper getShopkeeperByEntity(Entity entity) {
 		if (entity == null) return null;
+		AbstractShopkeeper shopkeeper = activeShopkeepersByEntity.get(entity.getUniqueId());
+		if (shopkeeper != null) return shopkeeper;
+
+		// check the entity shop object types whose object ids are not based on the entity unique ids (ex. citizens):
 		for (ShopObjectType<?> shopObjectType : plugin.getShopObjectTypeRegistry().getRegisteredTypes()) {
 			if (shopObjectType instanceof AbstractEntityShopObjectType) {
-				String objectId = ((AbstractEntityShopObjectType<?>) shopObjectType).createObjectId(entity);
-				AbstractShopkeeper shopkeeper = this.getActiveShopkeeper(objectId);
+				AbstractEntityShopObjectType<?> entityShopObjectType = (AbstractEntityShopObjectType<?>) shopObjectType;
+				if (entityShopObjectType.usesEntityUniqueIds()) continue;
+				String objectId = entityShopObjectType.createObjectId(entity);
+				if (objectId == null) continue;
+				shopkeeper = this.getActiveShopkeeper(objectId);
 				if (shopkeeper != null) return shopkeeper;
 			}
 		}
@@ -634,14 +1141,9 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 	@Override
 	public AbstractShopkeeper getShopkeeperByBlock(Block block) {
 		if (block == null) return null;
-		for (ShopObjectType<?> shopObjectType : plugin.getShopObjectTypeRegistry().getRegisteredTypes()) {
-			if (shopObjectType instanceof AbstractBlockShopObjectType) {
-				String objectId = ((AbstractBlockShopObjectType<?>) shopObjectType).createObjectId(block);
-				AbstractShopkeeper shopkeeper = this.getActiveShopkeeper(objectId);
-				if (shopkeeper != null) return shopkeeper;
-			}
-		}
-		return null;
+		LongObjectHashMap<AbstractShopkeeper> worldBlocks = activeShopkeepersByBlock.get(block.getWorld().getName());
+		if (worldBlocks == null) return null;
+		return worldBlocks.get(Utils.getBlockKey(block.getX(), block.getY(), block.getZ()));
 	}
 
 	@Override
@@ -672,16 +1174,50 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 		int x = location.getBlockX();
 		int y = location.getBlockY();
 		int z = location.getBlockZ();
+		this.loadLazyShopkeepersInChunk(ChunkCoords.fromBlockPos(worldName, x, z));
+		return new ArrayList<>(spatialIndex.getShopkeepersAt(worldName, x, y, z));
+	}
+
+	@Override
+	public List<AbstractShopkeeper> getShopkeepersInRadius(Location location, double radius) {
+		Validate.notNull(location, "Location is null!");
+		Validate.notNull(location.getWorld(), "Location's world is null!");
+		Validate.isTrue(radius >= 0.0D, "Radius cannot be negative!");
+		String worldName = location.getWorld().getName();
+		double x = location.getX();
+		double y = location.getY();
+		double z = location.getZ();
+		this.loadLazyShopkeepersInArea(worldName, x - radius, z - radius, x + radius, z + radius);
 
 		List<AbstractShopkeeper> shopkeepers = new ArrayList<>();
-		for (AbstractShopkeeper shopkeeper : this.getAllShopkeepers()) {
-			if (shopkeeper.getWorldName().equals(worldName) && shopkeeper.getX() == x && shopkeeper.getY() == y && shopkeeper.getZ() == z) {
-				shopkeepers.add(shopkeeper);
-			}
-		}
+		spatialIndex.collectShopkeepersInRadius(worldName, x, y, z, radius, shopkeepers);
+		return shopkeepers;
+	}
+
+	@Override
+	public List<AbstractShopkeeper> getShopkeepersInBox(World world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		Validate.notNull(world, "World is null!");
+		String worldName = world.getName();
+		this.loadLazyShopkeepersInArea(worldName, minX, minZ, maxX, maxZ);
+
+		List<AbstractShopkeeper> shopkeepers = new ArrayList<>();
+		spatialIndex.collectShopkeepersInBox(worldName, minX, minY, minZ, maxX, maxY, maxZ, shopkeepers);
 		return shopkeepers;
 	}
 
+	@Override
+	public AbstractShopkeeper getNearestShopkeeper(Location location, double maxDistance) {
+		Validate.notNull(location, "Location is null!");
+		Validate.notNull(location.getWorld(), "Location's world is null!");
+		Validate.isTrue(maxDistance >= 0.0D, "Max distance cannot be negative!");
+		String worldName = location.getWorld().getName();
+		double x = location.getX();
+		double y = location.getY();
+		double z = location.getZ();
+		this.loadLazyShopkeepersInArea(worldName, x - maxDistance, z - maxDistance, x + maxDistance, z + maxDistance);
+		return spatialIndex.getNearestShopkeeper(worldName, x, y, z, maxDistance);
+	}
+
 	@Override
 	public List<AbstractShopkeeper> getShopkeepersInChunk(Chunk chunk) {
 		return this.getShopkeepersInChunk(new ChunkCoords(chunk));
@@ -689,6 +1225,11 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 
 	@Override
 	public List<AbstractShopkeeper> getShopkeepersInChunk(ChunkCoords chunkCoords) {
+		this.loadLazyShopkeepersInChunk(chunkCoords);
+		return this.getLoadedShopkeepersInChunk(chunkCoords);
+	}
+
+	private List<AbstractShopkeeper> getLoadedShopkeepersInChunk(ChunkCoords chunkCoords) {
 		List<AbstractShopkeeper> byChunk = shopkeepersByChunkView.get(chunkCoords);
 		if (byChunk == null) return Collections.emptyList();
 		return byChunk; // unmodifiable already
@@ -704,21 +1245,69 @@ public class SKShopkeeperRegistry implements ShopkeeperRegistry {
 			}
 		} else {
 			String worldName = world.getName();
-			for (Entry<ChunkCoords, List<AbstractShopkeeper>> byChunkEntry : this.getAllShopkeepersByChunks().entrySet()) {
-				if (byChunkEntry.getKey().getWorldName().equals(worldName)) {
-					shopkeepersInWorld.addAll(byChunkEntry.getValue());
+			if (!lazyShopkeepersById.isEmpty()) {
+				List<ShopkeeperIndexEntry> entries = new ArrayList<>();
+				for (ShopkeeperIndexEntry entry : lazyShopkeepersById.values()) {
+					if (entry.getChunkCoords().getWorldName().equals(worldName)) {
+						entries.add(entry);
+					}
 				}
+				this.loadLazyShopkeepers(entries);
 			}
+			spatialIndex.collectShopkeepersInWorld(worldName, shopkeepersInWorld);
 		}
 		return Collections.unmodifiableList(shopkeepersInWorld);
 	}
 
+	@Override
+	public List<AbstractPlayerShopkeeper> getPlayerShopkeepersByOwner(UUID ownerUUID) {
+		Validate.notNull(ownerUUID, "Owner uuid is null!");
+		this.loadLazyShopkeepersOfOwner(ownerUUID, null);
+		List<AbstractPlayerShopkeeper> byOwner = playerShopkeepersByOwner.get(ownerUUID);
+		if (byOwner == null) return new ArrayList<>(0);
+		return new ArrayList<>(byOwner);
+	}
+
+	/**
+	 * Gets the loaded player shopkeepers of the specified player.
+	 * <p>
+	 * Unlike {@link #getPlayerShopkeepersByOwner(UUID)}, this does not load any shopkeepers that have not been loaded
+	 * yet.
+	 * 
+	 * @param ownerUUID
+	 *            the owner's unique id
+	 * @return an unmodifiable view on the loaded player shopkeepers of the player, empty if there are none
+	 */
+	public List<AbstractPlayerShopkeeper> getLoadedPlayerShopkeepersByOwner(UUID ownerUUID) {
+		Validate.notNull(ownerUUID, "Owner uuid is null!");
+		List<AbstractPlayerShopkeeper> byOwner = playerShopkeepersByOwner.get(ownerUUID);
+		if (byOwner == null) return Collections.emptyList();
+		return Collections.unmodifiableList(byOwner);
+	}
+
+	/**
+	 * Gets the unique ids of all players owning player shopkeepers, including the shopkeepers that have not been
+	 * loaded yet.
+	 * 
+	 * @return a new set with the owner unique ids
+	 */
+	public Set<UUID> getPlayerShopkeeperOwners() {
+		Set<UUID> owners = new HashSet<>(playerShopkeepersByOwner.keySet());
+		owners.addAll(lazyShopkeepersByOwner.keySet());
+		return owners;
+	}
+
+	// also takes the shopkeepers into account that have not been loaded yet
 	public int countShopsOfPlayer(Player player) {
+		UUID playerUUID = player.getUniqueId();
 		int count = 0;
-		for (Shopkeeper shopkeeper : this.getAllShopkeepers()) {
-			if (shopkeeper instanceof PlayerShopkeeper && ((PlayerShopkeeper) shopkeeper).isOwner(player)) {
-				count++;
-			}
+		List<AbstractPlayerShopkeeper> byOwner = playerShopkeepersByOwner.get(playerUUID);
+		if (byOwner != null) {
+			count += byOwner.size();
+		}
+		List<ShopkeeperIndexEntry> lazyByOwner = lazyShopkeepersByOwner.get(playerUUID);
+		if (lazyByOwner != null) {
+			count += lazyByOwner.size();
 		}
 		return count;
 	}
@@ -0,0 +1,161 @@
+package com.nisovin.shopkeepers.shopkeeper;
+
+import java.util.UUID;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import com.nisovin.shopkeepers.api.util.ChunkCoords;
+import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopType;
+import com.nisovin.shopkeepers.shopobjects.AbstractShopObjectType;
+import com.nisovin.shopkeepers.shopobjects.SKShopObjectTypesRegistry;
+import com.nisovin.shopkeepers.util.ConversionUtils;
+import com.nisovin.shopkeepers.util.StringUtils;
+import com.nisovin.shopkeepers.util.Utils;
+
+/**
+ * The lightweight information that is kept about a shopkeeper that has not been loaded yet, when shopkeepers get
+ * loaded lazily.
+ * <p>
+ * The actual shopkeeper data remains inside the storage until the shopkeeper gets loaded.
+ */
+final class ShopkeeperIndexEntry {
+
+	private final int id;
+	private final UUID uniqueId;
+	private final AbstractShopType<?> shopType;
+	private final ChunkCoords chunkCoords;
+	// null if the shopkeeper has no chest, or if the chest is located inside the shopkeeper's chunk:
+	private final ChunkCoords chestChunkCoords;
+	private final UUID ownerUUID; // null for non-player shopkeepers
+	private final String ownerName; // null for non-player shopkeepers
+	private final String normalizedName; // without colors, can be empty
+
+	private ShopkeeperIndexEntry(	int id, UUID uniqueId, AbstractShopType<?> shopType, ChunkCoords chunkCoords,
+									ChunkCoords chestChunkCoords, UUID ownerUUID, String ownerName, String normalizedName) {
+		this.id = id;
+		this.uniqueId = uniqueId;
+		this.shopType = shopType;
+		this.chunkCoords = chunkCoords;
+		this.chestChunkCoords = chestChunkCoords;
+		this.ownerUUID = ownerUUID;
+		this.ownerName = ownerName;
+		this.normalizedName = normalizedName;
+	}
+
+	/**
+	 * Creates an index entry from the given save data of a shopkeeper.
+	 * <p>
+	 * Only shopkeepers whose shop objects get spawned once their chunk gets loaded can be loaded lazily. Shopkeepers
+	 * which need to be active all the time, as well as shopkeepers whose data is incomplete or still in some legacy
+	 * format, need to be loaded right away.
+	 * 
+	 * @param shopType
+	 *            the shop type
+	 * @param id
+	 *            the shopkeeper id
+	 * @param configSection
+	 *            the shopkeeper's save data
+	 * @param shopObjectTypes
+	 *            the shop object types registry
+	 * @return the index entry, or <code>null</code> if the shopkeeper cannot be loaded lazily
+	 */
+	static ShopkeeperIndexEntry create(	AbstractShopType<?> shopType, int id, ConfigurationSection configSection,
+										SKShopObjectTypesRegistry shopObjectTypes) {
+		ConfigurationSection objectSection = configSection.getConfigurationSection("object");
+		if (objectSection == null) return null; // legacy data
+		AbstractShopObjectType<?> shopObjectType = shopObjectTypes.get(objectSection.getString("type"));
+		if (shopObjectType == null || !shopObjectType.needsSpawning()) return null;
+		if (hasLegacyData(configSection, objectSection)) return null;
+
+		UUID uniqueId = ConversionUtils.parseUUID(configSection.getString("uniqueId"));
+		if (uniqueId == null) return null; // gets generated when the shopkeeper is loaded
+		String worldName = configSection.getString("world");
+		if (worldName == null) return null;
+		ChunkCoords chunkCoords = ChunkCoords.fromBlockPos(worldName, configSection.getInt("x"), configSection.getInt("z"));
+
+		ChunkCoords chestChunkCoords = null;
+		UUID ownerUUID = null;
+		String ownerName = null;
+		if (shopType instanceof AbstractPlayerShopType) {
+			ownerUUID = ConversionUtils.parseUUID(configSection.getString("owner uuid"));
+			if (ownerUUID == null) return null;
+			ownerName = configSection.getString("owner", "unknown");
+			// the chest gets protected once the shopkeeper is loaded, so we also need to load the shopkeeper when the
+			// chest's chunk gets loaded:
+			chestChunkCoords = ChunkCoords.fromBlockPos(worldName, configSection.getInt("chestx"), configSection.getInt("chestz"));
+			if (chestChunkCoords.equals(chunkCoords)) {
+				chestChunkCoords = null;
+			}
+		}
+
+		String normalizedName = normalizeName(configSection.getString("name", ""));
+		return new ShopkeeperIndexEntry(id, uniqueId, shopType, chunkCoords, chestChunkCoords, ownerUUID, ownerName, normalizedName);
+	}
+
+	// data that gets migrated once the shopkeeper gets loaded, which also marks the shopkeeper dirty:
+	private static boolean hasLegacyData(ConfigurationSection configSection, ConfigurationSection objectSection) {
+		// book shop offers:
+		if (configSection.contains("costs")) return true;
+		// living entity uuid:
+		if (objectSection.contains("uuid")) return true;
+		// villager profession:
+		if (objectSection.contains("prof")) return true;
+		String profession = objectSection.getString("profession");
+		if ("PRIEST".equals(profession) || "BLACKSMITH".equals(profession)) return true;
+		// ocelots that get converted to cats:
+		if ("ocelot".equals(objectSection.getString("type")) && objectSection.contains("catType")) return true;
+		return false;
+	}
+
+	/**
+	 * Normalizes the given shop name for the purpose of name lookups.
+	 * 
+	 * @param name
+	 *            the name
+	 * @return the normalized name
+	 */
+	static String normalizeName(String name) {
+		return StringUtils.normalize(Utils.stripColor(Utils.colorize(name)));
+	}
+
+	int getId() {
+		return id;
+	}
+
+	UUID getUniqueId() {
+		return uniqueId;
+	}
+
+	AbstractShopType<?> getShopType() {
+		return shopType;
+	}
+
+	ChunkCoords getChunkCoords() {
+		return chunkCoords;
+	}
+
+	ChunkCoords getChestChunkCoords() {
+		return chestChunkCoords;
+	}
+
+	UUID getOwnerUUID() {
+		return ownerUUID;
+	}
+
+	String getOwnerName() {
+		return ownerName;
+	}
+
+	String getNormalizedName() {
+		return normalizedName;
+	}
+
+	/**
+	 * Checks whether any of the chunks this shopkeeper depends on is currently loaded.
+	 * 
+	 * @return <code>true</code> if the shopkeeper's chunk or the chunk of its chest is loaded
+	 */
+	boolean isAnyChunkLoaded() {
+		return chunkCoords.isChunkLoaded() || (chestChunkCoords != null && chestChunkCoords.isChunkLoaded());
+	}
+}
@@ -0,0 +1,360 @@
+package com.nisovin.shopkeepers.shopkeeper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.nisovin.shopkeepers.api.util.ChunkCoords;
+
+/**
+ * Indexes shopkeepers by their block positions.
+ * <p>
+ * The shopkeepers of each world are grouped by chunk, and the shopkeepers of each chunk are mapped by their block
+ * position inside the chunk. This allows for constant time lookups of the shopkeepers at a specific block, and for
+ * area queries which only need to look at the chunks that overlap the queried area.
+ * <p>
+ * Distances are measured between the given position and the center of the shopkeeper's block.
+ */
+final class ShopkeeperSpatialIndex {
+
+	private static final int CHUNK_SIZE = 16;
+
+	// world name -> chunk key -> block key (relative to the chunk) -> shopkeepers at that block
+	private final Map<String, Map<Long, Map<Integer, List<AbstractShopkeeper>>>> worlds = new HashMap<>();
+
+	private static long getChunkKey(int chunkX, int chunkZ) {
+		return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+	}
+
+	private static int getChunkX(long chunkKey) {
+		return (int) (chunkKey >> 32);
+	}
+
+	private static int getChunkZ(long chunkKey) {
+		return (int) chunkKey;
+	}
+
+	// the block position relative to its chunk:
+	private static int getBlockKey(int x, int y, int z) {
+		return (y << 8) | ((z & 15) << 4) | (x & 15);
+	}
+
+	private static double getDistanceSquared(AbstractShopkeeper shopkeeper, double x, double y, double z) {
+		double dx = (shopkeeper.getX() + 0.5D) - x;
+		double dy = (shopkeeper.getY() + 0.5D) - y;
+		double dz = (shopkeeper.getZ() + 0.5D) - z;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	// converts to block coordinates, saturating at the int bounds:
+	private static int toBlockCoord(double coord) {
+		return (int) Math.floor(coord);
+	}
+
+	void clear() {
+		worlds.clear();
+	}
+
+	void add(AbstractShopkeeper shopkeeper) {
+		assert shopkeeper != null;
+		String worldName = shopkeeper.getWorldName();
+		int x = shopkeeper.getX();
+		int y = shopkeeper.getY();
+		int z = shopkeeper.getZ();
+
+		Map<Long, Map<Integer, List<AbstractShopkeeper>>> chunks = worlds.get(worldName);
+		if (chunks == null) {
+			chunks = new HashMap<>();
+			worlds.put(worldName, chunks);
+		}
+		long chunkKey = getChunkKey(ChunkCoords.convertBlockCoord(x), ChunkCoords.convertBlockCoord(z));
+		Map<Integer, List<AbstractShopkeeper>> blocks = chunks.get(chunkKey);
+		if (blocks == null) {
+			blocks = new HashMap<>(4);
+			chunks.put(chunkKey, blocks);
+		}
+		int blockKey = getBlockKey(x, y, z);
+		List<AbstractShopkeeper> atBlock = blocks.get(blockKey);
+		if (atBlock == null) {
+			atBlock = new ArrayList<>(1);
+			blocks.put(blockKey, atBlock);
+		}
+		atBlock.add(shopkeeper);
+	}
+
+	/**
+	 * Removes the given shopkeeper from the index.
+	 * <p>
+	 * The shopkeeper's current position might already differ from the position it was indexed at. Therefore the
+	 * shopkeeper gets searched for among the shopkeepers of the chunk it was previously located in.
+	 * 
+	 * @param shopkeeper
+	 *            the shopkeeper
+	 * @param chunkCoords
+	 *            the chunk the shopkeeper got indexed in
+	 */
+	void remove(AbstractShopkeeper shopkeeper, ChunkCoords chunkCoords) {
+		assert shopkeeper != null && chunkCoords != null;
+		String worldName = chunkCoords.getWorldName();
+		Map<Long, Map<Integer, List<AbstractShopkeeper>>> chunks = worlds.get(worldName);
+		if (chunks == null) return;
+		long chunkKey = getChunkKey(chunkCoords.getChunkX(), chunkCoords.getChunkZ());
+		Map<Integer, List<AbstractShopkeeper>> blocks = chunks.get(chunkKey);
+		if (blocks == null) return;
+
+		Iterator<List<AbstractShopkeeper>> iterator = blocks.values().iterator();
+		while (iterator.hasNext()) {
+			List<AbstractShopkeeper> atBlock = iterator.next();
+			if (!atBlock.remove(shopkeeper)) continue;
+
+			// cleanup empty entries:
+			if (atBlock.isEmpty()) {
+				iterator.remove();
+				if (blocks.isEmpty()) {
+					chunks.remove(chunkKey);
+					if (chunks.isEmpty()) {
+						worlds.remove(worldName);
+					}
+				}
+			}
+			return;
+		}
+	}
+
+	/**
+	 * Gets the shopkeepers at the specified block.
+	 * 
+	 * @param worldName
+	 *            the world name
+	 * @param x
+	 *            the block x coordinate
+	 * @param y
+	 *            the block y coordinate
+	 * @param z
+	 *            the block z coordinate
+	 * @return an unmodifiable list of the shopkeepers, can be empty
+	 */
+	List<AbstractShopkeeper> getShopkeepersAt(String worldName, int x, int y, int z) {
+		Map<Long, Map<Integer, List<AbstractShopkeeper>>> chunks = worlds.get(worldName);
+		if (chunks == null) return Collections.emptyList();
+		Map<Integer, List<AbstractShopkeeper>> blocks = chunks.get(getChunkKey(ChunkCoords.convertBlockCoord(x), ChunkCoords.convertBlockCoord(z)));
+		if (blocks == null) return Collections.emptyList();
+		List<AbstractShopkeeper> atBlock = blocks.get(getBlockKey(x, y, z));
+		if (atBlock == null) return Collections.emptyList();
+		return Collections.unmodifiableList(atBlock);
+	}
+
+	/**
+	 * Adds all shopkeepers of the specified world to the given list.
+	 * 
+	 * @param worldName
+	 *            the world name
+	 * @param result
+	 *            the list to add the shopkeepers to
+	 */
+	void collectShopkeepersInWorld(String worldName, List<AbstractShopkeeper> result) {
+		Map<Long, Map<Integer, List<AbstractShopkeeper>>> chunks = worlds.get(worldName);
+		if (chunks == null) return;
+		for (Map<Integer, List<AbstractShopkeeper>> blocks : chunks.values()) {
+			for (List<AbstractShopkeeper> atBlock : blocks.values()) {
+				result.addAll(atBlock);
+			}
+		}
+	}
+
+	// gets the indexed chunks within the specified (inclusive) range of chunk coordinates
+	private List<Map<Integer, List<AbstractShopkeeper>>> getChunksInRange(	Map<Long, Map<Integer, List<AbstractShopkeeper>>> chunks,
+																			int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+		List<Map<Integer, List<AbstractShopkeeper>>> result = new ArrayList<>();
+		long rangeSize = ((long) maxChunkX - minChunkX + 1) * ((long) maxChunkZ - minChunkZ + 1);
+		if (rangeSize > chunks.size()) {
+			// there are less indexed chunks than chunks in the range: check all indexed chunks
+			for (Entry<Long, Map<Integer, List<AbstractShopkeeper>>> chunkEntry : chunks.entrySet()) {
+				long chunkKey = chunkEntry.getKey();
+				int chunkX = getChunkX(chunkKey);
+				int chunkZ = getChunkZ(chunkKey);
+				if (chunkX >= minChunkX && chunkX <= maxChunkX && chunkZ >= minChunkZ && chunkZ <= maxChunkZ) {
+					result.add(chunkEntry.getValue());
+				}
+			}
+		} else {
+			for (int chunkX = minChunkX; chunkX <= maxChunkX; ++chunkX) {
+				for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; ++chunkZ) {
+					Map<Integer, List<AbstractShopkeeper>> blocks = chunks.get(getChunkKey(chunkX, chunkZ));
+					if (blocks != null) {
+						result.add(blocks);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Adds all shopkeepers within the specified box to the given list.
+	 * 
+	 * @param worldName
+	 *            the world name
+	 * @param minX
+	 *            the minimum block x coordinate (inclusive)
+	 * @param minY
+	 *            the minimum block y coordinate (inclusive)
+	 * @param minZ
+	 *            the minimum block z coordinate (inclusive)
+	 * @param maxX
+	 *            the maximum block x coordinate (inclusive)
+	 * @param maxY
+	 *            the maximum block y coordinate (inclusive)
+	 * @param maxZ
+	 *            the maximum block z coordinate (inclusive)
+	 * @param result
+	 *            the list to add the shopkeepers to
+	 */
+	void collectShopkeepersInBox(String worldName, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, List<AbstractShopkeeper> result) {
+		if (minX > maxX || minY > maxY || minZ > maxZ) return;
+		Map<Long, Map<Integer, List<AbstractShopkeeper>>> chunks = worlds.get(worldName);
+		if (chunks == null) return;
+		int minChunkX = ChunkCoords.convertBlockCoord(minX);
+		int minChunkZ = ChunkCoords.convertBlockCoord(minZ);
+		int maxChunkX = ChunkCoords.convertBlockCoord(maxX);
+		int maxChunkZ = ChunkCoords.convertBlockCoord(maxZ);
+		for (Map<Integer, List<AbstractShopkeeper>> blocks : this.getChunksInRange(chunks, minChunkX, minChunkZ, maxChunkX, maxChunkZ)) {
+			for (List<AbstractShopkeeper> atBlock : blocks.values()) {
+				// all shopkeepers in this list share the same position:
+				AbstractShopkeeper shopkeeper = atBlock.get(0);
+				int x = shopkeeper.getX();
+				int y = shopkeeper.getY();
+				int z = shopkeeper.getZ();
+				if (x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ) {
+					result.addAll(atBlock);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds all shopkeepers within the specified radius around the given position to the given list.
+	 * 
+	 * @param worldName
+	 *            the world name
+	 * @param x
+	 *            the x coordinate
+	 * @param y
+	 *            the y coordinate
+	 * @param z
+	 *            the z coordinate
+	 * @param radius
+	 *            the radius
+	 * @param result
+	 *            the list to add the shopkeepers to
+	 */
+	void collectShopkeepersInRadius(String worldName, double x, double y, double z, double radius, List<AbstractShopkeeper> result) {
+		Map<Long, Map<Integer, List<AbstractShopkeeper>>> chunks = worlds.get(worldName);
+		if (chunks == null) return;
+		double radiusSquared = radius * radius;
+		// block coordinates whose block centers can be within the radius:
+		int minChunkX = ChunkCoords.convertBlockCoord(toBlockCoord(x - radius - 0.5D));
+		int minChunkZ = ChunkCoords.convertBlockCoord(toBlockCoord(z - radius - 0.5D));
+		int maxChunkX = ChunkCoords.convertBlockCoord(toBlockCoord(x + radius - 0.5D));
+		int maxChunkZ = ChunkCoords.convertBlockCoord(toBlockCoord(z + radius - 0.5D));
+		for (Map<Integer, List<AbstractShopkeeper>> blocks : this.getChunksInRange(chunks, minChunkX, minChunkZ, maxChunkX, maxChunkZ)) {
+			for (List<AbstractShopkeeper> atBlock : blocks.values()) {
+				if (getDistanceSquared(atBlock.get(0), x, y, z) <= radiusSquared) {
+					result.addAll(atBlock);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the shopkeeper that is nearest to the given position.
+	 * <p>
+	 * The chunks get searched in rings of increasing distance around the chunk of the given position, until no closer
+	 * shopkeeper can be found anymore.
+	 * 
+	 * @param worldName
+	 *            the world name
+	 * @param x
+	 *            the x coordinate
+	 * @param y
+	 *            the y coordinate
+	 * @param z
+	 *            the z coordinate
+	 * @param maxDistance
+	 *            the maximum distance
+	 * @return the nearest shopkeeper, or <code>null</code> if there is no shopkeeper within the maximum distance
+	 */
+	AbstractShopkeeper getNearestShopkeeper(String worldName, double x, double y, double z, double maxDistance) {
+		Map<Long, Map<Integer, List<AbstractShopkeeper>>> chunks = worlds.get(worldName);
+		if (chunks == null) return null;
+
+		NearestShopkeeperSearch search = new NearestShopkeeperSearch(x, y, z, maxDistance);
+		// the chunks at this (chebyshev) distance to the center chunk can no longer contain shopkeepers within the max
+		// distance:
+		double maxRing = Math.floor(maxDistance / CHUNK_SIZE) + 2;
+		double ringChunks = (2 * maxRing + 1) * (2 * maxRing + 1);
+		if (ringChunks >= chunks.size()) {
+			// there are less indexed chunks than chunks to search: check all indexed chunks
+			for (Map<Integer, List<AbstractShopkeeper>> blocks : chunks.values()) {
+				search.check(blocks);
+			}
+			return search.nearest;
+		}
+
+		int centerChunkX = ChunkCoords.convertBlockCoord(toBlockCoord(x));
+		int centerChunkZ = ChunkCoords.convertBlockCoord(toBlockCoord(z));
+		for (int ring = 0; ring < maxRing; ++ring) {
+			if (search.nearest != null && ring > 0) {
+				// minimum distance of any block in this ring of chunks:
+				double ringDistance = (ring - 1) * (double) CHUNK_SIZE;
+				if (ringDistance * ringDistance > search.nearestDistanceSquared) break;
+			}
+			if (ring == 0) {
+				search.check(chunks.get(getChunkKey(centerChunkX, centerChunkZ)));
+				continue;
+			}
+			for (int offset = -ring; offset <= ring; ++offset) {
+				search.check(chunks.get(getChunkKey(centerChunkX + offset, centerChunkZ - ring)));
+				search.check(chunks.get(getChunkKey(centerChunkX + offset, centerChunkZ + ring)));
+			}
+			for (int offset = -ring + 1; offset < ring; ++offset) {
+				search.check(chunks.get(getChunkKey(centerChunkX - ring, centerChunkZ + offset)));
+				search.check(chunks.get(getChunkKey(centerChunkX + ring, centerChunkZ + offset)));
+			}
+		}
+		return search.nearest;
+	}
+
+	private static class NearestShopkeeperSearch {
+
+		private final double x;
+		private final double y;
+		private final double z;
+		private AbstractShopkeeper nearest = null;
+		private double nearestDistanceSquared;
+
+		NearestShopkeeperSearch(double x, double y, double z, double maxDistance) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.nearestDistanceSquared = maxDistance * maxDistance;
+		}
+
+		// blocks can be null
+		void check(Map<Integer, List<AbstractShopkeeper>> blocks) {
+			if (blocks == null) return;
+			for (List<AbstractShopkeeper> atBlock : blocks.values()) {
+				AbstractShopkeeper shopkeeper = atBlock.get(0);
+				double distanceSquared = getDistanceSquared(shopkeeper, x, y, z);
+				if (distanceSquared <= nearestDistanceSquared) {
+					nearest = shopkeeper;
+					nearestDistanceSquared = distanceSquared;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package com.nisovin.shopkeepers.shopkeeper.admin.regular;
+
+import com.nisovin.shopkeepers.shopkeeper.admin.AbstractAdminShopkeeper.AdminShopTradingHandler;
+
+public class RegularAdminShopTradingHandler extends AdminShopTradingHandler {
+
+	protected RegularAdminShopTradingHandler(RegularAdminShopkeeper shopkeeper) {
+		super(shopkeeper);
+	}
+
+	@Override
+	public RegularAdminShopkeeper getShopkeeper() {
+		return (RegularAdminShopkeeper) super.getShopkeeper();
+	}
+
+	// the trading recipes only depend on the offers, which are the same for all players:
+	@Override
+	protected boolean isSharingMerchantRecipes() {
+		return true;
+	}
+}
@@ -59,6 +59,9 @@ public class RegularAdminShopkeeper extends AbstractAdminShopkeeper {
 		if (this.getUIHandler(DefaultUITypes.EDITOR()) == null) {
 			this.registerUIHandler(new RegularAdminShopEditorHandler(this));
 		}
+		if (this.getUIHandler(DefaultUITypes.TRADING()) == null) {
+			this.registerUIHandler(new RegularAdminShopTradingHandler(this));
+		}
 		super.setup();
 	}
 
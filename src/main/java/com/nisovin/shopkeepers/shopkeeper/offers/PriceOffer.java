@@ -8,6 +8,7 @@ import org.apache.commons.lang.Validate;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.inventory.ItemStack;
 
+import com.nisovin.shopkeepers.util.ItemKey;
 import com.nisovin.shopkeepers.util.ItemUtils;
 
 /**
@@ -17,6 +18,7 @@ public class PriceOffer {
 
 	private final ItemStack item; // not null/empty
 	private final int price; // > 0
+	private ItemKey itemKey = null; // determined lazily
 
 	public PriceOffer(ItemStack item, int price) {
 		Validate.isTrue(!ItemUtils.isEmpty(item), "Item cannot be empty!");
@@ -33,6 +35,18 @@ public class PriceOffer {
 		return price;
 	}
 
+	/**
+	 * Gets the key of the offered item, for looking up similar items.
+	 * 
+	 * @return the item key
+	 */
+	public ItemKey getItemKey() {
+		if (itemKey == null) {
+			itemKey = new ItemKey(item); // the item does not get modified
+		}
+		return itemKey;
+	}
+
 	// //////////
 	// STATIC UTILITIES
 	// //////////
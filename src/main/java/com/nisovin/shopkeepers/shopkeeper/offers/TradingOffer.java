@@ -8,6 +8,7 @@ import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.inventory.ItemStack;
 
 import com.nisovin.shopkeepers.shopkeeper.SKTradingRecipe;
+import com.nisovin.shopkeepers.util.ItemKey;
 import com.nisovin.shopkeepers.util.ItemUtils;
 
 /**
@@ -16,10 +17,24 @@ import com.nisovin.shopkeepers.util.ItemUtils;
 public class TradingOffer extends SKTradingRecipe {
 	// shares its implementation with TradingRecipe, but always reports to not be out of stock
 
+	private ItemKey resultItemKey = null; // determined lazily
+
 	public TradingOffer(ItemStack resultItem, ItemStack item1, ItemStack item2) {
 		super(resultItem, item1, item2);
 	}
 
+	/**
+	 * Gets the key of the result item, for looking up similar items.
+	 * 
+	 * @return the result item key
+	 */
+	public ItemKey getResultItemKey() {
+		if (resultItemKey == null) {
+			resultItemKey = new ItemKey(resultItem); // the item does not get modified
+		}
+		return resultItemKey;
+	}
+
 	// //////////
 	// STATIC UTILITIES
 	// //////////
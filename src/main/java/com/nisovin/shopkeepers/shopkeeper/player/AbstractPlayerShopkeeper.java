@@ -1,6 +1,8 @@
 package com.nisovin.shopkeepers.shopkeeper.player;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.bukkit.Bukkit;
@@ -31,6 +33,7 @@ import com.nisovin.shopkeepers.shopobjects.citizens.SKCitizensShopObject;
 import com.nisovin.shopkeepers.shopobjects.sign.SKSignShopObject;
 import com.nisovin.shopkeepers.util.Filter;
 import com.nisovin.shopkeepers.util.ItemCount;
+import com.nisovin.shopkeepers.util.ItemKey;
 import com.nisovin.shopkeepers.util.ItemUtils;
 import com.nisovin.shopkeepers.util.Log;
 import com.nisovin.shopkeepers.util.Utils;
@@ -43,6 +46,11 @@ public abstract class AbstractPlayerShopkeeper extends AbstractShopkeeper implem
 	protected int chestY;
 	protected int chestZ;
 	protected ItemStack hireCost = null; // null if not for hire
+	// snapshot of the chest contents, discarded on changes to the chest inventory and after trades; chest changes that
+	// don't trigger any events (ex. by other plugins) get picked up once the snapshot is older than the configured
+	// chest-stock-max-age:
+	private ChestStock chestStock = null;
+	private long chestStockTime = 0L;
 
 	/**
 	 * Creates a not yet initialized {@link AbstractPlayerShopkeeper} (for use in sub-classes).
@@ -117,7 +125,7 @@ public abstract class AbstractPlayerShopkeeper extends AbstractShopkeeper implem
 		configSection.set("chesty", chestY);
 		configSection.set("chestz", chestZ);
 		if (hireCost != null) {
-			configSection.set("hirecost", hireCost);
+			configSection.set("hirecost", hireCost.clone());
 		}
 	}
 
@@ -184,8 +192,13 @@ public abstract class AbstractPlayerShopkeeper extends AbstractShopkeeper implem
 	@Override
 	public void setOwner(UUID ownerUUID, String ownerName) {
 		this.markDirty();
+		UUID oldOwnerUUID = this.ownerUUID;
 		this.ownerUUID = ownerUUID;
 		this.ownerName = ownerName;
+		if (this.isValid() && !ownerUUID.equals(oldOwnerUUID)) {
+			// update the registry's owner index:
+			SKShopkeepersPlugin.getInstance().getShopkeeperRegistry().onPlayerShopkeeperOwnerChanged(this, oldOwnerUUID);
+		}
 		// TODO do this in a more abstract way
 		if (!Settings.allowRenamingOfPlayerNpcShops && this.getShopObject().getType() == DefaultShopObjectTypes.CITIZEN()) {
 			// update the npc's name:
@@ -252,6 +265,7 @@ public abstract class AbstractPlayerShopkeeper extends AbstractShopkeeper implem
 		}
 
 		// update chest:
+		this.invalidateChestStock();
 		this.chestX = chestX;
 		this.chestY = chestY;
 		this.chestZ = chestZ;
@@ -323,28 +337,92 @@ public abstract class AbstractPlayerShopkeeper extends AbstractShopkeeper implem
 		Block chest = this.getChest();
 		if (!ItemUtils.isChest(chest.getType())) return 0;
 
-		int totalCurrency = 0;
 		Inventory chestInventory = ((Chest) chest.getState()).getInventory();
-		ItemStack[] chestContents = chestInventory.getContents();
-		for (ItemStack itemStack : chestContents) {
-			if (Settings.isCurrencyItem(itemStack)) {
-				totalCurrency += itemStack.getAmount();
-			} else if (Settings.isHighCurrencyItem(itemStack)) {
-				totalCurrency += (itemStack.getAmount() * Settings.highCurrencyValue);
-			}
-		}
-		return totalCurrency;
+		return Settings.countCurrency(chestInventory.getContents());
 	}
 
 	protected List<ItemCount> getItemsFromChest(Filter<ItemStack> filter) {
+		return new ArrayList<>(this.getItemsFromChestByKey(filter).values());
+	}
+
+	// keeps the keys of the chest items, so that the corresponding offers can be looked up without hashing the items
+	// again:
+	protected Map<ItemKey, ItemCount> getItemsFromChestByKey(Filter<ItemStack> filter) {
 		ItemStack[] chestContents = null;
 		Block chest = this.getChest();
 		if (ItemUtils.isChest(chest.getType())) {
 			Inventory chestInventory = ((Chest) chest.getState()).getInventory();
 			chestContents = chestInventory.getContents();
 		}
-		// returns an empty list if the chest couldn't be found:
-		return ItemUtils.countItems(chestContents, filter);
+		// returns an empty map if the chest couldn't be found:
+		return ItemUtils.countItemsByKey(chestContents, filter);
+	}
+
+	/**
+	 * Gets a snapshot of the chest contents, for determining the stock of the offers.
+	 * <p>
+	 * The snapshot gets reused until the chest contents change, or until it is older than the configured
+	 * {@link Settings#chestStockMaxAge}. Chest changes that don't trigger any events (ex. by other plugins) might
+	 * therefore not be reflected for up to that long. The snapshot is not suited for modifications of the chest
+	 * contents.
+	 * 
+	 * @return the chest stock, empty if the chest is missing
+	 */
+	public ChestStock getChestStock() {
+		this.checkChestStockAge();
+		if (chestStock == null) {
+			ItemStack[] chestContents = null;
+			Block chest = this.getChest();
+			if (ItemUtils.isChest(chest.getType())) {
+				Inventory chestInventory = ((Chest) chest.getState()).getInventory();
+				chestContents = chestInventory.getContents();
+			}
+			chestStock = new ChestStock(chestContents);
+			chestStockTime = System.currentTimeMillis();
+		}
+		return chestStock;
+	}
+
+	// discards the snapshot once it is outdated: the chest contents might have changed without us noticing, so the
+	// trading recipes need to be updated as well
+	private void checkChestStockAge() {
+		if (chestStock != null && (System.currentTimeMillis() - chestStockTime) >= Settings.chestStockMaxAge * 1000L) {
+			this.invalidateChestStock();
+		}
+	}
+
+	@Override
+	public int getTradingRecipesVersion() {
+		// open trading windows check the version before they query the trading recipes:
+		this.checkChestStockAge();
+		return super.getTradingRecipesVersion();
+	}
+
+	/**
+	 * Discards the current snapshot of the chest contents.
+	 * <p>
+	 * This gets called whenever the chest contents change.
+	 */
+	public void invalidateChestStock() {
+		chestStock = null;
+		// the stock of the offers might have changed:
+		this.onTradingRecipesChanged();
+	}
+
+	/**
+	 * Frees the current snapshot of the chest contents, without informing about any changes.
+	 * <p>
+	 * This gets called once the snapshot is no longer needed, i.e. when the last trading window of this shopkeeper
+	 * gets closed, and when the shopkeeper's chunk gets unloaded. The next access creates a new snapshot.
+	 */
+	public void releaseChestStock() {
+		chestStock = null;
+	}
+
+	@Override
+	public void onChunkUnload(boolean worldSaving) {
+		super.onChunkUnload(worldSaving);
+		this.releaseChestStock();
 	}
 
 	// SHOPKEEPER UIs - shortcuts for common UI types:
@@ -0,0 +1,113 @@
+package com.nisovin.shopkeepers.shopkeeper.player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import com.nisovin.shopkeepers.Settings;
+import com.nisovin.shopkeepers.util.Filter;
+import com.nisovin.shopkeepers.util.ItemCount;
+import com.nisovin.shopkeepers.util.ItemKey;
+import com.nisovin.shopkeepers.util.ItemUtils;
+
+/**
+ * A snapshot of the contents of a shop chest.
+ * <p>
+ * The item counts get determined lazily, once for every used item filter, and are then reused until the snapshot gets
+ * discarded.
+ */
+public class ChestStock {
+
+	private static final ItemStack[] NO_CONTENTS = new ItemStack[0];
+
+	private static class FilteredItemCounts {
+
+		private final Map<ItemKey, ItemCount> byKey;
+		private final List<ItemCount> list;
+
+		FilteredItemCounts(Map<ItemKey, ItemCount> byKey) {
+			this.byKey = byKey;
+			this.list = Collections.unmodifiableList(new ArrayList<>(byKey.values()));
+		}
+	}
+
+	private final ItemStack[] contents; // copies of the non-empty items
+	// by item filter (null for no filter):
+	private final Map<Filter<ItemStack>, FilteredItemCounts> itemCounts = new HashMap<>(2);
+	private int currency = -1; // determined lazily
+
+	/**
+	 * Creates a new snapshot of the given chest contents.
+	 * 
+	 * @param chestContents
+	 *            the chest contents, or <code>null</code> if the chest is missing
+	 */
+	ChestStock(ItemStack[] chestContents) {
+		if (chestContents == null) {
+			this.contents = NO_CONTENTS;
+		} else {
+			this.contents = new ItemStack[chestContents.length];
+			for (int i = 0; i < chestContents.length; ++i) {
+				ItemStack item = chestContents[i];
+				if (!ItemUtils.isEmpty(item)) {
+					contents[i] = item.clone();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the counts of the items in the chest that are accepted by the given filter.
+	 * 
+	 * @param filter
+	 *            the item filter, or <code>null</code> to count all items
+	 * @return an unmodifiable view on the item counts, empty if the chest is missing
+	 */
+	public List<ItemCount> getItemCounts(Filter<ItemStack> filter) {
+		return this.getFilteredItemCounts(filter).list;
+	}
+
+	private FilteredItemCounts getFilteredItemCounts(Filter<ItemStack> filter) {
+		FilteredItemCounts counts = itemCounts.get(filter);
+		if (counts == null) {
+			counts = new FilteredItemCounts(ItemUtils.countItemsByKey(contents, filter));
+			itemCounts.put(filter, counts);
+		}
+		return counts;
+	}
+
+	/**
+	 * Gets the amount of items in the chest that are similar to the given item and accepted by the given filter.
+	 * 
+	 * @param filter
+	 *            the item filter, or <code>null</code> to count all items
+	 * @param itemKey
+	 *            the key of the item
+	 * @return the amount of matching items in the chest
+	 */
+	public int getAmount(Filter<ItemStack> filter, ItemKey itemKey) {
+		ItemCount itemCount = this.getFilteredItemCounts(filter).byKey.get(itemKey);
+		return (itemCount == null ? 0 : itemCount.getAmount());
+	}
+
+	public int getCurrency() {
+		if (currency == -1) {
+			currency = Settings.countCurrency(contents);
+		}
+		return currency;
+	}
+
+	public boolean contains(Material type) {
+		for (ItemStack itemStack : contents) {
+			if (itemStack != null && itemStack.getType() == type) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -3,9 +3,11 @@ package com.nisovin.shopkeepers.shopkeeper.player;
 import org.bukkit.block.Block;
 import org.bukkit.block.Chest;
 import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
@@ -47,6 +49,16 @@ public abstract class PlayerShopTradingHandler extends TradingHandler {
 		return true;
 	}
 
+	@Override
+	protected void onInventoryClose(Player player, InventoryCloseEvent closeEvent) {
+		super.onInventoryClose(player, closeEvent);
+		// free the chest stock snapshot once no player is trading with this shopkeeper anymore:
+		AbstractPlayerShopkeeper shopkeeper = this.getShopkeeper();
+		if (!SKShopkeepersPlugin.getInstance().getUIRegistry().hasSessions(shopkeeper)) {
+			shopkeeper.releaseChestStock();
+		}
+	}
+
 	@Override
 	protected boolean prepareTrade(TradeData tradeData) {
 		if (!super.prepareTrade(tradeData)) return false;
@@ -90,6 +102,8 @@ public abstract class PlayerShopTradingHandler extends TradingHandler {
 		// apply chest content changes:
 		if (chestInventory != null && newChestContents != null) {
 			chestInventory.setContents(newChestContents);
+			// the chest might be shared with other shopkeepers:
+			SKShopkeepersPlugin.getInstance().getProtectedChests().invalidateChestStocks(this.getShopkeeper().getChest());
 		}
 
 		// reset trade related state information:
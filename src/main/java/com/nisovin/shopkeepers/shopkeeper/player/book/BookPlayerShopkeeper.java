@@ -26,6 +26,7 @@ import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
 import com.nisovin.shopkeepers.shopkeeper.SKDefaultShopTypes;
 import com.nisovin.shopkeepers.shopkeeper.offers.BookOffer;
 import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.player.ChestStock;
 import com.nisovin.shopkeepers.util.Filter;
 import com.nisovin.shopkeepers.util.ItemCount;
 import com.nisovin.shopkeepers.util.ItemUtils;
@@ -107,8 +108,9 @@ public class BookPlayerShopkeeper extends AbstractPlayerShopkeeper {
 	@Override
 	public List<TradingRecipe> getTradingRecipes(Player player) {
 		List<TradingRecipe> recipes = new ArrayList<>();
-		boolean hasBlankBooks = this.hasChestBlankBooks();
-		List<ItemCount> bookItems = this.getCopyableBooksFromChest();
+		ChestStock chestStock = this.getChestStock();
+		boolean hasBlankBooks = chestStock.contains(Material.WRITABLE_BOOK);
+		List<ItemCount> bookItems = chestStock.getItemCounts(ITEM_FILTER);
 		for (BookOffer offer : this.getOffers()) {
 			String bookTitle = offer.getBookTitle();
 			ItemStack bookItem = this.getBookItem(bookItems, bookTitle);
@@ -72,91 +72,50 @@ public class BuyingPlayerShopTradingHandler extends PlayerShopTradingHandler {
 		return true;
 	}
 
-	// TODO simplify this? Maybe by separating into different, general utility functions
 	// TODO support iterating in reverse order, for nicer looking chest contents?
 	// returns the amount of currency that couldn't be removed, 0 on full success, negative if too much was removed
 	protected int removeCurrency(ItemStack[] contents, int amount) {
+		return removeCurrencyItems(contents, amount);
+	}
+
+	// the contents are only scanned once: this counts the available currency and remembers the slots of the currency
+	// stacks, which the removal then works on
+	static int removeCurrencyItems(ItemStack[] contents, int amount) {
 		Validate.notNull(contents);
 		Validate.isTrue(amount >= 0, "Amount cannot be negative!");
 		if (amount == 0) return 0;
-		int remaining = amount;
 
-		// first pass: remove as much low currency as available from partial stacks
-		// second pass: remove as much low currency as available from full stacks
-		for (int k = 0; k < 2; k++) {
-			for (int slot = 0; slot < contents.length; slot++) {
-				ItemStack itemStack = contents[slot];
-				if (!Settings.isCurrencyItem(itemStack)) continue;
-
-				// second pass, or the itemstack is a partial one:
-				int itemAmount = itemStack.getAmount();
-				if (k == 1 || itemAmount < itemStack.getMaxStackSize()) {
-					int newAmount = (itemAmount - remaining);
-					if (newAmount > 0) {
-						// copy the item before modifying it:
-						itemStack = itemStack.clone();
-						contents[slot] = itemStack;
-						itemStack.setAmount(newAmount);
-						remaining = 0;
-						break;
-					} else {
-						contents[slot] = null;
-						remaining = -newAmount;
-						if (newAmount == 0) {
-							break;
-						}
-					}
-				}
+		CurrencyStacks lowCurrency = new CurrencyStacks(contents.length);
+		CurrencyStacks highCurrency = new CurrencyStacks(contents.length);
+		for (int slot = 0; slot < contents.length; slot++) {
+			ItemStack itemStack = contents[slot];
+			if (Settings.isCurrencyItem(itemStack)) {
+				lowCurrency.add(slot, itemStack);
+			} else if (Settings.isHighCurrencyItem(itemStack)) {
+				highCurrency.add(slot, itemStack);
 			}
-			if (remaining == 0) break;
 		}
-		if (remaining == 0) return 0;
 
-		if (!Settings.isHighCurrencyEnabled()) {
-			// we couldn't remove all currency:
-			return remaining;
+		// not enough currency: leave the contents untouched
+		int availableCurrency = lowCurrency.totalAmount + (highCurrency.totalAmount * Settings.highCurrencyValue);
+		if (availableCurrency < amount) {
+			return (amount - availableCurrency);
 		}
 
+		int remaining = lowCurrency.remove(contents, amount);
+		if (remaining == 0) return 0;
+		assert Settings.isHighCurrencyEnabled();
+
 		int remainingHigh = (int) Math.ceil((double) remaining / Settings.highCurrencyValue);
 		// we rounded the high currency up, so if this is negative now, it represents the remaining change which
 		// needs to be added back:
 		remaining -= (remainingHigh * Settings.highCurrencyValue);
 		assert remaining <= 0;
 
-		// first pass: remove high currency from partial stacks
-		// second pass: remove high currency from full stacks
-		for (int k = 0; k < 2; k++) {
-			for (int slot = 0; slot < contents.length; slot++) {
-				ItemStack itemStack = contents[slot];
-				if (!Settings.isHighCurrencyItem(itemStack)) continue;
-
-				// second pass, or the itemstack is a partial one:
-				int itemAmount = itemStack.getAmount();
-				if (k == 1 || itemAmount < itemStack.getMaxStackSize()) {
-					int newAmount = (itemAmount - remainingHigh);
-					if (newAmount > 0) {
-						// copy the item before modifying it:
-						itemStack = itemStack.clone();
-						contents[slot] = itemStack;
-						itemStack.setAmount(newAmount);
-						remainingHigh = 0;
-						break;
-					} else {
-						contents[slot] = null;
-						remainingHigh = -newAmount;
-						if (newAmount == 0) {
-							break;
-						}
-					}
-				}
-			}
-			if (remainingHigh == 0) break;
-		}
+		remainingHigh = highCurrency.remove(contents, remainingHigh);
+		assert remainingHigh == 0;
+		if (remaining == 0) return 0;
 
-		remaining += (remainingHigh * Settings.highCurrencyValue);
-		if (remaining >= 0) {
-			return remaining;
-		}
 		assert remaining < 0; // we have some change left
 		remaining = -remaining; // the change is now represented as positive value
 
@@ -176,4 +135,58 @@ public class BuyingPlayerShopTradingHandler extends PlayerShopTradingHandler {
 		remaining = -remaining;
 		return remaining;
 	}
+
+	// the slots and total amount of the stacks of one type of currency:
+	private static class CurrencyStacks {
+
+		private final int[] partialSlots;
+		private int partialCount = 0;
+		private final int[] fullSlots;
+		private int fullCount = 0;
+		private int totalAmount = 0;
+
+		CurrencyStacks(int size) {
+			partialSlots = new int[size];
+			fullSlots = new int[size];
+		}
+
+		void add(int slot, ItemStack itemStack) {
+			int itemAmount = itemStack.getAmount();
+			if (itemAmount < itemStack.getMaxStackSize()) {
+				partialSlots[partialCount++] = slot;
+			} else {
+				fullSlots[fullCount++] = slot;
+			}
+			totalAmount += itemAmount;
+		}
+
+		// first removes as much currency as available from partial stacks, and then from full stacks
+		// returns the amount that couldn't be removed
+		int remove(ItemStack[] contents, int amount) {
+			int remaining = removeFromSlots(contents, partialSlots, partialCount, amount);
+			if (remaining == 0) return 0;
+			return removeFromSlots(contents, fullSlots, fullCount, remaining);
+		}
+
+		private static int removeFromSlots(ItemStack[] contents, int[] slots, int slotsCount, int amount) {
+			int remaining = amount;
+			for (int i = 0; i < slotsCount; i++) {
+				int slot = slots[i];
+				ItemStack itemStack = contents[slot];
+				int newAmount = (itemStack.getAmount() - remaining);
+				if (newAmount > 0) {
+					// copy the item before modifying it:
+					itemStack = itemStack.clone();
+					contents[slot] = itemStack;
+					itemStack.setAmount(newAmount);
+					return 0;
+				} else {
+					contents[slot] = null;
+					remaining = -newAmount;
+					if (remaining == 0) return 0;
+				}
+			}
+			return remaining;
+		}
+	}
 }
@@ -2,6 +2,8 @@ package com.nisovin.shopkeepers.shopkeeper.player.sell;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryClickEvent;
@@ -11,6 +13,7 @@ import com.nisovin.shopkeepers.shopkeeper.TradingRecipeDraft;
 import com.nisovin.shopkeepers.shopkeeper.offers.PriceOffer;
 import com.nisovin.shopkeepers.shopkeeper.player.PlayerShopEditorHandler;
 import com.nisovin.shopkeepers.util.ItemCount;
+import com.nisovin.shopkeepers.util.ItemKey;
 
 public class SellingPlayerShopEditorHandler extends PlayerShopEditorHandler {
 
@@ -35,12 +38,11 @@ public class SellingPlayerShopEditorHandler extends PlayerShopEditorHandler {
 		}
 
 		// add empty offers for items from the chest:
-		List<ItemCount> chestItems = shopkeeper.getItemsFromChest();
-		for (int chestItemIndex = 0; chestItemIndex < chestItems.size(); chestItemIndex++) {
-			ItemCount itemCount = chestItems.get(chestItemIndex);
-			ItemStack itemFromChest = itemCount.getItem(); // this item is already a copy with amount 1
+		Map<ItemKey, ItemCount> chestItems = shopkeeper.getItemsFromChestByKey();
+		for (Entry<ItemKey, ItemCount> chestItem : chestItems.entrySet()) {
+			ItemStack itemFromChest = chestItem.getValue().getItem(); // this item is already a copy with amount 1
 
-			if (shopkeeper.getOffer(itemFromChest) != null) {
+			if (shopkeeper.getOffer(chestItem.getKey()) != null) {
 				continue; // already added
 			}
 
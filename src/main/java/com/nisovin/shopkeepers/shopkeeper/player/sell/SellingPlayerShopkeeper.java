@@ -3,8 +3,9 @@ package com.nisovin.shopkeepers.shopkeeper.player.sell;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
@@ -19,9 +20,10 @@ import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
 import com.nisovin.shopkeepers.shopkeeper.SKDefaultShopTypes;
 import com.nisovin.shopkeepers.shopkeeper.offers.PriceOffer;
 import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.player.ChestStock;
 import com.nisovin.shopkeepers.util.Filter;
 import com.nisovin.shopkeepers.util.ItemCount;
-import com.nisovin.shopkeepers.util.ItemUtils;
+import com.nisovin.shopkeepers.util.ItemKey;
 
 public class SellingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 
@@ -33,6 +35,7 @@ public class SellingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 	// contains only one offer for a specific type of item:
 	private final List<PriceOffer> offers = new ArrayList<>();
 	private final List<PriceOffer> offersView = Collections.unmodifiableList(offers);
+	private final Map<ItemKey, PriceOffer> offersByItem = new HashMap<>();
 
 	/**
 	 * Creates a not yet initialized {@link SellingPlayerShopkeeper} (for use in sub-classes).
@@ -90,14 +93,10 @@ public class SellingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 	@Override
 	public List<TradingRecipe> getTradingRecipes(Player player) {
 		List<TradingRecipe> recipes = new ArrayList<>();
-		List<ItemCount> chestItems = this.getItemsFromChest();
+		ChestStock chestStock = this.getChestStock();
 		for (PriceOffer offer : this.getOffers()) {
 			ItemStack tradedItem = offer.getItem();
-			int itemAmountInChest = 0;
-			ItemCount itemCount = ItemCount.findSimilar(chestItems, tradedItem);
-			if (itemCount != null) {
-				itemAmountInChest = itemCount.getAmount();
-			}
+			int itemAmountInChest = chestStock.getAmount(ITEM_FILTER, offer.getItemKey());
 			boolean outOfStock = (itemAmountInChest < tradedItem.getAmount());
 			TradingRecipe recipe = this.createSellingRecipe(tradedItem, offer.getPrice(), outOfStock);
 			if (recipe != null) {
@@ -107,8 +106,8 @@ public class SellingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 		return Collections.unmodifiableList(recipes);
 	}
 
-	protected List<ItemCount> getItemsFromChest() {
-		return this.getItemsFromChest(ITEM_FILTER);
+	protected Map<ItemKey, ItemCount> getItemsFromChestByKey() {
+		return this.getItemsFromChestByKey(ITEM_FILTER);
 	}
 
 	// OFFERS:
@@ -118,12 +117,22 @@ public class SellingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 	}
 
 	public PriceOffer getOffer(ItemStack tradedItem) {
-		for (PriceOffer offer : this.getOffers()) {
-			if (ItemUtils.isSimilar(offer.getItem(), tradedItem)) {
-				return offer;
-			}
-		}
-		return null;
+		if (tradedItem == null) return null;
+		return this.getOffer(new ItemKey(tradedItem));
+	}
+
+	/**
+	 * Gets the offer for the item with the given key.
+	 * <p>
+	 * This avoids creating a new {@link ItemKey} if the key of the item is already known.
+	 * 
+	 * @param itemKey
+	 *            the item key
+	 * @return the offer, or <code>null</code> if there is no offer for the item
+	 */
+	public PriceOffer getOffer(ItemKey itemKey) {
+		if (itemKey == null) return null;
+		return offersByItem.get(itemKey);
 	}
 
 	public PriceOffer addOffer(ItemStack tradedItem, int price) {
@@ -138,8 +147,12 @@ public class SellingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 
 	private void _addOffer(PriceOffer offer) {
 		assert offer != null;
-		// remove previous offer for the same item:
-		this.removeOffer(offer.getItem());
+		// remove previous offer for the same item (marking dirty is left to the callers, since this is also used during
+		// loading):
+		PriceOffer previousOffer = offersByItem.put(offer.getItemKey(), offer);
+		if (previousOffer != null) {
+			offers.remove(previousOffer);
+		}
 		offers.add(offer);
 	}
 
@@ -154,6 +167,7 @@ public class SellingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 
 	private void _clearOffers() {
 		offers.clear();
+		offersByItem.clear();
 	}
 
 	public void clearOffers() {
@@ -162,13 +176,11 @@ public class SellingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 	}
 
 	public void removeOffer(ItemStack tradedItem) {
-		Iterator<PriceOffer> iterator = offers.iterator();
-		while (iterator.hasNext()) {
-			if (ItemUtils.isSimilar(iterator.next().getItem(), tradedItem)) {
-				iterator.remove();
-				this.markDirty();
-				break;
-			}
+		if (tradedItem == null) return;
+		PriceOffer offer = offersByItem.remove(new ItemKey(tradedItem));
+		if (offer != null) {
+			offers.remove(offer);
+			this.markDirty();
 		}
 	}
 }
@@ -18,7 +18,9 @@ import com.nisovin.shopkeepers.shopkeeper.AbstractShopkeeper;
 import com.nisovin.shopkeepers.shopkeeper.SKDefaultShopTypes;
 import com.nisovin.shopkeepers.shopkeeper.offers.TradingOffer;
 import com.nisovin.shopkeepers.shopkeeper.player.AbstractPlayerShopkeeper;
+import com.nisovin.shopkeepers.shopkeeper.player.ChestStock;
 import com.nisovin.shopkeepers.util.ItemCount;
+import com.nisovin.shopkeepers.util.ItemKey;
 import com.nisovin.shopkeepers.util.ItemUtils;
 
 public class TradingPlayerShopkeeper extends AbstractPlayerShopkeeper {
@@ -82,15 +84,11 @@ public class TradingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 	@Override
 	public List<TradingRecipe> getTradingRecipes(Player player) {
 		List<TradingRecipe> recipes = new ArrayList<>();
-		List<ItemCount> chestItems = this.getItemsFromChest();
+		ChestStock chestStock = this.getChestStock();
 		for (TradingOffer offer : this.getOffers()) {
 			ItemStack resultItem = offer.getResultItem();
 			assert !ItemUtils.isEmpty(resultItem);
-			int itemAmountInChest = 0;
-			ItemCount itemCount = ItemCount.findSimilar(chestItems, resultItem);
-			if (itemCount != null) {
-				itemAmountInChest = itemCount.getAmount();
-			}
+			int itemAmountInChest = chestStock.getAmount(null, offer.getResultItemKey());
 			boolean outOfStock = (itemAmountInChest < resultItem.getAmount());
 			TradingRecipe recipe = ShopkeepersAPI.createTradingRecipe(resultItem, offer.getItem1(), offer.getItem2(), outOfStock);
 			if (recipe != null) {
@@ -145,8 +143,10 @@ public class TradingPlayerShopkeeper extends AbstractPlayerShopkeeper {
 
 	// note: there might be multiple trades involving this item
 	public TradingOffer getOffer(ItemStack tradedItem) {
+		if (tradedItem == null) return null;
+		ItemKey itemKey = new ItemKey(tradedItem);
 		for (TradingOffer offer : this.getOffers()) {
-			if (ItemUtils.isSimilar(offer.getResultItem(), tradedItem)) {
+			if (offer.getResultItemKey().equals(itemKey)) {
 				return offer;
 			}
 		}
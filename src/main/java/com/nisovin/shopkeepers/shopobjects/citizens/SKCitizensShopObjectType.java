@@ -25,6 +25,12 @@ public class SKCitizensShopObjectType extends AbstractEntityShopObjectType<SKCit
 		return Settings.msgShopObjectTypeNpc;
 	}
 
+	@Override
+	public boolean usesEntityUniqueIds() {
+		// the object ids are based on the npc unique ids, and the npc entities can change at any time:
+		return false;
+	}
+
 	@Override
 	public String createObjectId(Entity entity) {
 		if (entity == null) return null;
@@ -17,6 +17,19 @@ public abstract class AbstractEntityShopObjectType<T extends AbstractEntityShopO
 		super(identifier, aliases, permission);
 	}
 
+	/**
+	 * Checks whether the object ids of this type are derived from the unique ids of the shop entities, and therefore
+	 * stay the same for as long as the shop entity stays the same.
+	 * <p>
+	 * If this is the case, the active shopkeepers of this type get looked up by the unique ids of their entities,
+	 * instead of creating object ids for the entities in question.
+	 * 
+	 * @return <code>true</code> if the object ids are derived from the entity unique ids
+	 */
+	public boolean usesEntityUniqueIds() {
+		return true;
+	}
+
 	public String createObjectId(Entity entity) {
 		if (entity == null) return null;
 		return this.getIdentifier() + ":" + entity.getUniqueId();
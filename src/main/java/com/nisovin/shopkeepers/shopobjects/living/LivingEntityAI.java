@@ -1,17 +1,18 @@
 package com.nisovin.shopkeepers.shopobjects.living;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Random;
 
 import org.apache.commons.lang.Validate;
 import org.bukkit.Bukkit;
-import org.bukkit.Chunk;
+import org.bukkit.GameMode;
 import org.bukkit.Location;
-import org.bukkit.World;
+import org.bukkit.block.Block;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitTask;
@@ -20,6 +21,8 @@ import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
 import com.nisovin.shopkeepers.api.util.ChunkCoords;
 import com.nisovin.shopkeepers.compat.NMSManager;
+import com.nisovin.shopkeepers.util.ChunkMarkers;
+import com.nisovin.shopkeepers.util.LongObjectHashMap;
 import com.nisovin.shopkeepers.util.Utils;
 
 /**
@@ -27,12 +30,19 @@ import com.nisovin.shopkeepers.util.Utils;
  * <p>
  * It is assumed that entities usually don't change their initial chunk: Their gravity and AI activation depend on
  * whether their initial chunk has players nearby, rather than whether their current chunk has players nearby.
+ * <p>
+ * Whether an entity is meant to fall is only checked initially, and then again whenever a block changes in the block
+ * column below the entity.
  */
 public class LivingEntityAI {
 
 	// The look-at-players ai goal only targets players in 12 block radius, so we can limit the ai ticking to the direct
 	// chunks around the player:
 	private static final int AI_ACTIVATION_CHUNK_RANGE = 1;
+	// the look-only AI mimics the look-at-players ai goal, but only updates the head rotation every few ticks:
+	private static final double LOOK_RANGE = 12.0D;
+	private static final double LOOK_RANGE_SQUARED = LOOK_RANGE * LOOK_RANGE;
+	private static final int LOOK_UPDATE_INTERVAL_TICKS = 5;
 	// Regarding gravity activation range:
 	// Players can see shop entities from further away, so we use a large enough range for the activation of falling
 	// checks (configurable in the config, default 4)
@@ -53,43 +63,101 @@ public class LivingEntityAI {
 	// speed, and to be able to detect the end of the falling without having to check for block collisions another time
 	// in the next tick
 	private static final double GRAVITY_COLLISION_CHECK_RANGE = MAX_FALLING_DISTANCE_PER_TICK + 0.1D;
-
-	private static final Random RANDOM = new Random();
+	// entities are checked for falling after block changes below them, but some block changes don't trigger any events
+	// (ex. blocks changed by other plugins or world editing tools): as a fallback, each entity gets checked again after
+	// this many ticks since its last falling check
+	private static final int FALLING_RECHECK_INTERVAL_TICKS = 20 * 60; // 1 minute
 
 	private final ShopkeepersPlugin plugin;
 
 	private static class EntityData {
+		private final LivingEntity entity;
 		private final ChunkData chunkData;
-		// random initial delay to distribute falling checks of entities among ticks:
-		public int skipFallingCheckTicks = RANDOM.nextInt(10);
+		private boolean removed = false;
+		// checked once initially, and then only after block changes below the entity (or after the fallback interval):
+		public boolean checkFalling = true;
+		// the tick after which the entity gets checked for falling again, even without any block changes:
+		private int nextFallingCheckTick = 0;
 		public boolean falling = false;
 		public double distanceToGround = 0.0D;
-
-		public EntityData(ChunkData chunkData) {
+		// look-only AI: the next tick in which the head rotation gets updated
+		private int nextLookTick = 0;
+		// the block position of the last falling check:
+		private int blockX;
+		private int blockY;
+		private int blockZ;
+
+		public EntityData(LivingEntity entity, ChunkData chunkData) {
+			this.entity = entity;
 			this.chunkData = chunkData;
 		}
 	}
 
 	// ticking entities -> entity data
 	private final Map<LivingEntity, EntityData> entities = new HashMap<>();
+	// the order in which the entities get visited (round-robin), can contain the data of already removed entities:
+	private final ArrayDeque<EntityData> entityQueue = new ArrayDeque<>();
+	// entities which are currently falling get handled every tick:
+	private final List<EntityData> fallingEntities = new ArrayList<>();
+	// the number of entity visits that got postponed due to the time budget in the previous tick:
+	private int pendingVisits = 0;
 
 	private static class ChunkData {
-		private final Chunk chunk;
-		private int entityCount = 0;
+		private final String worldName;
+		private final int chunkX;
+		private final int chunkZ;
+		private final List<EntityData> entities = new ArrayList<>();
+		private int index; // index inside the world's chunks list
 		// active by default for fast initial reactions in case players are nearby:
 		public boolean activeGravity;
 		public boolean activeAI = true;
 
-		public ChunkData(Chunk chunk, boolean activeGravity) {
-			this.chunk = chunk;
+		public ChunkData(String worldName, int chunkX, int chunkZ, boolean activeGravity) {
+			this.worldName = worldName;
+			this.chunkX = chunkX;
+			this.chunkZ = chunkZ;
 			this.activeGravity = activeGravity;
 		}
 	}
 
-	private final Map<Chunk, ChunkData> activeChunks = new HashMap<>();
+	// the chunks containing ticking entities of a world:
+	private static class WorldChunks {
+		private final LongObjectHashMap<ChunkData> chunksByKey = new LongObjectHashMap<>();
+		private final List<ChunkData> chunks = new ArrayList<>();
+
+		public ChunkData get(int chunkX, int chunkZ) {
+			return chunksByKey.get(ChunkMarkers.getChunkKey(chunkX, chunkZ));
+		}
+
+		public void add(ChunkData chunkData) {
+			chunksByKey.put(ChunkMarkers.getChunkKey(chunkData.chunkX, chunkData.chunkZ), chunkData);
+			chunkData.index = chunks.size();
+			chunks.add(chunkData);
+		}
+
+		public void remove(ChunkData chunkData) {
+			chunksByKey.remove(ChunkMarkers.getChunkKey(chunkData.chunkX, chunkData.chunkZ));
+			// move the last chunk into the freed slot:
+			ChunkData lastChunkData = chunks.remove(chunks.size() - 1);
+			if (lastChunkData != chunkData) {
+				lastChunkData.index = chunkData.index;
+				chunks.set(chunkData.index, lastChunkData);
+			}
+		}
+
+		public boolean isEmpty() {
+			return chunks.isEmpty();
+		}
+	}
+
+	// by world name:
+	private final Map<String, WorldChunks> activeChunks = new HashMap<>();
 
 	// temporarily re-used Location object:
 	private final Location tempLocation = new Location(null, 0, 0, 0);
+	private final Location tempPlayerLocation = new Location(null, 0, 0, 0);
+	// look-only AI: the players by world name, updated every tick (lists get re-used)
+	private final Map<String, List<Player>> playersByWorld = new HashMap<>();
 
 	private BukkitTask aiTask = null;
 	private boolean currentlyRunning = false;
@@ -105,14 +173,18 @@ public class LivingEntityAI {
 	public static class Timings {
 
 		private long[] timingsHistory;
+		// the number of handled entities per timing:
+		private int[] entitiesHistory;
 		private long maxTiming = 0L;
 		private int counter = 0;
+		private int budgetOverruns = 0;
 
 		// current timing:
 		private boolean started = false;
 		private boolean paused = false;
 		private long startTime;
 		private long elapsedTime;
+		private int entities;
 
 		public Timings() {
 			this(100);
@@ -121,6 +193,7 @@ public class LivingEntityAI {
 		public Timings(int historySize) {
 			assert historySize > 0;
 			timingsHistory = new long[historySize];
+			entitiesHistory = new int[historySize];
 		}
 
 		void start() {
@@ -129,6 +202,7 @@ public class LivingEntityAI {
 			started = true;
 			paused = false;
 			elapsedTime = 0L;
+			entities = 0;
 			// start timing:
 			startTime = System.nanoTime();
 		}
@@ -164,14 +238,26 @@ public class LivingEntityAI {
 			// update timings history:
 			int historyIndex = (counter % timingsHistory.length);
 			timingsHistory[historyIndex] = elapsedTime;
+			entitiesHistory[historyIndex] = entities;
 			// reset/update max timing:
 			if (historyIndex == 0) maxTiming = elapsedTime;
 			else if (elapsedTime > maxTiming) maxTiming = elapsedTime;
 		}
 
+		void countEntity() {
+			assert started;
+			entities++;
+		}
+
+		void recordBudgetOverrun() {
+			budgetOverruns++;
+		}
+
 		public void reset() {
 			counter = 0;
+			budgetOverruns = 0;
 			Arrays.fill(timingsHistory, 0L);
+			Arrays.fill(entitiesHistory, 0);
 			maxTiming = 0L;
 		}
 
@@ -179,6 +265,15 @@ public class LivingEntityAI {
 			return counter;
 		}
 
+		/**
+		 * Gets the number of timings which exceeded their time budget, since the last reset.
+		 * 
+		 * @return the number of budget overruns
+		 */
+		public int getBudgetOverruns() {
+			return budgetOverruns;
+		}
+
 		public double getAverageTimeMillis() {
 			return (Utils.average(timingsHistory) * 1.0E-6D);
 		}
@@ -186,6 +281,25 @@ public class LivingEntityAI {
 		public double getMaxTimeMillis() {
 			return (maxTiming * 1.0E-6D);
 		}
+
+		/**
+		 * Gets the average time per handled entity, across the timings history.
+		 * <p>
+		 * This allows comparing the costs of different ways of handling the entities, independent of the number of
+		 * entities that were handled.
+		 * 
+		 * @return the average time per entity in microseconds, or <code>0</code> if no entities were handled
+		 */
+		public double getAverageTimePerEntityMicros() {
+			long totalTime = 0L;
+			long totalEntities = 0L;
+			for (int i = 0; i < timingsHistory.length; i++) {
+				totalTime += timingsHistory[i];
+				totalEntities += entitiesHistory[i];
+			}
+			if (totalEntities == 0L) return 0.0D;
+			return ((double) totalTime / totalEntities * 1.0E-3D);
+		}
 	}
 
 	private final Timings totalTimings = new Timings();
@@ -213,6 +327,7 @@ public class LivingEntityAI {
 			tickCounter++;
 
 			// start timings:
+			long tickStartNanos = System.nanoTime();
 			totalTimings.start();
 			gravityTimings.startPaused();
 			aiTimings.startPaused();
@@ -223,82 +338,85 @@ public class LivingEntityAI {
 				activationTimings.start();
 
 				// deactivate all chunks:
-				for (ChunkData chunkData : activeChunks.values()) {
-					chunkData.activeAI = false;
-					chunkData.activeGravity = false;
+				for (WorldChunks worldChunks : activeChunks.values()) {
+					for (ChunkData chunkData : worldChunks.chunks) {
+						chunkData.activeAI = false;
+						chunkData.activeGravity = false;
+					}
 				}
 				activeAIChunksCount = 0;
+				activeAIEntityCount = 0;
 				activeGravityChunksCount = 0;
+				activeGravityEntityCount = 0;
 
 				// activate chunks with nearby players:
 				boolean gravityActive = this.isGravityActive();
 				int gravityChunkRange = Math.max(Settings.gravityChunkRange, 0);
 				for (Player player : Bukkit.getOnlinePlayers()) {
-					Chunk centerChunk = player.getLocation(tempLocation).getChunk();
-					this.activateNearbyChunks(centerChunk, AI_ACTIVATION_CHUNK_RANGE, ActivationType.AI);
+					Location playerLocation = player.getLocation(tempLocation);
+					WorldChunks worldChunks = activeChunks.get(playerLocation.getWorld().getName());
+					if (worldChunks == null) continue; // no shop entities in the player's world
+					int centerChunkX = (playerLocation.getBlockX() >> 4);
+					int centerChunkZ = (playerLocation.getBlockZ() >> 4);
+					this.activateNearbyChunks(worldChunks, centerChunkX, centerChunkZ, AI_ACTIVATION_CHUNK_RANGE, ActivationType.AI);
 					if (gravityActive) {
-						this.activateNearbyChunks(centerChunk, gravityChunkRange, ActivationType.GRAVITY);
+						this.activateNearbyChunks(worldChunks, centerChunkX, centerChunkZ, gravityChunkRange, ActivationType.GRAVITY);
 					}
 				}
+				tempLocation.setWorld(null); // cleanup temporarily used location object
 				activationTimings.stop();
 			}
 
-			activeAIEntityCount = 0;
-			activeGravityEntityCount = 0;
-			Iterator<Entry<LivingEntity, EntityData>> iterator = entities.entrySet().iterator();
-			while (iterator.hasNext()) {
-				Entry<LivingEntity, EntityData> entry = iterator.next();
-				LivingEntity entity = entry.getKey();
-				EntityData entityData = entry.getValue();
-				// entity still alive and loaded?
-				if (entity.isDead() || !entity.isValid() || !ChunkCoords.isChunkLoaded(entity.getLocation(tempLocation))) {
-					iterator.remove();
-					this.onEntityRemoved(entity, entityData);
+			// handle the falling entities every tick:
+			gravityTimings.resume();
+			Iterator<EntityData> fallingIterator = fallingEntities.iterator();
+			while (fallingIterator.hasNext()) {
+				EntityData entityData = fallingIterator.next();
+				if (entityData.removed || !entityData.falling) {
+					fallingIterator.remove();
 					continue;
 				}
-				ChunkData chunkData = entityData.chunkData;
-
-				// handle gravity:
-				gravityTimings.resume();
-				if (chunkData.activeGravity) {
-					activeGravityEntityCount++;
-
-					// check periodically, or if already falling, if the entity is meant to (continue to) fall:
-					entityData.skipFallingCheckTicks--;
-					if ((entityData.skipFallingCheckTicks <= 0) || entityData.falling) {
-						// falling, if the distance-to-ground is above the threshold:
-						Location entityLocation = entity.getLocation(tempLocation);
-						entityData.distanceToGround = Utils.getCollisionDistanceToGround(entityLocation, GRAVITY_COLLISION_CHECK_RANGE);
-						entityData.falling = (entityData.distanceToGround >= DISTANCE_TO_GROUND_THRESHOLD);
-
-						// handle falling:
-						if (entityData.falling) {
-							// prevents SPIGOT-3948 / MC-130725
-							NMSManager.getProvider().setOnGround(entity, false);
-							this.handleFalling(entity, entityData);
-						}
-						if (!entityData.falling) {
-							// prevents SPIGOT-3948 / MC-130725
-							NMSManager.getProvider().setOnGround(entity, true);
-						}
-
-						// wait 10 ticks before checking again:
-						entityData.skipFallingCheckTicks = 10;
-					}
+				if (!entityData.chunkData.activeGravity) continue; // pause the falling
+				if (!this.checkEntity(entityData)) {
+					fallingIterator.remove();
+					continue;
 				}
-				gravityTimings.pause();
-
-				// handle AI:
+				this.checkFalling(entityData);
+				if (!entityData.falling) {
+					fallingIterator.remove();
+				}
+			}
+			gravityTimings.pause();
+
+			// visit the entities in round-robin order: each entity gets visited once per tick period, unless the
+			// time budget is exceeded, in which case the remaining visits are postponed to the next tick
+			// at least one entity gets visited per tick, even if the chunk activation and falling handling already used
+			// up the time budget, so that the postponed visits can't pile up indefinitely
+			int tickPeriod = Math.max(Settings.mobBehaviorTickPeriod, 1);
+			long tickBudgetNanos = Math.max(Settings.mobBehaviorTickBudget, 0) * 1000L;
+			int queueSize = entityQueue.size();
+			int visits = Math.min((queueSize + tickPeriod - 1) / tickPeriod + pendingVisits, queueSize);
+			pendingVisits = 0;
+
+			// look-only AI: determine the players per world once for all entities (chunks that got added since the last
+			// activation phase might have active AI already)
+			if (Settings.useLookOnlyMobAI && visits > 0) {
 				aiTimings.resume();
-				if (chunkData.activeAI) {
-					activeAIEntityCount++;
+				this.updatePlayersByWorld();
+				aiTimings.pause();
+			}
 
-					// only handle AI if not currently falling:
-					if (!entityData.falling) {
-						this.handleAI(entity);
-					}
+			for (int visit = 0; visit < visits; visit++) {
+				if (visit > 0 && tickBudgetNanos > 0L && (System.nanoTime() - tickStartNanos) > tickBudgetNanos) {
+					pendingVisits = (visits - visit);
+					totalTimings.recordBudgetOverrun();
+					break;
+				}
+				EntityData entityData = entityQueue.poll();
+				if (entityData.removed) continue; // remove from the queue
+				if (this.visitEntity(entityData)) {
+					entityQueue.add(entityData);
 				}
-				aiTimings.pause();
 			}
 			// cleanup temporarily used location object:
 			tempLocation.setWorld(null);
@@ -337,22 +455,32 @@ public class LivingEntityAI {
 		if (entities.containsKey(entity)) return;
 
 		// determine entity chunk (asserts that the entity won't move!):
-		Chunk entityChunk = entity.getLocation(tempLocation).getChunk();
+		Location entityLocation = entity.getLocation(tempLocation);
+		String worldName = entityLocation.getWorld().getName();
+		int chunkX = (entityLocation.getBlockX() >> 4);
+		int chunkZ = (entityLocation.getBlockZ() >> 4);
 		tempLocation.setWorld(null); // cleanup temporarily used location object
 
 		// active gravity handling?
 		boolean gravityActive = this.isGravityActive();
 
 		// add chunk entry:
-		ChunkData chunkData = activeChunks.get(entityChunk);
+		WorldChunks worldChunks = activeChunks.get(worldName);
+		if (worldChunks == null) {
+			worldChunks = new WorldChunks();
+			activeChunks.put(worldName, worldChunks);
+		}
+		ChunkData chunkData = worldChunks.get(chunkX, chunkZ);
 		if (chunkData == null) {
-			chunkData = new ChunkData(entityChunk, gravityActive);
-			activeChunks.put(entityChunk, chunkData);
+			chunkData = new ChunkData(worldName, chunkX, chunkZ, gravityActive);
+			worldChunks.add(chunkData);
 		}
-		chunkData.entityCount++;
 
 		// add entity entry:
-		entities.put(entity, new EntityData(chunkData));
+		EntityData entityData = new EntityData(entity, chunkData);
+		chunkData.entities.add(entityData);
+		entities.put(entity, entityData);
+		entityQueue.add(entityData);
 
 		// start the ai task, if it isn't already running:
 		this.start();
@@ -367,19 +495,67 @@ public class LivingEntityAI {
 		}
 	}
 
+	/**
+	 * Requests a new check whether the given entity is meant to fall, ex. after it got teleported.
+	 * 
+	 * @param entity
+	 *            the entity
+	 */
+	public void updateFalling(LivingEntity entity) {
+		EntityData entityData = entities.get(entity);
+		if (entityData != null) {
+			entityData.checkFalling = true;
+		}
+	}
+
+	/**
+	 * Requests new falling checks for the entities located above the given block.
+	 * <p>
+	 * This gets called whenever a block changes, which might affect whether the entities above it are meant to fall.
+	 * 
+	 * @param block
+	 *            the block
+	 */
+	void onBlockChanged(Block block) {
+		if (entities.isEmpty()) return;
+		WorldChunks worldChunks = activeChunks.get(block.getWorld().getName());
+		if (worldChunks == null) return;
+		int x = block.getX();
+		int z = block.getZ();
+		ChunkData chunkData = worldChunks.get(x >> 4, z >> 4);
+		if (chunkData == null) return;
+		int y = block.getY();
+		for (EntityData entityData : chunkData.entities) {
+			// the falling check only considers the block column below the entity:
+			if (entityData.blockX == x && entityData.blockZ == z && entityData.blockY >= y) {
+				entityData.checkFalling = true;
+			}
+		}
+	}
+
 	private void onEntityRemoved(LivingEntity entity, EntityData entityData) {
 		assert entity != null && entityData != null;
+		// lazily removed from the entity queue and the falling entities:
+		entityData.removed = true;
 		// update/remove chunk entry:
 		ChunkData chunkData = entityData.chunkData;
-		chunkData.entityCount--;
-		if (chunkData.entityCount <= 0) {
-			activeChunks.remove(chunkData.chunk);
+		chunkData.entities.remove(entityData);
+		if (chunkData.entities.isEmpty()) {
+			WorldChunks worldChunks = activeChunks.get(chunkData.worldName);
+			worldChunks.remove(chunkData);
+			if (worldChunks.isEmpty()) {
+				activeChunks.remove(chunkData.worldName);
+			}
 		}
 	}
 
 	public void reset() {
 		Validate.isTrue(!currentlyRunning, "Cannot reset while the ai task is running!");
 		entities.clear();
+		entityQueue.clear();
+		fallingEntities.clear();
+		pendingVisits = 0;
+		playersByWorld.clear();
 		// activeChunks.clear();
 		this.resetStatistics();
 	}
@@ -420,6 +596,10 @@ public class LivingEntityAI {
 		return activeGravityEntityCount;
 	}
 
+	public int getPendingVisitsCount() {
+		return pendingVisits;
+	}
+
 	public Timings getTotalTimings() {
 		return totalTimings;
 	}
@@ -443,40 +623,129 @@ public class LivingEntityAI {
 		AI;
 	}
 
-	private void activateNearbyChunks(Chunk centerChunk, int chunkRadius, ActivationType activationType) {
-		assert centerChunk != null && chunkRadius >= 0 && activationType != null;
-		World world = centerChunk.getWorld();
-		int minX = centerChunk.getX() - chunkRadius;
-		int minZ = centerChunk.getZ() - chunkRadius;
-		int maxX = centerChunk.getX() + chunkRadius;
-		int maxZ = centerChunk.getZ() + chunkRadius;
-		for (int x = minX; x <= maxX; x++) {
-			for (int z = minZ; z <= maxZ; z++) {
-				if (!world.isChunkLoaded(x, z)) continue;
-				Chunk chunk = world.getChunkAt(x, z);
-				ChunkData chunkData = activeChunks.get(chunk);
-				if (chunkData == null) continue;
-
-				switch (activationType) {
-				case GRAVITY:
-					if (!chunkData.activeGravity) {
-						chunkData.activeGravity = true;
-						activeGravityChunksCount++;
-					}
-					break;
-				case AI:
-					if (!chunkData.activeAI) {
-						chunkData.activeAI = true;
-						activeAIChunksCount++;
-					}
-				default:
-					// not expected
-					break;
+	private void activateNearbyChunks(WorldChunks worldChunks, int centerChunkX, int centerChunkZ, int chunkRadius, ActivationType activationType) {
+		assert worldChunks != null && chunkRadius >= 0 && activationType != null;
+		int minX = centerChunkX - chunkRadius;
+		int minZ = centerChunkZ - chunkRadius;
+		int maxX = centerChunkX + chunkRadius;
+		int maxZ = centerChunkZ + chunkRadius;
+		int chunkDiameter = (2 * chunkRadius + 1);
+		if (worldChunks.chunks.size() < chunkDiameter * chunkDiameter) {
+			// fewer shop chunks than chunks in range: check the distance to each shop chunk
+			for (ChunkData chunkData : worldChunks.chunks) {
+				if (chunkData.chunkX < minX || chunkData.chunkX > maxX || chunkData.chunkZ < minZ || chunkData.chunkZ > maxZ) {
+					continue;
+				}
+				this.activateChunk(chunkData, activationType);
+			}
+		} else {
+			// look up the chunks in range:
+			for (int x = minX; x <= maxX; x++) {
+				for (int z = minZ; z <= maxZ; z++) {
+					ChunkData chunkData = worldChunks.get(x, z);
+					if (chunkData == null) continue;
+					this.activateChunk(chunkData, activationType);
 				}
 			}
 		}
 	}
 
+	private void activateChunk(ChunkData chunkData, ActivationType activationType) {
+		switch (activationType) {
+		case GRAVITY:
+			if (!chunkData.activeGravity) {
+				chunkData.activeGravity = true;
+				activeGravityChunksCount++;
+				activeGravityEntityCount += chunkData.entities.size();
+			}
+			break;
+		case AI:
+			if (!chunkData.activeAI) {
+				chunkData.activeAI = true;
+				activeAIChunksCount++;
+				activeAIEntityCount += chunkData.entities.size();
+			}
+			break;
+		default:
+			// not expected
+			break;
+		}
+	}
+
+	// returns false and removes the entity if it is no longer alive or loaded
+	private boolean checkEntity(EntityData entityData) {
+		LivingEntity entity = entityData.entity;
+		if (entity.isDead() || !entity.isValid() || !ChunkCoords.isChunkLoaded(entity.getLocation(tempLocation))) {
+			entities.remove(entity);
+			this.onEntityRemoved(entity, entityData);
+			return false;
+		}
+		return true;
+	}
+
+	// returns false if the entity got removed
+	private boolean visitEntity(EntityData entityData) {
+		if (!this.checkEntity(entityData)) return false;
+		LivingEntity entity = entityData.entity;
+		ChunkData chunkData = entityData.chunkData;
+
+		// handle gravity (falling entities are handled separately):
+		gravityTimings.resume();
+		if (chunkData.activeGravity && !entityData.falling
+				&& (entityData.checkFalling || tickCounter >= entityData.nextFallingCheckTick)) {
+			// only checked initially, after block changes below the entity, and after the fallback interval:
+			this.checkFalling(entityData);
+			if (entityData.falling) {
+				// continue the falling in the next ticks:
+				fallingEntities.add(entityData);
+			}
+		}
+		gravityTimings.pause();
+
+		// handle AI:
+		aiTimings.resume();
+		// only handle AI if not currently falling (only entities whose AI actually runs get counted for the timings):
+		if (chunkData.activeAI && !entityData.falling) {
+			if (Settings.useLookOnlyMobAI) {
+				if (tickCounter >= entityData.nextLookTick) {
+					aiTimings.countEntity();
+					this.handleLook(entityData);
+				}
+			} else {
+				aiTimings.countEntity();
+				this.handleAI(entity);
+			}
+		}
+		aiTimings.pause();
+		return true;
+	}
+
+	// checks if the entity is meant to (continue to) fall, and handles the falling:
+	private void checkFalling(EntityData entityData) {
+		LivingEntity entity = entityData.entity;
+		entityData.checkFalling = false;
+		entityData.nextFallingCheckTick = tickCounter + FALLING_RECHECK_INTERVAL_TICKS;
+
+		// falling, if the distance-to-ground is above the threshold:
+		Location entityLocation = entity.getLocation(tempLocation);
+		entityData.blockX = entityLocation.getBlockX();
+		entityData.blockY = entityLocation.getBlockY();
+		entityData.blockZ = entityLocation.getBlockZ();
+		entityData.distanceToGround = Utils.getCollisionDistanceToGround(entityLocation, GRAVITY_COLLISION_CHECK_RANGE);
+		entityData.falling = (entityData.distanceToGround >= DISTANCE_TO_GROUND_THRESHOLD);
+
+		// handle falling:
+		if (entityData.falling) {
+			// prevents SPIGOT-3948 / MC-130725
+			NMSManager.getProvider().setOnGround(entity, false);
+			this.handleFalling(entity, entityData);
+		}
+		if (!entityData.falling) {
+			// prevents SPIGOT-3948 / MC-130725
+			NMSManager.getProvider().setOnGround(entity, true);
+		}
+	}
+
 	// gets run every tick while falling:
 	private void handleFalling(LivingEntity entity, EntityData entityData) {
 		assert entityData.falling && entityData.distanceToGround >= DISTANCE_TO_GROUND_THRESHOLD;
@@ -504,4 +773,61 @@ public class LivingEntityAI {
 		// look at nearby players: implemented by manually running the vanilla ai goal
 		NMSManager.getProvider().tickAI(entity);
 	}
+
+	private void updatePlayersByWorld() {
+		for (List<Player> players : playersByWorld.values()) {
+			players.clear();
+		}
+		for (Player player : Bukkit.getOnlinePlayers()) {
+			if (player.getGameMode() == GameMode.SPECTATOR) continue; // ignored by the look-at-players ai goal
+			String worldName = player.getWorld().getName();
+			List<Player> players = playersByWorld.get(worldName);
+			if (players == null) {
+				players = new ArrayList<>();
+				playersByWorld.put(worldName, players);
+			}
+			players.add(player);
+		}
+	}
+
+	// look-only AI: rotates the entity's head towards the nearest player in range, without ticking the entity's AI
+	private void handleLook(EntityData entityData) {
+		assert tickCounter >= entityData.nextLookTick;
+		entityData.nextLookTick = tickCounter + LOOK_UPDATE_INTERVAL_TICKS;
+
+		List<Player> players = playersByWorld.get(entityData.chunkData.worldName);
+		if (players == null || players.isEmpty()) return;
+		LivingEntity entity = entityData.entity;
+		Location entityLocation = entity.getLocation(tempLocation);
+		double entityX = entityLocation.getX();
+		double entityY = entityLocation.getY() + entity.getEyeHeight();
+		double entityZ = entityLocation.getZ();
+
+		// find the nearest player:
+		Player nearestPlayer = null;
+		double nearestDistanceSquared = LOOK_RANGE_SQUARED;
+		for (Player player : players) {
+			Location playerLocation = player.getLocation(tempPlayerLocation);
+			double dx = playerLocation.getX() - entityX;
+			double dy = playerLocation.getY() - entityLocation.getY();
+			double dz = playerLocation.getZ() - entityZ;
+			double distanceSquared = (dx * dx + dy * dy + dz * dz);
+			if (distanceSquared <= nearestDistanceSquared) {
+				nearestPlayer = player;
+				nearestDistanceSquared = distanceSquared;
+			}
+		}
+		tempPlayerLocation.setWorld(null); // cleanup temporarily used location object
+		if (nearestPlayer == null) return; // no player in range: keep the current rotation
+
+		// look at the player's eyes:
+		Location playerLocation = nearestPlayer.getLocation(tempPlayerLocation);
+		double dx = playerLocation.getX() - entityX;
+		double dy = (playerLocation.getY() + nearestPlayer.getEyeHeight()) - entityY;
+		double dz = playerLocation.getZ() - entityZ;
+		tempPlayerLocation.setWorld(null); // cleanup temporarily used location object
+		float yaw = (float) Math.toDegrees(Math.atan2(-dx, dz));
+		float pitch = (float) Math.toDegrees(-Math.atan2(dy, Math.sqrt(dx * dx + dz * dz)));
+		NMSManager.getProvider().setHeadRotation(entity, yaw, pitch);
+	}
 }
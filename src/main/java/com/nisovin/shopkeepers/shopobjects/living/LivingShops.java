@@ -14,16 +14,22 @@ public class LivingShops {
 	private final SKLivingShopObjectTypes livingEntityObjectTypes = new SKLivingShopObjectTypes(this);
 	private final LivingEntityAI livingEntityAI;
 	private final LivingEntityShopListener livingEntityShopListener;
+	private final ShopEntityGravityListener shopEntityGravityListener;
 	private final CreatureForceSpawnListener creatureForceSpawnListener = new CreatureForceSpawnListener();
 
 	public LivingShops(SKShopkeepersPlugin plugin) {
 		this.plugin = plugin;
 		livingEntityAI = new LivingEntityAI(plugin);
+		shopEntityGravityListener = new ShopEntityGravityListener(livingEntityAI);
 		livingEntityShopListener = new LivingEntityShopListener(plugin.getShopkeeperRegistry());
 	}
 
 	public void onEnable() {
 		Bukkit.getPluginManager().registerEvents(livingEntityShopListener, plugin);
+		// informs the entity AI about block changes affecting the gravity of shop entities:
+		if (!Settings.disableGravity) {
+			Bukkit.getPluginManager().registerEvents(shopEntityGravityListener, plugin);
+		}
 		// register force-creature-spawn event handler:
 		if (Settings.bypassSpawnBlocking) {
 			Bukkit.getPluginManager().registerEvents(creatureForceSpawnListener, plugin);
@@ -32,6 +38,7 @@ public class LivingShops {
 
 	public void onDisable() {
 		HandlerList.unregisterAll(livingEntityShopListener);
+		HandlerList.unregisterAll(shopEntityGravityListener);
 		HandlerList.unregisterAll(creatureForceSpawnListener);
 		// reset force spawning:
 		creatureForceSpawnListener.forceCreatureSpawn(null, null);
@@ -299,6 +299,7 @@ public class SKLivingShopObject<E extends LivingEntity> extends AbstractEntitySh
 				// teleport back:
 				entity.teleport(spawnLocation);
 				this.overwriteAI();
+				livingShops.getLivingEntityAI().updateFalling(entity);
 				Log.debug("Shopkeeper (" + shopkeeper.getPositionString() + ") out of place, teleported back");
 			}
 
@@ -319,6 +320,7 @@ public class SKLivingShopObject<E extends LivingEntity> extends AbstractEntitySh
 		spawnLocation.setYaw(entityLoc.getYaw());
 		spawnLocation.setPitch(entityLoc.getPitch());
 		entity.teleport(spawnLocation);
+		livingShops.getLivingEntityAI().updateFalling(entity);
 	}
 
 	// NAMING
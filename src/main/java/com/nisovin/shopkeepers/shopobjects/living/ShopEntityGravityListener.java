@@ -0,0 +1,118 @@
+package com.nisovin.shopkeepers.shopobjects.living;
+
+import java.util.List;
+
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFadeEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockPhysicsEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.block.LeavesDecayEvent;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+
+/**
+ * Informs the {@link LivingEntityAI} about block changes, which might affect whether shop entities are meant to fall.
+ * <p>
+ * These events get called before the block changes, but the entities only get checked for falling during the next
+ * ticks.
+ */
+class ShopEntityGravityListener implements Listener {
+
+	private final LivingEntityAI livingEntityAI;
+
+	ShopEntityGravityListener(LivingEntityAI livingEntityAI) {
+		this.livingEntityAI = livingEntityAI;
+	}
+
+	private void onBlocksChanged(List<Block> blocks) {
+		for (Block block : blocks) {
+			livingEntityAI.onBlockChanged(block);
+		}
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockBreak(BlockBreakEvent event) {
+		livingEntityAI.onBlockChanged(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockPlace(BlockPlaceEvent event) {
+		livingEntityAI.onBlockChanged(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockPhysics(BlockPhysicsEvent event) {
+		livingEntityAI.onBlockChanged(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockBurn(BlockBurnEvent event) {
+		livingEntityAI.onBlockChanged(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockFade(BlockFadeEvent event) {
+		livingEntityAI.onBlockChanged(event.getBlock());
+	}
+
+	// ex. flowing liquids and teleporting dragon eggs
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockFromTo(BlockFromToEvent event) {
+		livingEntityAI.onBlockChanged(event.getBlock());
+		livingEntityAI.onBlockChanged(event.getToBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onLeavesDecay(LeavesDecayEvent event) {
+		livingEntityAI.onBlockChanged(event.getBlock());
+	}
+
+	// ex. falling blocks and endermen
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onEntityChangeBlock(EntityChangeBlockEvent event) {
+		livingEntityAI.onBlockChanged(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockPistonExtend(BlockPistonExtendEvent event) {
+		this.onPistonMove(event.getBlock(), event.getBlocks(), event.getDirection());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockPistonRetract(BlockPistonRetractEvent event) {
+		this.onPistonMove(event.getBlock(), event.getBlocks(), event.getDirection());
+	}
+
+	// the moved blocks leave their current positions and enter the adjacent positions along the piston's axis:
+	private void onPistonMove(Block piston, List<Block> movedBlocks, BlockFace direction) {
+		BlockFace oppositeDirection = direction.getOppositeFace();
+		for (Block block : movedBlocks) {
+			livingEntityAI.onBlockChanged(block);
+			livingEntityAI.onBlockChanged(block.getRelative(direction));
+			livingEntityAI.onBlockChanged(block.getRelative(oppositeDirection));
+		}
+		// piston head:
+		livingEntityAI.onBlockChanged(piston.getRelative(direction));
+		livingEntityAI.onBlockChanged(piston.getRelative(oppositeDirection));
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onEntityExplode(EntityExplodeEvent event) {
+		this.onBlocksChanged(event.blockList());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockExplode(BlockExplodeEvent event) {
+		this.onBlocksChanged(event.blockList());
+	}
+}
@@ -69,6 +69,8 @@ class SignShopListener implements Listener {
 	// protect sign block:
 
 	private boolean isProtectedBlock(Block block) {
+		// quick check for blocks in chunks without shops:
+		if (!signShops.mightBeSignShopNearby(block)) return false;
 		// not protected if the sign shop is not active (if the block is not a sign currently):
 		if (ItemUtils.isSign(block.getType()) && signShops.isSignShop(block)) {
 			return true;
@@ -110,6 +112,8 @@ class SignShopListener implements Listener {
 	@EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
 	void onBlockPhysics(BlockPhysicsEvent event) {
 		Block block = event.getBlock();
+		// quick check for blocks in chunks without shops (unless the physics of some block are meant to be cancelled):
+		if (cancelNextBlockPhysics == null && !signShops.mightBeSignShopNearby(block)) return;
 		if (this.checkCancelPhysics(block)) {
 			event.setCancelled(true);
 			return;
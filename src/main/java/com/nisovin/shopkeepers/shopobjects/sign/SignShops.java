@@ -34,13 +34,20 @@ public class SignShops {
 	}
 
 	public AbstractShopkeeper getSignShop(Block block) {
-		return plugin.getShopkeeperRegistry().getActiveShopkeeper(signShopObjectType.createObjectId(block));
+		AbstractShopkeeper shopkeeper = plugin.getShopkeeperRegistry().getShopkeeperByBlock(block);
+		if (shopkeeper == null || shopkeeper.getShopObject().getType() != signShopObjectType) return null;
+		return shopkeeper;
 	}
 
 	public boolean isSignShop(Block block) {
 		return (this.getSignShop(block) != null);
 	}
 
+	// quick check: false if neither the given block nor any of its adjacent blocks can be a sign shop
+	boolean mightBeSignShopNearby(Block block) {
+		return plugin.getShopkeeperRegistry().getShopBlockChunks().isMarkedNearby(block.getWorld().getName(), block.getX(), block.getZ());
+	}
+
 	void cancelNextBlockPhysics(Block block) {
 		signShopListener.cancelNextBlockPhysics(block);
 	}
@@ -0,0 +1,376 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Encodes config data into a compact binary representation, and decodes it again.
+ * <p>
+ * The encoding is lossless with regards to the data that would be retrieved after saving and loading the same data
+ * via yaml: Nested maps inside config sections are stored as config sections, short and byte values are stored as
+ * integers, float values are stored as doubles, and {@link ConfigurationSerializable configuration serializables} are
+ * stored as maps containing their serialization alias under the key {@link ConfigurationSerialization#SERIALIZED_TYPE_KEY}
+ * and get deserialized again during decoding.
+ * <p>
+ * Item stacks can optionally be deduplicated: The {@link Encoder} then only stores references into a table of item
+ * stacks, which needs to be stored separately and provided to the {@link Decoder}.
+ */
+final class BinaryDataCodec {
+
+	private static final byte TAG_NULL = 0;
+	private static final byte TAG_STRING = 1;
+	private static final byte TAG_INT = 2;
+	private static final byte TAG_LONG = 3;
+	private static final byte TAG_DOUBLE = 4;
+	private static final byte TAG_BOOLEAN = 5;
+	private static final byte TAG_LIST = 6;
+	private static final byte TAG_SET = 7;
+	private static final byte TAG_SECTION = 8;
+	private static final byte TAG_MAP = 9;
+	private static final byte TAG_ITEM_REFERENCE = 10;
+
+	private BinaryDataCodec() {
+	}
+
+	static void writeString(DataOutput out, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			throw new IOException("Invalid string length: " + length);
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Encodes values.
+	 * <p>
+	 * Not thread-safe.
+	 */
+	static class Encoder {
+
+		// null if item stacks are not getting deduplicated:
+		private final Map<ItemStack, Integer> itemIds;
+		private final List<ItemStack> items;
+
+		/**
+		 * Creates a new encoder.
+		 * 
+		 * @param deduplicateItems
+		 *            <code>true</code> to only store references to the item stacks, which get collected inside the
+		 *            {@link #getItems() item table}
+		 */
+		Encoder(boolean deduplicateItems) {
+			if (deduplicateItems) {
+				itemIds = new HashMap<>();
+				items = new ArrayList<>();
+			} else {
+				itemIds = null;
+				items = null;
+			}
+		}
+
+		/**
+		 * Gets the item stacks that got referenced by the encoded data so far.
+		 * <p>
+		 * The position of an item stack inside this list corresponds to its reference id.
+		 * 
+		 * @return the item table, or <code>null</code> if item stacks are not getting deduplicated
+		 */
+		List<ItemStack> getItems() {
+			return items;
+		}
+
+		/**
+		 * Encodes the given value.
+		 * 
+		 * @param value
+		 *            the value
+		 * @return the encoded value
+		 * @throws IOException
+		 *             if the value (or some contained value) is of an unsupported type
+		 */
+		byte[] encode(Object value) throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (DataOutputStream out = new DataOutputStream(bytes)) {
+				this.write(out, value);
+			}
+			return bytes.toByteArray();
+		}
+
+		void write(DataOutput out, Object value) throws IOException {
+			this.write(out, value, false);
+		}
+
+		/**
+		 * Encodes an item stack, without deduplicating it.
+		 * 
+		 * @param out
+		 *            the output
+		 * @param item
+		 *            the item stack
+		 * @throws IOException
+		 *             if the item stack could not be encoded
+		 */
+		void writeItem(DataOutput out, ItemStack item) throws IOException {
+			this.writeSerializable(out, item);
+		}
+
+		// inSection: whether the value is stored inside a config section
+		private void write(DataOutput out, Object value, boolean inSection) throws IOException {
+			if (value == null) {
+				out.writeByte(TAG_NULL);
+			} else if (value instanceof String) {
+				out.writeByte(TAG_STRING);
+				writeString(out, (String) value);
+			} else if (value instanceof Character) {
+				out.writeByte(TAG_STRING);
+				writeString(out, value.toString());
+			} else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+				out.writeByte(TAG_INT);
+				out.writeInt(((Number) value).intValue());
+			} else if (value instanceof Long) {
+				out.writeByte(TAG_LONG);
+				out.writeLong((Long) value);
+			} else if (value instanceof Double || value instanceof Float) {
+				out.writeByte(TAG_DOUBLE);
+				out.writeDouble(((Number) value).doubleValue());
+			} else if (value instanceof Boolean) {
+				out.writeByte(TAG_BOOLEAN);
+				out.writeBoolean((Boolean) value);
+			} else if (value instanceof ConfigurationSection) {
+				out.writeByte(TAG_SECTION);
+				this.writeEntries(out, ((ConfigurationSection) value).getValues(false), true);
+			} else if (value instanceof Map) {
+				Map<?, ?> map = (Map<?, ?>) value;
+				if (inSection && !map.containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY)) {
+					// yaml loads maps inside of sections as sections:
+					out.writeByte(TAG_SECTION);
+					this.writeEntries(out, map, true);
+				} else {
+					out.writeByte(TAG_MAP);
+					this.writeEntries(out, map, false);
+				}
+			} else if (value instanceof Set) {
+				out.writeByte(TAG_SET);
+				this.writeElements(out, (Set<?>) value);
+			} else if (value instanceof Collection) {
+				out.writeByte(TAG_LIST);
+				this.writeElements(out, (Collection<?>) value);
+			} else if (value instanceof ItemStack && itemIds != null) {
+				ItemStack item = (ItemStack) value;
+				Integer itemId = itemIds.get(item);
+				if (itemId == null) {
+					itemId = items.size();
+					items.add(item);
+					itemIds.put(item, itemId);
+				}
+				out.writeByte(TAG_ITEM_REFERENCE);
+				out.writeInt(itemId);
+			} else if (value instanceof ConfigurationSerializable) {
+				this.writeSerializable(out, (ConfigurationSerializable) value);
+			} else {
+				throw new IOException("Unsupported data type: " + value.getClass().getName());
+			}
+		}
+
+		private void writeSerializable(DataOutput out, ConfigurationSerializable serializable) throws IOException {
+			Map<String, Object> serialized = new LinkedHashMap<>();
+			serialized.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, ConfigurationSerialization.getAlias(serializable.getClass()));
+			serialized.putAll(serializable.serialize());
+			out.writeByte(TAG_MAP);
+			this.writeEntries(out, serialized, false);
+		}
+
+		private void writeEntries(DataOutput out, Map<?, ?> map, boolean inSection) throws IOException {
+			out.writeInt(map.size());
+			for (Entry<?, ?> entry : map.entrySet()) {
+				writeString(out, String.valueOf(entry.getKey()));
+				this.write(out, entry.getValue(), inSection);
+			}
+		}
+
+		private void writeElements(DataOutput out, Collection<?> collection) throws IOException {
+			out.writeInt(collection.size());
+			for (Object element : collection) {
+				this.write(out, element, false);
+			}
+		}
+	}
+
+	/**
+	 * Decodes values.
+	 * <p>
+	 * Thread-safe, so that data can be decoded in parallel.
+	 */
+	static class Decoder {
+
+		private final List<ItemStack> items;
+
+		/**
+		 * Creates a new decoder.
+		 * 
+		 * @param items
+		 *            the item table that is used to resolve item stack references, can be empty if the data contains no
+		 *            item stack references
+		 */
+		Decoder(List<ItemStack> items) {
+			this.items = items;
+		}
+
+		/**
+		 * Decodes the given data.
+		 * 
+		 * @param data
+		 *            the encoded value
+		 * @return the decoded value
+		 * @throws IOException
+		 *             if the data is invalid
+		 */
+		Object decode(byte[] data) throws IOException {
+			try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+				return this.read(in);
+			}
+		}
+
+		Object read(DataInput in) throws IOException {
+			return this.read(in, in.readByte());
+		}
+
+		private Object read(DataInput in, byte tag) throws IOException {
+			switch (tag) {
+			case TAG_NULL:
+				return null;
+			case TAG_STRING:
+				return readString(in);
+			case TAG_INT:
+				return in.readInt();
+			case TAG_LONG:
+				return in.readLong();
+			case TAG_DOUBLE:
+				return in.readDouble();
+			case TAG_BOOLEAN:
+				return in.readBoolean();
+			case TAG_LIST:
+			{
+				int size = this.readSize(in);
+				List<Object> list = new ArrayList<>(size);
+				for (int i = 0; i < size; ++i) {
+					list.add(this.read(in));
+				}
+				return list;
+			}
+			case TAG_SET:
+			{
+				int size = this.readSize(in);
+				Set<Object> set = new LinkedHashSet<>();
+				for (int i = 0; i < size; ++i) {
+					set.add(this.read(in));
+				}
+				return set;
+			}
+			case TAG_SECTION:
+			{
+				MemoryConfiguration section = new MemoryConfiguration();
+				this.readSectionEntries(in, section);
+				return section;
+			}
+			case TAG_MAP:
+				return this.readMap(in);
+			case TAG_ITEM_REFERENCE:
+			{
+				int itemId = in.readInt();
+				if (itemId < 0 || itemId >= items.size()) {
+					throw new IOException("Invalid item reference: " + itemId);
+				}
+				// every reference gets its own copy of the item stack:
+				return items.get(itemId).clone();
+			}
+			default:
+				throw new IOException("Invalid data tag: " + tag);
+			}
+		}
+
+		/**
+		 * Decodes an item stack that was encoded via {@link Encoder#writeItem(DataOutput, ItemStack)}.
+		 * 
+		 * @param in
+		 *            the input
+		 * @return the item stack
+		 * @throws IOException
+		 *             if the data is invalid
+		 */
+		ItemStack readItem(DataInput in) throws IOException {
+			Object value = this.read(in);
+			if (!(value instanceof ItemStack)) {
+				throw new IOException("Invalid item stack data!");
+			}
+			return (ItemStack) value;
+		}
+
+		private int readSize(DataInput in) throws IOException {
+			int size = in.readInt();
+			if (size < 0) {
+				throw new IOException("Invalid size: " + size);
+			}
+			return size;
+		}
+
+		private void readSectionEntries(DataInput in, ConfigurationSection section) throws IOException {
+			int size = this.readSize(in);
+			for (int i = 0; i < size; ++i) {
+				String key = readString(in);
+				byte tag = in.readByte();
+				if (tag == TAG_SECTION) {
+					this.readSectionEntries(in, section.createSection(key));
+				} else {
+					section.set(key, this.read(in, tag));
+				}
+			}
+		}
+
+		private Object readMap(DataInput in) throws IOException {
+			int size = this.readSize(in);
+			Map<String, Object> map = new LinkedHashMap<>();
+			for (int i = 0; i < size; ++i) {
+				String key = readString(in);
+				map.put(key, this.read(in));
+			}
+			if (map.containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY)) {
+				try {
+					return ConfigurationSerialization.deserializeObject(map);
+				} catch (IllegalArgumentException e) {
+					throw new IOException("Could not deserialize object: " + e.getMessage(), e);
+				}
+			}
+			return map;
+		}
+	}
+}
@@ -0,0 +1,236 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.inventory.ItemStack;
+
+import com.nisovin.shopkeepers.Settings;
+import com.nisovin.shopkeepers.util.Log;
+
+/**
+ * Stores the data of all shopkeepers inside a single binary file.
+ * <p>
+ * File format:
+ * <ul>
+ * <li>Header: Magic number, format version and data version.
+ * <li>Item table: The item stacks referenced by the shopkeepers data. Equal item stacks are only stored once.
+ * <li>Records: One length-prefixed record per top level entry of the save data (usually one per shopkeeper), which
+ * contains the key and the {@link BinaryDataCodec encoded} data.
+ * </ul>
+ * Every save rewrites the complete file.
+ */
+class BinaryStorageBackend implements StorageBackend {
+
+	static final String IDENTIFIER = "binary";
+
+	private static final int MAGIC_NUMBER = 0x53484B50; // 'SHKP'
+	// the version of the binary format (independent of the data version):
+	private static final int FORMAT_VERSION = 1;
+	// the number of records that get decoded together by one loading task:
+	private static final int LOADING_BATCH_SIZE = 100;
+
+	private final File saveFile;
+
+	BinaryStorageBackend(File dataFolder) {
+		this.saveFile = new File(dataFolder, "save.dat");
+	}
+
+	@Override
+	public String getIdentifier() {
+		return IDENTIFIER;
+	}
+
+	@Override
+	public boolean hasData() {
+		return StorageFiles.exists(saveFile);
+	}
+
+	@Override
+	public void load(FileConfiguration data, ExecutorService executor) throws Exception {
+		final long startTime = System.nanoTime();
+		File loadFile = StorageFiles.getLoadFile(saveFile);
+		if (loadFile == null) {
+			// save file does not exist yet -> no shopkeeper data available
+			return;
+		}
+
+		int dataVersion;
+		List<ItemStack> items;
+		List<String> keys = new ArrayList<>();
+		List<byte[]> records = new ArrayList<>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(loadFile)))) {
+			// header:
+			if (in.readInt() != MAGIC_NUMBER) {
+				throw new IOException("Not a shopkeepers save file: " + loadFile.getName());
+			}
+			int formatVersion = in.readInt();
+			if (formatVersion != FORMAT_VERSION) {
+				throw new IOException("Unsupported save file format version: " + formatVersion);
+			}
+			dataVersion = in.readInt();
+
+			// item table:
+			BinaryDataCodec.Decoder itemDecoder = new BinaryDataCodec.Decoder(new ArrayList<>(0));
+			int itemCount = in.readInt();
+			items = new ArrayList<>(Math.max(itemCount, 0));
+			for (int i = 0; i < itemCount; ++i) {
+				items.add(itemDecoder.readItem(in));
+			}
+
+			// records:
+			int recordCount = in.readInt();
+			for (int i = 0; i < recordCount; ++i) {
+				keys.add(BinaryDataCodec.readString(in));
+				int length = in.readInt();
+				if (length < 0) {
+					throw new IOException("Invalid record length: " + length);
+				}
+				byte[] record = new byte[length];
+				in.readFully(record);
+				records.add(record);
+			}
+		}
+
+		// decode the records in parallel:
+		BinaryDataCodec.Decoder decoder = new BinaryDataCodec.Decoder(items);
+		List<Future<List<Object>>> batches = new ArrayList<>();
+		for (int start = 0; start < records.size(); start += LOADING_BATCH_SIZE) {
+			List<byte[]> batchRecords = records.subList(start, Math.min(start + LOADING_BATCH_SIZE, records.size()));
+			batches.add(executor.submit(() -> {
+				List<Object> values = new ArrayList<>(batchRecords.size());
+				for (byte[] record : batchRecords) {
+					values.add(decoder.decode(record));
+				}
+				return values;
+			}));
+		}
+
+		// insert in file order:
+		data.set(SKShopkeeperStorage.DATA_VERSION_KEY, dataVersion);
+		int index = 0;
+		for (Future<List<Object>> batch : batches) {
+			List<Object> values;
+			try {
+				values = batch.get();
+			} catch (ExecutionException e) {
+				for (Future<List<Object>> future : batches) {
+					future.cancel(false);
+				}
+				Throwable cause = e.getCause();
+				throw new IOException("Failed to decode save file '" + loadFile.getName() + "': " + cause.getMessage(), cause);
+			}
+			for (Object value : values) {
+				data.set(keys.get(index++), value);
+			}
+		}
+
+		if (Settings.debug) {
+			this.logYamlComparison(data, System.nanoTime() - startTime);
+		}
+	}
+
+	// compares the size and the save and load durations with the yaml format, once after the data got loaded (instead
+	// of on every save), since this requires serializing and parsing the complete data again
+	// the binary load duration includes the reading of the save file, the yaml data is parsed from memory
+	private void logYamlComparison(FileConfiguration data, long loadNanos) {
+		try {
+			this.doLogYamlComparison(data, loadNanos);
+		} catch (Exception e) {
+			Log.debug("Could not compare the binary save data with yaml: " + e.getMessage());
+		}
+	}
+
+	private void doLogYamlComparison(FileConfiguration data, long loadNanos) throws Exception {
+		final long saveStartTime = System.nanoTime();
+		byte[] content = this.encode(data, new BinaryDataCodec.Encoder(true));
+		long saveNanos = System.nanoTime() - saveStartTime;
+
+		final long yamlSaveStartTime = System.nanoTime();
+		String yaml = data.saveToString();
+		long yamlSaveNanos = System.nanoTime() - yamlSaveStartTime;
+		int yamlSize = yaml.getBytes(StandardCharsets.UTF_8).length;
+
+		final long yamlLoadStartTime = System.nanoTime();
+		new YamlConfiguration().loadFromString(yaml);
+		long yamlLoadNanos = System.nanoTime() - yamlLoadStartTime;
+
+		Log.debug("Binary save data: " + content.length + " bytes, saved in " + (saveNanos / 1000000L) + "ms, loaded in "
+				+ (loadNanos / 1000000L) + "ms (YAML: " + yamlSize + " bytes, saved in " + (yamlSaveNanos / 1000000L)
+				+ "ms, loaded in " + (yamlLoadNanos / 1000000L) + "ms)");
+	}
+
+	@Override
+	public PreparedSave prepareSave(FileConfiguration data, Set<Integer> changedIds) throws Exception {
+		final long startTime = System.nanoTime();
+		BinaryDataCodec.Encoder encoder = new BinaryDataCodec.Encoder(true);
+		byte[] content = this.encode(data, encoder);
+
+		if (Settings.debug) {
+			long duration = (System.nanoTime() - startTime) / 1000000L;
+			Log.debug("Binary save data: " + content.length + " bytes, " + encoder.getItems().size()
+					+ " unique items, serialized in " + duration + "ms");
+		}
+
+		return () -> StorageFiles.writeSafely(saveFile, (tempFile) -> {
+			try (FileOutputStream out = new FileOutputStream(tempFile)) {
+				out.write(content);
+			}
+		});
+	}
+
+	// writes everything into memory, so that the actual file writing does not need to encode anything anymore
+	private byte[] encode(FileConfiguration data, BinaryDataCodec.Encoder encoder) throws IOException {
+		Map<String, byte[]> records = new LinkedHashMap<>();
+		for (Entry<String, Object> entry : data.getValues(false).entrySet()) {
+			String key = entry.getKey();
+			if (key.equals(SKShopkeeperStorage.DATA_VERSION_KEY)) continue;
+			records.put(key, encoder.encode(entry.getValue()));
+		}
+		List<ItemStack> items = encoder.getItems();
+		int dataVersion = data.getInt(SKShopkeeperStorage.DATA_VERSION_KEY);
+
+		BinaryDataCodec.Encoder itemEncoder = new BinaryDataCodec.Encoder(false);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(MAGIC_NUMBER);
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(dataVersion);
+			out.writeInt(items.size());
+			for (ItemStack item : items) {
+				itemEncoder.writeItem(out, item);
+			}
+			out.writeInt(records.size());
+			for (Entry<String, byte[]> record : records.entrySet()) {
+				BinaryDataCodec.writeString(out, record.getKey());
+				out.writeInt(record.getValue().length);
+				out.write(record.getValue());
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	@Override
+	public void backupData() throws Exception {
+		StorageFiles.backup(saveFile);
+		StorageFiles.backup(StorageFiles.getTempFile(saveFile));
+	}
+}
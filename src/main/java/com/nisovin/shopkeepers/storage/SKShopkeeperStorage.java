@@ -1,17 +1,23 @@
 package com.nisovin.shopkeepers.storage;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
@@ -28,14 +34,14 @@ import com.nisovin.shopkeepers.shopkeeper.SKShopkeeperRegistry;
 import com.nisovin.shopkeepers.util.ConversionUtils;
 import com.nisovin.shopkeepers.util.Log;
 import com.nisovin.shopkeepers.util.SchedulerUtils;
-import com.nisovin.shopkeepers.util.StringUtils;
 
 /**
  * Implementation notes:<br>
  * <ul>
  * <li>There can at most be one thread doing file IO at the same time.
  * <li>Saving preparation always happens on the server's main thread. There can at most be one save getting prepared at
- * the same time.
+ * the same time. The preparation only stores a snapshot of the shopkeepers data, consisting of primitives, strings and
+ * copies of item stacks, which can then be safely serialized into the storage format by the (possibly async) IO task.
  * <li>If there is a request for an <b>async</b> save while an async save is already in progress, a flag gets set to
  * indicate this after the current async save is finished.
  * <li>If there is a request for a <b>sync</b> save while an async save is already in progress, the main thread waits
@@ -47,10 +53,17 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 	// this can be used to determine required migrations (that affect all shopkeepers or the save format as a whole)
 	// or force a save of all shopkeepers data:
 	private static final int DATA_VERSION = 1;
-	private static final String DATA_VERSION_KEY = "data-version";
+	static final String DATA_VERSION_KEY = "data-version";
 
 	private final SKShopkeepersPlugin plugin;
 
+	// storage backends:
+	private final List<StorageBackend> storageBackends;
+	private StorageBackend storageBackend;
+	// the storage backend whose data got converted during the last reload, and which gets moved to a backup location
+	// after the next successful save:
+	private StorageBackend convertedStorageBackend = null;
+
 	// data:
 	private final FileConfiguration saveData = new YamlConfiguration();
 	private int maxStoredShopkeeperId = 0;
@@ -74,7 +87,8 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 	// previously dirty shopkeepers which we currently attempt to save:
 	private final List<AbstractShopkeeper> savingShopkeepers = new ArrayList<>();
 	// buffer that holds the data that gets used by the current async save task:
-	// needs to be kept in sync with the save data, but cannot be modified during the async save is in progress
+	// only contains a copy of the save data's top level structure, which gets created when the save gets prepared and
+	// cleared again once the save is over, and cannot be modified during the async save is in progress
 	private final FileConfiguration saveDataBuffer = new YamlConfiguration();
 	// the task which performs async file io during a save:
 	private int saveIOTask = -1;
@@ -88,9 +102,30 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 	private final List<AbstractShopkeeper> shopkeepersToDelete = new ArrayList<>();
 	// number of shopkeepers whose data got removed since the last save:
 	private int deletedShopkeepersCount = 0;
+	// ids of shopkeepers whose data got updated or removed since the last save:
+	private final Set<Integer> changedShopkeeperIds = new HashSet<>();
+	// ids of shopkeepers whose changed data we currently attempt to save:
+	private final Set<Integer> savingShopkeeperIds = new HashSet<>();
+
+	// journal:
+	private final ShopkeeperJournal journal;
+	// shopkeepers whose changes have not yet been written to the journal:
+	private final Set<AbstractShopkeeper> journalPendingShopkeepers = new LinkedHashSet<>();
+	// ids of deleted shopkeepers whose deletion has not yet been written to the journal:
+	private final Set<Integer> journalPendingDeletions = new LinkedHashSet<>();
+	private int journalTaskId = -1;
+	// the journal segment that got started with the preparation of the current save:
+	private int savingJournalSegment = -1;
 
 	public SKShopkeeperStorage(SKShopkeepersPlugin plugin) {
 		this.plugin = plugin;
+		this.storageBackends = Arrays.asList(
+				new YamlStorageBackend(plugin.getDataFolder()),
+				new ShardedYamlStorageBackend(plugin.getDataFolder()),
+				new BinaryStorageBackend(plugin.getDataFolder()),
+				new SqliteStorageBackend(plugin.getDataFolder()));
+		this.storageBackend = storageBackends.get(0);
+		this.journal = new ShopkeeperJournal(plugin.getDataFolder());
 	}
 
 	public void onEnable() {
@@ -104,16 +139,37 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 			e.printStackTrace();
 		}
 
+		// select storage backend:
+		storageBackend = this.getStorageBackend(Settings.storageType);
+		if (storageBackend == null) {
+			storageBackend = storageBackends.get(0);
+			Log.warning("Config: Unknown storage type '" + Settings.storageType + "'. Using storage type '"
+					+ storageBackend.getIdentifier() + "' instead.");
+		}
+
+		// the journal gets always opened, so that journal files of previous runs get removed after the next save:
+		journal.open();
+
 		// start save task:
-		if (!Settings.saveInstantly) {
+		if (!Settings.saveInstantly || Settings.saveJournal) {
 			this.startSaveTask();
 		}
 	}
 
 	public void onDisable() {
+		// write any remaining changes to the journal, and wait for the journal writing to complete:
+		if (journalTaskId != -1) {
+			Bukkit.getScheduler().cancelTask(journalTaskId);
+			journalTaskId = -1;
+		}
+		this.writeJournal();
+		journal.close();
+
 		// reset a few things:
 		this.clearSaveData();
+		convertedStorageBackend = null;
 		savingShopkeepers.clear();
+		savingShopkeeperIds.clear();
 		savingDisabled = false;
 		lastSavingErrorMsgTimestamp = 0L;
 		dirty = false;
@@ -160,13 +216,13 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		this.savingDisabled = false;
 	}
 
-	private File getSaveFile() {
-		return new File(plugin.getDataFolder(), "save.yml");
-	}
-
-	private File getTempSaveFile() {
-		File saveFile = this.getSaveFile();
-		return new File(saveFile.getParentFile(), saveFile.getName() + ".temp");
+	private StorageBackend getStorageBackend(String identifier) {
+		for (StorageBackend backend : storageBackends) {
+			if (backend.getIdentifier().equalsIgnoreCase(identifier)) {
+				return backend;
+			}
+		}
+		return null;
 	}
 
 	// SHOPKEEPER IDs
@@ -214,11 +270,77 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		if (id >= nextShopkeeperId) nextShopkeeperId = id + 1;
 	}
 
+	// SHOPKEEPER DATA
+
+	/**
+	 * Gets the currently stored data of the shopkeeper with the given id.
+	 * <p>
+	 * The returned data does not reflect any changes of the shopkeeper that have not yet been saved. It might
+	 * currently get written by an async save, and therefore must only be read. Use
+	 * {@link #copyShopkeeperData(int)} to get data that the shopkeeper can be loaded from.
+	 * 
+	 * @param shopkeeperId
+	 *            the shopkeeper id
+	 * @return the stored shopkeeper data, or <code>null</code> if there is no data stored for the given id
+	 */
+	public ConfigurationSection getShopkeeperData(int shopkeeperId) {
+		return saveData.getConfigurationSection(String.valueOf(shopkeeperId));
+	}
+
+	/**
+	 * Gets a copy of the currently stored data of the shopkeeper with the given id.
+	 * <p>
+	 * This is used to load shopkeepers lazily: Loading a shopkeeper may migrate its data in place, which must not
+	 * affect the stored data. Any migrated data gets stored once the shopkeeper gets saved.
+	 * 
+	 * @param shopkeeperId
+	 *            the shopkeeper id
+	 * @return a copy of the stored shopkeeper data, or <code>null</code> if there is no data stored for the given id
+	 */
+	public ConfigurationSection copyShopkeeperData(int shopkeeperId) {
+		ConfigurationSection configSection = this.getShopkeeperData(shopkeeperId);
+		if (configSection == null) return null;
+		ConfigurationSection copy = new MemoryConfiguration();
+		copySection(configSection, copy);
+		return copy;
+	}
+
+	// copies the section structure, the other values are shared:
+	private static void copySection(ConfigurationSection source, ConfigurationSection target) {
+		for (Entry<String, Object> entry : source.getValues(false).entrySet()) {
+			Object value = entry.getValue();
+			if (value instanceof ConfigurationSection) {
+				copySection((ConfigurationSection) value, target.createSection(entry.getKey()));
+			} else if (value instanceof List) {
+				target.set(entry.getKey(), new ArrayList<>((List<?>) value));
+			} else {
+				target.set(entry.getKey(), value);
+			}
+		}
+	}
+
+	/**
+	 * Checks whether the given shopkeeper has changes that have not yet been packed for saving, or that are part of
+	 * a save that is currently in progress.
+	 * 
+	 * @param shopkeeper
+	 *            the shopkeeper
+	 * @return <code>true</code> if the {@link #getShopkeeperData(int) stored data} of the shopkeeper might not be
+	 *         up-to-date or might still get marked dirty again
+	 */
+	public boolean hasUnsavedChanges(AbstractShopkeeper shopkeeper) {
+		assert shopkeeper != null;
+		return shopkeeper.isDirty() || savingShopkeepers.contains(shopkeeper);
+	}
+
 	// SHOPKEEPER DATA REMOVAL
 
 	private void clearSaveData() {
 		this.clearConfigSection(saveData);
 		this.clearConfigSection(saveDataBuffer);
+		changedShopkeeperIds.clear();
+		journalPendingShopkeepers.clear();
+		journalPendingDeletions.clear();
 		maxStoredShopkeeperId = 0;
 		nextShopkeeperId = 1;
 	}
@@ -232,17 +354,26 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 
 	public void clearShopkeeperData(AbstractShopkeeper shopkeeper) {
 		assert shopkeeper != null;
+		if (Settings.saveJournal) {
+			journalPendingShopkeepers.remove(shopkeeper);
+			journalPendingDeletions.add(shopkeeper.getId());
+			this.scheduleJournalWrite();
+		}
 		if (this.isCurrentlySavingAsync()) {
 			// remember to remove the data after the current async save has finished:
 			shopkeepersToDelete.add(shopkeeper);
 		} else {
-			String key = String.valueOf(shopkeeper.getId());
-			saveData.set(key, null);
-			saveDataBuffer.set(key, null);
-			deletedShopkeepersCount++;
+			this.removeShopkeeperData(shopkeeper);
 		}
 	}
 
+	private void removeShopkeeperData(AbstractShopkeeper shopkeeper) {
+		String key = String.valueOf(shopkeeper.getId());
+		saveData.set(key, null);
+		changedShopkeeperIds.add(shopkeeper.getId());
+		deletedShopkeepersCount++;
+	}
+
 	// LOADING
 
 	// returns true on success, and false if there was some severe issue during loading
@@ -273,37 +404,67 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		shopkeeperRegistry.unloadAllShopkeepers();
 		this.clearSaveData();
 
-		File saveFile = this.getSaveFile();
-		if (!saveFile.exists()) {
-			File tempSaveFile = this.getTempSaveFile();
-			if (tempSaveFile.exists()) {
-				// load from temporary save file instead:
-				Log.warning("Found no save file, but an existing temporary save file! (" + tempSaveFile.getName() + ")");
-				Log.warning("This might indicate an issue during a previous saving attempt!");
-				Log.warning("Trying to load the shopkeepers data from this temporary save file instead!");
-
-				saveFile = tempSaveFile;
-			} else {
-				// save file does not exist yet -> no shopkeeper data available
-				return true;
+		// if there is no data for the selected storage backend, check if there is data of another storage backend
+		// that we can convert:
+		StorageBackend loadingBackend = storageBackend;
+		convertedStorageBackend = null;
+		if (!storageBackend.hasData()) {
+			for (StorageBackend backend : storageBackends) {
+				if (backend != storageBackend && backend.hasData()) {
+					Log.info("Found shopkeepers data of storage type '" + backend.getIdentifier()
+							+ "': Converting it to storage type '" + storageBackend.getIdentifier() + "'.");
+					loadingBackend = backend;
+					convertedStorageBackend = backend;
+					break;
+				}
 			}
 		}
+		if (!loadingBackend.hasData() && !journal.hasData()) {
+			// no shopkeeper data available
+			return true;
+		}
 
+		ExecutorService loadingExecutor = this.createLoadingExecutor();
 		try {
-			if (!StringUtils.isEmpty(Settings.fileEncoding)) {
-				// load with specified charset:
-				try (	FileInputStream stream = new FileInputStream(saveFile);
-						InputStreamReader reader = new InputStreamReader(stream, Settings.fileEncoding)) {
-					saveData.load(reader);
-				}
-			} else {
-				// load with default charset handling:
-				saveData.load(saveFile);
-			}
+			return this.loadData(loadingBackend, loadingExecutor);
+		} finally {
+			loadingExecutor.shutdownNow();
+		}
+	}
+
+	private ExecutorService createLoadingExecutor() {
+		int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		AtomicInteger threadCounter = new AtomicInteger();
+		return Executors.newFixedThreadPool(threads, (runnable) -> {
+			Thread thread = new Thread(runnable, "Shopkeepers-Loading-" + threadCounter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	// parsing and migration happen in parallel, the shopkeepers get loaded on the main thread
+	private boolean loadData(StorageBackend loadingBackend, ExecutorService loadingExecutor) {
+		LoadResult loadResult = new LoadResult();
+		loadResult.startTime = System.currentTimeMillis();
+		try {
+			loadingBackend.load(saveData, loadingExecutor);
 		} catch (Exception e) {
 			Log.severe("Failed to load save file!", e);
 			return false; // disable without save
 		}
+		loadResult.parsingDuration = System.currentTimeMillis() - loadResult.startTime;
+
+		// apply the changes that got written to the journal since the last save:
+		Set<Integer> journalChangedIds = journal.replay(saveData);
+		if (!journalChangedIds.isEmpty()) {
+			if (!saveData.contains(DATA_VERSION_KEY)) {
+				// there is no saved data yet apart from the journal:
+				saveData.set(DATA_VERSION_KEY, DATA_VERSION);
+			}
+			// the next save needs to persist these changes:
+			changedShopkeeperIds.addAll(journalChangedIds);
+			this.markDirty();
+		}
 
 		Set<String> keys = saveData.getKeys(false);
 		int shopkeepersCount = (keys.contains(DATA_VERSION_KEY) ? keys.size() - 1 : keys.size());
@@ -317,7 +478,22 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 			// update data version:
 			saveData.set(DATA_VERSION_KEY, DATA_VERSION);
 		}
+		if (dataVersionChanged || convertedStorageBackend != null) {
+			// all data needs to be written again (by the new storage backend), including the data of shopkeepers that
+			// cannot be loaded currently:
+			for (String key : keys) {
+				Integer idInt = ConversionUtils.parseInt(key);
+				if (idInt != null && idInt > 0) {
+					changedShopkeeperIds.add(idInt);
+				}
+			}
+			this.markDirty();
+		}
 
+		// validate and migrate the shopkeeper data in parallel:
+		final long migrationStartTime = System.currentTimeMillis();
+		List<Integer> shopkeeperIds = new ArrayList<>(shopkeepersCount);
+		List<Future<MigrationResult>> migrationTasks = new ArrayList<>(shopkeepersCount);
 		for (String key : keys) {
 			if (key.equals(DATA_VERSION_KEY)) continue;
 
@@ -338,12 +514,42 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 			}
 
 			// perform common migrations:
-			MigrationResult migrationResult = this.migrateShopkeeperData(id, shopkeeperSection, dataVersion);
+			// the migration only affects the data of this shopkeeper
+			shopkeeperIds.add(id);
+			migrationTasks.add(loadingExecutor.submit(() -> this.migrateShopkeeperData(id, shopkeeperSection, dataVersion)));
+		}
+		// wait for the migrations to complete:
+		List<MigrationResult> migrationResults = new ArrayList<>(migrationTasks.size());
+		for (int i = 0; i < migrationTasks.size(); ++i) {
+			MigrationResult migrationResult;
+			try {
+				migrationResult = migrationTasks.get(i).get();
+			} catch (InterruptedException e) {
+				// we are not interruptible, but we restore the interruption status:
+				Thread.currentThread().interrupt();
+				Log.severe("Got interrupted during the migration of the shopkeepers data!");
+				return false; // disable without save
+			} catch (ExecutionException e) {
+				Log.warning("Failed to migrate shopkeeper '" + shopkeeperIds.get(i) + "'", e.getCause());
+				migrationResult = MigrationResult.FAILED;
+			}
+			migrationResults.add(migrationResult);
+		}
+		loadResult.migrationDuration = System.currentTimeMillis() - migrationStartTime;
+
+		// load the shopkeepers on the main thread, in the order of the save data:
+		final long shopkeepersLoadingStartTime = System.currentTimeMillis();
+		SKShopkeeperRegistry shopkeeperRegistry = this.getShopkeeperRegistry();
+		for (int i = 0; i < shopkeeperIds.size(); ++i) {
+			MigrationResult migrationResult = migrationResults.get(i);
 			if (migrationResult == MigrationResult.FAILED) {
 				// migration failed, skip this skopkeeper
 				continue;
 			}
 
+			int id = shopkeeperIds.get(i);
+			String key = String.valueOf(id);
+			ConfigurationSection shopkeeperSection = saveData.getConfigurationSection(key);
 			String shopTypeString = shopkeeperSection.getString("type");
 			AbstractShopType<?> shopType = plugin.getShopTypeRegistry().get(shopTypeString);
 			if (shopType == null) {
@@ -351,6 +557,17 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 				continue; // skip this shopkeeper
 			}
 
+			// only register the shopkeeper, if it can be loaded once it is needed:
+			if (Settings.lazyShopkeeperLoading && shopkeeperRegistry.registerLazyShopkeeper(shopType, id, shopkeeperSection)) {
+				if (migrationResult == MigrationResult.MIGRATED) {
+					// the migrated data needs to be saved, even if the shopkeeper does not get loaded until then:
+					changedShopkeeperIds.add(id);
+					this.markDirty();
+				}
+				loadResult.lazyShopkeepersCount++;
+				continue;
+			}
+
 			// load shopkeeper:
 			AbstractShopkeeper shopkeeper;
 			try {
@@ -363,23 +580,17 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 				Log.warning("Failed to load shopkeeper '" + key + "'", e);
 				continue; // skip this shopkeeper
 			}
+			loadResult.loadedShopkeepersCount++;
 
 			// if the shopkeeper got migrated or the data version has changed, mark as dirty:
 			if (migrationResult == MigrationResult.MIGRATED || dataVersionChanged) {
 				shopkeeper.markDirty();
 			}
 		}
+		loadResult.shopkeepersLoadingDuration = System.currentTimeMillis() - shopkeepersLoadingStartTime;
 
-		// create a copy of the save data's top level data structure:
-		this.clearConfigSection(saveDataBuffer);
-		// set data version first (at the top):
-		saveDataBuffer.set(DATA_VERSION_KEY, DATA_VERSION);
-		for (Entry<String, Object> entry : saveData.getValues(false).entrySet()) {
-			String key = entry.getKey();
-			if (key.equals(DATA_VERSION_KEY)) continue;
-			saveDataBuffer.set(key, entry.getValue());
-		}
-
+		loadResult.totalDuration = System.currentTimeMillis() - loadResult.startTime;
+		loadResult.printDebugInfo();
 		return true;
 	}
 
@@ -389,6 +600,25 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		FAILED,
 	}
 
+	private static class LoadResult {
+
+		private int loadedShopkeepersCount = 0;
+		private int lazyShopkeepersCount = 0;
+		private long startTime;
+		private long parsingDuration;
+		private long migrationDuration;
+		private long shopkeepersLoadingDuration;
+		private long totalDuration;
+
+		public void printDebugInfo() {
+			Log.debug("Loaded shopkeeper data (" + totalDuration + "ms (Reading and parsing: " + parsingDuration + "ms, "
+					+ "Migration: " + migrationDuration + "ms, "
+					+ "Loading " + loadedShopkeepersCount + " shopkeepers: " + shopkeepersLoadingDuration + "ms)"
+					+ (lazyShopkeepersCount > 0 ? ", Registered " + lazyShopkeepersCount + " shopkeepers for lazy loading" : "")
+					+ ")");
+		}
+	}
+
 	// validates and performs migration of the save data
 	private MigrationResult migrateShopkeeperData(int id, ConfigurationSection shopkeeperSection, int dataVersion) {
 		MigrationResult migrationResult = MigrationResult.NOTHING_MIGRATED;
@@ -413,9 +643,29 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		dirty = true;
 	}
 
+	/**
+	 * Marks the storage as dirty due to a change of the given shopkeeper.
+	 * <p>
+	 * If the journal is enabled, the shopkeeper's data gets written to the journal soon.
+	 * 
+	 * @param shopkeeper
+	 *            the changed shopkeeper
+	 */
+	public void markDirty(AbstractShopkeeper shopkeeper) {
+		assert shopkeeper != null;
+		this.markDirty();
+		if (Settings.saveJournal) {
+			journalPendingShopkeepers.add(shopkeeper);
+			this.scheduleJournalWrite();
+		}
+	}
+
 	@Override
 	public void save() {
-		if (Settings.saveInstantly) {
+		if (Settings.saveJournal) {
+			// changes get written to the journal, and full saves happen periodically:
+			this.markDirty();
+		} else if (Settings.saveInstantly) {
 			this.saveNow();
 		} else {
 			this.markDirty();
@@ -425,7 +675,7 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 	@Override
 	public void saveDelayed() {
 		this.markDirty();
-		if (Settings.saveInstantly && delayedSaveTaskId == -1) {
+		if (Settings.saveInstantly && !Settings.saveJournal && delayedSaveTaskId == -1) {
 			delayedSaveTaskId = Bukkit.getScheduler().runTaskLater(plugin, () -> {
 				if (this.isDirty()) {
 					this.saveNow();
@@ -455,6 +705,50 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		}
 	}
 
+	// JOURNAL
+
+	private void scheduleJournalWrite() {
+		if (journalTaskId != -1) return; // already scheduled
+		// this writes all changes of the current tick together:
+		journalTaskId = Bukkit.getScheduler().runTask(plugin, () -> {
+			journalTaskId = -1;
+			this.writeJournal();
+		}).getTaskId();
+	}
+
+	// stores snapshots of the data of the changed shopkeepers, which then get written to the journal asynchronously
+	private void writeJournal() {
+		if (savingDisabled) {
+			// don't persist any changes:
+			journalPendingShopkeepers.clear();
+			journalPendingDeletions.clear();
+			return;
+		}
+		if (journalPendingShopkeepers.isEmpty() && journalPendingDeletions.isEmpty()) return;
+
+		List<ShopkeeperJournal.Entry> entries = new ArrayList<>(journalPendingDeletions.size() + journalPendingShopkeepers.size());
+		for (int deletedShopkeeperId : journalPendingDeletions) {
+			entries.add(new ShopkeeperJournal.Entry(deletedShopkeeperId, null));
+		}
+		journalPendingDeletions.clear();
+
+		for (AbstractShopkeeper shopkeeper : journalPendingShopkeepers) {
+			if (!shopkeeper.isValid()) continue; // the deletion is handled separately
+			MemoryConfiguration shopkeeperData = new MemoryConfiguration();
+			try {
+				shopkeeper.save(shopkeeperData);
+			} catch (Exception e) {
+				// the shopkeeper stays marked as dirty, and the next full save might report this issue as well:
+				Log.warning("Couldn't write the data of shopkeeper '" + shopkeeper.getId() + "' to the journal!", e);
+				continue;
+			}
+			entries.add(new ShopkeeperJournal.Entry(shopkeeper.getId(), shopkeeperData));
+		}
+		journalPendingShopkeepers.clear();
+
+		journal.append(entries);
+	}
+
 	private boolean isCurrentlySavingAsync() {
 		return (saveIOTask != -1);
 	}
@@ -562,10 +856,8 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 				// saving might fail again anyways
 				continue;
 			}
-			// update save data buffer:
-			saveDataBuffer.set(sectionKey, newSection);
-
 			savingShopkeepers.add(shopkeeper);
+			changedShopkeeperIds.add(shopkeeper.getId());
 			shopkeeper.onSave();
 		}
 
@@ -573,6 +865,28 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		saveResult.deletedShopkeepersCount = deletedShopkeepersCount;
 		deletedShopkeepersCount = 0;
 
+		// ids of shopkeepers whose data changed:
+		savingShopkeeperIds.addAll(changedShopkeeperIds);
+		changedShopkeeperIds.clear();
+
+		// the saved shopkeepers don't need to be written to the journal anymore, and any subsequent changes get written
+		// to a new journal segment, so that all previous segments can be deleted once this save was successful:
+		// if this save fails, the shopkeepers get marked dirty again, and thereby get written to the journal again
+		for (AbstractShopkeeper shopkeeper : savingShopkeepers) {
+			journalPendingShopkeepers.remove(shopkeeper);
+		}
+		savingJournalSegment = journal.startNewSegment();
+
+		// create a copy of the save data's top level data structure:
+		this.clearConfigSection(saveDataBuffer);
+		// set data version first (at the top):
+		saveDataBuffer.set(DATA_VERSION_KEY, DATA_VERSION);
+		for (Entry<String, Object> entry : saveData.getValues(false).entrySet()) {
+			String key = entry.getKey();
+			if (key.equals(DATA_VERSION_KEY)) continue;
+			saveDataBuffer.set(key, entry.getValue());
+		}
+
 		// time to store shopkeeper data in memory configuration:
 		saveResult.packingDuration = System.currentTimeMillis() - saveResult.startTime;
 
@@ -617,12 +931,33 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 
 					// restore number of deleted shopkeepers:
 					deletedShopkeepersCount = saveResult.deletedShopkeepersCount;
+					// remember the changed shopkeeper ids for the next save:
+					changedShopkeeperIds.addAll(savingShopkeeperIds);
+				} else {
+					// all changes that got written to the previous journal segments are persisted now:
+					journal.deleteSegmentsBefore(savingJournalSegment);
+
+					if (convertedStorageBackend != null) {
+						// the converted data has been successfully saved: move the old data to a backup location
+						try {
+							convertedStorageBackend.backupData();
+							Log.info("The shopkeepers data of storage type '" + convertedStorageBackend.getIdentifier()
+									+ "' got converted and moved to a backup location.");
+						} catch (Exception e) {
+							Log.warning("Couldn't move the converted shopkeepers data of storage type '"
+									+ convertedStorageBackend.getIdentifier() + "' to a backup location!", e);
+						}
+						convertedStorageBackend = null;
+					}
 				}
 				savingShopkeepers.clear();
+				savingShopkeeperIds.clear();
+				// the save data buffer is only needed during the save:
+				clearConfigSection(saveDataBuffer);
 
 				// remove data of shopkeepers that have been deleted during the save:
 				for (AbstractShopkeeper deletedShopkeeper : shopkeepersToDelete) {
-					clearShopkeeperData(deletedShopkeeper);
+					removeShopkeeperData(deletedShopkeeper);
 				}
 				shopkeepersToDelete.clear();
 
@@ -712,23 +1047,42 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 	// can be run async and sync
 	private void saveDataToFile(FileConfiguration config, Runnable callback) {
 		assert config != null;
+		// serialization of the save data into the storage format:
+		// this only needs to happen once, even if the writing needs to be retried
+		final long serializationStartTime = System.currentTimeMillis();
+		StorageBackend.PreparedSave preparedSave = null;
+		try {
+			preparedSave = storageBackend.prepareSave(config, savingShopkeeperIds);
+		} catch (Exception e) {
+			Log.severe("Couldn't serialize the shopkeepers data!", e);
+		}
+		saveResult.serializationDuration = System.currentTimeMillis() - serializationStartTime;
+
 		// actual IO:
 		final long ioStartTime = System.currentTimeMillis();
 
-		File saveFile = this.getSaveFile();
-		File tempSaveFile = this.getTempSaveFile();
+		if (preparedSave == null) {
+			// retrying will not help here:
+			saveResult.state = SaveResult.State.FAILURE;
+			Log.severe("Saving failed! Save data might be lost! :(");
+		} else {
+			this.writeSaveData(preparedSave);
+		}
+
+		final long now = System.currentTimeMillis();
+		saveResult.ioDuration = now - ioStartTime; // time for pure io
+		saveResult.totalDuration = now - saveResult.startTime; // time from saveReal() call to finished save
 
-		// saving procedure:
-		// inside a retry-loop:
-		// * if there is a temporary save file:
-		// * * if there is no save file: rename temporary save file to save file
-		// * * else: remove temporary save file
-		// * create parent directories
-		// * create new temporary save file
-		// * save data to temporary save file
-		// * remove old save file
-		// * rename temporary save file to save file
+		// file IO over
 
+		// run callback:
+		if (callback != null) {
+			callback.run();
+		}
+	}
+
+	// writes the serialized save data, and retries if that fails
+	private void writeSaveData(StorageBackend.PreparedSave preparedSave) {
 		int savingAttempt = 0;
 		boolean problem = false;
 		String error = null;
@@ -742,118 +1096,13 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 			exception = null;
 
 			try {
-				// handle already existing temporary save file:
-				if (!problem) {
-					if (tempSaveFile.exists()) {
-						// check write permission:
-						if (!tempSaveFile.canWrite()) {
-							error = "Cannot write to temporary save file! (" + tempSaveFile.getName() + ")";
-							problem = true;
-						}
-
-						if (!problem) {
-							if (!saveFile.exists()) {
-								// if only the temporary file exists, but the actual save file does not, this might
-								// indicate, that a previous saving attempt saved to the temporary file and removed
-								// the
-								// actual save file, but wasn't able to then rename the temporary file to the actual
-								// save file
-								// -> the temporary file might contain the only backup of saved data, don't remove
-								// it!
-								// -> instead we try to rename it to make it the new 'actual save file' and then
-								// continue the saving procedure
-
-								Log.warning("Found an already existing temporary save file, but no old save file! (" + tempSaveFile.getName() + ")");
-								Log.warning("This might indicate an issue during a previous saving attempt!");
-								Log.warning("Trying to rename the temporary save file to use it as 'existing old save data', and then continue the saving!");
-
-								// rename temporary save file:
-								if (!tempSaveFile.renameTo(saveFile)) {
-									error = "Couldn't rename temporary save file! (" + tempSaveFile.getName() + " to " + saveFile.getName() + ")";
-									problem = true;
-								}
-							} else {
-								// remove old temporary save file:
-								if (!tempSaveFile.delete()) {
-									error = "Couldn't delete existing temporary save file! (" + tempSaveFile.getName() + ")";
-									problem = true;
-								}
-							}
-						}
-					}
-				}
-
-				// make sure that the parent directories exist:
-				if (!problem) {
-					File parentDir = tempSaveFile.getParentFile();
-					if (parentDir != null && !parentDir.exists()) {
-						if (!parentDir.mkdirs()) {
-							error = "Couldn't create parent directories for temporary save file! (" + parentDir.getAbsolutePath() + ")";
-							problem = true;
-						}
-					}
-				}
-
-				// create new temporary save file:
-				if (!problem) {
-					try {
-						tempSaveFile.createNewFile();
-					} catch (Exception e) {
-						error = "Couldn't create temporary save file! (" + tempSaveFile.getName() + ") : " + e.getMessage();
-						exception = e;
-						problem = true;
-					}
-				}
-
-				// write shopkeeper data to temporary save file:
-				if (!problem) {
-					PrintWriter writer = null;
-					try {
-						if (Settings.fileEncoding != null && !Settings.fileEncoding.isEmpty()) {
-							writer = new PrintWriter(tempSaveFile, Settings.fileEncoding);
-							writer.write(config.saveToString());
-						} else {
-							config.save(tempSaveFile);
-						}
-					} catch (Exception e) {
-						error = "Couldn't save data to temporary save file! (" + tempSaveFile.getName() + ") : " + e.getMessage();
-						exception = e;
-						problem = true;
-					} finally {
-						if (writer != null) {
-							writer.close();
-						}
-					}
-				}
-
-				// delete old save file:
-				if (!problem) {
-					if (saveFile.exists()) {
-						// check write permission:
-						if (!saveFile.canWrite()) {
-							error = "Cannot write to save file! (" + saveFile.getName() + ")";
-							problem = true;
-						} else {
-							// delete old save file:
-							if (!saveFile.delete()) {
-								error = "Couldn't delete existing old save file! (" + saveFile.getName() + ")";
-								problem = true;
-							}
-						}
-					}
-				}
-
-				// rename temporary save file:
-				if (!problem) {
-					if (!tempSaveFile.renameTo(saveFile)) {
-						error = "Couldn't rename temporary save file! (" + tempSaveFile.getName() + " to " + saveFile.getName() + ")";
-						problem = true;
-					}
-				}
+				preparedSave.write();
 			} catch (Exception e) {
-				// catching any exceptions not explicitly caught above already:
 				error = e.getMessage();
-				exception = e;
+				// IOExceptions without cause indicate expected issues that don't require a stacktrace:
+				if (!(e instanceof IOException) || e.getCause() != null) {
+					exception = e;
+				}
 				problem = true;
 			}
 
@@ -884,17 +1133,6 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 				break;
 			}
 		}
-
-		final long now = System.currentTimeMillis();
-		saveResult.ioDuration = now - ioStartTime; // time for pure io
-		saveResult.totalDuration = now - saveResult.startTime; // time from saveReal() call to finished save
-
-		// file IO over
-
-		// run callback:
-		if (callback != null) {
-			callback.run();
-		}
 	}
 
 	private static class SaveResult {
@@ -918,6 +1156,7 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 		private long packingDuration;
 		private long asyncTaskDelay;
 		private long ioLockAcquireDuration;
+		private long serializationDuration;
 		private long ioDuration;
 		private long totalDuration;
 
@@ -931,7 +1170,8 @@ public class SKShopkeeperStorage implements ShopkeeperStorage {
 					+ dirtyShopkeepersCount + " dirty, " + deletedShopkeepersCount + " deleted): " + packingDuration + "ms, "
 					+ (async ? "AsyncTask delay: " + asyncTaskDelay + "ms, " : "")
 					+ ((ioLockAcquireDuration > 1) ? "IO lock delay: " + ioLockAcquireDuration + "ms, " : "")
-					+ (async ? "Async " : "Sync ") + "IO: " + ioDuration + "ms))"
+					+ (async ? "Async " : "Sync ") + "serialization: " + serializationDuration + "ms, "
+					+ "IO: " + ioDuration + "ms))"
 					+ ((state == State.FAILURE) ? ": Saving failed!" : ""));
 		}
 	}
@@ -0,0 +1,169 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import com.nisovin.shopkeepers.util.ConversionUtils;
+import com.nisovin.shopkeepers.util.Log;
+
+/**
+ * Splits the shopkeepers data into multiple yaml files (shards), based on the shopkeeper ids.
+ * <p>
+ * Only the shards containing shopkeepers whose data has changed get written during saves. This keeps the saving costs
+ * proportional to the number of changes, rather than the total number of shopkeepers.
+ */
+class ShardedYamlStorageBackend implements StorageBackend {
+
+	static final String IDENTIFIER = "yaml-sharded";
+
+	// the number of shopkeeper ids per shard:
+	private static final int SHARD_SIZE = 100;
+	private static final Pattern SHARD_FILE_PATTERN = Pattern.compile("^shard-(\\d+)\\.yml(\\.temp)?$");
+
+	private final File shardsFolder;
+
+	ShardedYamlStorageBackend(File dataFolder) {
+		this.shardsFolder = new File(dataFolder, "shards");
+	}
+
+	@Override
+	public String getIdentifier() {
+		return IDENTIFIER;
+	}
+
+	private File getShardFile(int shard) {
+		return new File(shardsFolder, "shard-" + shard + ".yml");
+	}
+
+	private static int getShard(int shopkeeperId) {
+		return shopkeeperId / SHARD_SIZE;
+	}
+
+	// sorted by shard index:
+	private Set<Integer> getStoredShards() {
+		Set<Integer> shards = new TreeSet<>();
+		String[] fileNames = shardsFolder.list();
+		if (fileNames == null) return shards;
+		for (String fileName : fileNames) {
+			Matcher matcher = SHARD_FILE_PATTERN.matcher(fileName);
+			if (!matcher.matches()) continue;
+			Integer shard = ConversionUtils.parseInt(matcher.group(1));
+			if (shard != null) {
+				shards.add(shard);
+			}
+		}
+		return shards;
+	}
+
+	@Override
+	public boolean hasData() {
+		return !this.getStoredShards().isEmpty();
+	}
+
+	@Override
+	public void load(FileConfiguration data, ExecutorService executor) throws Exception {
+		// parse the shards in parallel:
+		Map<File, Future<FileConfiguration>> parsedShards = new LinkedHashMap<>();
+		for (int shard : this.getStoredShards()) {
+			File loadFile = StorageFiles.getLoadFile(this.getShardFile(shard));
+			if (loadFile == null) continue;
+			parsedShards.put(loadFile, executor.submit(() -> {
+				FileConfiguration shardData = new YamlConfiguration();
+				StorageFiles.loadYaml(shardData, loadFile);
+				return shardData;
+			}));
+		}
+
+		// the lowest data version among all shards:
+		Integer dataVersion = null;
+		for (Entry<File, Future<FileConfiguration>> parsedShard : parsedShards.entrySet()) {
+			File loadFile = parsedShard.getKey();
+			FileConfiguration shardData;
+			try {
+				shardData = parsedShard.getValue().get();
+			} catch (ExecutionException e) {
+				for (Future<FileConfiguration> future : parsedShards.values()) {
+					future.cancel(false);
+				}
+				Throwable cause = e.getCause();
+				throw new Exception("Failed to load shard file '" + loadFile.getName() + "': " + cause.getMessage(), cause);
+			}
+
+			int shardDataVersion = shardData.getInt(SKShopkeeperStorage.DATA_VERSION_KEY);
+			if (dataVersion == null || shardDataVersion < dataVersion) {
+				dataVersion = shardDataVersion;
+			}
+			for (Entry<String, Object> entry : shardData.getValues(false).entrySet()) {
+				String key = entry.getKey();
+				if (key.equals(SKShopkeeperStorage.DATA_VERSION_KEY)) continue;
+				if (data.contains(key)) {
+					Log.warning("Found duplicate data for shopkeeper '" + key + "' in shard file '" + loadFile.getName() + "'. Ignoring it.");
+					continue;
+				}
+				data.set(key, entry.getValue());
+			}
+		}
+		if (dataVersion != null) {
+			data.set(SKShopkeeperStorage.DATA_VERSION_KEY, dataVersion);
+		}
+	}
+
+	@Override
+	public PreparedSave prepareSave(FileConfiguration data, Set<Integer> changedIds) throws Exception {
+		// determine affected shards:
+		Set<Integer> changedShards = new TreeSet<>();
+		for (int shopkeeperId : changedIds) {
+			changedShards.add(getShard(shopkeeperId));
+		}
+
+		// serialized contents of the changed shards, null for shards that got empty:
+		Map<File, String> shardContents = new LinkedHashMap<>();
+		Object dataVersion = data.get(SKShopkeeperStorage.DATA_VERSION_KEY);
+		for (int shard : changedShards) {
+			FileConfiguration shardData = new YamlConfiguration();
+			// set data version first (at the top):
+			shardData.set(SKShopkeeperStorage.DATA_VERSION_KEY, dataVersion);
+
+			boolean empty = true;
+			int firstId = shard * SHARD_SIZE;
+			for (int shopkeeperId = firstId; shopkeeperId < firstId + SHARD_SIZE; shopkeeperId++) {
+				String key = String.valueOf(shopkeeperId);
+				Object shopkeeperData = data.get(key);
+				if (shopkeeperData == null) continue;
+				shardData.set(key, shopkeeperData);
+				empty = false;
+			}
+			shardContents.put(this.getShardFile(shard), (empty ? null : shardData.saveToString()));
+		}
+
+		return () -> {
+			for (Entry<File, String> entry : shardContents.entrySet()) {
+				File shardFile = entry.getKey();
+				String content = entry.getValue();
+				if (content == null) {
+					// all shopkeepers of this shard have been removed:
+					StorageFiles.delete(shardFile);
+				} else {
+					StorageFiles.writeText(shardFile, content);
+				}
+			}
+		};
+	}
+
+	@Override
+	public void backupData() throws Exception {
+		StorageFiles.backup(shardsFolder);
+	}
+}
@@ -0,0 +1,329 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import com.nisovin.shopkeepers.util.ConversionUtils;
+import com.nisovin.shopkeepers.util.Log;
+
+/**
+ * An append-only journal of changes to the shopkeepers data, that get made since the last full save.
+ * <p>
+ * The journal consists of numbered segment files. Every full save starts a new segment, and once the full save has
+ * been successful, all previous segments can be deleted. During loading, the entries of all remaining segments get
+ * replayed on top of the loaded data.
+ * <p>
+ * Each entry consists of the operation, the shopkeeper id, the length-prefixed {@link BinaryDataCodec encoded}
+ * shopkeeper data (for updates), and a checksum. Entries get written in batches by a separate writer thread, and each
+ * batch gets synced to disk.
+ */
+class ShopkeeperJournal {
+
+	private static final int MAGIC_NUMBER = 0x53484B4A; // 'SHKJ'
+	private static final int FORMAT_VERSION = 1;
+	private static final byte OPERATION_UPDATE = 1;
+	private static final byte OPERATION_DELETE = 2;
+	private static final Pattern SEGMENT_FILE_PATTERN = Pattern.compile("^journal-(\\d+)\\.dat$");
+
+	/**
+	 * A change of the data of a single shopkeeper.
+	 */
+	static class Entry {
+
+		private final int shopkeeperId;
+		private final ConfigurationSection data; // null for deletions
+
+		/**
+		 * Creates a new journal entry.
+		 * 
+		 * @param shopkeeperId
+		 *            the shopkeeper id
+		 * @param data
+		 *            a snapshot of the new data of the shopkeeper, or <code>null</code> if the shopkeeper got deleted,
+		 *            must not get modified afterwards
+		 */
+		Entry(int shopkeeperId, ConfigurationSection data) {
+			this.shopkeeperId = shopkeeperId;
+			this.data = data;
+		}
+	}
+
+	private final File journalFolder;
+	// the segment that new entries get appended to:
+	private int currentSegment = 1;
+	private ExecutorService writer = null;
+
+	// only accessed by the writer thread:
+	private int openSegment = -1;
+	private FileOutputStream segmentStream = null;
+
+	ShopkeeperJournal(File dataFolder) {
+		this.journalFolder = new File(dataFolder, "journal");
+	}
+
+	private File getSegmentFile(int segment) {
+		return new File(journalFolder, "journal-" + segment + ".dat");
+	}
+
+	// sorted by segment index:
+	private Set<Integer> getStoredSegments() {
+		Set<Integer> segments = new TreeSet<>();
+		String[] fileNames = journalFolder.list();
+		if (fileNames == null) return segments;
+		for (String fileName : fileNames) {
+			Matcher matcher = SEGMENT_FILE_PATTERN.matcher(fileName);
+			if (!matcher.matches()) continue;
+			Integer segment = ConversionUtils.parseInt(matcher.group(1));
+			if (segment != null) {
+				segments.add(segment);
+			}
+		}
+		return segments;
+	}
+
+	boolean hasData() {
+		return !this.getStoredSegments().isEmpty();
+	}
+
+	void open() {
+		if (writer != null) return; // already open
+		// continue after the already existing segments:
+		for (int segment : this.getStoredSegments()) {
+			if (segment >= currentSegment) {
+				currentSegment = segment + 1;
+			}
+		}
+		writer = Executors.newSingleThreadExecutor((runnable) -> {
+			Thread thread = new Thread(runnable, "Shopkeepers-Journal");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Waits for all pending writes to complete and then closes the journal.
+	 */
+	void close() {
+		if (writer == null) return; // not open
+		writer.execute(this::closeSegment);
+		writer.shutdown();
+		try {
+			if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+				Log.warning("Journal writing is taking too long! Giving up on waiting for it.");
+			}
+		} catch (InterruptedException e) {
+			// we are not interruptible, but we restore the interruption status:
+			Thread.currentThread().interrupt();
+		}
+		writer = null;
+	}
+
+	/**
+	 * Starts a new journal segment. Subsequent entries get written to the new segment.
+	 * 
+	 * @return the index of the new segment
+	 */
+	int startNewSegment() {
+		return ++currentSegment;
+	}
+
+	/**
+	 * Appends the given entries (asynchronously) to the journal.
+	 * 
+	 * @param entries
+	 *            the entries
+	 */
+	void append(List<Entry> entries) {
+		if (writer == null || entries.isEmpty()) return;
+		int segment = currentSegment;
+		writer.execute(() -> this.writeEntries(segment, entries));
+	}
+
+	/**
+	 * Deletes (asynchronously) all segments before the given segment.
+	 * <p>
+	 * This gets used once all changes contained in these segments got persisted by a full save.
+	 * 
+	 * @param segment
+	 *            the segment index
+	 */
+	void deleteSegmentsBefore(int segment) {
+		if (writer == null) return;
+		writer.execute(() -> {
+			if (openSegment != -1 && openSegment < segment) {
+				this.closeSegment();
+			}
+			for (int storedSegment : this.getStoredSegments()) {
+				if (storedSegment >= segment) break;
+				File segmentFile = this.getSegmentFile(storedSegment);
+				if (!segmentFile.delete()) {
+					Log.warning("Couldn't delete journal file '" + segmentFile.getName() + "'!");
+				}
+			}
+		});
+	}
+
+	// gets run by the writer thread:
+	private void writeEntries(int segment, List<Entry> entries) {
+		try {
+			// encode entries:
+			BinaryDataCodec.Encoder encoder = new BinaryDataCodec.Encoder(false);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			for (Entry entry : entries) {
+				byte operation = (entry.data != null ? OPERATION_UPDATE : OPERATION_DELETE);
+				byte[] record = (entry.data != null ? encoder.encode(entry.data) : new byte[0]);
+				out.writeByte(operation);
+				out.writeInt(entry.shopkeeperId);
+				out.writeInt(record.length);
+				out.write(record);
+				out.writeLong(getChecksum(operation, entry.shopkeeperId, record));
+			}
+			out.flush();
+
+			// append to segment and sync to disk:
+			if (openSegment != segment) {
+				this.closeSegment();
+				this.openSegment(segment);
+			}
+			long previousSize = segmentStream.getChannel().size();
+			try {
+				segmentStream.write(bytes.toByteArray());
+				segmentStream.getFD().sync();
+			} catch (IOException e) {
+				// remove partially written entries:
+				segmentStream.getChannel().truncate(previousSize);
+				throw e;
+			}
+		} catch (Exception e) {
+			Log.severe("Couldn't write " + entries.size() + " shopkeeper changes to the journal!", e);
+			this.closeSegment();
+		}
+	}
+
+	private void openSegment(int segment) throws IOException {
+		if (!journalFolder.exists() && !journalFolder.mkdirs()) {
+			throw new IOException("Couldn't create journal folder!");
+		}
+		File segmentFile = this.getSegmentFile(segment);
+		boolean newFile = !segmentFile.exists();
+		segmentStream = new FileOutputStream(segmentFile, true);
+		openSegment = segment;
+		if (newFile) {
+			DataOutputStream out = new DataOutputStream(segmentStream);
+			out.writeInt(MAGIC_NUMBER);
+			out.writeInt(FORMAT_VERSION);
+			out.flush();
+		}
+	}
+
+	private void closeSegment() {
+		if (segmentStream == null) return;
+		try {
+			segmentStream.close();
+		} catch (IOException e) {
+			Log.warning("Couldn't close journal file!", e);
+		}
+		segmentStream = null;
+		openSegment = -1;
+	}
+
+	private static long getChecksum(byte operation, int shopkeeperId, byte[] record) {
+		CRC32 crc = new CRC32();
+		crc.update(operation);
+		crc.update(shopkeeperId >>> 24);
+		crc.update(shopkeeperId >>> 16);
+		crc.update(shopkeeperId >>> 8);
+		crc.update(shopkeeperId);
+		crc.update(record);
+		return crc.getValue();
+	}
+
+	/**
+	 * Applies the changes of all stored journal segments to the given data.
+	 * 
+	 * @param data
+	 *            the shopkeepers data
+	 * @return the ids of the shopkeepers whose data got changed
+	 */
+	Set<Integer> replay(FileConfiguration data) {
+		Set<Integer> segments = this.getStoredSegments();
+		if (segments.isEmpty()) return Collections.emptySet();
+
+		Set<Integer> changedIds = new TreeSet<>();
+		int replayedEntries = 0;
+		BinaryDataCodec.Decoder decoder = new BinaryDataCodec.Decoder(new ArrayList<>(0));
+		for (int segment : segments) {
+			File segmentFile = this.getSegmentFile(segment);
+			int segmentEntries = 0;
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segmentFile)))) {
+				if (in.readInt() != MAGIC_NUMBER || in.readInt() != FORMAT_VERSION) {
+					Log.warning("Ignoring invalid journal file '" + segmentFile.getName() + "'.");
+					continue;
+				}
+				while (true) {
+					int operation = in.read();
+					if (operation == -1) break; // end of segment
+
+					int shopkeeperId = in.readInt();
+					int length = in.readInt();
+					if (length < 0) {
+						throw new IOException("Invalid entry length: " + length);
+					}
+					byte[] record = new byte[length];
+					in.readFully(record);
+					long checksum = in.readLong();
+					if (checksum != getChecksum((byte) operation, shopkeeperId, record)) {
+						throw new IOException("Checksum mismatch");
+					}
+
+					String key = String.valueOf(shopkeeperId);
+					if (operation == OPERATION_DELETE) {
+						data.set(key, null);
+					} else if (operation == OPERATION_UPDATE) {
+						Object shopkeeperData = decoder.decode(record);
+						if (!(shopkeeperData instanceof ConfigurationSection)) {
+							throw new IOException("Invalid shopkeeper data for shopkeeper " + shopkeeperId);
+						}
+						data.set(key, shopkeeperData);
+					} else {
+						throw new IOException("Invalid operation: " + operation);
+					}
+					changedIds.add(shopkeeperId);
+					segmentEntries++;
+				}
+			} catch (EOFException e) {
+				// the last entry was only partially written, for example due to a crash:
+				Log.warning("Journal file '" + segmentFile.getName() + "' ends with an incomplete entry after "
+						+ segmentEntries + " entries. Ignoring it.");
+			} catch (IOException e) {
+				Log.warning("Journal file '" + segmentFile.getName() + "' is corrupted after " + segmentEntries
+						+ " entries (" + e.getMessage() + "). Ignoring the remaining entries.");
+			}
+			replayedEntries += segmentEntries;
+		}
+		Log.info("Replayed " + replayedEntries + " changes of " + changedIds.size() + " shopkeepers from the journal.");
+		return changedIds;
+	}
+}
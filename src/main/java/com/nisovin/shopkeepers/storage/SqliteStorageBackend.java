@@ -0,0 +1,256 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import com.nisovin.shopkeepers.util.Log;
+
+/**
+ * Stores the data of the shopkeepers inside an embedded SQLite database, with one row per shopkeeper.
+ * <p>
+ * Each row contains the shopkeeper id and the {@link BinaryDataCodec encoded} shopkeeper data.
+ * <p>
+ * Only the rows of shopkeepers whose data has changed get written during saves, in a single transaction. Top level
+ * entries of the save data whose keys are not valid shopkeeper ids are not stored.
+ * <p>
+ * The SQLite JDBC driver is provided by the server.
+ */
+class SqliteStorageBackend implements StorageBackend {
+
+	static final String IDENTIFIER = "sqlite";
+
+	private static final String DRIVER_CLASS = "org.sqlite.JDBC";
+	// the version of the database schema and data encoding (independent of the data version):
+	private static final int FORMAT_VERSION = 1;
+	private static final String FORMAT_VERSION_KEY = "format-version";
+	// the number of rows that get decoded together by one loading task:
+	private static final int LOADING_BATCH_SIZE = 100;
+
+	private final File databaseFile;
+
+	SqliteStorageBackend(File dataFolder) {
+		this.databaseFile = new File(dataFolder, "shopkeepers.db");
+	}
+
+	@Override
+	public String getIdentifier() {
+		return IDENTIFIER;
+	}
+
+	private Connection openConnection() throws SQLException {
+		try {
+			Class.forName(DRIVER_CLASS);
+		} catch (ClassNotFoundException e) {
+			throw new SQLException("The SQLite driver is not available!", e);
+		}
+		File parentDir = databaseFile.getParentFile();
+		if (parentDir != null && !parentDir.exists()) {
+			parentDir.mkdirs();
+		}
+		return DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+	}
+
+	private void createTables(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.executeUpdate("CREATE TABLE IF NOT EXISTS metadata ("
+					+ "key TEXT PRIMARY KEY, "
+					+ "value INTEGER NOT NULL)");
+			statement.executeUpdate("CREATE TABLE IF NOT EXISTS shopkeepers ("
+					+ "id INTEGER PRIMARY KEY, "
+					+ "data BLOB NOT NULL)");
+		}
+	}
+
+	// returns null if there is no such metadata entry
+	private Integer getMetadata(Connection connection, String key) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement("SELECT value FROM metadata WHERE key = ?")) {
+			statement.setString(1, key);
+			try (ResultSet result = statement.executeQuery()) {
+				return (result.next() ? result.getInt(1) : null);
+			}
+		}
+	}
+
+	private void setMetadata(Connection connection, String key, int value) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement("INSERT OR REPLACE INTO metadata (key, value) VALUES (?, ?)")) {
+			statement.setString(1, key);
+			statement.setInt(2, value);
+			statement.executeUpdate();
+		}
+	}
+
+	private boolean hasTable(Connection connection, String table) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?")) {
+			statement.setString(1, table);
+			try (ResultSet result = statement.executeQuery()) {
+				return result.next();
+			}
+		}
+	}
+
+	@Override
+	public boolean hasData() {
+		if (!databaseFile.exists()) return false;
+		// the database might exist without containing any data yet (ex. if the first save failed), in which case we
+		// want to check the other storage types for data to convert:
+		// every successful save stores the data version, even if there are no shopkeepers
+		try (Connection connection = this.openConnection()) {
+			if (this.hasTable(connection, "metadata") && this.getMetadata(connection, SKShopkeeperStorage.DATA_VERSION_KEY) != null) {
+				return true;
+			}
+			if (this.hasTable(connection, "shopkeepers")) {
+				try (	Statement statement = connection.createStatement();
+						ResultSet result = statement.executeQuery("SELECT 1 FROM shopkeepers LIMIT 1")) {
+					return result.next();
+				}
+			}
+			return false;
+		} catch (SQLException e) {
+			// assume that there is data, so that the loading fails instead of the database getting overwritten:
+			Log.warning("Couldn't check the database for shopkeeper data!", e);
+			return true;
+		}
+	}
+
+	@Override
+	public void load(FileConfiguration data, ExecutorService executor) throws Exception {
+		if (!databaseFile.exists()) {
+			// database does not exist yet -> no shopkeeper data available
+			return;
+		}
+
+		Integer dataVersion;
+		List<Integer> ids = new ArrayList<>();
+		List<byte[]> records = new ArrayList<>();
+		try (Connection connection = this.openConnection()) {
+			this.createTables(connection);
+			Integer formatVersion = this.getMetadata(connection, FORMAT_VERSION_KEY);
+			if (formatVersion != null && formatVersion != FORMAT_VERSION) {
+				throw new IOException("Unsupported database format version: " + formatVersion);
+			}
+			dataVersion = this.getMetadata(connection, SKShopkeeperStorage.DATA_VERSION_KEY);
+
+			try (	Statement statement = connection.createStatement();
+					ResultSet result = statement.executeQuery("SELECT id, data FROM shopkeepers ORDER BY id")) {
+				while (result.next()) {
+					ids.add(result.getInt(1));
+					records.add(result.getBytes(2));
+				}
+			}
+		}
+
+		// decode the records in parallel:
+		BinaryDataCodec.Decoder decoder = new BinaryDataCodec.Decoder(new ArrayList<>(0));
+		List<Future<List<Object>>> batches = new ArrayList<>();
+		for (int start = 0; start < records.size(); start += LOADING_BATCH_SIZE) {
+			List<byte[]> batchRecords = records.subList(start, Math.min(start + LOADING_BATCH_SIZE, records.size()));
+			batches.add(executor.submit(() -> {
+				List<Object> values = new ArrayList<>(batchRecords.size());
+				for (byte[] record : batchRecords) {
+					values.add(decoder.decode(record));
+				}
+				return values;
+			}));
+		}
+
+		// insert in id order:
+		if (dataVersion != null) {
+			data.set(SKShopkeeperStorage.DATA_VERSION_KEY, dataVersion);
+		}
+		int index = 0;
+		for (Future<List<Object>> batch : batches) {
+			List<Object> values;
+			try {
+				values = batch.get();
+			} catch (ExecutionException e) {
+				for (Future<List<Object>> future : batches) {
+					future.cancel(false);
+				}
+				Throwable cause = e.getCause();
+				throw new IOException("Failed to decode shopkeeper data: " + cause.getMessage(), cause);
+			}
+			for (Object value : values) {
+				data.set(String.valueOf(ids.get(index++)), value);
+			}
+		}
+	}
+
+	@Override
+	public PreparedSave prepareSave(FileConfiguration data, Set<Integer> changedIds) throws Exception {
+		BinaryDataCodec.Encoder encoder = new BinaryDataCodec.Encoder(false);
+		Map<Integer, byte[]> updatedRows = new LinkedHashMap<>();
+		List<Integer> deletedIds = new ArrayList<>();
+		for (int shopkeeperId : changedIds) {
+			Object shopkeeperData = data.get(String.valueOf(shopkeeperId));
+			if (shopkeeperData == null) {
+				deletedIds.add(shopkeeperId);
+				continue;
+			}
+			updatedRows.put(shopkeeperId, encoder.encode(shopkeeperData));
+		}
+		int dataVersion = data.getInt(SKShopkeeperStorage.DATA_VERSION_KEY);
+
+		return () -> {
+			try (Connection connection = this.openConnection()) {
+				this.createTables(connection);
+				connection.setAutoCommit(false);
+				try {
+					if (!updatedRows.isEmpty()) {
+						try (PreparedStatement statement = connection.prepareStatement("INSERT OR REPLACE INTO shopkeepers "
+								+ "(id, data) VALUES (?, ?)")) {
+							for (Entry<Integer, byte[]> row : updatedRows.entrySet()) {
+								statement.setInt(1, row.getKey());
+								statement.setBytes(2, row.getValue());
+								statement.addBatch();
+							}
+							statement.executeBatch();
+						}
+					}
+					if (!deletedIds.isEmpty()) {
+						try (PreparedStatement statement = connection.prepareStatement("DELETE FROM shopkeepers WHERE id = ?")) {
+							for (int deletedId : deletedIds) {
+								statement.setInt(1, deletedId);
+								statement.addBatch();
+							}
+							statement.executeBatch();
+						}
+					}
+					this.setMetadata(connection, FORMAT_VERSION_KEY, FORMAT_VERSION);
+					this.setMetadata(connection, SKShopkeeperStorage.DATA_VERSION_KEY, dataVersion);
+					connection.commit();
+				} catch (SQLException e) {
+					try {
+						connection.rollback();
+					} catch (SQLException e2) {
+						Log.warning("Couldn't rollback the database transaction!", e2);
+					}
+					throw e;
+				}
+			}
+		};
+	}
+
+	@Override
+	public void backupData() throws Exception {
+		StorageFiles.backup(databaseFile);
+		// rollback journal, in case the last transaction did not complete:
+		StorageFiles.backup(new File(databaseFile.getParentFile(), databaseFile.getName() + "-journal"));
+	}
+}
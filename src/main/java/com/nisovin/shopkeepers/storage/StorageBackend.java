@@ -0,0 +1,90 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+/**
+ * Reads and writes the shopkeepers data for the {@link SKShopkeeperStorage}.
+ * <p>
+ * The shopkeeper storage keeps the data of all shopkeepers in memory: Its top level keys are the shopkeeper ids, with
+ * the data of each shopkeeper stored inside a separate config section, and the data version, which is stored under
+ * the key {@link SKShopkeeperStorage#DATA_VERSION_KEY}.
+ * <p>
+ * Saving might happen asynchronously, but there is at most one thread doing IO at the same time.
+ */
+interface StorageBackend {
+
+	/**
+	 * Gets the identifier which is used to select this storage backend in the config.
+	 * 
+	 * @return the identifier
+	 */
+	String getIdentifier();
+
+	/**
+	 * Checks whether there is any stored data.
+	 * 
+	 * @return <code>true</code> if there is stored data
+	 */
+	boolean hasData();
+
+	/**
+	 * Loads all stored data into the given (empty) config.
+	 * <p>
+	 * This gets invoked on the server's main thread. The given executor can be used to parallelize the loading, but the
+	 * given config is not thread-safe and therefore only modified by the calling thread.
+	 * 
+	 * @param data
+	 *            the config to load the data into
+	 * @param executor
+	 *            the executor that can be used for parsing the data in parallel
+	 * @throws Exception
+	 *             if the data could not be loaded
+	 */
+	void load(FileConfiguration data, ExecutorService executor) throws Exception;
+
+	/**
+	 * Prepares the storing of the given data.
+	 * <p>
+	 * This gets invoked once per save, possibly asynchronously, and is expected to serialize the data into its storage
+	 * format. The data does not get modified while the save is in progress. The actual writing happens via the returned
+	 * {@link PreparedSave}, which might get invoked again if writing fails.
+	 * <p>
+	 * Backends are free to only write the data of shopkeepers whose data has changed since the last successful save.
+	 * 
+	 * @param data
+	 *            the data of all shopkeepers
+	 * @param changedIds
+	 *            the ids of shopkeepers whose data has been updated or removed since the last successful save
+	 * @return the prepared save
+	 * @throws Exception
+	 *             if the data could not be serialized
+	 */
+	PreparedSave prepareSave(FileConfiguration data, Set<Integer> changedIds) throws Exception;
+
+	/**
+	 * Writes the serialized data of a save.
+	 */
+	interface PreparedSave {
+
+		/**
+		 * Writes the serialized data.
+		 * 
+		 * @throws Exception
+		 *             if writing fails
+		 */
+		void write() throws Exception;
+	}
+
+	/**
+	 * Moves all stored data to a backup location.
+	 * <p>
+	 * This gets used after the data has been successfully converted to a different storage backend.
+	 * 
+	 * @throws Exception
+	 *             if the data could not be moved
+	 */
+	void backupData() throws Exception;
+}
@@ -0,0 +1,361 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import com.nisovin.shopkeepers.Settings;
+import com.nisovin.shopkeepers.util.Log;
+import com.nisovin.shopkeepers.util.StringUtils;
+
+/**
+ * File related utilities shared by the file based {@link StorageBackend storage backends}.
+ * <p>
+ * Files get written by first writing to a temporary file, which then replaces the actual file. If only the temporary
+ * file exists, it is assumed to contain the latest data.
+ */
+final class StorageFiles {
+
+	// the number of top level yaml entries that get parsed together by one loading task:
+	private static final int YAML_LOADING_BATCH_SIZE = 100;
+	// the max number of batches that get read ahead of the parsing (limits the amount of unparsed text in memory):
+	private static final int YAML_LOADING_MAX_PENDING_BATCHES = 8;
+
+	private StorageFiles() {
+	}
+
+	/**
+	 * Writes the contents of a file.
+	 */
+	interface ContentWriter {
+		void write(File file) throws Exception;
+	}
+
+	static File getTempFile(File file) {
+		return new File(file.getParentFile(), file.getName() + ".temp");
+	}
+
+	static boolean exists(File file) {
+		return file.exists() || getTempFile(file).exists();
+	}
+
+	/**
+	 * Gets the file to load the data from.
+	 * <p>
+	 * If the given file does not exist, but there is a temporary file, the temporary file gets returned.
+	 * 
+	 * @param file
+	 *            the file
+	 * @return the file to load the data from, or <code>null</code> if there is no data available
+	 */
+	static File getLoadFile(File file) {
+		if (file.exists()) return file;
+		File tempFile = getTempFile(file);
+		if (tempFile.exists()) {
+			// load from temporary save file instead:
+			Log.warning("Found no save file, but an existing temporary save file! (" + tempFile.getName() + ")");
+			Log.warning("This might indicate an issue during a previous saving attempt!");
+			Log.warning("Trying to load the shopkeepers data from this temporary save file instead!");
+			return tempFile;
+		}
+		// file does not exist yet -> no data available
+		return null;
+	}
+
+	// uses the system's default charset if no file encoding is specified:
+	private static Charset getCharset() {
+		if (StringUtils.isEmpty(Settings.fileEncoding)) {
+			return Charset.defaultCharset();
+		} else {
+			return Charset.forName(Settings.fileEncoding);
+		}
+	}
+
+	private static BufferedReader newReader(File file) throws IOException {
+		return new BufferedReader(new InputStreamReader(new FileInputStream(file), getCharset()));
+	}
+
+	/**
+	 * Loads the given yaml file into the given config.
+	 * <p>
+	 * The file contents get parsed directly from the file reader, without reading the whole file into memory first.
+	 * 
+	 * @param config
+	 *            the config to load the data into
+	 * @param file
+	 *            the file
+	 * @throws Exception
+	 *             if the data could not be loaded
+	 */
+	static void loadYaml(FileConfiguration config, File file) throws Exception {
+		StreamingYamlConfiguration parsed = new StreamingYamlConfiguration();
+		try (BufferedReader reader = newReader(file)) {
+			parsed.loadFromReader(reader);
+		}
+		for (Entry<String, Object> entry : parsed.getValues(false).entrySet()) {
+			config.set(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Loads the given yaml file into the given config, parsing its top level entries in parallel.
+	 * <p>
+	 * The file gets read line by line and split into batches of top level entries, which get parsed by the given
+	 * executor. Only a limited number of batches gets read ahead of the parsing, so the unparsed text of the whole
+	 * file is not kept in memory at the same time. The parsed entries get inserted into the config in the order they
+	 * appear inside the file. If the file cannot be split this way (for example if it makes use of yaml anchors and
+	 * aliases across top level entries), it gets loaded as a whole instead.
+	 * 
+	 * @param config
+	 *            the config to load the data into
+	 * @param file
+	 *            the file
+	 * @param executor
+	 *            the executor used for parsing
+	 * @throws Exception
+	 *             if the data could not be loaded
+	 */
+	static void loadYaml(FileConfiguration config, File file, ExecutorService executor) throws Exception {
+		List<Future<YamlConfiguration>> batches = new ArrayList<>();
+		try (BufferedReader reader = newReader(file)) {
+			StringBuilder batch = new StringBuilder();
+			int batchEntries = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (isTopLevelEntry(line)) {
+					if (batchEntries == YAML_LOADING_BATCH_SIZE) {
+						batches.add(submitYamlParsing(executor, batch.toString(), batchEntries));
+						batch = new StringBuilder();
+						batchEntries = 0;
+						awaitPendingBatches(batches);
+					}
+					batchEntries++;
+				}
+				batch.append(line).append('\n');
+			}
+			if (batchEntries > 0) {
+				batches.add(submitYamlParsing(executor, batch.toString(), batchEntries));
+			}
+		}
+
+		List<YamlConfiguration> parsedBatches = new ArrayList<>(batches.size());
+		try {
+			for (Future<YamlConfiguration> batchFuture : batches) {
+				parsedBatches.add(batchFuture.get());
+			}
+		} catch (ExecutionException e) {
+			for (Future<YamlConfiguration> batchFuture : batches) {
+				batchFuture.cancel(false);
+			}
+			Log.debug("Couldn't load file '" + file.getName() + "' in parts (" + e.getCause().getMessage()
+					+ "). Loading it as a whole instead.");
+			loadYaml(config, file);
+			return;
+		}
+
+		// insert in file order:
+		for (YamlConfiguration parsedBatch : parsedBatches) {
+			for (Entry<String, Object> entry : parsedBatch.getValues(false).entrySet()) {
+				config.set(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	// waits until at most YAML_LOADING_MAX_PENDING_BATCHES of the submitted batches are still pending:
+	private static void awaitPendingBatches(List<Future<YamlConfiguration>> batches) throws InterruptedException {
+		int index = batches.size() - YAML_LOADING_MAX_PENDING_BATCHES - 1;
+		if (index < 0) return;
+		try {
+			batches.get(index).get();
+		} catch (ExecutionException e) {
+			// gets handled once all batches have been submitted
+		}
+	}
+
+	// lines that are neither indented, nor empty or comments start a new top level entry:
+	private static boolean isTopLevelEntry(String line) {
+		if (line.isEmpty()) return false;
+		char firstChar = line.charAt(0);
+		return (!Character.isWhitespace(firstChar) && firstChar != '#');
+	}
+
+	private static Future<YamlConfiguration> submitYamlParsing(ExecutorService executor, String yaml, int expectedEntries) {
+		return executor.submit(() -> {
+			YamlConfiguration parsed = new YamlConfiguration();
+			parsed.loadFromString(yaml);
+			// detect if the batch boundaries did not match the actual top level entries:
+			int entries = parsed.getKeys(false).size();
+			if (entries != expectedEntries) {
+				throw new IllegalStateException("Expected " + expectedEntries + " top level entries, but found " + entries);
+			}
+			return parsed;
+		});
+	}
+
+	/**
+	 * Writes the given (already serialized) text to the given file, using the configured file encoding.
+	 * 
+	 * @param file
+	 *            the file
+	 * @param content
+	 *            the text to write
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	static void writeText(File file, String content) throws IOException {
+		writeSafely(file, (tempFile) -> {
+			try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), getCharset())) {
+				writer.write(content);
+			}
+		});
+	}
+
+	/**
+	 * Writes the given file by first writing to a temporary file, which then replaces the given file.
+	 * <p>
+	 * The thrown exceptions only have a cause if they were caused by some unexpected exception.
+	 * 
+	 * @param file
+	 *            the file
+	 * @param contentWriter
+	 *            writes the contents to the temporary file
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	static void writeSafely(File file, ContentWriter contentWriter) throws IOException {
+		File tempFile = getTempFile(file);
+
+		// saving procedure:
+		// * if there is a temporary save file:
+		// * * if there is no save file: rename temporary save file to save file
+		// * * else: remove temporary save file
+		// * create parent directories
+		// * create new temporary save file
+		// * save data to temporary save file
+		// * remove old save file
+		// * rename temporary save file to save file
+
+		// handle already existing temporary save file:
+		if (tempFile.exists()) {
+			// check write permission:
+			if (!tempFile.canWrite()) {
+				throw new IOException("Cannot write to temporary save file! (" + tempFile.getName() + ")");
+			}
+
+			if (!file.exists()) {
+				// if only the temporary file exists, but the actual save file does not, this might indicate, that a
+				// previous saving attempt saved to the temporary file and removed the actual save file, but wasn't able
+				// to then rename the temporary file to the actual save file
+				// -> the temporary file might contain the only backup of saved data, don't remove it!
+				// -> instead we try to rename it to make it the new 'actual save file' and then continue the saving
+				// procedure
+
+				Log.warning("Found an already existing temporary save file, but no old save file! (" + tempFile.getName() + ")");
+				Log.warning("This might indicate an issue during a previous saving attempt!");
+				Log.warning("Trying to rename the temporary save file to use it as 'existing old save data', and then continue the saving!");
+
+				// rename temporary save file:
+				if (!tempFile.renameTo(file)) {
+					throw new IOException("Couldn't rename temporary save file! (" + tempFile.getName() + " to " + file.getName() + ")");
+				}
+			} else {
+				// remove old temporary save file:
+				if (!tempFile.delete()) {
+					throw new IOException("Couldn't delete existing temporary save file! (" + tempFile.getName() + ")");
+				}
+			}
+		}
+
+		// make sure that the parent directories exist:
+		File parentDir = tempFile.getParentFile();
+		if (parentDir != null && !parentDir.exists()) {
+			if (!parentDir.mkdirs()) {
+				throw new IOException("Couldn't create parent directories for temporary save file! (" + parentDir.getAbsolutePath() + ")");
+			}
+		}
+
+		// create new temporary save file:
+		try {
+			tempFile.createNewFile();
+		} catch (Exception e) {
+			throw new IOException("Couldn't create temporary save file! (" + tempFile.getName() + ") : " + e.getMessage(), e);
+		}
+
+		// write data to temporary save file:
+		try {
+			contentWriter.write(tempFile);
+		} catch (Exception e) {
+			throw new IOException("Couldn't save data to temporary save file! (" + tempFile.getName() + ") : " + e.getMessage(), e);
+		}
+
+		// delete old save file:
+		if (file.exists()) {
+			// check write permission:
+			if (!file.canWrite()) {
+				throw new IOException("Cannot write to save file! (" + file.getName() + ")");
+			}
+			// delete old save file:
+			if (!file.delete()) {
+				throw new IOException("Couldn't delete existing old save file! (" + file.getName() + ")");
+			}
+		}
+
+		// rename temporary save file:
+		if (!tempFile.renameTo(file)) {
+			throw new IOException("Couldn't rename temporary save file! (" + tempFile.getName() + " to " + file.getName() + ")");
+		}
+	}
+
+	/**
+	 * Deletes the given file and its temporary file, if they exist.
+	 * 
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 *             if a file could not be deleted
+	 */
+	static void delete(File file) throws IOException {
+		File tempFile = getTempFile(file);
+		if (tempFile.exists() && !tempFile.delete()) {
+			throw new IOException("Couldn't delete temporary save file! (" + tempFile.getName() + ")");
+		}
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Couldn't delete save file! (" + file.getName() + ")");
+		}
+	}
+
+	/**
+	 * Renames the given file (or directory) to a not yet existing backup file.
+	 * 
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 *             if the file could not be renamed
+	 */
+	static void backup(File file) throws IOException {
+		if (!file.exists()) return;
+		File backupFile = new File(file.getParentFile(), file.getName() + ".backup");
+		int index = 1;
+		while (backupFile.exists()) {
+			backupFile = new File(file.getParentFile(), file.getName() + ".backup" + (++index));
+		}
+		if (!file.renameTo(backupFile)) {
+			throw new IOException("Couldn't rename '" + file.getName() + "' to '" + backupFile.getName() + "'!");
+		}
+	}
+}
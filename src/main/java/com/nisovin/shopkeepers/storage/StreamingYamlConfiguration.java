@@ -0,0 +1,47 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.io.Reader;
+import java.util.Map;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.configuration.file.YamlConstructor;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
+
+/**
+ * A {@link YamlConfiguration} that can parse its contents directly from a {@link Reader}.
+ * <p>
+ * {@link YamlConfiguration#load(Reader)} first reads the complete input into a String, which is then parsed. This
+ * instead passes the reader to the yaml parser, so that the raw text never needs to be held in memory as a whole. The
+ * header of the input is ignored.
+ */
+class StreamingYamlConfiguration extends YamlConfiguration {
+
+	private final Yaml loadingYaml = new Yaml(new YamlConstructor());
+
+	StreamingYamlConfiguration() {
+	}
+
+	/**
+	 * Parses the yaml data from the given reader and adds it to this configuration.
+	 * 
+	 * @param reader
+	 *            the reader, does not get closed
+	 * @throws InvalidConfigurationException
+	 *             if the data is not valid yaml, or does not contain a map at its top level
+	 */
+	void loadFromReader(Reader reader) throws InvalidConfigurationException {
+		Object input;
+		try {
+			input = loadingYaml.load(reader);
+		} catch (YAMLException e) {
+			throw new InvalidConfigurationException(e);
+		}
+		if (input == null) return; // empty
+		if (!(input instanceof Map)) {
+			throw new InvalidConfigurationException("Top level is not a Map.");
+		}
+		this.convertMapsToSections((Map<?, ?>) input, this);
+	}
+}
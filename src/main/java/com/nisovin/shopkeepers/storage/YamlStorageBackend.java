@@ -0,0 +1,55 @@
+package com.nisovin.shopkeepers.storage;
+
+import java.io.File;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+/**
+ * Stores the data of all shopkeepers inside a single yaml file.
+ * <p>
+ * Every save rewrites the complete file.
+ */
+class YamlStorageBackend implements StorageBackend {
+
+	static final String IDENTIFIER = "yaml";
+
+	private final File saveFile;
+
+	YamlStorageBackend(File dataFolder) {
+		this.saveFile = new File(dataFolder, "save.yml");
+	}
+
+	@Override
+	public String getIdentifier() {
+		return IDENTIFIER;
+	}
+
+	@Override
+	public boolean hasData() {
+		return StorageFiles.exists(saveFile);
+	}
+
+	@Override
+	public void load(FileConfiguration data, ExecutorService executor) throws Exception {
+		File loadFile = StorageFiles.getLoadFile(saveFile);
+		if (loadFile == null) {
+			// save file does not exist yet -> no shopkeeper data available
+			return;
+		}
+		StorageFiles.loadYaml(data, loadFile, executor);
+	}
+
+	@Override
+	public PreparedSave prepareSave(FileConfiguration data, Set<Integer> changedIds) throws Exception {
+		String content = data.saveToString();
+		return () -> StorageFiles.writeText(saveFile, content);
+	}
+
+	@Override
+	public void backupData() throws Exception {
+		StorageFiles.backup(saveFile);
+		StorageFiles.backup(StorageFiles.getTempFile(saveFile));
+	}
+}
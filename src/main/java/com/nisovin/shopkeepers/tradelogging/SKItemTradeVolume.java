@@ -0,0 +1,42 @@
+package com.nisovin.shopkeepers.tradelogging;
+
+import java.time.LocalDate;
+
+import org.bukkit.Material;
+
+import com.nisovin.shopkeepers.api.tradelogging.ItemTradeVolume;
+
+class SKItemTradeVolume implements ItemTradeVolume {
+
+	private final LocalDate day;
+	private final Material itemType;
+	private final int tradesCount;
+	private final int itemAmount;
+
+	SKItemTradeVolume(LocalDate day, Material itemType, int tradesCount, int itemAmount) {
+		this.day = day;
+		this.itemType = itemType;
+		this.tradesCount = tradesCount;
+		this.itemAmount = itemAmount;
+	}
+
+	@Override
+	public LocalDate getDay() {
+		return day;
+	}
+
+	@Override
+	public Material getItemType() {
+		return itemType;
+	}
+
+	@Override
+	public int getTradesCount() {
+		return tradesCount;
+	}
+
+	@Override
+	public int getItemAmount() {
+		return itemAmount;
+	}
+}
@@ -0,0 +1,385 @@
+package com.nisovin.shopkeepers.tradelogging;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
+import com.nisovin.shopkeepers.Settings;
+import com.nisovin.shopkeepers.api.events.ShopkeeperTradeEvent;
+import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
+import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
+import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
+import com.nisovin.shopkeepers.api.tradelogging.ItemTradeVolume;
+import com.nisovin.shopkeepers.api.tradelogging.TradeHistory;
+import com.nisovin.shopkeepers.api.tradelogging.TradeRecord;
+import com.nisovin.shopkeepers.shopkeeper.SKDefaultShopTypes;
+import com.nisovin.shopkeepers.util.ItemUtils;
+import com.nisovin.shopkeepers.util.Log;
+
+/**
+ * Records the trades inside an embedded SQLite database (trades.db), with the traded items being fully serialized.
+ * <p>
+ * The trades are indexed by time, shopkeeper and player. All database access happens on a single background thread:
+ * New trades get queued and are then inserted in batches. Since queries get executed on the same thread, they include
+ * all trades that got recorded before them.
+ * <p>
+ * The SQLite JDBC driver is provided by the server.
+ */
+public class SKTradeHistory implements TradeHistory, Listener {
+
+	private static final String DRIVER_CLASS = "org.sqlite.JDBC";
+	private static final int QUEUE_CAPACITY = 10000;
+	private static final int MAX_BATCH_SIZE = 500;
+	private static final long STOP_TIMEOUT_SECONDS = 10L;
+	private static final String TRADE_COLUMNS = "time, player_uuid, player_name, shop_uuid, shop_type, owner_uuid, world, x, y, z, "
+			+ "result_item, item1, item2";
+
+	@FunctionalInterface
+	private interface Query<T> {
+		public T execute(Connection connection) throws SQLException;
+	}
+
+	private final SKShopkeepersPlugin plugin;
+	private final BlockingQueue<SKTradeRecord> pendingTrades = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+	private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+	private final AtomicInteger droppedTrades = new AtomicInteger(0);
+	private ExecutorService executor = null; // null if disabled
+	private Connection connection = null; // only accessed by the executor thread, null if not available
+
+	public SKTradeHistory(SKShopkeepersPlugin plugin) {
+		this.plugin = plugin;
+	}
+
+	public void onEnable() {
+		if (!Settings.enableTradeHistory) return;
+		executor = Executors.newSingleThreadExecutor((runnable) -> {
+			Thread thread = new Thread(runnable, "Shopkeepers-TradeHistory");
+			thread.setDaemon(true);
+			return thread;
+		});
+		File databaseFile = new File(plugin.getDataFolder(), "trades.db");
+		executor.execute(() -> this.openDatabase(databaseFile));
+		Bukkit.getPluginManager().registerEvents(this, plugin);
+	}
+
+	public void onDisable() {
+		if (executor == null) return;
+		HandlerList.unregisterAll(this);
+		// write the remaining trades and close the database:
+		executor.execute(this::writePendingTrades);
+		executor.execute(this::closeDatabase);
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				Log.warning("Trade history did not finish within " + STOP_TIMEOUT_SECONDS + " seconds! Some trades might not have been recorded.");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		executor = null;
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return (executor != null);
+	}
+
+	// DATABASE (executor thread)
+
+	private void openDatabase(File databaseFile) {
+		try {
+			Class.forName(DRIVER_CLASS);
+			File parentDir = databaseFile.getParentFile();
+			if (parentDir != null && !parentDir.exists()) {
+				parentDir.mkdirs();
+			}
+			connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+			try (Statement statement = connection.createStatement()) {
+				statement.executeUpdate("CREATE TABLE IF NOT EXISTS trades ("
+						+ "id INTEGER PRIMARY KEY, "
+						+ "time INTEGER NOT NULL, "
+						+ "player_uuid TEXT NOT NULL, "
+						+ "player_name TEXT NOT NULL, "
+						+ "shop_uuid TEXT NOT NULL, "
+						+ "shop_type TEXT NOT NULL, "
+						+ "owner_uuid TEXT, "
+						+ "world TEXT, "
+						+ "x INTEGER NOT NULL, "
+						+ "y INTEGER NOT NULL, "
+						+ "z INTEGER NOT NULL, "
+						+ "traded_type TEXT NOT NULL, "
+						+ "traded_amount INTEGER NOT NULL, "
+						+ "result_item TEXT NOT NULL, "
+						+ "item1 TEXT NOT NULL, "
+						+ "item2 TEXT)");
+				statement.executeUpdate("CREATE INDEX IF NOT EXISTS trades_time ON trades (time)");
+				statement.executeUpdate("CREATE INDEX IF NOT EXISTS trades_shop ON trades (shop_uuid, time)");
+				statement.executeUpdate("CREATE INDEX IF NOT EXISTS trades_player ON trades (player_uuid, time)");
+				statement.executeUpdate("CREATE INDEX IF NOT EXISTS trades_player_name ON trades (player_name COLLATE NOCASE, time)");
+			}
+		} catch (ClassNotFoundException | SQLException e) {
+			Log.severe("Could not open the trade history database! Trades will not be recorded.", e);
+			this.closeDatabase();
+		}
+	}
+
+	private void closeDatabase() {
+		if (connection == null) return;
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			Log.severe("Could not close the trade history database!", e);
+		}
+		connection = null;
+	}
+
+	private void writePendingTrades() {
+		writeScheduled.set(false);
+		List<SKTradeRecord> batch = new ArrayList<>(MAX_BATCH_SIZE);
+		while (pendingTrades.drainTo(batch, MAX_BATCH_SIZE) > 0) {
+			if (connection != null) {
+				this.insertTrades(batch);
+			}
+			batch.clear();
+		}
+
+		int dropped = droppedTrades.getAndSet(0);
+		if (dropped > 0) {
+			Log.warning("Trade history queue is full: Dropped " + dropped + " trades!");
+		}
+	}
+
+	private void insertTrades(List<SKTradeRecord> trades) {
+		assert connection != null;
+		try {
+			connection.setAutoCommit(false);
+			try (PreparedStatement statement = connection.prepareStatement("INSERT INTO trades (" + TRADE_COLUMNS
+					+ ", traded_type, traded_amount) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+				for (SKTradeRecord trade : trades) {
+					ItemStack tradedItem = this.getTradedItem(trade);
+					statement.setLong(1, trade.getTimestamp());
+					statement.setString(2, trade.getPlayerUUID().toString());
+					statement.setString(3, trade.getPlayerName());
+					statement.setString(4, trade.getShopkeeperUUID().toString());
+					statement.setString(5, trade.getShopTypeId());
+					statement.setString(6, (trade.getOwnerUUID() == null ? null : trade.getOwnerUUID().toString()));
+					statement.setString(7, trade.getWorldName());
+					statement.setInt(8, trade.getX());
+					statement.setInt(9, trade.getY());
+					statement.setInt(10, trade.getZ());
+					statement.setString(11, trade.getResultItemData());
+					statement.setString(12, trade.getItem1Data());
+					statement.setString(13, trade.getItem2Data());
+					statement.setString(14, tradedItem.getType().name());
+					statement.setInt(15, tradedItem.getAmount());
+					statement.addBatch();
+				}
+				statement.executeBatch();
+			}
+			connection.commit();
+		} catch (SQLException e) {
+			Log.severe("Could not record " + trades.size() + " trades in the trade history database!", e);
+			try {
+				connection.rollback();
+			} catch (SQLException e2) {
+				// ignore
+			}
+		} finally {
+			try {
+				connection.setAutoCommit(true);
+			} catch (SQLException e) {
+				// ignore
+			}
+		}
+	}
+
+	// the item that got traded by the shop, excluding the currency: for buying shops this is the bought item
+	private ItemStack getTradedItem(SKTradeRecord trade) {
+		if (SKDefaultShopTypes.PLAYER_BUYING().getIdentifier().equals(trade.getShopTypeId())) {
+			return trade.getItem1Unsafe();
+		}
+		return trade.getResultItemUnsafe();
+	}
+
+	// RECORDING
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onTradeCompleted(ShopkeeperTradeEvent event) {
+		Player player = event.getPlayer();
+		Shopkeeper shopkeeper = event.getShopkeeper();
+		UUID ownerUUID = (shopkeeper instanceof PlayerShopkeeper) ? ((PlayerShopkeeper) shopkeeper).getOwnerUUID() : null;
+
+		TradingRecipe tradingRecipe = event.getTradingRecipe();
+		ItemStack requiredItem1 = tradingRecipe.getItem1();
+		ItemStack requiredItem2 = tradingRecipe.getItem2();
+
+		// record the actually used items (which might have additional data), with the required amounts:
+		Inventory inventory = event.getClickEvent().getInventory();
+		ItemStack usedItem1 = ItemUtils.getNullIfEmpty(inventory.getItem(0));
+		ItemStack usedItem2 = ItemUtils.getNullIfEmpty(inventory.getItem(1));
+		if (usedItem1 == null) {
+			usedItem1 = usedItem2;
+			usedItem2 = null;
+		}
+		ItemStack item1 = (usedItem1 != null ? usedItem1 : requiredItem1).clone();
+		item1.setAmount(requiredItem1.getAmount());
+		ItemStack item2 = null;
+		if (requiredItem2 != null) {
+			item2 = (usedItem2 != null ? usedItem2 : requiredItem2).clone();
+			item2.setAmount(requiredItem2.getAmount());
+		}
+
+		// the items get serialized asynchronously:
+		this.record(new SKTradeRecord(System.currentTimeMillis(), player.getUniqueId(), player.getName(),
+				shopkeeper.getUniqueId(), shopkeeper.getType().getIdentifier(), ownerUUID,
+				shopkeeper.getWorldName(), shopkeeper.getX(), shopkeeper.getY(), shopkeeper.getZ(),
+				tradingRecipe.getResultItem(), item1, item2));
+	}
+
+	private void record(SKTradeRecord trade) {
+		if (executor == null) return;
+		if (!pendingTrades.offer(trade)) {
+			droppedTrades.incrementAndGet();
+		}
+		if (writeScheduled.compareAndSet(false, true)) {
+			executor.execute(this::writePendingTrades);
+		}
+	}
+
+	// QUERIES
+
+	private <T> CompletableFuture<T> query(Query<T> query, T emptyResult) {
+		if (executor == null) {
+			return CompletableFuture.completedFuture(emptyResult);
+		}
+		CompletableFuture<T> future = new CompletableFuture<>();
+		try {
+			executor.execute(() -> {
+				if (connection == null) {
+					future.completeExceptionally(new IllegalStateException("The trade history database is not available!"));
+					return;
+				}
+				try {
+					future.complete(query.execute(connection));
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// trade history got disabled in the meantime:
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	private CompletableFuture<List<TradeRecord>> queryTrades(String column, String value, long fromTime, long toTime, int offset, int limit) {
+		return this.query((connection) -> {
+			List<TradeRecord> trades = new ArrayList<>();
+			String sql = "SELECT " + TRADE_COLUMNS + " FROM trades WHERE " + (column != null ? column + " = ? AND " : "")
+					+ "time >= ? AND time < ? ORDER BY time DESC LIMIT ? OFFSET ?";
+			try (PreparedStatement statement = connection.prepareStatement(sql)) {
+				int index = 1;
+				if (column != null) {
+					statement.setString(index++, value);
+				}
+				statement.setLong(index++, fromTime);
+				statement.setLong(index++, toTime);
+				statement.setInt(index++, limit);
+				statement.setInt(index++, offset);
+				try (ResultSet result = statement.executeQuery()) {
+					while (result.next()) {
+						String ownerUUID = result.getString(6);
+						trades.add(new SKTradeRecord(result.getLong(1), UUID.fromString(result.getString(2)), result.getString(3),
+								UUID.fromString(result.getString(4)), result.getString(5), (ownerUUID == null ? null : UUID.fromString(ownerUUID)),
+								result.getString(7), result.getInt(8), result.getInt(9), result.getInt(10),
+								result.getString(11), result.getString(12), result.getString(13)));
+					}
+				}
+			}
+			return trades;
+		}, Collections.emptyList());
+	}
+
+	@Override
+	public CompletableFuture<List<TradeRecord>> getTradesByShopkeeper(UUID shopkeeperUUID, long fromTime, long toTime, int offset, int limit) {
+		return this.queryTrades("shop_uuid", shopkeeperUUID.toString(), fromTime, toTime, offset, limit);
+	}
+
+	@Override
+	public CompletableFuture<List<TradeRecord>> getTradesByPlayer(UUID playerUUID, long fromTime, long toTime, int offset, int limit) {
+		return this.queryTrades("player_uuid", playerUUID.toString(), fromTime, toTime, offset, limit);
+	}
+
+	@Override
+	public CompletableFuture<UUID> getPlayerUUID(String playerName) {
+		return this.query((connection) -> {
+			String sql = "SELECT player_uuid FROM trades WHERE player_name = ? COLLATE NOCASE ORDER BY time DESC LIMIT 1";
+			try (PreparedStatement statement = connection.prepareStatement(sql)) {
+				statement.setString(1, playerName);
+				try (ResultSet result = statement.executeQuery()) {
+					return (result.next() ? UUID.fromString(result.getString(1)) : null);
+				}
+			}
+		}, null);
+	}
+
+	@Override
+	public CompletableFuture<List<TradeRecord>> getTrades(long fromTime, long toTime, int offset, int limit) {
+		return this.queryTrades(null, null, fromTime, toTime, offset, limit);
+	}
+
+	@Override
+	public CompletableFuture<List<ItemTradeVolume>> getDailyItemVolumes(UUID shopkeeperUUID, long fromTime, long toTime) {
+		return this.query((connection) -> {
+			List<ItemTradeVolume> volumes = new ArrayList<>();
+			String sql = "SELECT date(time / 1000, 'unixepoch', 'localtime') AS day, traded_type, COUNT(*), SUM(traded_amount) "
+					+ "FROM trades WHERE " + (shopkeeperUUID != null ? "shop_uuid = ? AND " : "")
+					+ "time >= ? AND time < ? GROUP BY day, traded_type ORDER BY day DESC, traded_type";
+			try (PreparedStatement statement = connection.prepareStatement(sql)) {
+				int index = 1;
+				if (shopkeeperUUID != null) {
+					statement.setString(index++, shopkeeperUUID.toString());
+				}
+				statement.setLong(index++, fromTime);
+				statement.setLong(index++, toTime);
+				try (ResultSet result = statement.executeQuery()) {
+					while (result.next()) {
+						Material itemType = Material.getMaterial(result.getString(2));
+						if (itemType == null) continue; // no longer existing item type
+						volumes.add(new SKItemTradeVolume(LocalDate.parse(result.getString(1)), itemType, result.getInt(3), result.getInt(4)));
+					}
+				}
+			}
+			return volumes;
+		}, Collections.emptyList());
+	}
+}
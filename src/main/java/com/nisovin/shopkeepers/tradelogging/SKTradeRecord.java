@@ -0,0 +1,198 @@
+package com.nisovin.shopkeepers.tradelogging;
+
+import java.util.UUID;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.inventory.ItemStack;
+
+import com.nisovin.shopkeepers.api.tradelogging.TradeRecord;
+import com.nisovin.shopkeepers.util.Log;
+
+/**
+ * A recorded trade.
+ * <p>
+ * The items get only serialized (for new trades) or deserialized (for loaded trades) once they are requested. This
+ * allows the serialization of new trades to happen asynchronously.
+ */
+class SKTradeRecord implements TradeRecord {
+
+	private static final String ITEM_KEY = "item";
+
+	static String serializeItem(ItemStack item) {
+		if (item == null) return null;
+		YamlConfiguration config = new YamlConfiguration();
+		config.set(ITEM_KEY, item);
+		return config.saveToString();
+	}
+
+	// returns null if the item could not be deserialized
+	static ItemStack deserializeItem(String itemData) {
+		if (itemData == null) return null;
+		YamlConfiguration config = new YamlConfiguration();
+		try {
+			config.loadFromString(itemData);
+		} catch (InvalidConfigurationException e) {
+			Log.warning("Could not deserialize item of recorded trade!", e);
+			return null;
+		}
+		return config.getItemStack(ITEM_KEY);
+	}
+
+	private final long timestamp;
+	private final UUID playerUUID;
+	private final String playerName;
+	private final UUID shopkeeperUUID;
+	private final String shopTypeId;
+	private final UUID ownerUUID; // null for admin shops
+	private final String worldName;
+	private final int x;
+	private final int y;
+	private final int z;
+	// either the items or their serialized data get lazily set:
+	private ItemStack resultItem = null;
+	private ItemStack item1 = null;
+	private ItemStack item2 = null; // can be null
+	private String resultItemData = null;
+	private String item1Data = null;
+	private String item2Data = null; // can be null
+
+	// new trade: the items are expected to not get modified afterwards
+	SKTradeRecord(	long timestamp, UUID playerUUID, String playerName, UUID shopkeeperUUID, String shopTypeId, UUID ownerUUID,
+					String worldName, int x, int y, int z, ItemStack resultItem, ItemStack item1, ItemStack item2) {
+		this(timestamp, playerUUID, playerName, shopkeeperUUID, shopTypeId, ownerUUID, worldName, x, y, z);
+		this.resultItem = resultItem;
+		this.item1 = item1;
+		this.item2 = item2;
+	}
+
+	// loaded trade:
+	SKTradeRecord(	long timestamp, UUID playerUUID, String playerName, UUID shopkeeperUUID, String shopTypeId, UUID ownerUUID,
+					String worldName, int x, int y, int z, String resultItemData, String item1Data, String item2Data) {
+		this(timestamp, playerUUID, playerName, shopkeeperUUID, shopTypeId, ownerUUID, worldName, x, y, z);
+		this.resultItemData = resultItemData;
+		this.item1Data = item1Data;
+		this.item2Data = item2Data;
+	}
+
+	private SKTradeRecord(	long timestamp, UUID playerUUID, String playerName, UUID shopkeeperUUID, String shopTypeId,
+							UUID ownerUUID, String worldName, int x, int y, int z) {
+		this.timestamp = timestamp;
+		this.playerUUID = playerUUID;
+		this.playerName = playerName;
+		this.shopkeeperUUID = shopkeeperUUID;
+		this.shopTypeId = shopTypeId;
+		this.ownerUUID = ownerUUID;
+		this.worldName = worldName;
+		this.x = x;
+		this.y = y;
+		this.z = z;
+	}
+
+	@Override
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public UUID getPlayerUUID() {
+		return playerUUID;
+	}
+
+	@Override
+	public String getPlayerName() {
+		return playerName;
+	}
+
+	@Override
+	public UUID getShopkeeperUUID() {
+		return shopkeeperUUID;
+	}
+
+	@Override
+	public String getShopTypeId() {
+		return shopTypeId;
+	}
+
+	@Override
+	public UUID getOwnerUUID() {
+		return ownerUUID;
+	}
+
+	@Override
+	public String getWorldName() {
+		return worldName;
+	}
+
+	@Override
+	public int getX() {
+		return x;
+	}
+
+	@Override
+	public int getY() {
+		return y;
+	}
+
+	@Override
+	public int getZ() {
+		return z;
+	}
+
+	synchronized String getResultItemData() {
+		if (resultItemData == null) {
+			resultItemData = serializeItem(resultItem);
+		}
+		return resultItemData;
+	}
+
+	synchronized String getItem1Data() {
+		if (item1Data == null) {
+			item1Data = serializeItem(item1);
+		}
+		return item1Data;
+	}
+
+	synchronized String getItem2Data() {
+		if (item2Data == null) {
+			item2Data = serializeItem(item2);
+		}
+		return item2Data;
+	}
+
+	// returns the result item without copying it
+	synchronized ItemStack getResultItemUnsafe() {
+		if (resultItem == null) {
+			resultItem = deserializeItem(resultItemData);
+		}
+		return resultItem;
+	}
+
+	@Override
+	public ItemStack getResultItem() {
+		ItemStack resultItem = this.getResultItemUnsafe();
+		return (resultItem == null ? null : resultItem.clone());
+	}
+
+	// returns the first item without copying it
+	synchronized ItemStack getItem1Unsafe() {
+		if (item1 == null) {
+			item1 = deserializeItem(item1Data);
+		}
+		return item1;
+	}
+
+	@Override
+	public ItemStack getItem1() {
+		ItemStack item1 = this.getItem1Unsafe();
+		return (item1 == null ? null : item1.clone());
+	}
+
+	@Override
+	public synchronized ItemStack getItem2() {
+		if (item2 == null) {
+			item2 = deserializeItem(item2Data);
+		}
+		return (item2 == null ? null : item2.clone());
+	}
+}
@@ -1,47 +1,57 @@
 package com.nisovin.shopkeepers.tradelogging;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
+import com.nisovin.shopkeepers.SKShopkeepersPlugin;
 import com.nisovin.shopkeepers.Settings;
 import com.nisovin.shopkeepers.api.events.ShopkeeperTradeEvent;
 import com.nisovin.shopkeepers.api.shopkeeper.Shopkeeper;
 import com.nisovin.shopkeepers.api.shopkeeper.TradingRecipe;
 import com.nisovin.shopkeepers.api.shopkeeper.player.PlayerShopkeeper;
 import com.nisovin.shopkeepers.util.ItemUtils;
-import com.nisovin.shopkeepers.util.Log;
 import com.nisovin.shopkeepers.util.Utils;
 
 /**
  * Logs purchases to files.
+ * <p>
+ * The log entries get prepared on the main thread, and are then written to the files by a {@link TradeLogWriter} in
+ * the background.
  */
 public class TradeFileLogger implements Listener {
 
-	private static final String FILE_NAME_PREFIX = "purchases-";
-	private static final DateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd");
-	private static final DateFormat TIME_FORMAT = new SimpleDateFormat("HH:mm:ss");
+	private final SKShopkeepersPlugin plugin;
+	private TradeLogWriter writer = null;
 
-	private final File dataFolder;
+	public TradeFileLogger(SKShopkeepersPlugin plugin) {
+		this.plugin = plugin;
+	}
 
-	public TradeFileLogger(File dataFolder) {
-		this.dataFolder = dataFolder;
+	public void onEnable() {
+		if (!Settings.enablePurchaseLogging) return;
+		long maxFileSize = Settings.purchaseLogMaxFileSize * 1024L * 1024L;
+		writer = new TradeLogWriter(plugin.getDataFolder(), maxFileSize);
+		writer.start();
+		Bukkit.getPluginManager().registerEvents(this, plugin);
+	}
+
+	public void onDisable() {
+		if (writer == null) return;
+		HandlerList.unregisterAll(this);
+		// writes the remaining queued entries:
+		writer.stop();
+		writer = null;
 	}
 
 	@EventHandler(priority = EventPriority.MONITOR)
 	void onTradeCompleted(ShopkeeperTradeEvent event) {
-		if (!Settings.enablePurchaseLogging || event.isCancelled()) {
+		if (writer == null || event.isCancelled()) {
 			return;
 		}
 		Player player = event.getPlayer();
@@ -61,23 +71,14 @@ public class TradeFileLogger implements Listener {
 			usedItem2 = null;
 		}
 
-		// TODO fully serialize the traded items? (metadata)
-		// TODO do the file writing async
-		Date now = new Date();
-		File file = new File(dataFolder, FILE_NAME_PREFIX + DATE_FORMAT.format(now) + ".csv");
-		boolean isNew = !file.exists();
-		try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, true))) {
-			if (isNew) writer.append("TIME,PLAYER,SHOP ID,SHOP TYPE,SHOP POS,OWNER,ITEM TYPE,DATA,QUANTITY,CURRENCY 1,CURRENCY 1 AMOUNT,CURRENCY 2,CURRENCY 2 AMOUNT\n");
-			writer.append("\"" + TIME_FORMAT.format(now) + "\",\"" + Utils.getPlayerAsString(player) + "\",\"" + shopkeeper.getUniqueId()
-					+ "\",\"" + shopkeeper.getType().getIdentifier() + "\",\"" + shopkeeper.getPositionString() + "\",\"" + ownerString
-					+ "\",\"" + resultItem.getType().name() + "\",\"" + ItemUtils.getDurability(resultItem) + "\",\"" + resultItem.getAmount()
-					+ "\",\"" + (usedItem1 != null ? usedItem1.getType().name() + ":" + ItemUtils.getDurability(usedItem1) : "")
-					+ "\",\"" + (requiredItem1.getAmount())
-					+ "\",\"" + (usedItem2 != null ? usedItem2.getType().name() + ":" + ItemUtils.getDurability(usedItem2) : "")
-					+ "\",\"" + (requiredItem2 != null ? requiredItem2.getAmount() : "")
-					+ "\"\n");
-		} catch (IOException e) {
-			Log.severe("IO exception while trying to log purchase", e);
-		}
+		// note: the trade history (if enabled) records the fully serialized items
+		writer.log(System.currentTimeMillis(), "\"" + Utils.getPlayerAsString(player) + "\",\"" + shopkeeper.getUniqueId()
+				+ "\",\"" + shopkeeper.getType().getIdentifier() + "\",\"" + shopkeeper.getPositionString() + "\",\"" + ownerString
+				+ "\",\"" + resultItem.getType().name() + "\",\"" + ItemUtils.getDurability(resultItem) + "\",\"" + resultItem.getAmount()
+				+ "\",\"" + (usedItem1 != null ? usedItem1.getType().name() + ":" + ItemUtils.getDurability(usedItem1) : "")
+				+ "\",\"" + (requiredItem1.getAmount())
+				+ "\",\"" + (usedItem2 != null ? usedItem2.getType().name() + ":" + ItemUtils.getDurability(usedItem2) : "")
+				+ "\",\"" + (requiredItem2 != null ? requiredItem2.getAmount() : "")
+				+ "\"");
 	}
 }
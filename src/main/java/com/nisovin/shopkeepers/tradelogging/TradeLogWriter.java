@@ -0,0 +1,230 @@
+package com.nisovin.shopkeepers.tradelogging;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.Validate;
+
+import com.nisovin.shopkeepers.util.Log;
+
+/**
+ * Writes trade log entries to csv files on a background thread.
+ * <p>
+ * The entries get queued in a bounded queue and are then written in batches, keeping the current log file open in
+ * between. If the queue is full, new entries get dropped and the number of dropped entries gets reported. The log files
+ * get rotated daily, and once they exceed the maximum file size (if there is one).
+ */
+class TradeLogWriter {
+
+	private static final String FILE_NAME_PREFIX = "purchases-";
+	private static final String FILE_NAME_SUFFIX = ".csv";
+	private static final String CSV_HEADER = "TIME,PLAYER,SHOP ID,SHOP TYPE,SHOP POS,OWNER,ITEM TYPE,DATA,QUANTITY,CURRENCY 1,CURRENCY 1 AMOUNT,CURRENCY 2,CURRENCY 2 AMOUNT\n";
+
+	private static final int QUEUE_CAPACITY = 10000;
+	private static final int MAX_BATCH_SIZE = 500;
+	private static final long STOP_TIMEOUT_MILLIS = 5000L;
+
+	private static class Entry {
+
+		private final long timestamp;
+		private final String data; // the csv columns following the time
+
+		Entry(long timestamp, String data) {
+			this.timestamp = timestamp;
+			this.data = data;
+		}
+	}
+
+	private final File logFolder;
+	private final long maxFileSize; // in bytes, 0 for no limit
+	private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+	private final AtomicInteger droppedEntries = new AtomicInteger(0);
+	private volatile boolean running = false;
+	private Thread thread = null;
+
+	// only used by the writer thread:
+	private final DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+	private final DateFormat timeFormat = new SimpleDateFormat("HH:mm:ss");
+	private String currentDate = null;
+	private int currentFileIndex = 0;
+	private File currentFile = null;
+	private long currentFileSize = 0L; // in bytes (UTF-8 encoded)
+	private Writer writer = null;
+
+	/**
+	 * Creates a new trade log writer.
+	 * 
+	 * @param logFolder
+	 *            the folder to write the log files to
+	 * @param maxFileSize
+	 *            the size in bytes after which the log files get rotated, or <code>0</code> to only rotate them daily
+	 */
+	TradeLogWriter(File logFolder, long maxFileSize) {
+		Validate.notNull(logFolder, "Log folder is null!");
+		Validate.isTrue(maxFileSize >= 0, "Max file size cannot be negative!");
+		this.logFolder = logFolder;
+		this.maxFileSize = maxFileSize;
+	}
+
+	public void start() {
+		if (running) return;
+		running = true;
+		thread = new Thread(this::run, "Shopkeepers-TradeLog");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops the writer thread, after it has written all remaining queued entries.
+	 */
+	public void stop() {
+		if (!running) return;
+		running = false;
+		thread.interrupt(); // wakes the thread up if it is waiting for new entries
+		try {
+			thread.join(STOP_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (thread.isAlive()) {
+			Log.warning("Trade log writer did not finish within " + STOP_TIMEOUT_MILLIS + " ms! Some trades might not have been logged.");
+		}
+		thread = null;
+	}
+
+	/**
+	 * Queues a log entry.
+	 * <p>
+	 * This does not block: If the queue is full, the entry gets dropped.
+	 * 
+	 * @param timestamp
+	 *            the time of the trade
+	 * @param data
+	 *            the csv columns following the time column, without line break
+	 */
+	public void log(long timestamp, String data) {
+		if (!queue.offer(new Entry(timestamp, data))) {
+			droppedEntries.incrementAndGet();
+		}
+	}
+
+	private void run() {
+		List<Entry> batch = new ArrayList<>(MAX_BATCH_SIZE);
+		while (running || !queue.isEmpty()) {
+			try {
+				Entry entry = queue.poll(1L, TimeUnit.SECONDS);
+				if (entry == null) continue;
+				batch.add(entry);
+			} catch (InterruptedException e) {
+				// stop requested: continue with writing the remaining entries
+				continue;
+			}
+			queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+			this.writeBatch(batch);
+			batch.clear();
+
+			int dropped = droppedEntries.getAndSet(0);
+			if (dropped > 0) {
+				Log.warning("Trade log queue is full: Dropped " + dropped + " trade log entries!");
+			}
+		}
+		this.closeFile();
+	}
+
+	private void writeBatch(List<Entry> batch) {
+		try {
+			for (Entry entry : batch) {
+				Date date = new Date(entry.timestamp);
+				this.prepareFile(dateFormat.format(date));
+				String time = timeFormat.format(date);
+				writer.append('"').append(time).append("\",").append(entry.data).append('\n');
+				// the time is plain ascii, the data might contain player, shop or item names with other characters:
+				currentFileSize += time.length() + getEncodedLength(entry.data) + 4;
+			}
+			writer.flush();
+		} catch (IOException e) {
+			Log.severe("IO exception while writing the trade log to " + currentFile + "! " + batch.size() + " trades might not have been logged.", e);
+			this.closeFile();
+		}
+	}
+
+	// opens the log file for the given date, and rotates to a new file if the current file got too large
+	private void prepareFile(String date) throws IOException {
+		if (writer != null) {
+			if (!date.equals(currentDate)) {
+				this.closeFile();
+			} else if (maxFileSize > 0 && currentFileSize >= maxFileSize) {
+				this.closeFile();
+				currentFileIndex++;
+			}
+		}
+		if (writer == null) {
+			if (!date.equals(currentDate)) {
+				currentDate = date;
+				currentFileIndex = 0;
+			}
+			// skip already full files (ex. from before a restart):
+			File file = this.getLogFile(currentDate, currentFileIndex);
+			while (maxFileSize > 0 && file.length() >= maxFileSize) {
+				file = this.getLogFile(currentDate, ++currentFileIndex);
+			}
+			boolean isNew = !file.exists();
+			currentFile = file;
+			currentFileSize = file.length();
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+			if (isNew) {
+				writer.append(CSV_HEADER);
+				currentFileSize += getEncodedLength(CSV_HEADER);
+			}
+		}
+	}
+
+	// the number of bytes of the given text in UTF-8 encoding, without encoding it:
+	static int getEncodedLength(String text) {
+		int length = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c < 0x80) {
+				length += 1;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+				length += 4;
+				i++; // skip the low surrogate
+			} else {
+				// note: the encoder replaces unpaired surrogates with '?', which is a single byte
+				length += (Character.isSurrogate(c) ? 1 : 3);
+			}
+		}
+		return length;
+	}
+
+	private File getLogFile(String date, int index) {
+		String fileName = FILE_NAME_PREFIX + date + (index == 0 ? "" : "-" + index) + FILE_NAME_SUFFIX;
+		return new File(logFolder, fileName);
+	}
+
+	private void closeFile() {
+		if (writer == null) return;
+		try {
+			writer.close();
+		} catch (IOException e) {
+			Log.severe("IO exception while closing the trade log file " + currentFile, e);
+		}
+		writer = null;
+	}
+}
@@ -146,6 +146,23 @@ public class SKUIRegistry extends AbstractTypeRegistry<AbstractUIType> implement
 		session.getUIHandler().onInventoryClose(session.getPlayer(), closeEvent); // inform UI handler
 	}
 
+	/**
+	 * Checks if any player has currently an UI of the given shopkeeper open.
+	 * 
+	 * @param shopkeeper
+	 *            the shopkeeper
+	 * @return <code>true</code> if there is at least one UI session for the given shopkeeper
+	 */
+	public boolean hasSessions(Shopkeeper shopkeeper) {
+		if (shopkeeper == null) return false;
+		for (SKUISession session : playerSessions.values()) {
+			if (session.getShopkeeper().equals(shopkeeper)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	@Override
 	public void closeAll(Shopkeeper shopkeeper) {
 		if (shopkeeper == null) return;
@@ -117,7 +117,23 @@ public class TradingHandler extends UIHandler {
 	protected static final int BUY_ITEM_2_SLOT_ID = 1;
 	protected static final int RESULT_ITEM_SLOT_ID = 2;
 
-	private final Map<UUID, Merchant> merchants = new HashMap<>();
+	private static class MerchantData {
+
+		private final Merchant merchant;
+		// the version of the shopkeeper's trading recipes that the merchant recipes are based on:
+		private int recipesVersion;
+
+		MerchantData(Merchant merchant, int recipesVersion) {
+			this.merchant = merchant;
+			this.recipesVersion = recipesVersion;
+		}
+	}
+
+	private final Map<UUID, MerchantData> merchants = new HashMap<>();
+	// only used if the recipes are shared, null if not yet created:
+	private List<TradingRecipe> sharedTradingRecipes = null;
+	private List<MerchantRecipe> sharedMerchantRecipes = null; // created lazily for the shared trading recipes
+	private int sharedRecipesVersion;
 
 	// counts the trades triggered by the last click-event:
 	protected int tradeCounter = 0;
@@ -127,7 +143,8 @@ public class TradingHandler extends UIHandler {
 	}
 
 	protected Merchant getMerchant(Player player) {
-		return merchants.get(player.getUniqueId());
+		MerchantData merchantData = merchants.get(player.getUniqueId());
+		return (merchantData == null ? null : merchantData.merchant);
 	}
 
 	@Override
@@ -144,16 +161,32 @@ public class TradingHandler extends UIHandler {
 	@Override
 	protected boolean openWindow(Player player) {
 		// create and open trading window:
-		Shopkeeper shopkeeper = this.getShopkeeper();
 		String title = this.getInventoryTitle();
-		List<TradingRecipe> recipes = shopkeeper.getTradingRecipes(player);
+		List<TradingRecipe> recipes = this.getTradingRecipes(player);
 		return this.openTradeWindow(title, recipes, player);
 	}
 
+	// gets the shared trading recipes if the recipes are shared:
+	private List<TradingRecipe> getTradingRecipes(Player player) {
+		AbstractShopkeeper shopkeeper = this.getShopkeeper();
+		if (!this.isSharingMerchantRecipes()) {
+			return shopkeeper.getTradingRecipes(player);
+		}
+
+		int recipesVersion = shopkeeper.getTradingRecipesVersion();
+		if (sharedTradingRecipes == null || sharedRecipesVersion != recipesVersion) {
+			sharedTradingRecipes = shopkeeper.getTradingRecipes(player);
+			sharedMerchantRecipes = null;
+			sharedRecipesVersion = recipesVersion;
+		}
+		return sharedTradingRecipes;
+	}
+
 	protected boolean openTradeWindow(String title, List<TradingRecipe> recipes, Player player) {
 		// setup merchant:
+		int recipesVersion = this.getShopkeeper().getTradingRecipesVersion();
 		Merchant merchant = this.setupMerchant(title, recipes);
-		merchants.put(player.getUniqueId(), merchant);
+		merchants.put(player.getUniqueId(), new MerchantData(merchant, recipesVersion));
 
 		// increase 'talked-to-villager' statistic:
 		player.incrementStatistic(Statistic.TALKED_TO_VILLAGER);
@@ -171,11 +204,38 @@ public class TradingHandler extends UIHandler {
 
 	protected void setupMerchantRecipes(Merchant merchant, List<TradingRecipe> recipes) {
 		// create list of merchant recipes:
-		List<MerchantRecipe> merchantRecipes = this.createMerchantRecipes(recipes);
+		List<MerchantRecipe> merchantRecipes;
+		if (this.isSharingMerchantRecipes() && recipes == sharedTradingRecipes) {
+			merchantRecipes = this.getSharedMerchantRecipes();
+		} else {
+			merchantRecipes = this.createMerchantRecipes(recipes);
+		}
 		// set merchant's recipes:
 		merchant.setRecipes(merchantRecipes);
 	}
 
+	/**
+	 * Checks whether the merchant recipes get shared by the trading windows of all players.
+	 * <p>
+	 * This is only suitable if the trading recipes are the same for all players. The trading recipes and the merchant
+	 * recipes created from them get shared, and are reused until the
+	 * {@link AbstractShopkeeper#getTradingRecipesVersion() trading recipes version} of the shopkeeper changes.
+	 * 
+	 * @return <code>true</code> if the merchant recipes get shared
+	 */
+	protected boolean isSharingMerchantRecipes() {
+		return false;
+	}
+
+	// the merchants copy the given recipes, so the same merchant recipes can be used for all merchants:
+	private List<MerchantRecipe> getSharedMerchantRecipes() {
+		assert sharedTradingRecipes != null;
+		if (sharedMerchantRecipes == null) {
+			sharedMerchantRecipes = Collections.unmodifiableList(this.createMerchantRecipes(sharedTradingRecipes));
+		}
+		return sharedMerchantRecipes;
+	}
+
 	protected List<MerchantRecipe> createMerchantRecipes(List<TradingRecipe> recipes) {
 		List<MerchantRecipe> merchantRecipes = new ArrayList<>();
 		for (TradingRecipe recipe : recipes) {
@@ -209,26 +269,57 @@ public class TradingHandler extends UIHandler {
 	}
 
 	protected void updateTrades(Player player) {
-		Merchant merchant = this.getMerchant(player);
-		if (merchant == null) return;
+		MerchantData merchantData = merchants.get(player.getUniqueId());
+		if (merchantData == null) return;
+
+		// skip the update if the trading recipes did not change since the merchant recipes got set up:
+		AbstractShopkeeper shopkeeper = this.getShopkeeper();
+		int recipesVersion = shopkeeper.getTradingRecipesVersion();
+		if (merchantData.recipesVersion == recipesVersion) return;
+		merchantData.recipesVersion = recipesVersion;
+
+		Merchant merchant = merchantData.merchant;
 		List<MerchantRecipe> oldMerchantRecipes = merchant.getRecipes();
+		int oldRecipesCount = oldMerchantRecipes.size();
+		List<TradingRecipe> recipes = this.getTradingRecipes(player);
+		int recipesCount = recipes.size();
+
+		// keep the merchant recipes that did not change:
+		List<MerchantRecipe> newMerchantRecipes = new ArrayList<>(Math.max(recipesCount, oldRecipesCount));
+		boolean changed = false;
+		for (int i = 0; i < recipesCount; ++i) {
+			MerchantRecipe merchantRecipe = this.createMerchantRecipe(recipes.get(i));
+			MerchantRecipe oldMerchantRecipe = (i < oldRecipesCount ? oldMerchantRecipes.get(i) : null);
+			// note: dummy recipes have no result item
+			if (oldMerchantRecipe != null && oldMerchantRecipe.getResult() != null
+					&& ShopkeeperUtils.areMerchantRecipesEqual(oldMerchantRecipe, merchantRecipe)) {
+				newMerchantRecipes.add(oldMerchantRecipe);
+			} else {
+				newMerchantRecipes.add(merchantRecipe);
+				changed = true;
+			}
+		}
 
-		Shopkeeper shopkeeper = this.getShopkeeper();
-		List<TradingRecipe> recipes = shopkeeper.getTradingRecipes(player);
-		List<MerchantRecipe> newMerchantRecipes = this.createMerchantRecipes(recipes);
-		if (ShopkeeperUtils.areMerchantRecipesEqual(oldMerchantRecipes, newMerchantRecipes)) {
+		// it is not safe to reduce the number of trading recipes for the player, so we need to add dummy recipes:
+		// TODO check if this still applies in MC 1.14
+		for (int i = recipesCount; i < oldRecipesCount; ++i) {
+			MerchantRecipe oldMerchantRecipe = oldMerchantRecipes.get(i);
+			if (oldMerchantRecipe.getResult() == null) {
+				// already a dummy recipe:
+				newMerchantRecipes.add(oldMerchantRecipe);
+			} else {
+				// TODO API doesn't expect null here (but works).. use something else?
+				newMerchantRecipes.add(new MerchantRecipe(null, 0, 0, false));
+				changed = true;
+			}
+		}
+
+		if (!changed) {
 			Log.debug("Trades are still up-to-date for player " + player.getName());
 			return; // recipes did not change
 		}
 		Log.debug("Updating trades for player " + player.getName());
 
-		// it is not safe to reduce the number of trading recipes for the player, so we need to add dummy recipes:
-		// TODO check if this still applies in MC 1.14
-		for (int i = recipes.size(); i < oldMerchantRecipes.size(); ++i) {
-			// TODO API doesn't expect null here (but works).. use something else?
-			MerchantRecipe merchantRecipe = new MerchantRecipe(null, 0, 0, false);
-			newMerchantRecipes.add(merchantRecipe);
-		}
 		// set merchant's recipes:
 		merchant.setRecipes(newMerchantRecipes);
 
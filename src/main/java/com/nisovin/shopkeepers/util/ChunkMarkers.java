@@ -0,0 +1,94 @@
+package com.nisovin.shopkeepers.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps track of the chunks that contain certain marked blocks (ex. shop blocks), so that it can be quickly checked
+ * whether a chunk contains any of those blocks.
+ * <p>
+ * The same chunk can be marked multiple times, and stays marked until all marks got removed again. Lookups don't
+ * allocate any objects.
+ */
+public class ChunkMarkers {
+
+	// the number of marks by world name and chunk key:
+	private final Map<String, LongObjectHashMap<Integer>> worlds = new HashMap<>();
+
+	public static long getChunkKey(int chunkX, int chunkZ) {
+		return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+	}
+
+	public void add(String worldName, int chunkX, int chunkZ) {
+		LongObjectHashMap<Integer> chunks = worlds.get(worldName);
+		if (chunks == null) {
+			chunks = new LongObjectHashMap<>();
+			worlds.put(worldName, chunks);
+		}
+		long chunkKey = getChunkKey(chunkX, chunkZ);
+		Integer marks = chunks.get(chunkKey);
+		chunks.put(chunkKey, (marks == null ? 1 : marks + 1));
+	}
+
+	public void remove(String worldName, int chunkX, int chunkZ) {
+		LongObjectHashMap<Integer> chunks = worlds.get(worldName);
+		if (chunks == null) return;
+		long chunkKey = getChunkKey(chunkX, chunkZ);
+		Integer marks = chunks.get(chunkKey);
+		if (marks == null) return;
+		if (marks <= 1) {
+			chunks.remove(chunkKey);
+			if (chunks.isEmpty()) {
+				worlds.remove(worldName);
+			}
+		} else {
+			chunks.put(chunkKey, marks - 1);
+		}
+	}
+
+	public void clear() {
+		worlds.clear();
+	}
+
+	/**
+	 * Checks if the specified chunk is marked.
+	 * 
+	 * @param worldName
+	 *            the world name
+	 * @param chunkX
+	 *            the chunk x coordinate
+	 * @param chunkZ
+	 *            the chunk z coordinate
+	 * @return <code>true</code> if the chunk is marked
+	 */
+	public boolean isMarked(String worldName, int chunkX, int chunkZ) {
+		LongObjectHashMap<Integer> chunks = worlds.get(worldName);
+		return (chunks != null && chunks.containsKey(getChunkKey(chunkX, chunkZ)));
+	}
+
+	/**
+	 * Checks if the chunk of the specified block, or the chunk of any of its adjacent blocks (N, E, S, W), is marked.
+	 * 
+	 * @param worldName
+	 *            the world name
+	 * @param x
+	 *            the block's x coordinate
+	 * @param z
+	 *            the block's z coordinate
+	 * @return <code>true</code> if any of these chunks is marked, <code>false</code> if neither the block nor any of
+	 *         its adjacent blocks can be a marked block
+	 */
+	public boolean isMarkedNearby(String worldName, int x, int z) {
+		LongObjectHashMap<Integer> chunks = worlds.get(worldName);
+		if (chunks == null) return false;
+		int chunkX = (x >> 4);
+		int chunkZ = (z >> 4);
+		if (chunks.containsKey(getChunkKey(chunkX, chunkZ))) return true;
+		// adjacent blocks in neighboring chunks:
+		if ((x & 15) == 0 && chunks.containsKey(getChunkKey(chunkX - 1, chunkZ))) return true;
+		if ((x & 15) == 15 && chunks.containsKey(getChunkKey(chunkX + 1, chunkZ))) return true;
+		if ((z & 15) == 0 && chunks.containsKey(getChunkKey(chunkX, chunkZ - 1))) return true;
+		if ((z & 15) == 15 && chunks.containsKey(getChunkKey(chunkX, chunkZ + 1))) return true;
+		return false;
+	}
+}
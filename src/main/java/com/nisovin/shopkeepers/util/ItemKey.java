@@ -0,0 +1,61 @@
+package com.nisovin.shopkeepers.util;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * A hash key for items, which considers items to be equal if they are {@link ItemStack#isSimilar(ItemStack) similar}.
+ * <p>
+ * The hash code is derived from the item type and item meta only (ignoring the stack size) and gets computed once, when
+ * the key is created. Matching hash codes get confirmed by a full similarity check.
+ * <p>
+ * The key does not copy the given item, so the item is expected to not get modified afterwards.
+ */
+public final class ItemKey {
+
+	private final ItemStack item;
+	private final int hash;
+
+	/**
+	 * Creates a new item key.
+	 * 
+	 * @param item
+	 *            the item, not <code>null</code>
+	 */
+	public ItemKey(ItemStack item) {
+		Validate.notNull(item, "Item is null!");
+		this.item = item;
+		this.hash = ItemUtils.getSimilarityHash(item);
+	}
+
+	// the given item is expected to be similar to the item of the given key:
+	ItemKey(ItemStack item, ItemKey similarKey) {
+		this.item = item;
+		this.hash = similarKey.hash;
+	}
+
+	/**
+	 * Gets the item of this key.
+	 * <p>
+	 * This is not a copy, so it must not be modified.
+	 * 
+	 * @return the item
+	 */
+	public ItemStack getItem() {
+		return item;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof ItemKey)) return false;
+		ItemKey other = (ItemKey) obj;
+		if (hash != other.hash) return false;
+		return item.isSimilar(other.item);
+	}
+}
@@ -0,0 +1,63 @@
+package com.nisovin.shopkeepers.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+/**
+ * Matches items by their type, and optionally by their display name and lore.
+ * <p>
+ * This matches the same items as {@link ItemUtils#isSimilar(ItemStack, Material, String, List)}, but is meant to be set
+ * up once and then reused for many items (ex. when scanning inventory contents): Items of a different type get rejected
+ * without accessing their item meta, and the item meta gets only copied once, even if both the display name and the
+ * lore are compared.
+ */
+public final class ItemMatcher {
+
+	private final Material type;
+	private final String displayName; // null if not compared
+	private final List<String> lore; // null if not compared
+
+	/**
+	 * Creates a new item matcher.
+	 * 
+	 * @param type
+	 *            the item type, not <code>null</code>
+	 * @param displayName
+	 *            the (already colorized) display name, or <code>null</code> or empty to ignore the display name
+	 * @param lore
+	 *            the (already colorized) lore, or <code>null</code> or empty to ignore the lore
+	 */
+	public ItemMatcher(Material type, String displayName, List<String> lore) {
+		Validate.notNull(type, "Type is null!");
+		this.type = type;
+		this.displayName = (StringUtils.isEmpty(displayName) ? null : displayName);
+		this.lore = ((lore == null || lore.isEmpty()) ? null : Collections.unmodifiableList(new ArrayList<>(lore)));
+	}
+
+	public boolean matches(ItemStack item) {
+		if (item == null || item.getType() != type) return false;
+		if (displayName == null && lore == null) return true;
+		if (!item.hasItemMeta()) return false;
+
+		ItemMeta itemMeta = item.getItemMeta();
+		if (itemMeta == null) return false;
+		if (displayName != null) {
+			if (!itemMeta.hasDisplayName() || !displayName.equals(itemMeta.getDisplayName())) {
+				return false;
+			}
+		}
+		if (lore != null) {
+			// only checked after the display name, since getting the lore copies it:
+			if (!itemMeta.hasLore() || !lore.equals(itemMeta.getLore())) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -1,7 +1,9 @@
 package com.nisovin.shopkeepers.util;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang.Validate;
 import org.bukkit.Bukkit;
@@ -231,6 +233,24 @@ public final class ItemUtils {
 		return item1.isSimilar(item2);
 	}
 
+	/**
+	 * Gets a hash code for the given item that is consistent with {@link ItemStack#isSimilar(ItemStack)}.
+	 * <p>
+	 * Unlike {@link ItemStack#hashCode()} this ignores the stack size. Since this needs to create a copy of the item's
+	 * meta data, it is rather costly for items with meta data and the result should be cached (see {@link ItemKey}).
+	 * 
+	 * @param item
+	 *            the item, not <code>null</code>
+	 * @return the hash code
+	 */
+	public static int getSimilarityHash(ItemStack item) {
+		int hash = item.getType().hashCode();
+		if (item.hasItemMeta()) {
+			hash = 31 * hash + item.getItemMeta().hashCode();
+		}
+		return hash;
+	}
+
 	/**
 	 * Checks if the given item matches the specified attributes.
 	 * 
@@ -326,45 +346,56 @@ public final class ItemUtils {
 	// inventory utilities:
 
 	public static List<ItemCount> countItems(ItemStack[] contents, Filter<ItemStack> filter) {
-		List<ItemCount> itemCounts = new ArrayList<>();
+		return new ArrayList<>(countItemsByKey(contents, filter).values());
+	}
+
+	/**
+	 * Counts the items of the given contents, grouped by similar items.
+	 * 
+	 * @param contents
+	 *            the contents, can be <code>null</code>
+	 * @param filter
+	 *            the filter for the items to count, or <code>null</code> to count all items
+	 * @return the item counts, in the order of their first occurrence in the contents
+	 */
+	public static Map<ItemKey, ItemCount> countItemsByKey(ItemStack[] contents, Filter<ItemStack> filter) {
+		Map<ItemKey, ItemCount> itemCounts = new LinkedHashMap<>();
 		if (contents == null) return itemCounts;
 		for (ItemStack item : contents) {
 			if (isEmpty(item)) continue;
 			if (filter != null && !filter.accept(item)) continue;
 
 			// check if we already have a counter for this type of item:
-			ItemCount itemCount = ItemCount.findSimilar(itemCounts, item);
+			ItemKey itemKey = new ItemKey(item);
+			ItemCount itemCount = itemCounts.get(itemKey);
 			if (itemCount != null) {
 				// increase item count:
 				itemCount.addAmount(item.getAmount());
 			} else {
-				// add new item entry:
-				itemCounts.add(new ItemCount(item, item.getAmount()));
+				// add new item entry (keyed by the counter's own copy of the item):
+				itemCount = new ItemCount(item, item.getAmount());
+				itemCounts.put(new ItemKey(itemCount.getItem(), itemKey), itemCount);
 			}
 		}
 		return itemCounts;
 	}
 
 	/**
-	 * Checks if the given contents contains at least the specified amount of items matching the specified attributes.
+	 * Checks if the given contents contains at least the specified amount of items matching the given item matcher.
 	 * 
 	 * @param contents
 	 *            the contents to search through
-	 * @param type
-	 *            the item type
-	 * @param displayName
-	 *            the displayName, or <code>null</code> to ignore it
-	 * @param lore
-	 *            the item lore, or <code>null</code> or empty to ignore it
+	 * @param itemMatcher
+	 *            the item matcher
 	 * @param amount
 	 *            the amount of items to look for
 	 * @return <code>true</code> if the at least specified amount of matching items was found
 	 */
-	public static boolean containsAtLeast(ItemStack[] contents, Material type, String displayName, List<String> lore, int amount) {
+	public static boolean containsAtLeast(ItemStack[] contents, ItemMatcher itemMatcher, int amount) {
 		if (contents == null) return false;
 		int remainingAmount = amount;
 		for (ItemStack itemStack : contents) {
-			if (!isSimilar(itemStack, type, displayName, lore)) continue;
+			if (!itemMatcher.matches(itemStack)) continue;
 			int currentAmount = itemStack.getAmount() - remainingAmount;
 			if (currentAmount >= 0) {
 				return true;
@@ -376,26 +407,22 @@ public final class ItemUtils {
 	}
 
 	/**
-	 * Removes the specified amount of items which match the specified attributes from the given contents.
+	 * Removes the specified amount of items which match the given item matcher from the given contents.
 	 * 
 	 * @param contents
 	 *            the contents
-	 * @param type
-	 *            the item type
-	 * @param displayName
-	 *            the display name, or <code>null</code> to ignore it
-	 * @param lore
-	 *            the item lore, or <code>null</code> or empty to ignore it
+	 * @param itemMatcher
+	 *            the item matcher
 	 * @param amount
 	 *            the amount of matching items to remove
 	 * @return the amount of items that couldn't be removed (<code>0</code> on full success)
 	 */
-	public static int removeItems(ItemStack[] contents, Material type, String displayName, List<String> lore, int amount) {
+	public static int removeItems(ItemStack[] contents, ItemMatcher itemMatcher, int amount) {
 		if (contents == null) return amount;
 		int remainingAmount = amount;
 		for (int slotId = 0; slotId < contents.length; slotId++) {
 			ItemStack itemStack = contents[slotId];
-			if (!isSimilar(itemStack, type, displayName, lore)) continue;
+			if (!itemMatcher.matches(itemStack)) continue;
 			int newAmount = itemStack.getAmount() - remainingAmount;
 			if (newAmount > 0) {
 				itemStack.setAmount(newAmount);
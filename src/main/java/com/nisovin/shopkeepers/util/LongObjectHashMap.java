@@ -0,0 +1,177 @@
+package com.nisovin.shopkeepers.util;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * A hash map with primitive <code>long</code> keys.
+ * <p>
+ * This uses open addressing with linear probing, so that lookups neither box the keys nor allocate any other objects.
+ * Values cannot be <code>null</code>.
+ * 
+ * @param <V>
+ *            the type of the values
+ */
+public class LongObjectHashMap<V> {
+
+	private static final int MIN_CAPACITY = 16;
+	private static final float LOAD_FACTOR = 0.5F;
+
+	private long[] keys;
+	private Object[] values; // null for free slots
+	private int mask;
+	private int size = 0;
+	private int resizeThreshold;
+
+	public LongObjectHashMap() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * Creates a new map.
+	 * 
+	 * @param expectedSize
+	 *            the number of entries the map is expected to hold
+	 */
+	public LongObjectHashMap(int expectedSize) {
+		Validate.isTrue(expectedSize >= 0, "Expected size cannot be negative!");
+		int capacity = MIN_CAPACITY;
+		while (capacity * LOAD_FACTOR < expectedSize) {
+			capacity <<= 1;
+		}
+		this.allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+		resizeThreshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	private int getSlot(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+
+	// returns the slot of the given key, or -1 if the key is not contained
+	private int findSlot(long key) {
+		int slot = this.getSlot(key);
+		while (values[slot] != null) {
+			if (keys[slot] == key) return slot;
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return (size == 0);
+	}
+
+	public boolean containsKey(long key) {
+		return (this.findSlot(key) != -1);
+	}
+
+	/**
+	 * Gets the value for the given key.
+	 * 
+	 * @param key
+	 *            the key
+	 * @return the value, or <code>null</code> if there is no value for the given key
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		int slot = this.findSlot(key);
+		return (slot == -1 ? null : (V) values[slot]);
+	}
+
+	/**
+	 * Sets the value for the given key.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value, not <code>null</code>
+	 * @return the previous value, or <code>null</code> if there was no value for the given key
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		Validate.notNull(value, "Value is null!");
+		int slot = this.getSlot(key);
+		while (values[slot] != null) {
+			if (keys[slot] == key) {
+				V oldValue = (V) values[slot];
+				values[slot] = value;
+				return oldValue;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		if (++size > resizeThreshold) {
+			this.resize(keys.length << 1);
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the value for the given key.
+	 * 
+	 * @param key
+	 *            the key
+	 * @return the removed value, or <code>null</code> if there was no value for the given key
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(long key) {
+		int slot = this.findSlot(key);
+		if (slot == -1) return null;
+		V oldValue = (V) values[slot];
+		values[slot] = null;
+		size--;
+
+		// shift back the following entries of the same probe sequence, so that no tombstones are required:
+		int freeSlot = slot;
+		slot = (slot + 1) & mask;
+		while (values[slot] != null) {
+			int idealSlot = this.getSlot(keys[slot]);
+			// move the entry if its ideal slot is not located cyclically within (freeSlot, slot]:
+			boolean move = (freeSlot <= slot) ? (idealSlot <= freeSlot || idealSlot > slot) : (idealSlot <= freeSlot && idealSlot > slot);
+			if (move) {
+				keys[freeSlot] = keys[slot];
+				values[freeSlot] = values[slot];
+				values[slot] = null;
+				freeSlot = slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return oldValue;
+	}
+
+	public void clear() {
+		if (size == 0) return;
+		if (keys.length > MIN_CAPACITY) {
+			this.allocate(MIN_CAPACITY);
+		} else {
+			for (int i = 0; i < values.length; ++i) {
+				values[i] = null;
+			}
+		}
+		size = 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void resize(int capacity) {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		this.allocate(capacity);
+		size = 0;
+		for (int i = 0; i < oldValues.length; ++i) {
+			if (oldValues[i] != null) {
+				this.put(oldKeys[i], (V) oldValues[i]);
+			}
+		}
+	}
+}
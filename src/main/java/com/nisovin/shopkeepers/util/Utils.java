@@ -152,6 +152,23 @@ public final class Utils {
 		return block.getLocation().add(0.5D, 0.5D, 0.5D);
 	}
 
+	/**
+	 * Packs the given block coordinates into a single <code>long</code>.
+	 * <p>
+	 * This uses 26 bits for the x and z coordinates and 12 bits for the y coordinate.
+	 * 
+	 * @param x
+	 *            the block's x coordinate
+	 * @param y
+	 *            the block's y coordinate
+	 * @param z
+	 *            the block's z coordinate
+	 * @return the block key
+	 */
+	public static long getBlockKey(int x, int y, int z) {
+		return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+	}
+
 	public enum BlockFaceDirections {
 		// order matters for operations like yaw to block face
 		CARDINAL(Arrays.asList(BlockFace.SOUTH, BlockFace.WEST, BlockFace.NORTH, BlockFace.EAST)),
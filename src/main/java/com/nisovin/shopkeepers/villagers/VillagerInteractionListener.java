@@ -97,7 +97,7 @@ public class VillagerInteractionListener implements Listener {
 			int costs = Settings.hireOtherVillagersCosts;
 			if (costs > 0) {
 				ItemStack[] storageContents = playerInventory.getStorageContents();
-				if (ItemUtils.containsAtLeast(storageContents, Settings.hireItem, Settings.hireItemName, Settings.hireItemLore, costs)) {
+				if (ItemUtils.containsAtLeast(storageContents, Settings.getHireItemMatcher(), costs)) {
 					Log.debug("  Villager hiring: the player has the needed amount of hiring items");
 					int inHandAmount = itemInMainHand.getAmount();
 					int remaining = inHandAmount - costs;
@@ -108,7 +108,7 @@ public class VillagerInteractionListener implements Listener {
 						playerInventory.setItemInMainHand(null); // remove item in hand
 						if (remaining < 0) {
 							// remove remaining costs from inventory:
-							ItemUtils.removeItems(storageContents, Settings.hireItem, Settings.hireItemName, Settings.hireItemLore, -remaining);
+							ItemUtils.removeItems(storageContents, Settings.getHireItemMatcher(), -remaining);
 							// apply the change to the player's inventory:
 							playerInventory.setStorageContents(storageContents);
 						}
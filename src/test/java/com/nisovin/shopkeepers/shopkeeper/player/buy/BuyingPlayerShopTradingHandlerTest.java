@@ -0,0 +1,82 @@
+package com.nisovin.shopkeepers.shopkeeper.player.buy;
+
+import static com.nisovin.shopkeepers.testutil.TestEnvironment.createItem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nisovin.shopkeepers.Settings;
+import com.nisovin.shopkeepers.testutil.TestEnvironment;
+
+public class BuyingPlayerShopTradingHandlerTest {
+
+	@Before
+	public void setUp() {
+		TestEnvironment.setUp();
+	}
+
+	private static ItemStack currency(int amount) {
+		return createItem(Settings.currencyItem, amount, null, null);
+	}
+
+	private static ItemStack highCurrency(int amount) {
+		return createItem(Settings.highCurrencyItem, amount, null, null);
+	}
+
+	@Test
+	public void testPartialStacksFirst() {
+		ItemStack fullStack = currency(64);
+		ItemStack partialStack = currency(10);
+		ItemStack[] contents = new ItemStack[] { fullStack, partialStack, null };
+		assertEquals(0, BuyingPlayerShopTradingHandler.removeCurrencyItems(contents, 5));
+		assertSame(fullStack, contents[0]);
+		assertEquals(5, contents[1].getAmount());
+		// the original item is left unmodified:
+		assertEquals(10, partialStack.getAmount());
+	}
+
+	@Test
+	public void testMultipleStacks() {
+		ItemStack[] contents = new ItemStack[] { currency(3), currency(64), currency(2) };
+		assertEquals(0, BuyingPlayerShopTradingHandler.removeCurrencyItems(contents, 10));
+		assertNull(contents[0]);
+		assertEquals(59, contents[1].getAmount());
+		assertNull(contents[2]);
+	}
+
+	@Test
+	public void testHighCurrencyWithChange() {
+		ItemStack[] contents = new ItemStack[] { currency(2), highCurrency(1), createItem(Material.DIRT, 1, null, null) };
+		assertEquals(0, BuyingPlayerShopTradingHandler.removeCurrencyItems(contents, 5));
+		// the change gets added to the first empty slot:
+		assertEquals(Settings.currencyItem, contents[0].getType());
+		assertEquals(Settings.highCurrencyValue - 3, contents[0].getAmount());
+		assertNull(contents[1]);
+		assertEquals(Material.DIRT, contents[2].getType());
+	}
+
+	@Test
+	public void testNotEnoughCurrency() {
+		ItemStack lowStack = currency(2);
+		ItemStack highStack = highCurrency(1);
+		ItemStack[] contents = new ItemStack[] { lowStack, highStack };
+		int missing = 20 - (2 + Settings.highCurrencyValue);
+		assertEquals(missing, BuyingPlayerShopTradingHandler.removeCurrencyItems(contents, 20));
+		// the contents are left untouched:
+		assertSame(lowStack, contents[0]);
+		assertSame(highStack, contents[1]);
+		assertEquals(2, lowStack.getAmount());
+	}
+
+	@Test
+	public void testNoSpaceForChange() {
+		ItemStack[] contents = new ItemStack[] { highCurrency(2), createItem(Material.DIRT, 64, null, null) };
+		assertEquals(-(Settings.highCurrencyValue - 1), BuyingPlayerShopTradingHandler.removeCurrencyItems(contents, 1));
+		assertEquals(1, contents[0].getAmount());
+	}
+}
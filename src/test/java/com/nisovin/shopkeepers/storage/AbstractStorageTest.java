@@ -0,0 +1,97 @@
+package com.nisovin.shopkeepers.storage;
+
+import static com.nisovin.shopkeepers.testutil.ConfigTestUtils.addShopkeeperData;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+
+import com.nisovin.shopkeepers.testutil.TestEnvironment;
+
+/**
+ * Base class for the storage tests.
+ * <p>
+ * This provides a temporary data folder, an executor for loading the data, and some example save data.
+ */
+public abstract class AbstractStorageTest {
+
+	// spans multiple loading batches:
+	protected static final int MANY_SHOPKEEPERS = 250;
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	protected File dataFolder;
+	protected ExecutorService executor;
+
+	@Before
+	public void setUpStorage() throws Exception {
+		TestEnvironment.setUp();
+		dataFolder = tempFolder.newFolder("data");
+		executor = Executors.newFixedThreadPool(2);
+	}
+
+	@After
+	public void tearDownStorage() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Creates save data with example data for the shopkeepers with ids from <code>1</code> to the given count.
+	 * 
+	 * @param shopkeepersCount
+	 *            the number of shopkeepers
+	 * @return the save data
+	 */
+	protected static FileConfiguration createData(int shopkeepersCount) {
+		FileConfiguration data = createData();
+		for (int id = 1; id <= shopkeepersCount; id++) {
+			addShopkeeperData(data, id);
+		}
+		return data;
+	}
+
+	/**
+	 * Creates save data with example data for the shopkeepers with the given ids.
+	 * 
+	 * @param shopkeeperIds
+	 *            the shopkeeper ids
+	 * @return the save data
+	 */
+	protected static FileConfiguration createData(List<Integer> shopkeeperIds) {
+		FileConfiguration data = createData();
+		for (int id : shopkeeperIds) {
+			addShopkeeperData(data, id);
+		}
+		return data;
+	}
+
+	private static FileConfiguration createData() {
+		FileConfiguration data = new YamlConfiguration();
+		data.set(SKShopkeeperStorage.DATA_VERSION_KEY, 1);
+		return data;
+	}
+
+	/**
+	 * Loads the data of the given storage backend into new save data.
+	 * 
+	 * @param backend
+	 *            the storage backend
+	 * @return the loaded data
+	 * @throws Exception
+	 *             if the loading fails
+	 */
+	protected FileConfiguration load(StorageBackend backend) throws Exception {
+		FileConfiguration loaded = new YamlConfiguration();
+		backend.load(loaded, executor);
+		return loaded;
+	}
+}
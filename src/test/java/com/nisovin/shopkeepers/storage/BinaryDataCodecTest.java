@@ -0,0 +1,124 @@
+package com.nisovin.shopkeepers.storage;
+
+import static com.nisovin.shopkeepers.testutil.ConfigTestUtils.getLeafValues;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.bukkit.inventory.ItemStack;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nisovin.shopkeepers.testutil.TestEnvironment;
+
+public class BinaryDataCodecTest {
+
+	@Before
+	public void setUp() {
+		TestEnvironment.setUp();
+	}
+
+	private static Object roundTrip(Object value) throws IOException {
+		byte[] encoded = new BinaryDataCodec.Encoder(false).encode(value);
+		return new BinaryDataCodec.Decoder(new ArrayList<>(0)).decode(encoded);
+	}
+
+	@Test
+	public void testPrimitiveValues() throws IOException {
+		assertNull(roundTrip(null));
+		assertEquals("text \u00e4\u00f6\u00fc", roundTrip("text \u00e4\u00f6\u00fc"));
+		assertEquals("", roundTrip(""));
+		assertEquals(-5, roundTrip(-5));
+		assertEquals(Long.MAX_VALUE, roundTrip(Long.MAX_VALUE));
+		assertEquals(12.25D, roundTrip(12.25D));
+		assertEquals(true, roundTrip(true));
+		// stored like yaml would load them:
+		assertEquals(7, roundTrip((short) 7));
+		assertEquals(3, roundTrip((byte) 3));
+		assertEquals(1.5D, roundTrip(1.5F));
+		assertEquals("c", roundTrip('c'));
+	}
+
+	@Test
+	public void testCollections() throws IOException {
+		List<Object> list = Arrays.asList("a", 1, Arrays.asList(2L, null), Collections.singletonMap("key", "value"));
+		assertEquals(list, roundTrip(list));
+		LinkedHashSet<Object> set = new LinkedHashSet<>(Arrays.asList("b", "a"));
+		assertEquals(set, roundTrip(set));
+	}
+
+	@Test
+	public void testSections() throws IOException {
+		MemoryConfiguration data = new MemoryConfiguration();
+		data.set("name", "Shop");
+		data.set("object.type", "villager");
+		data.set("offers.1.price", 5);
+		data.set("lore", Arrays.asList("a", "b"));
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("nested", 1);
+		data.set("map", map);
+
+		Object decoded = roundTrip(data);
+		assertTrue(decoded instanceof ConfigurationSection);
+		ConfigurationSection decodedSection = (ConfigurationSection) decoded;
+		// maps inside of sections get loaded as sections:
+		assertTrue(decodedSection.isConfigurationSection("map"));
+		data.set("map", null);
+		data.set("map.nested", 1);
+		assertEquals(getLeafValues(data), getLeafValues(decodedSection));
+		assertEquals(data.getKeys(false).toString(), decodedSection.getKeys(false).toString());
+	}
+
+	@Test
+	public void testItemDeduplication() throws IOException {
+		ItemStack item = TestEnvironment.createItem(Material.DIAMOND, 3, "Gem", null);
+		MemoryConfiguration data = new MemoryConfiguration();
+		data.set("offers.1.item", item);
+		data.set("offers.2.item", item.clone());
+		data.set("offers.3.item", TestEnvironment.createItem(Material.DIAMOND, 3, "Other gem", null));
+
+		BinaryDataCodec.Encoder encoder = new BinaryDataCodec.Encoder(true);
+		byte[] encoded = encoder.encode(data);
+		assertEquals(2, encoder.getItems().size());
+
+		ConfigurationSection decoded = (ConfigurationSection) new BinaryDataCodec.Decoder(encoder.getItems()).decode(encoded);
+		ItemStack firstItem = decoded.getItemStack("offers.1.item");
+		ItemStack secondItem = decoded.getItemStack("offers.2.item");
+		assertEquals(item, firstItem);
+		assertEquals(item, secondItem);
+		// every reference gets its own copy:
+		assertNotSame(firstItem, secondItem);
+		assertEquals("Other gem", decoded.getItemStack("offers.3.item").getItemMeta().getDisplayName());
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidTag() throws IOException {
+		new BinaryDataCodec.Decoder(new ArrayList<>(0)).decode(new byte[] { 99 });
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidItemReference() throws IOException {
+		ItemStack item = TestEnvironment.createItem(Material.STONE, 1, null, null);
+		byte[] encoded = new BinaryDataCodec.Encoder(true).encode(item);
+		new BinaryDataCodec.Decoder(new ArrayList<>(0)).decode(encoded);
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedData() throws IOException {
+		byte[] encoded = new BinaryDataCodec.Encoder(false).encode(Arrays.asList("a", "b"));
+		new BinaryDataCodec.Decoder(new ArrayList<>(0)).decode(Arrays.copyOf(encoded, encoded.length - 1));
+	}
+}
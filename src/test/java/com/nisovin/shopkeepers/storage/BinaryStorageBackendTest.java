@@ -0,0 +1,79 @@
+package com.nisovin.shopkeepers.storage;
+
+import static com.nisovin.shopkeepers.testutil.ConfigTestUtils.getLeafValues;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BinaryStorageBackendTest extends AbstractStorageTest {
+
+	private File saveFile;
+
+	@Before
+	public void setUp() {
+		saveFile = new File(dataFolder, "save.dat");
+	}
+
+	@Test
+	public void testNoData() throws Exception {
+		BinaryStorageBackend backend = new BinaryStorageBackend(dataFolder);
+		assertFalse(backend.hasData());
+		assertTrue(this.load(backend).getKeys(false).isEmpty());
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		BinaryStorageBackend backend = new BinaryStorageBackend(dataFolder);
+		FileConfiguration data = createData(MANY_SHOPKEEPERS);
+		backend.prepareSave(data, Collections.emptySet()).write();
+		assertTrue(backend.hasData());
+
+		FileConfiguration loaded = this.load(new BinaryStorageBackend(dataFolder));
+		assertEquals(getLeafValues(data), getLeafValues(loaded));
+		// the entries get inserted in file order:
+		assertEquals(data.getKeys(false).toString(), loaded.getKeys(false).toString());
+	}
+
+	@Test
+	public void testWriteAgain() throws Exception {
+		BinaryStorageBackend backend = new BinaryStorageBackend(dataFolder);
+		FileConfiguration data = createData(3);
+		StorageBackend.PreparedSave preparedSave = backend.prepareSave(data, Collections.emptySet());
+		// changes after preparing the save are not included:
+		data.set("1.name", "Renamed shop");
+		preparedSave.write();
+		// writing can be repeated (ex. after a failed attempt):
+		preparedSave.write();
+
+		assertEquals("Shop 1", this.load(backend).getString("1.name"));
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidMagicNumber() throws Exception {
+		BinaryStorageBackend backend = new BinaryStorageBackend(dataFolder);
+		backend.prepareSave(createData(3), Collections.emptySet()).write();
+		try (RandomAccessFile file = new RandomAccessFile(saveFile, "rw")) {
+			file.writeInt(0);
+		}
+		this.load(backend);
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedFile() throws Exception {
+		BinaryStorageBackend backend = new BinaryStorageBackend(dataFolder);
+		backend.prepareSave(createData(3), Collections.emptySet()).write();
+		try (RandomAccessFile file = new RandomAccessFile(saveFile, "rw")) {
+			file.setLength(file.length() - 10);
+		}
+		this.load(backend);
+	}
+}
@@ -0,0 +1,98 @@
+package com.nisovin.shopkeepers.storage;
+
+import static com.nisovin.shopkeepers.testutil.ConfigTestUtils.getLeafValues;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShardedYamlStorageBackendTest extends AbstractStorageTest {
+
+	// shopkeepers in the shards 0, 1 and 2:
+	private static final List<Integer> SHOPKEEPER_IDS = Arrays.asList(1, 99, 150, 250);
+
+	private File shardsFolder;
+
+	@Before
+	public void setUp() {
+		shardsFolder = new File(dataFolder, "shards");
+	}
+
+	@Test
+	public void testNoData() throws Exception {
+		ShardedYamlStorageBackend backend = new ShardedYamlStorageBackend(dataFolder);
+		assertFalse(backend.hasData());
+		assertTrue(this.load(backend).getKeys(false).isEmpty());
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		ShardedYamlStorageBackend backend = new ShardedYamlStorageBackend(dataFolder);
+		FileConfiguration data = createData(SHOPKEEPER_IDS);
+		backend.prepareSave(data, new HashSet<>(SHOPKEEPER_IDS)).write();
+		assertTrue(backend.hasData());
+		assertTrue(new File(shardsFolder, "shard-0.yml").exists());
+		assertTrue(new File(shardsFolder, "shard-1.yml").exists());
+		assertTrue(new File(shardsFolder, "shard-2.yml").exists());
+
+		FileConfiguration loaded = this.load(new ShardedYamlStorageBackend(dataFolder));
+		assertEquals(getLeafValues(data), getLeafValues(loaded));
+	}
+
+	@Test
+	public void testOnlyChangedShardsGetWritten() throws Exception {
+		ShardedYamlStorageBackend backend = new ShardedYamlStorageBackend(dataFolder);
+		FileConfiguration data = createData(SHOPKEEPER_IDS);
+		backend.prepareSave(data, new HashSet<>(SHOPKEEPER_IDS)).write();
+
+		// update shopkeeper 1, and modify shopkeeper 150 without marking it as changed:
+		data.set("1.name", "Renamed shop");
+		data.set("150.name", "Not saved");
+		backend.prepareSave(data, new HashSet<>(Arrays.asList(1))).write();
+
+		FileConfiguration loaded = this.load(backend);
+		assertEquals("Renamed shop", loaded.getString("1.name"));
+		assertEquals("Shop 99", loaded.getString("99.name"));
+		assertEquals("Shop 150", loaded.getString("150.name"));
+	}
+
+	@Test
+	public void testEmptyShardGetsDeleted() throws Exception {
+		ShardedYamlStorageBackend backend = new ShardedYamlStorageBackend(dataFolder);
+		FileConfiguration data = createData(SHOPKEEPER_IDS);
+		backend.prepareSave(data, new HashSet<>(SHOPKEEPER_IDS)).write();
+
+		data.set("150", null);
+		backend.prepareSave(data, new HashSet<>(Arrays.asList(150))).write();
+		assertFalse(new File(shardsFolder, "shard-1.yml").exists());
+
+		FileConfiguration loaded = this.load(backend);
+		assertNull(loaded.get("150"));
+		assertEquals(new HashSet<>(Arrays.asList(SKShopkeeperStorage.DATA_VERSION_KEY, "1", "99", "250")), loaded.getKeys(false));
+	}
+
+	@Test
+	public void testLowestDataVersion() throws Exception {
+		ShardedYamlStorageBackend backend = new ShardedYamlStorageBackend(dataFolder);
+		FileConfiguration data = createData(SHOPKEEPER_IDS);
+		data.set(SKShopkeeperStorage.DATA_VERSION_KEY, 2);
+		backend.prepareSave(data, new HashSet<>(SHOPKEEPER_IDS)).write();
+
+		// a shard that has not been saved again since an older data version:
+		data.set(SKShopkeeperStorage.DATA_VERSION_KEY, 1);
+		backend.prepareSave(data, new HashSet<>(Arrays.asList(150))).write();
+		data.set(SKShopkeeperStorage.DATA_VERSION_KEY, 3);
+		backend.prepareSave(data, new HashSet<>(Arrays.asList(250))).write();
+
+		assertEquals(1, this.load(backend).getInt(SKShopkeeperStorage.DATA_VERSION_KEY));
+	}
+}
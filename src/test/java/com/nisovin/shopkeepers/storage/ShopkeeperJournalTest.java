@@ -0,0 +1,191 @@
+package com.nisovin.shopkeepers.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShopkeeperJournalTest extends AbstractStorageTest {
+
+	// magic number and format version:
+	private static final int SEGMENT_HEADER_SIZE = 8;
+
+	private File journalFolder;
+
+	@Before
+	public void setUp() {
+		journalFolder = new File(dataFolder, "journal");
+	}
+
+	private static ConfigurationSection createShopkeeperData(String name) {
+		ConfigurationSection data = new MemoryConfiguration();
+		data.set("name", name);
+		data.set("offers.1.price", 5);
+		return data;
+	}
+
+	private static ShopkeeperJournal.Entry update(int shopkeeperId, String name) {
+		return new ShopkeeperJournal.Entry(shopkeeperId, createShopkeeperData(name));
+	}
+
+	private static ShopkeeperJournal.Entry delete(int shopkeeperId) {
+		return new ShopkeeperJournal.Entry(shopkeeperId, null);
+	}
+
+	// the size of an update entry inside the journal file:
+	private static int getEntrySize(String name) throws IOException {
+		int recordLength = new BinaryDataCodec.Encoder(false).encode(createShopkeeperData(name)).length;
+		return 1 + 4 + 4 + recordLength + 8;
+	}
+
+	private File getSegmentFile(int segment) {
+		return new File(journalFolder, "journal-" + segment + ".dat");
+	}
+
+	@Test
+	public void testNoData() {
+		ShopkeeperJournal journal = new ShopkeeperJournal(dataFolder);
+		assertFalse(journal.hasData());
+		FileConfiguration data = createData(3);
+		assertTrue(journal.replay(data).isEmpty());
+		assertEquals("Shop 2", data.getString("2.name"));
+	}
+
+	@Test
+	public void testReplay() {
+		ShopkeeperJournal journal = new ShopkeeperJournal(dataFolder);
+		journal.open();
+		journal.append(Arrays.asList(update(1, "Renamed"), delete(2)));
+		journal.append(Collections.singletonList(update(4, "Fourth")));
+		journal.close();
+		assertTrue(journal.hasData());
+
+		FileConfiguration data = createData(3);
+		assertEquals(new HashSet<>(Arrays.asList(1, 2, 4)), new ShopkeeperJournal(dataFolder).replay(data));
+		assertEquals("Renamed", data.getString("1.name"));
+		assertNull(data.get("2"));
+		assertEquals("Shop 3", data.getString("3.name"));
+		assertEquals("Fourth", data.getString("4.name"));
+		assertEquals(5, data.getInt("4.offers.1.price"));
+	}
+
+	@Test
+	public void testLaterSegmentsWin() {
+		ShopkeeperJournal journal = new ShopkeeperJournal(dataFolder);
+		journal.open();
+		journal.append(Collections.singletonList(update(1, "Old")));
+		journal.startNewSegment();
+		journal.append(Collections.singletonList(update(1, "New")));
+		journal.close();
+		assertTrue(this.getSegmentFile(1).exists());
+		assertTrue(this.getSegmentFile(2).exists());
+
+		FileConfiguration data = createData(3);
+		new ShopkeeperJournal(dataFolder).replay(data);
+		assertEquals("New", data.getString("1.name"));
+	}
+
+	@Test
+	public void testDeleteSegmentsBefore() {
+		ShopkeeperJournal journal = new ShopkeeperJournal(dataFolder);
+		journal.open();
+		journal.append(Collections.singletonList(update(1, "Persisted")));
+		int segment = journal.startNewSegment();
+		journal.append(Collections.singletonList(update(2, "Pending")));
+		journal.deleteSegmentsBefore(segment);
+		journal.close();
+		assertFalse(this.getSegmentFile(1).exists());
+
+		FileConfiguration data = createData(3);
+		assertEquals(Collections.singleton(2), new ShopkeeperJournal(dataFolder).replay(data));
+		assertEquals("Shop 1", data.getString("1.name"));
+		assertEquals("Pending", data.getString("2.name"));
+	}
+
+	@Test
+	public void testContinuesAfterExistingSegments() {
+		ShopkeeperJournal journal = new ShopkeeperJournal(dataFolder);
+		journal.open();
+		journal.append(Collections.singletonList(update(1, "Old")));
+		journal.close();
+
+		// after a restart, new entries get written to a new segment:
+		journal = new ShopkeeperJournal(dataFolder);
+		journal.open();
+		journal.append(Collections.singletonList(update(1, "New")));
+		journal.close();
+		assertTrue(this.getSegmentFile(2).exists());
+
+		FileConfiguration data = createData(3);
+		new ShopkeeperJournal(dataFolder).replay(data);
+		assertEquals("New", data.getString("1.name"));
+	}
+
+	@Test
+	public void testTornEntry() throws IOException {
+		ShopkeeperJournal journal = new ShopkeeperJournal(dataFolder);
+		journal.open();
+		journal.append(Arrays.asList(update(1, "Complete"), update(2, "Torn")));
+		journal.close();
+		// cut off the end of the last entry, like a crash during writing would:
+		try (RandomAccessFile file = new RandomAccessFile(this.getSegmentFile(1), "rw")) {
+			file.setLength(file.length() - 3);
+		}
+
+		FileConfiguration data = createData(3);
+		assertEquals(Collections.singleton(1), new ShopkeeperJournal(dataFolder).replay(data));
+		assertEquals("Complete", data.getString("1.name"));
+		assertEquals("Shop 2", data.getString("2.name"));
+	}
+
+	@Test
+	public void testCorruptedEntry() throws IOException {
+		ShopkeeperJournal journal = new ShopkeeperJournal(dataFolder);
+		journal.open();
+		journal.append(Arrays.asList(update(1, "Valid"), update(2, "Corrupted"), update(3, "Skipped")));
+		journal.startNewSegment();
+		journal.append(Collections.singletonList(update(1, "Next segment")));
+		journal.close();
+		// modify the checksum of the second entry:
+		long checksumEnd = SEGMENT_HEADER_SIZE + getEntrySize("Valid") + getEntrySize("Corrupted");
+		try (RandomAccessFile file = new RandomAccessFile(this.getSegmentFile(1), "rw")) {
+			file.seek(checksumEnd - 1);
+			int lastByte = file.read();
+			file.seek(checksumEnd - 1);
+			file.write(lastByte ^ 0xFF);
+		}
+
+		FileConfiguration data = createData(3);
+		new ShopkeeperJournal(dataFolder).replay(data);
+		// the entries after the corrupted entry are ignored, but the following segments still get replayed:
+		assertEquals("Next segment", data.getString("1.name"));
+		assertEquals("Shop 2", data.getString("2.name"));
+		assertEquals("Shop 3", data.getString("3.name"));
+	}
+
+	@Test
+	public void testInvalidSegmentHeader() throws IOException {
+		assertTrue(journalFolder.mkdirs());
+		try (FileOutputStream out = new FileOutputStream(this.getSegmentFile(1))) {
+			out.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+		}
+
+		FileConfiguration data = createData(3);
+		assertTrue(new ShopkeeperJournal(dataFolder).replay(data).isEmpty());
+		assertEquals("Shop 1", data.getString("1.name"));
+	}
+}
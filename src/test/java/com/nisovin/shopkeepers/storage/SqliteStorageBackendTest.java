@@ -0,0 +1,83 @@
+package com.nisovin.shopkeepers.storage;
+
+import static com.nisovin.shopkeepers.testutil.ConfigTestUtils.getLeafValues;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.junit.Test;
+
+public class SqliteStorageBackendTest extends AbstractStorageTest {
+
+	@Test
+	public void testNoDataWithoutDatabase() throws Exception {
+		SqliteStorageBackend backend = new SqliteStorageBackend(dataFolder);
+		assertFalse(backend.hasData());
+		assertTrue(this.load(backend).getKeys(false).isEmpty());
+	}
+
+	@Test
+	public void testNoDataInEmptyDatabase() throws Exception {
+		File databaseFile = new File(dataFolder, "shopkeepers.db");
+		// an empty database file:
+		assertTrue(databaseFile.createNewFile());
+		SqliteStorageBackend backend = new SqliteStorageBackend(dataFolder);
+		assertFalse(backend.hasData());
+
+		// a database with empty tables:
+		try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+				Statement statement = connection.createStatement()) {
+			statement.executeUpdate("CREATE TABLE metadata (key TEXT PRIMARY KEY, value INTEGER NOT NULL)");
+			statement.executeUpdate("CREATE TABLE shopkeepers (id INTEGER PRIMARY KEY, data BLOB NOT NULL)");
+		}
+		assertFalse(backend.hasData());
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		SqliteStorageBackend backend = new SqliteStorageBackend(dataFolder);
+		FileConfiguration data = createData(2);
+		backend.prepareSave(data, new HashSet<>(Arrays.asList(1, 2))).write();
+		assertTrue(backend.hasData());
+
+		FileConfiguration loaded = this.load(new SqliteStorageBackend(dataFolder));
+		assertEquals(getLeafValues(data), getLeafValues(loaded));
+	}
+
+	@Test
+	public void testDataVersionWithoutShopkeepers() throws Exception {
+		SqliteStorageBackend backend = new SqliteStorageBackend(dataFolder);
+		FileConfiguration data = createData(0);
+		backend.prepareSave(data, Collections.emptySet()).write();
+		// a save without any shopkeepers still counts as data, so that it does not get replaced by a conversion:
+		assertTrue(backend.hasData());
+	}
+
+	@Test
+	public void testOnlyChangedShopkeepersGetWritten() throws Exception {
+		SqliteStorageBackend backend = new SqliteStorageBackend(dataFolder);
+		FileConfiguration data = createData(2);
+		backend.prepareSave(data, new HashSet<>(Arrays.asList(1, 2))).write();
+
+		// update the first shopkeeper, delete the second one, and modify the third one without marking it as changed:
+		data.set("1.name", "Renamed shop");
+		data.set("2", null);
+		data.set("3.type", "trade");
+		backend.prepareSave(data, new HashSet<>(Arrays.asList(1, 2))).write();
+
+		FileConfiguration loaded = this.load(backend);
+		assertEquals("Renamed shop", loaded.getString("1.name"));
+		assertNull(loaded.get("2"));
+		assertNull(loaded.get("3"));
+	}
+}
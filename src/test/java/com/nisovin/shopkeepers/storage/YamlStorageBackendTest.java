@@ -0,0 +1,83 @@
+package com.nisovin.shopkeepers.storage;
+
+import static com.nisovin.shopkeepers.testutil.ConfigTestUtils.getLeafValues;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.junit.Test;
+
+public class YamlStorageBackendTest extends AbstractStorageTest {
+
+	private static void writeFile(File file, String content) throws Exception {
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+			writer.write(content);
+		}
+	}
+
+	@Test
+	public void testNoData() throws Exception {
+		YamlStorageBackend backend = new YamlStorageBackend(dataFolder);
+		assertFalse(backend.hasData());
+		assertTrue(this.load(backend).getKeys(false).isEmpty());
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		YamlStorageBackend backend = new YamlStorageBackend(dataFolder);
+		FileConfiguration data = createData(MANY_SHOPKEEPERS);
+		backend.prepareSave(data, Collections.emptySet()).write();
+		assertTrue(backend.hasData());
+
+		FileConfiguration loaded = this.load(new YamlStorageBackend(dataFolder));
+		assertEquals(getLeafValues(data), getLeafValues(loaded));
+		// the entries get inserted in file order:
+		assertEquals(data.getKeys(false).toString(), loaded.getKeys(false).toString());
+	}
+
+	@Test
+	public void testLoadFromTempFile() throws Exception {
+		YamlStorageBackend backend = new YamlStorageBackend(dataFolder);
+		FileConfiguration data = createData(3);
+		backend.prepareSave(data, Collections.emptySet()).write();
+		File saveFile = new File(dataFolder, "save.yml");
+		assertTrue(saveFile.renameTo(StorageFiles.getTempFile(saveFile)));
+		assertTrue(backend.hasData());
+
+		assertEquals(getLeafValues(data), getLeafValues(this.load(backend)));
+	}
+
+	@Test
+	public void testFallbackToLoadingAsWhole() throws Exception {
+		// an alias in a later batch refers to an anchor of the first batch:
+		StringBuilder content = new StringBuilder();
+		content.append("# comment\n");
+		content.append(SKShopkeeperStorage.DATA_VERSION_KEY).append(": 1\n");
+		content.append("'1':\n  name: &shared Shared name\n");
+		for (int id = 2; id < 150; id++) {
+			content.append('\'').append(id).append("':\n  name: Shop ").append(id).append('\n');
+		}
+		content.append("'150':\n  name: *shared\n");
+		writeFile(new File(dataFolder, "save.yml"), content.toString());
+
+		FileConfiguration loaded = this.load(new YamlStorageBackend(dataFolder));
+		assertEquals(151, loaded.getKeys(false).size());
+		assertEquals("Shared name", loaded.getString("1.name"));
+		assertEquals("Shop 100", loaded.getString("100.name"));
+		assertEquals("Shared name", loaded.getString("150.name"));
+	}
+
+	@Test(expected = Exception.class)
+	public void testInvalidYaml() throws Exception {
+		writeFile(new File(dataFolder, "save.yml"), "'1':\n  name: [unclosed\n");
+		this.load(new YamlStorageBackend(dataFolder));
+	}
+}
@@ -0,0 +1,58 @@
+package com.nisovin.shopkeepers.testutil;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+public final class ConfigTestUtils {
+
+	private ConfigTestUtils() {
+	}
+
+	/**
+	 * Adds some example shopkeeper data to the given data.
+	 * 
+	 * @param data
+	 *            the data
+	 * @param id
+	 *            the shopkeeper id
+	 * @return the shopkeeper data
+	 */
+	public static ConfigurationSection addShopkeeperData(ConfigurationSection data, int id) {
+		ConfigurationSection section = data.createSection(String.valueOf(id));
+		section.set("type", (id % 2 == 0 ? "admin" : "sell"));
+		section.set("uniqueId", "4f9b3a4e-1c55-4bd6-9c5a-" + String.format("%012d", id));
+		section.set("name", "Shop " + id);
+		section.set("world", "world");
+		section.set("x", id * 16);
+		section.set("y", 64);
+		section.set("z", -id);
+		section.set("object.type", "villager");
+		section.set("object.profession", "FARMER");
+		section.set("lore", Arrays.asList("line " + id, "second line"));
+		section.set("balance", id + 0.5D);
+		section.set("offers.1.price", id);
+		return section;
+	}
+
+	/**
+	 * Gets all values of the given section and its sub sections by their full paths, excluding the sub sections
+	 * themselves (which don't implement equals).
+	 * 
+	 * @param section
+	 *            the section, or <code>null</code>
+	 * @return the values, or <code>null</code> if the section is <code>null</code>
+	 */
+	public static Map<String, Object> getLeafValues(ConfigurationSection section) {
+		if (section == null) return null;
+		Map<String, Object> values = new LinkedHashMap<>();
+		for (Entry<String, Object> entry : section.getValues(true).entrySet()) {
+			if (entry.getValue() instanceof ConfigurationSection) continue;
+			values.put(entry.getKey(), entry.getValue());
+		}
+		return values;
+	}
+}
@@ -0,0 +1,225 @@
+package com.nisovin.shopkeepers.testutil;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import com.nisovin.shopkeepers.api.ShopkeepersAPI;
+import com.nisovin.shopkeepers.api.ShopkeepersPlugin;
+
+/**
+ * Sets up a minimal server environment for tests.
+ * <p>
+ * This provides a server whose item factory creates simple item meta, which only supports display names and lore, and
+ * enables the Shopkeepers API with a plugin that only provides a logger.
+ */
+public final class TestEnvironment {
+
+	private static final Logger LOGGER = Logger.getLogger("Shopkeepers-Test");
+	private static boolean setUp = false;
+
+	private TestEnvironment() {
+	}
+
+	public static synchronized void setUp() {
+		if (setUp) return;
+		setUp = true;
+
+		ItemFactory itemFactory = createProxy(ItemFactory.class, (method, args) -> {
+			switch (method.getName()) {
+			case "getItemMeta":
+				return TestItemMeta.create();
+			case "isApplicable":
+				return true;
+			case "equals":
+				if (args.length == 2) {
+					return Objects.equals(TestItemMeta.normalize((ItemMeta) args[0]), TestItemMeta.normalize((ItemMeta) args[1]));
+				}
+				return null; // handled by the proxy
+			case "asMetaFor":
+				return args[0];
+			case "updateMaterial":
+				return args[1];
+			default:
+				return null;
+			}
+		});
+		Server server = createProxy(Server.class, (method, args) -> {
+			switch (method.getName()) {
+			case "getLogger":
+				return LOGGER;
+			case "getName":
+				return "TestServer";
+			case "getVersion":
+			case "getBukkitVersion":
+				return "test";
+			case "getItemFactory":
+				return itemFactory;
+			default:
+				return null;
+			}
+		});
+		Bukkit.setServer(server);
+
+		ShopkeepersPlugin plugin = createProxy(ShopkeepersPlugin.class, (method, args) -> {
+			switch (method.getName()) {
+			case "getLogger":
+				return LOGGER;
+			case "getName":
+				return "Shopkeepers";
+			default:
+				return null;
+			}
+		});
+		ShopkeepersAPI.enable(plugin);
+	}
+
+	/**
+	 * Creates an item with the given display name and lore.
+	 *
+	 * @param type
+	 *            the item type
+	 * @param amount
+	 *            the stack size
+	 * @param displayName
+	 *            the display name, or <code>null</code>
+	 * @param lore
+	 *            the lore, or <code>null</code>
+	 * @return the item
+	 */
+	public static ItemStack createItem(Material type, int amount, String displayName, List<String> lore) {
+		setUp();
+		ItemStack item = new ItemStack(type, amount);
+		if (displayName != null || lore != null) {
+			ItemMeta itemMeta = item.getItemMeta();
+			itemMeta.setDisplayName(displayName);
+			itemMeta.setLore(lore);
+			item.setItemMeta(itemMeta);
+		}
+		return item;
+	}
+
+	private interface MethodHandler {
+		Object invoke(Method method, Object[] args) throws Throwable;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T createProxy(Class<T> type, MethodHandler handler) {
+		InvocationHandler invocationHandler = new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (args == null) args = new Object[0];
+				Object result = handler.invoke(method, args);
+				if (result != null) return result;
+				// object methods:
+				switch (method.getName()) {
+				case "equals":
+					if (args.length == 1) return (proxy == args[0]);
+					break;
+				case "hashCode":
+					if (args.length == 0) return System.identityHashCode(proxy);
+					break;
+				case "toString":
+					if (args.length == 0) return type.getSimpleName() + "Proxy";
+					break;
+				default:
+					break;
+				}
+				return getDefaultValue(method.getReturnType());
+			}
+		};
+		return (T) Proxy.newProxyInstance(TestEnvironment.class.getClassLoader(), new Class<?>[] { type }, invocationHandler);
+	}
+
+	private static Object getDefaultValue(Class<?> type) {
+		if (!type.isPrimitive() || type == void.class) return null;
+		if (type == boolean.class) return false;
+		if (type == char.class) return '\0';
+		if (type == byte.class) return (byte) 0;
+		if (type == short.class) return (short) 0;
+		if (type == int.class) return 0;
+		if (type == long.class) return 0L;
+		if (type == float.class) return 0.0F;
+		return 0.0D;
+	}
+
+	// item meta that only supports display names and lore:
+	private static class TestItemMeta implements InvocationHandler {
+
+		private static ItemMeta create() {
+			return (ItemMeta) Proxy.newProxyInstance(TestEnvironment.class.getClassLoader(), new Class<?>[] { Damageable.class },
+					new TestItemMeta());
+		}
+
+		// empty item meta is equal to no item meta:
+		private static TestItemMeta normalize(ItemMeta itemMeta) {
+			if (itemMeta == null) return null;
+			TestItemMeta state = (TestItemMeta) Proxy.getInvocationHandler(itemMeta);
+			return (state.displayName == null && state.lore == null) ? null : state;
+		}
+
+		private String displayName = null;
+		private List<String> lore = null;
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "hasDisplayName":
+				return (displayName != null);
+			case "getDisplayName":
+				return displayName;
+			case "setDisplayName":
+				displayName = (String) args[0];
+				return null;
+			case "hasLore":
+				return (lore != null);
+			case "getLore":
+				return (lore == null ? null : new ArrayList<>(lore));
+			case "setLore":
+				@SuppressWarnings("unchecked")
+				List<String> newLore = (List<String>) args[0];
+				lore = ((newLore == null || newLore.isEmpty()) ? null : new ArrayList<>(newLore));
+				return null;
+			case "clone":
+				TestItemMeta copy = new TestItemMeta();
+				copy.displayName = displayName;
+				copy.lore = lore;
+				return Proxy.newProxyInstance(TestEnvironment.class.getClassLoader(), new Class<?>[] { Damageable.class }, copy);
+			case "equals":
+				if (!(args[0] instanceof ItemMeta) || !Proxy.isProxyClass(args[0].getClass())) return false;
+				return this.equals(Proxy.getInvocationHandler(args[0]));
+			case "hashCode":
+				return this.hashCode();
+			case "toString":
+				return "TestItemMeta{displayName=" + displayName + ", lore=" + lore + "}";
+			default:
+				return getDefaultValue(method.getReturnType());
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(displayName, lore);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof TestItemMeta)) return false;
+			TestItemMeta other = (TestItemMeta) obj;
+			return Objects.equals(displayName, other.displayName) && Objects.equals(lore, other.lore);
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package com.nisovin.shopkeepers.tradelogging;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class TradeLogWriterTest {
+
+	private static void assertEncodedLength(String text) {
+		assertEquals(text.getBytes(StandardCharsets.UTF_8).length, TradeLogWriter.getEncodedLength(text));
+	}
+
+	@Test
+	public void testEncodedLength() {
+		assertEncodedLength("");
+		assertEncodedLength("\"Player\",1,\"sell\",\"world,1,2,3\",STONE,64");
+		assertEncodedLength("Gr\u00fcner L\u00e4den");
+		assertEncodedLength("\u5546\u5e97");
+		assertEncodedLength("Shop \ud83d\ude00");
+		// unpaired surrogates get replaced with a single character:
+		assertEncodedLength("a\ud83db");
+		assertEncodedLength("a\ude00");
+	}
+}
@@ -0,0 +1,75 @@
+package com.nisovin.shopkeepers.util;
+
+import static com.nisovin.shopkeepers.testutil.TestEnvironment.createItem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.junit.Test;
+
+public class ItemKeyTest {
+
+	@Test
+	public void testSimilarItems() {
+		ItemStack item = createItem(Material.DIAMOND, 1, "Gem", Arrays.asList("Shiny"));
+		ItemKey key = new ItemKey(item);
+		// the stack size is ignored:
+		ItemKey otherKey = new ItemKey(createItem(Material.DIAMOND, 64, "Gem", Arrays.asList("Shiny")));
+		assertEquals(key, otherKey);
+		assertEquals(key.hashCode(), otherKey.hashCode());
+		assertSame(item, key.getItem());
+	}
+
+	@Test
+	public void testDifferentItems() {
+		ItemKey key = new ItemKey(createItem(Material.DIAMOND, 1, "Gem", null));
+		assertNotEquals(key, new ItemKey(createItem(Material.EMERALD, 1, "Gem", null)));
+		assertNotEquals(key, new ItemKey(createItem(Material.DIAMOND, 1, "Other gem", null)));
+		assertNotEquals(key, new ItemKey(createItem(Material.DIAMOND, 1, "Gem", Arrays.asList("Shiny"))));
+		assertNotEquals(key, new ItemKey(createItem(Material.DIAMOND, 1, null, null)));
+		assertFalse(key.equals(null));
+	}
+
+	@Test
+	public void testHashMatchesSimilarity() {
+		ItemStack item = createItem(Material.DIAMOND, 1, "Gem", null);
+		ItemStack similarItem = createItem(Material.DIAMOND, 5, "Gem", null);
+		assertEquals(ItemUtils.getSimilarityHash(item), ItemUtils.getSimilarityHash(similarItem));
+		assertEquals(ItemUtils.getSimilarityHash(createItem(Material.STONE, 1, null, null)),
+				ItemUtils.getSimilarityHash(createItem(Material.STONE, 3, null, null)));
+	}
+
+	@Test
+	public void testCountItemsByKey() {
+		ItemStack[] contents = new ItemStack[] {
+				createItem(Material.DIAMOND, 10, "Gem", null),
+				null,
+				createItem(Material.STONE, 64, null, null),
+				createItem(Material.DIAMOND, 5, "Gem", null),
+				createItem(Material.DIAMOND, 7, null, null),
+				createItem(Material.STONE, 1, null, null)
+		};
+		Map<ItemKey, ItemCount> itemCounts = ItemUtils.countItemsByKey(contents, null);
+		assertEquals(3, itemCounts.size());
+		// in the order of their first occurrence:
+		List<ItemCount> counts = new ArrayList<>(itemCounts.values());
+		assertEquals(15, counts.get(0).getAmount());
+		assertEquals(65, counts.get(1).getAmount());
+		assertEquals(7, counts.get(2).getAmount());
+		// the counters use their own copies of the items:
+		assertEquals(10, contents[0].getAmount());
+
+		// filtered:
+		itemCounts = ItemUtils.countItemsByKey(contents, (item) -> item.getType() == Material.STONE);
+		assertEquals(1, itemCounts.size());
+		assertEquals(65, itemCounts.get(new ItemKey(createItem(Material.STONE, 1, null, null))).getAmount());
+	}
+}
@@ -0,0 +1,69 @@
+package com.nisovin.shopkeepers.util;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Compares the time it takes to match the contents of a full shop chest with {@link ItemUtils#isSimilar(ItemStack,
+ * Material, String, java.util.List)} and with an {@link ItemMatcher}.
+ * <p>
+ * This is not part of the unit tests, since its results depend on the machine and JIT state. Run it manually with the
+ * test classpath: <code>java -cp ... com.nisovin.shopkeepers.util.ItemMatcherBenchmark [iterations] [rounds]</code>.
+ * <p>
+ * The chest contents are created via the test environment, whose item meta only supports display names and lore. On
+ * an actual server, every access of the item meta copies the complete CraftBukkit item meta, so the absolute numbers
+ * only indicate the relative difference between both approaches.
+ */
+public class ItemMatcherBenchmark {
+
+	private static final int DEFAULT_ITERATIONS = 20000;
+	private static final int DEFAULT_ROUNDS = 5;
+
+	public static void main(String[] args) {
+		int iterations = (args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS);
+		int rounds = (args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS);
+
+		ItemStack[] contents = ItemMatcherTest.createChestContents();
+		ItemMatcher matcher = new ItemMatcher(Material.EMERALD, "Coin", ItemMatcherTest.LORE);
+
+		// warm up, and check that both produce the same results:
+		int expectedMatches = countSimilar(contents, iterations);
+		int matches = countMatches(contents, matcher, iterations);
+		if (matches != expectedMatches) {
+			throw new IllegalStateException("Different results: isSimilar: " + expectedMatches + ", ItemMatcher: " + matches);
+		}
+
+		for (int round = 1; round <= rounds; round++) {
+			long start = System.nanoTime();
+			countSimilar(contents, iterations);
+			long similarNanos = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			countMatches(contents, matcher, iterations);
+			long matcherNanos = System.nanoTime() - start;
+
+			System.out.println("Round " + round + ": Matching a chest's contents: ItemUtils.isSimilar: "
+					+ (similarNanos / iterations) + " ns, ItemMatcher: " + (matcherNanos / iterations) + " ns");
+		}
+	}
+
+	private static int countSimilar(ItemStack[] contents, int iterations) {
+		int count = 0;
+		for (int i = 0; i < iterations; i++) {
+			for (ItemStack item : contents) {
+				if (ItemUtils.isSimilar(item, Material.EMERALD, "Coin", ItemMatcherTest.LORE)) count++;
+			}
+		}
+		return count;
+	}
+
+	private static int countMatches(ItemStack[] contents, ItemMatcher matcher, int iterations) {
+		int count = 0;
+		for (int i = 0; i < iterations; i++) {
+			for (ItemStack item : contents) {
+				if (matcher.matches(item)) count++;
+			}
+		}
+		return count;
+	}
+}
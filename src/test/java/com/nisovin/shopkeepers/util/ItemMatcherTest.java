@@ -0,0 +1,88 @@
+package com.nisovin.shopkeepers.util;
+
+import static com.nisovin.shopkeepers.testutil.TestEnvironment.createItem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.junit.Test;
+
+public class ItemMatcherTest {
+
+	static final List<String> LORE = Arrays.asList("Line 1", "Line 2");
+
+	// a chest full of items, some of them matching:
+	static ItemStack[] createChestContents() {
+		ItemStack[] contents = new ItemStack[54];
+		for (int slot = 0; slot < contents.length; slot++) {
+			switch (slot % 6) {
+			case 0:
+				contents[slot] = createItem(Material.EMERALD, 64, "Coin", LORE);
+				break;
+			case 1:
+				contents[slot] = createItem(Material.EMERALD, 10, "Coin", null);
+				break;
+			case 2:
+				contents[slot] = createItem(Material.EMERALD, 1, null, null);
+				break;
+			case 3:
+				contents[slot] = createItem(Material.DIAMOND, 5, "Coin", LORE);
+				break;
+			case 4:
+				contents[slot] = createItem(Material.STONE, 64, null, null);
+				break;
+			default:
+				break; // empty slot
+			}
+		}
+		return contents;
+	}
+
+	@Test
+	public void testMatches() {
+		ItemMatcher matcher = new ItemMatcher(Material.EMERALD, "Coin", LORE);
+		assertTrue(matcher.matches(createItem(Material.EMERALD, 3, "Coin", LORE)));
+		assertFalse(matcher.matches(createItem(Material.EMERALD, 3, "Coin", null)));
+		assertFalse(matcher.matches(createItem(Material.EMERALD, 3, null, LORE)));
+		assertFalse(matcher.matches(createItem(Material.DIAMOND, 3, "Coin", LORE)));
+		assertFalse(matcher.matches(null));
+
+		// empty name and lore are ignored:
+		matcher = new ItemMatcher(Material.EMERALD, "", Collections.emptyList());
+		assertTrue(matcher.matches(createItem(Material.EMERALD, 1, null, null)));
+		assertTrue(matcher.matches(createItem(Material.EMERALD, 1, "Coin", LORE)));
+	}
+
+	@Test
+	public void testMatchesLikeIsSimilar() {
+		ItemStack[] contents = createChestContents();
+		for (String displayName : Arrays.asList(null, "", "Coin", "Other")) {
+			for (List<String> lore : Arrays.asList(null, Collections.<String> emptyList(), LORE)) {
+				ItemMatcher matcher = new ItemMatcher(Material.EMERALD, displayName, lore);
+				for (ItemStack item : contents) {
+					assertEquals(ItemUtils.isSimilar(item, Material.EMERALD, displayName, lore), matcher.matches(item));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testContainsAndRemoveItems() {
+		ItemMatcher matcher = new ItemMatcher(Material.EMERALD, "Coin", null);
+		ItemStack[] contents = new ItemStack[] { createItem(Material.EMERALD, 5, "Coin", null), null,
+				createItem(Material.EMERALD, 5, null, null), createItem(Material.EMERALD, 5, "Coin", LORE) };
+		assertTrue(ItemUtils.containsAtLeast(contents, matcher, 10));
+		assertFalse(ItemUtils.containsAtLeast(contents, matcher, 11));
+		assertEquals(0, ItemUtils.removeItems(contents, matcher, 7));
+		assertNull(contents[0]);
+		assertEquals(5, contents[2].getAmount());
+		assertEquals(3, contents[3].getAmount());
+	}
+}